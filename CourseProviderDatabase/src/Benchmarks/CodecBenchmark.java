@@ -0,0 +1,62 @@
+package Benchmarks;
+
+import Models.Course;
+import Models.Identifiable;
+import Models.Message;
+import Models.Student;
+import Repository.EntityCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the entity codecs of the file backends: the encoded size of a few typical entities and the time to
+ * encode and decode them.
+ * <p>
+ * Usage: {@code CodecBenchmark [iterations] [enrolledStudentsPerCourse]}
+ */
+public class CodecBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int enrolled = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        Course course = new Course(1042, "Advanced Java", "Streams, concurrency and the JVM", 120, "2024-01-09", "2024-05-09", 7);
+        for (int i = 0; i < enrolled; i++)
+            course.getEnrolledStudents().add(1000 + i * 3);
+        course.getModules().addAll(List.of(1, 2, 3, 4, 5));
+        Student student = new Student(1000, "johnDoe", "jd123pass", "john.doe@yahoo.com", "student");
+        student.getCourses().addAll(List.of(1042, 1043));
+        Message message = new Message(77, "See you at the lab on Monday", 1000, 7);
+        List<Identifiable> entities = List.of(course, student, message);
+
+        for (int round = 1; round <= 3; round++) {
+            for (String name : List.of("java", "binary")) {
+                EntityCodec codec = name.equals("java") ? EntityCodec.JAVA_SERIALIZATION : EntityCodec.BINARY;
+                List<byte[]> encoded = new ArrayList<>();
+                for (Identifiable entity : entities)
+                    encoded.add(codec.encode(entity));
+
+                long sink = 0;
+                long begin = System.nanoTime();
+                for (int i = 0; i < iterations; i++)
+                    for (Identifiable entity : entities)
+                        sink += codec.encode(entity).length;
+                long encodeNanos = System.nanoTime() - begin;
+
+                begin = System.nanoTime();
+                for (int i = 0; i < iterations; i++)
+                    for (byte[] bytes : encoded)
+                        sink += codec.decode(ByteBuffer.wrap(bytes)).getId();
+                long decodeNanos = System.nanoTime() - begin;
+
+                long operations = (long) iterations * entities.size();
+                System.out.printf("round %d %-6s: sizes course %d, student %d, message %d bytes; encode %.0f ns/op, decode %.0f ns/op, checksum %d%n",
+                        round, name, encoded.get(0).length, encoded.get(1).length, encoded.get(2).length,
+                        (double) encodeNanos / operations, (double) decodeNanos / operations, sink);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package Benchmarks;
+
+import Models.Course;
+import Models.Enrolled;
+import Repository.EnrollmentResult;
+import Repository.InMemoryEnrollmentRepository;
+import Repository.InMemoryRepo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures enrollment throughput under contention: many threads enroll distinct students into a few courses
+ * with limited seats, then the benchmark checks that no course was overbooked.
+ * <p>
+ * Usage: {@code EnrollmentBenchmark [threads] [courses] [seatsPerCourse] [attemptsPerThread]}
+ */
+public class EnrollmentBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int courses = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seats = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        int attempts = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        for (int round = 1; round <= 3; round++) {
+            InMemoryRepo<Course> courseRepo = new InMemoryRepo<>();
+            InMemoryRepo<Enrolled> enrolledRepo = new InMemoryRepo<Enrolled>().withIndex("courseId", Enrolled::getCourseId);
+            for (int id = 1; id <= courses; id++)
+                courseRepo.create(new Course(id, "Course " + id, "", seats, "2024-01-09", "2024-05-09", 1));
+            InMemoryEnrollmentRepository enrollments = new InMemoryEnrollmentRepository(courseRepo, enrolledRepo);
+
+            AtomicInteger enrolled = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int firstStudent = t * attempts;
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < attempts; i++) {
+                        int courseId = 1 + i % courses;
+                        if (enrollments.enroll(firstStudent + i, courseId) == EnrollmentResult.ENROLLED)
+                            enrolled.incrementAndGet();
+                    }
+                });
+                workers.add(worker);
+                worker.start();
+            }
+
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers)
+                worker.join();
+            long elapsed = System.nanoTime() - begin;
+
+            int seatsTaken = 0;
+            for (Course course : courseRepo.getAll()) {
+                if (course.getAvailableSpots() < 0)
+                    throw new IllegalStateException("Course " + course.getId() + " is overbooked");
+                seatsTaken += seats - course.getAvailableSpots();
+            }
+            if (seatsTaken != enrolled.get())
+                throw new IllegalStateException(seatsTaken + " seats taken for " + enrolled.get() + " enrollments");
+
+            long total = (long) threads * attempts;
+            System.out.printf("round %d: %d threads, %d attempts in %.1f ms, %.0f ops/s, enrolled %d, full %d, cas retries %d%n",
+                    round, threads, total, elapsed / 1e6, total / (elapsed / 1e9),
+                    enrollments.getEnrolledCount(), enrollments.getRejectedFullCount(), enrollments.getCasRetries());
+        }
+    }
+}
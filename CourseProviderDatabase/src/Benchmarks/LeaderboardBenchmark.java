@@ -0,0 +1,73 @@
+package Benchmarks;
+
+import Models.Course;
+import Models.Enrolled;
+import Models.Instructor;
+import Service.InstructorLeaderboard;
+import Service.ReportingEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares answering "top k instructors by enrollment" after every enrollment by recomputing the ranking with the
+ * {@link ReportingEngine} against updating the {@link InstructorLeaderboard} and reading its top k.
+ * <p>
+ * Usage: {@code LeaderboardBenchmark [enrollments] [courses] [instructors] [top k] [events]}
+ */
+public class LeaderboardBenchmark {
+
+    public static void main(String[] args) {
+        int enrollmentCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int courseCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int instructorCount = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int eventCount = args.length > 4 ? Integer.parseInt(args[4]) : 100_000;
+
+        Random random = new Random(1);
+        List<Instructor> instructors = new ArrayList<>();
+        for (int id = 1; id <= instructorCount; id++)
+            instructors.add(new Instructor(id, "instructor" + id, "pass", "i" + id + "@example.com", "instructor"));
+        List<Course> courses = new ArrayList<>();
+        for (int id = 1; id <= courseCount; id++)
+            courses.add(new Course(id, "Course " + id, "", 100, "2024-01-09", "2024-05-09", 1 + random.nextInt(instructorCount)));
+        List<Enrolled> enrollments = new ArrayList<>();
+        for (int i = 0; i < enrollmentCount; i++)
+            enrollments.add(new Enrolled(i, 1 + random.nextInt(courseCount)));
+
+        long begin = System.nanoTime();
+        InstructorLeaderboard leaderboard = new InstructorLeaderboard(() -> instructors, () -> courses, enrollments::stream);
+        leaderboard.rebuild();
+        System.out.printf("build from %,d enrollments: %.1f ms%n", enrollmentCount, (System.nanoTime() - begin) / 1e6);
+
+        for (int round = 1; round <= 5; round++) {
+            begin = System.nanoTime();
+            for (int event = 0; event < eventCount; event++) {
+                int courseId = 1 + random.nextInt(courseCount);
+                enrollments.add(new Enrolled(enrollmentCount + event, courseId));
+                leaderboard.studentEnrolled(enrollmentCount + event, courseId);
+                leaderboard.getTopByEnrollment(k);
+            }
+            long incremental = System.nanoTime() - begin;
+            enrollmentCount += eventCount;
+
+            begin = System.nanoTime();
+            int[] recomputed = ReportingEngine.topK(new ReportingEngine(courses, instructors, enrollments).countEnrollmentsPerInstructor(), k);
+            long recompute = System.nanoTime() - begin;
+
+            int[] ranked = leaderboard.getTopByEnrollment(k);
+            long[] scores = new long[k];
+            long[] expected = new long[k];
+            for (int i = 0; i < ranked.length; i++) {
+                scores[i] = leaderboard.getEnrollmentCount(ranked[i]);
+                expected[i] = leaderboard.getEnrollmentCount(instructors.get(recomputed[i]).getId());
+            }
+            if (!Arrays.equals(scores, expected))
+                throw new IllegalStateException("The rankings differ");
+            System.out.printf("round %d: leaderboard update and top %d %.2f us per event, one recomputation %.1f ms%n",
+                    round, k, incremental / 1e3 / eventCount, recompute / 1e6);
+        }
+    }
+}
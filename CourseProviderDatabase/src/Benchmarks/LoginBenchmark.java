@@ -0,0 +1,88 @@
+package Benchmarks;
+
+import Models.Admin;
+import Models.Instructor;
+import Models.Student;
+import Models.User;
+import Repository.InMemoryRepo;
+import Repository.InMemoryUserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the login lookup by username index with the scan of every student, admin and instructor it replaced,
+ * for a growing number of users. The indexed lookup should stay flat while the scan grows linearly.
+ * <p>
+ * Usage: {@code LoginBenchmark [logins]}
+ */
+public class LoginBenchmark {
+
+    public static void main(String[] args) {
+        int logins = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        for (int users : new int[]{1_000, 10_000, 100_000}) {
+            InMemoryRepo<Student> studentRepo = new InMemoryRepo<>();
+            InMemoryRepo<Admin> adminRepo = new InMemoryRepo<>();
+            InMemoryRepo<Instructor> instructorRepo = new InMemoryRepo<>();
+            List<Student> students = new ArrayList<>();
+            for (int id = 1; id <= users; id++)
+                students.add(new Student(id, "student" + id, "pass" + id, "s" + id + "@example.com", "student"));
+            studentRepo.createAll(students);
+            List<Instructor> instructors = new ArrayList<>();
+            for (int id = 1; id <= users / 10; id++)
+                instructors.add(new Instructor(id, "instructor" + id, "pass" + id, "i" + id + "@example.com", "instructor"));
+            instructorRepo.createAll(instructors);
+            adminRepo.create(new Admin(1, "admin", "admin", "admin@example.com", "admin"));
+            InMemoryUserRepository userRepo = new InMemoryUserRepository(studentRepo, adminRepo, instructorRepo);
+
+            Random random = new Random(users);
+            String[] usernames = new String[logins];
+            for (int i = 0; i < logins; i++)
+                usernames[i] = i % 2 == 0 ? "student" + (1 + random.nextInt(users)) : "instructor" + (1 + random.nextInt(users / 10));
+
+            // Warm up both paths, then measure each for the same usernames.
+            for (int i = 0; i < Math.min(logins, 2_000); i++) {
+                userRepo.findByUsername(usernames[i]);
+                scan(studentRepo, adminRepo, instructorRepo, usernames[i]);
+            }
+
+            int found = 0;
+            long begin = System.nanoTime();
+            for (String username : usernames)
+                if (userRepo.findByUsername(username) != null)
+                    found++;
+            long indexed = System.nanoTime() - begin;
+
+            int scanLogins = Math.max(1, logins / 100);
+            begin = System.nanoTime();
+            for (int i = 0; i < scanLogins; i++)
+                if (scan(studentRepo, adminRepo, instructorRepo, usernames[i]) == null)
+                    throw new IllegalStateException(usernames[i] + " not found by the scan");
+            long scanned = System.nanoTime() - begin;
+
+            if (found != logins)
+                throw new IllegalStateException(found + " of " + logins + " users found by the index");
+            System.out.printf("%,d users: indexed %.2f us/login, scan %.2f us/login%n",
+                    users + users / 10 + 1, indexed / 1e3 / logins, scanned / 1e3 / scanLogins);
+        }
+    }
+
+    /**
+     * The lookup authentication used before: every user of every role, compared one by one.
+     */
+    private static User scan(InMemoryRepo<Student> studentRepo, InMemoryRepo<Admin> adminRepo,
+                             InMemoryRepo<Instructor> instructorRepo, String username) {
+        for (Student student : studentRepo.getAll())
+            if (student.getUsername().equals(username))
+                return student;
+        for (Admin admin : adminRepo.getAll())
+            if (admin.getUsername().equals(username))
+                return admin;
+        for (Instructor instructor : instructorRepo.getAll())
+            if (instructor.getUsername().equals(username))
+                return instructor;
+        return null;
+    }
+}
@@ -0,0 +1,76 @@
+package Benchmarks;
+
+import Utils.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how many password verifications, and so logins, a core performs per second at different PBKDF2
+ * iteration counts, first on one thread and then on every core. Use it to pick {@code PASSWORD_HASH_ITERATIONS}:
+ * the login peak divided by the logins per second per core gives the cores the verifier pool needs.
+ * <p>
+ * Usage: {@code PasswordHashBenchmark [seconds per measurement] [iterations...]}
+ */
+public class PasswordHashBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        int[] costs = {10_000, 50_000, 100_000, PasswordHasher.DEFAULT_ITERATIONS, 600_000};
+        if (args.length > 1) {
+            costs = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++)
+                costs[i - 1] = Integer.parseInt(args[i]);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int iterations : costs) {
+            PasswordHasher hasher = new PasswordHasher(iterations);
+            String stored = hasher.hash("correct horse battery staple");
+            // Warm up the key derivation before measuring
+            for (int i = 0; i < 3; i++)
+                hasher.verify("correct horse battery staple", stored);
+
+            double single = measure(hasher, stored, 1, seconds);
+            double all = measure(hasher, stored, cores, seconds);
+            System.out.printf("%,9d iterations: %7.1f logins/s on 1 thread, %7.1f logins/s on %d threads (%.1f per core), %.1f ms per login%n",
+                    iterations, single, all, cores, all / cores, 1000 / single);
+        }
+    }
+
+    /**
+     * Verifies the password on a number of threads for the given time.
+     *
+     * @return The verifications per second of all threads together.
+     */
+    private static double measure(PasswordHasher hasher, String stored, int threads, double seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        AtomicInteger verified = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < deadline) {
+                    if (!hasher.verify("correct horse battery staple", stored))
+                        throw new IllegalStateException("Verification failed");
+                    verified.incrementAndGet();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        return verified.get() / ((System.nanoTime() - begin) / 1e9);
+    }
+}
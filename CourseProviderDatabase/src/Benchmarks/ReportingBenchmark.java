@@ -0,0 +1,75 @@
+package Benchmarks;
+
+import Models.Course;
+import Models.Enrolled;
+import Models.Instructor;
+import Service.ReportingEngine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the instructor ranking by total enrollment computed with boxed stream groupings, as the reports used
+ * to, with the {@link ReportingEngine} over primitive arrays, serial and parallel.
+ * <p>
+ * Usage: {@code ReportingBenchmark [enrollments] [courses] [instructors] [top k]}
+ */
+public class ReportingBenchmark {
+
+    public static void main(String[] args) {
+        int enrollmentCount = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int courseCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int instructorCount = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+        int k = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        Random random = new Random(1);
+        List<Instructor> instructors = new ArrayList<>();
+        for (int id = 1; id <= instructorCount; id++)
+            instructors.add(new Instructor(id, "instructor" + id, "pass", "i" + id + "@example.com", "instructor"));
+        List<Course> courses = new ArrayList<>();
+        for (int id = 1; id <= courseCount; id++)
+            courses.add(new Course(id, "Course " + id, "", 100, "2024-01-09", "2024-05-09", 1 + random.nextInt(instructorCount)));
+        List<Enrolled> enrollments = new ArrayList<>();
+        for (int i = 0; i < enrollmentCount; i++)
+            enrollments.add(new Enrolled(i, 1 + random.nextInt(courseCount)));
+
+        for (int round = 1; round <= 5; round++) {
+            long begin = System.nanoTime();
+            List<Instructor> boxed = rankWithStreams(instructors, courses, enrollments);
+            long streams = System.nanoTime() - begin;
+
+            begin = System.nanoTime();
+            List<Instructor> serial = ReportingEngine.select(instructors,
+                    ReportingEngine.topK(new ReportingEngine(courses, instructors, enrollments, false).countEnrollmentsPerInstructor(), k));
+            long serialTime = System.nanoTime() - begin;
+
+            begin = System.nanoTime();
+            List<Instructor> parallel = ReportingEngine.select(instructors,
+                    ReportingEngine.topK(new ReportingEngine(courses, instructors, enrollments, true).countEnrollmentsPerInstructor(), k));
+            long parallelTime = System.nanoTime() - begin;
+
+            if (!boxed.subList(0, Math.min(k, boxed.size())).equals(serial) || !serial.equals(parallel))
+                throw new IllegalStateException("The rankings differ");
+            System.out.printf("round %d: %,d enrollments, streams and full sort %.1f ms, engine top %d %.1f ms, parallel %.1f ms%n",
+                    round, enrollmentCount, streams / 1e6, k, serialTime / 1e6, parallelTime / 1e6);
+        }
+    }
+
+    /**
+     * The ranking as the service computed it before the reporting engine.
+     */
+    private static List<Instructor> rankWithStreams(List<Instructor> instructors, List<Course> courses, List<Enrolled> enrollments) {
+        Map<Integer, Long> courseEnrollmentCounts = enrollments.stream()
+                .collect(Collectors.groupingBy(Enrolled::getCourseId, Collectors.counting()));
+        Map<Integer, Long> instructorEnrollmentCounts = courses.stream()
+                .collect(Collectors.groupingBy(Course::getInstructorId,
+                        Collectors.summingLong(course -> courseEnrollmentCounts.getOrDefault(course.getId(), 0L))));
+        return instructors.stream()
+                .sorted(Comparator.comparingLong((Instructor i) -> instructorEnrollmentCounts.getOrDefault(i.getId(), 0L)).reversed())
+                .collect(Collectors.toList());
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import Exceptions.EntityNotFoundException;
 import Exceptions.ValidationException;
 import Models.Assignment;
+import Models.CourseOutline;
 import Models.Message;
 import Models.Module;
 import Models.Quiz;
@@ -256,4 +257,19 @@ public class AssignmentController {
             return List.of();
         }
     }
+
+    /**
+     * Retrieves a course with its modules, assignments and quizzes.
+     *
+     * @param courseId The ID of the course.
+     * @return The outline of the course, or null if not found.
+     */
+    public CourseOutline getCourseOutline(Integer courseId) {
+        try {
+            return assignmentService.getCourseOutline(courseId);
+        } catch (Exception e) {
+            System.out.println("Failed to retrieve course outline: " + e.getMessage());
+            return null;
+        }
+    }
 }
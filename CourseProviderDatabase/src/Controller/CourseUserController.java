@@ -4,6 +4,7 @@ import Exceptions.BusinessException;
 import Exceptions.EntityNotFoundException;
 import Exceptions.ValidationException;
 import Models.*;
+import Repository.CourseQuery;
 import Service.CoursesUserService;
 
 import java.util.List;
@@ -15,6 +16,10 @@ public class CourseUserController {
         this.service = new CoursesUserService(storageMethod);
     }
 
+    public CourseUserController(CoursesUserService service) {
+        this.service = service;
+    }
+
     /**
      * Retrieves all students enrolled in a specified course.
      *
@@ -343,6 +348,47 @@ public class CourseUserController {
         return service.getAllCoursesThatEndBeforeADate(date);
     }
 
+    /**
+     * Retrieves the courses running on a date.
+     *
+     * @param date The date in the format "yyyy-MM-dd".
+     * @return A list of courses that start on or before the date and end on or after it.
+     */
+    public List<Course> getCoursesActiveOn(String date) {
+        return service.getCoursesActiveOn(date);
+    }
+
+    /**
+     * Retrieves the courses running on at least one day of a period.
+     *
+     * @param from The first day of the period in the format "yyyy-MM-dd".
+     * @param to   The last day of the period in the format "yyyy-MM-dd".
+     * @return A list of courses overlapping the period.
+     */
+    public List<Course> getCoursesOverlapping(String from, String to) {
+        return service.getCoursesOverlapping(from, to);
+    }
+
+    /**
+     * Finds the courses matching a query of filters, sort keys and page.
+     *
+     * @param query The query.
+     * @return The page of matching courses.
+     */
+    public List<Course> findCourses(CourseQuery query) {
+        return service.findCourses(query);
+    }
+
+    /**
+     * Counts the courses matching the filters of a query.
+     *
+     * @param query The query.
+     * @return The number of matching courses.
+     */
+    public int countCourses(CourseQuery query) {
+        return service.countCourses(query);
+    }
+
     /**
      * Retrieves all instructors sorted by their total number of enrolled students across all courses.
      *
@@ -352,6 +398,26 @@ public class CourseUserController {
         return service.getInstructorsSortedByEnrollment();
     }
 
+    /**
+     * Retrieves the instructors with the most students enrolled across their courses.
+     *
+     * @param k The number of instructors to return.
+     * @return At most k instructors, sorted by total enrollment.
+     */
+    public List<Instructor> getTopInstructorsByTotalEnrollment(int k) {
+        return service.getTopInstructorsByEnrollment(k);
+    }
+
+    /**
+     * Retrieves the rank of an instructor by the total number of students enrolled across their courses.
+     *
+     * @param instructorId The ID of the instructor.
+     * @return The rank, 1 for the instructor with the most students, or -1 if the instructor does not exist.
+     */
+    public int getInstructorRankByTotalEnrollment(Integer instructorId) {
+        return service.getInstructorLeaderboard().getRankByEnrollment(instructorId);
+    }
+
     /**
      * Allows the instructors to give feedback on specific assignments.
      *
@@ -1,5 +1,9 @@
 package Models;
 
+import Utils.Dates;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -7,8 +11,14 @@ import java.util.List;
 /**
  * Represents a course in the system, which includes information about the course
  * title, description, schedule, instructor, enrolled students, and associated modules.
+ * <p>
+ * The dates are kept as the {@code yyyy-MM-dd} strings every storage format holds, and as epoch days parsed once
+ * when they are set, so date comparisons and indexes do not parse them again.
  */
 public class Course implements Identifiable, Serializable {
+    /** The version of the serialized form written by the file backends before the epoch days were added. */
+    private static final long serialVersionUID = -1340935677699649273L;
+
     /** Unique identifier for the course */
     private Integer courseID;
     /** Title of the course */
@@ -21,6 +31,10 @@ public class Course implements Identifiable, Serializable {
     private String startDate;
     /** End date of the course */
     private String endDate;
+    /** Start date of the course in days since 1970-01-01, null if it is missing or invalid */
+    private transient Integer startEpochDay;
+    /** End date of the course in days since 1970-01-01, null if it is missing or invalid */
+    private transient Integer endEpochDay;
     /** List of students enrolled in the course */
     private List<Integer> enrolledStudents = new ArrayList<>();
     /** List of modules included in the course */
@@ -35,8 +49,8 @@ public class Course implements Identifiable, Serializable {
      * @param courseTitle    The title of the course.
      * @param description    A description of the course content.
      * @param availableSpots The number of spots available for students to enroll.
-     * @param startDate      The start date of the course.
-     * @param endDate        The end date of the course.
+     * @param startDate      The start date of the course; a valid date is stored zero padded.
+     * @param endDate        The end date of the course; a valid date is stored zero padded.
      * @param instructor     The instructor teaching the course.
      */
     public Course(Integer courseID, String courseTitle, String description, Integer availableSpots, String startDate, String endDate, Integer instructor) {
@@ -44,9 +58,11 @@ public class Course implements Identifiable, Serializable {
         this.courseTitle = courseTitle;
         this.description = description;
         this.availableSpots = availableSpots;
-        this.startDate = startDate;
-        this.endDate = endDate;
         this.instructorId = instructor;
+        this.startDate = Dates.normalize(startDate);
+        this.startEpochDay = Dates.toEpochDay(startDate);
+        this.endDate = Dates.normalize(endDate);
+        this.endEpochDay = Dates.toEpochDay(endDate);
     }
 
 
@@ -78,16 +94,38 @@ public class Course implements Identifiable, Serializable {
         return startDate;
     }
 
+    /**
+     * @param startDate The start date; a valid date is stored zero padded, as {@code yyyy-MM-dd}.
+     */
     public void setStartDate(String startDate) {
-        this.startDate = startDate;
+        this.startDate = Dates.normalize(startDate);
+        this.startEpochDay = Dates.toEpochDay(startDate);
     }
 
     public String getEndDate() {
         return endDate;
     }
 
+    /**
+     * @param endDate The end date; a valid date is stored zero padded, as {@code yyyy-MM-dd}.
+     */
     public void setEndDate(String endDate) {
-        this.endDate = endDate;
+        this.endDate = Dates.normalize(endDate);
+        this.endEpochDay = Dates.toEpochDay(endDate);
+    }
+
+    /**
+     * @return The start date in days since 1970-01-01, or null if it is missing or not a valid date.
+     */
+    public Integer getStartEpochDay() {
+        return startEpochDay;
+    }
+
+    /**
+     * @return The end date in days since 1970-01-01, or null if it is missing or not a valid date.
+     */
+    public Integer getEndEpochDay() {
+        return endEpochDay;
     }
 
     public List<Integer> getEnrolledStudents() {
@@ -114,6 +152,12 @@ public class Course implements Identifiable, Serializable {
         this.instructorId = instructorId;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        startEpochDay = Dates.toEpochDay(startDate);
+        endEpochDay = Dates.toEpochDay(endDate);
+    }
+
     @Override
     public Integer getId() {
         return this.courseID;
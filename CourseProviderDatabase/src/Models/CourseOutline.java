@@ -0,0 +1,105 @@
+package Models;
+
+import java.util.List;
+
+/**
+ * A course together with its modules, the assignments of each module and the quizzes of each assignment,
+ * as read in one traversal of the relationship tables.
+ */
+public class CourseOutline {
+    private final Course course;
+    private final List<ModuleOutline> modules;
+
+    /**
+     * Constructs the outline of a course.
+     *
+     * @param course  The course.
+     * @param modules The outlines of its modules, ordered by module ID.
+     */
+    public CourseOutline(Course course, List<ModuleOutline> modules) {
+        this.course = course;
+        this.modules = modules;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public List<ModuleOutline> getModules() {
+        return modules;
+    }
+
+    @Override
+    public String toString() {
+        return "CourseOutline{" +
+                "course=" + course +
+                ", modules=" + modules +
+                '}';
+    }
+
+    /**
+     * A module of a course outline with its assignments.
+     */
+    public static class ModuleOutline {
+        private final Module module;
+        private final List<AssignmentOutline> assignments;
+
+        /**
+         * @param module      The module.
+         * @param assignments The outlines of its assignments, ordered by assignment ID.
+         */
+        public ModuleOutline(Module module, List<AssignmentOutline> assignments) {
+            this.module = module;
+            this.assignments = assignments;
+        }
+
+        public Module getModule() {
+            return module;
+        }
+
+        public List<AssignmentOutline> getAssignments() {
+            return assignments;
+        }
+
+        @Override
+        public String toString() {
+            return "ModuleOutline{" +
+                    "module=" + module +
+                    ", assignments=" + assignments +
+                    '}';
+        }
+    }
+
+    /**
+     * An assignment of a course outline with its quizzes.
+     */
+    public static class AssignmentOutline {
+        private final Assignment assignment;
+        private final List<Quiz> quizzes;
+
+        /**
+         * @param assignment The assignment.
+         * @param quizzes    Its quizzes, ordered by quiz ID.
+         */
+        public AssignmentOutline(Assignment assignment, List<Quiz> quizzes) {
+            this.assignment = assignment;
+            this.quizzes = quizzes;
+        }
+
+        public Assignment getAssignment() {
+            return assignment;
+        }
+
+        public List<Quiz> getQuizzes() {
+            return quizzes;
+        }
+
+        @Override
+        public String toString() {
+            return "AssignmentOutline{" +
+                    "assignment=" + assignment +
+                    ", quizzes=" + quizzes +
+                    '}';
+        }
+    }
+}
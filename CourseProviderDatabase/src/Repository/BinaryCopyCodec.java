@@ -0,0 +1,205 @@
+package Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The {@code FORMAT binary} codec: the PostgreSQL signature and header, then per row a 16-bit field count and
+ * every field as a 32-bit length (-1 for {@code NULL}) followed by its value in network byte order, and a
+ * trailer of -1.
+ * <p>
+ * Values are sent in the binary representation of the column type, so the Java types must match the table:
+ * {@link Integer} for {@code integer}, {@link Long} for {@code bigint}, {@link Short} for {@code smallint},
+ * {@link Double} for {@code double precision}, {@link Boolean} for {@code boolean} and {@link String} for
+ * {@code text} and {@code varchar}.
+ */
+final class BinaryCopyCodec implements CopyCodec {
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final int HEADER_LENGTH = SIGNATURE.length + 8;
+
+    @Override
+    public String formatName() {
+        return "binary";
+    }
+
+    @Override
+    public void writeStart(OutputStream out) throws IOException {
+        out.write(SIGNATURE);
+        writeInt(out, 0); // flags
+        writeInt(out, 0); // header extension length
+    }
+
+    @Override
+    public void writeRow(OutputStream out, Object[] values) throws IOException {
+        writeShort(out, values.length);
+        for (Object value : values) {
+            if (value == null) {
+                writeInt(out, -1);
+            } else if (value instanceof Integer number) {
+                writeInt(out, 4);
+                writeInt(out, number);
+            } else if (value instanceof Long number) {
+                writeInt(out, 8);
+                writeLong(out, number);
+            } else if (value instanceof Short number) {
+                writeInt(out, 2);
+                writeShort(out, number);
+            } else if (value instanceof Double number) {
+                writeInt(out, 8);
+                writeLong(out, Double.doubleToLongBits(number));
+            } else if (value instanceof Boolean flag) {
+                writeInt(out, 1);
+                out.write(flag ? 1 : 0);
+            } else if (value instanceof String text) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                writeInt(out, bytes.length);
+                out.write(bytes);
+            } else {
+                throw new IllegalArgumentException("Unsupported COPY value type " + value.getClass().getName());
+            }
+        }
+    }
+
+    @Override
+    public void writeEnd(OutputStream out) throws IOException {
+        writeShort(out, -1);
+    }
+
+    @Override
+    public RowDecoder decoder(Class<?>[] types, Consumer<Object[]> rows) {
+        return new Decoder(types, rows);
+    }
+
+    private static void writeShort(OutputStream out, int value) throws IOException {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeLong(OutputStream out, long value) throws IOException {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    /**
+     * Buffers the bytes of an incomplete row and decodes every complete one.
+     */
+    private static final class Decoder implements RowDecoder {
+        private final Class<?>[] types;
+        private final Consumer<Object[]> rows;
+        private ByteBuffer buffer = ByteBuffer.allocate(8192);
+        private boolean headerRead;
+        private boolean trailerRead;
+
+        private Decoder(Class<?>[] types, Consumer<Object[]> rows) {
+            this.types = types;
+            this.rows = rows;
+        }
+
+        @Override
+        public void feed(byte[] bytes, int offset, int length) throws IOException {
+            if (buffer.remaining() < length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            buffer.put(bytes, offset, length);
+            buffer.flip();
+            try {
+                decodeAvailable();
+            } finally {
+                buffer.compact();
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!trailerRead)
+                throw new IOException("Binary COPY stream ended before its trailer");
+        }
+
+        private void decodeAvailable() throws IOException {
+            if (!headerRead) {
+                if (buffer.remaining() < HEADER_LENGTH)
+                    return;
+                byte[] signature = new byte[SIGNATURE.length];
+                buffer.get(signature);
+                if (!Arrays.equals(signature, SIGNATURE))
+                    throw new IOException("Not a binary COPY stream");
+                buffer.getInt(); // flags
+                int extension = buffer.getInt();
+                if (buffer.remaining() < extension) {
+                    buffer.position(buffer.position() - HEADER_LENGTH);
+                    return;
+                }
+                buffer.position(buffer.position() + extension);
+                headerRead = true;
+            }
+            while (!trailerRead && buffer.remaining() >= 2) {
+                int start = buffer.position();
+                Object[] row = decodeRow();
+                if (row == null) {
+                    buffer.position(start);
+                    return;
+                }
+                if (!trailerRead)
+                    rows.accept(row);
+            }
+        }
+
+        /**
+         * @return The next row, an empty array for the trailer, or null if the row is not complete yet.
+         */
+        private Object[] decodeRow() throws IOException {
+            short fieldCount = buffer.getShort();
+            if (fieldCount == -1) {
+                trailerRead = true;
+                return new Object[0];
+            }
+            if (fieldCount != types.length)
+                throw new IOException("Binary COPY row has " + fieldCount + " fields, expected " + types.length);
+            Object[] row = new Object[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                if (buffer.remaining() < 4)
+                    return null;
+                int length = buffer.getInt();
+                if (length == -1)
+                    continue;
+                if (buffer.remaining() < length)
+                    return null;
+                row[i] = decodeValue(types[i], length);
+            }
+            return row;
+        }
+
+        private Object decodeValue(Class<?> type, int length) throws IOException {
+            if (type == String.class) {
+                String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                return text;
+            }
+            if ((type == Integer.class || type == int.class) && length == 4)
+                return buffer.getInt();
+            if ((type == Long.class || type == long.class) && length == 8)
+                return buffer.getLong();
+            if ((type == Short.class || type == short.class) && length == 2)
+                return buffer.getShort();
+            if ((type == Double.class || type == double.class) && length == 8)
+                return buffer.getDouble();
+            if ((type == Boolean.class || type == boolean.class) && length == 1)
+                return buffer.get() != 0;
+            throw new IOException("Cannot decode a " + length + " byte binary COPY value as " + type.getName());
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package Repository;
+
+import Models.Module;
+import Models.*;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the entities of the {@code Models} package field by field, without class descriptors.
+ * <p>
+ * An encoding starts with the tag of the entity type and the version of its schema, followed by its fields in
+ * schema order: integers as zigzag varints, strings as a varint length and their UTF-8 bytes, and lists of
+ * integers as a varint count and their elements. Every length, count and nullable integer is stored plus one, so
+ * that 0 stands for null. A reader only accepts the schema versions it knows.
+ * <p>
+ * Bytes starting with the Java serialization magic are decoded with {@link EntityCodec#JAVA_SERIALIZATION}, so a
+ * file written with it can be switched to this codec and is converted as its entities are rewritten. Entity types
+ * without a schema are encoded with Java serialization as well.
+ */
+final class BinaryEntityCodec implements EntityCodec {
+    private static final int JAVA_MAGIC_FIRST = 0xAC;
+    private static final int JAVA_MAGIC_SECOND = 0xED;
+
+    private static final Schema<?>[] SCHEMAS_BY_TAG = new Schema<?>[16];
+    private static final Map<Class<?>, Schema<?>> SCHEMAS_BY_TYPE = new HashMap<>();
+
+    static {
+        register(new Schema<>(1, 1, Course.class) {
+            @Override
+            void write(Writer out, Course course) {
+                out.nullableInt(course.getId());
+                out.string(course.getCourseTitle());
+                out.string(course.getDescription());
+                out.nullableInt(course.getAvailableSpots());
+                out.string(course.getStartDate());
+                out.string(course.getEndDate());
+                out.intList(course.getEnrolledStudents());
+                out.intList(course.getModules());
+                out.nullableInt(course.getInstructorId());
+            }
+
+            @Override
+            Course read(Reader in, int version) throws IOException {
+                Course course = new Course(in.nullableInt(), in.string(), in.string(), in.nullableInt(), in.string(), in.string(), null);
+                course.setEnrolledStudents(in.intList());
+                course.setModules(in.intList());
+                course.setInstructorId(in.nullableInt());
+                return course;
+            }
+        });
+        register(new Schema<>(2, 1, Student.class) {
+            @Override
+            void write(Writer out, Student student) {
+                writeUser(out, student);
+                out.intList(student.getCourses());
+            }
+
+            @Override
+            Student read(Reader in, int version) throws IOException {
+                Student student = new Student(in.nullableInt(), in.string(), in.string(), in.string(), in.string());
+                student.setCourses(in.intList());
+                return student;
+            }
+        });
+        register(new Schema<>(3, 1, Instructor.class) {
+            @Override
+            void write(Writer out, Instructor instructor) {
+                writeUser(out, instructor);
+                out.intList(instructor.getCourses());
+            }
+
+            @Override
+            Instructor read(Reader in, int version) throws IOException {
+                Instructor instructor = new Instructor(in.nullableInt(), in.string(), in.string(), in.string(), in.string());
+                instructor.setCourses(in.intList());
+                return instructor;
+            }
+        });
+        register(new Schema<>(4, 1, Admin.class) {
+            @Override
+            void write(Writer out, Admin admin) {
+                writeUser(out, admin);
+            }
+
+            @Override
+            Admin read(Reader in, int version) throws IOException {
+                return new Admin(in.nullableInt(), in.string(), in.string(), in.string(), in.string());
+            }
+        });
+        register(new Schema<>(5, 1, Assignment.class) {
+            @Override
+            void write(Writer out, Assignment assignment) {
+                out.nullableInt(assignment.getId());
+                out.string(assignment.getDescription());
+                out.string(assignment.getDueDate());
+                out.intList(assignment.getQuizzes());
+                out.nullableInt(assignment.getScore());
+            }
+
+            @Override
+            Assignment read(Reader in, int version) throws IOException {
+                Integer id = in.nullableInt();
+                String description = in.string();
+                String dueDate = in.string();
+                List<Integer> quizzes = in.intList();
+                Assignment assignment = new Assignment(id, description, dueDate, in.nullableInt());
+                assignment.setQuizzes(quizzes);
+                return assignment;
+            }
+        });
+        register(new Schema<>(6, 1, Module.class) {
+            @Override
+            void write(Writer out, Module module) {
+                out.nullableInt(module.getId());
+                out.string(module.getModuleTitle());
+                out.string(module.getModuleContent());
+                out.intList(module.getAssignments());
+            }
+
+            @Override
+            Module read(Reader in, int version) throws IOException {
+                Module module = new Module(in.nullableInt(), in.string(), in.string());
+                module.setAssignments(in.intList());
+                return module;
+            }
+        });
+        register(new Schema<>(7, 1, Quiz.class) {
+            @Override
+            void write(Writer out, Quiz quiz) {
+                out.nullableInt(quiz.getId());
+                out.string(quiz.getTitle());
+                out.string(quiz.getContents());
+                out.nullableInt(quiz.getCorrectAnswer());
+            }
+
+            @Override
+            Quiz read(Reader in, int version) throws IOException {
+                return new Quiz(in.nullableInt(), in.string(), in.string(), in.nullableInt());
+            }
+        });
+        register(new Schema<>(8, 1, Message.class) {
+            @Override
+            void write(Writer out, Message message) {
+                out.nullableInt(message.getId());
+                out.string(message.getMessage());
+                out.nullableInt(message.getSender());
+                out.nullableInt(message.getReceiver());
+            }
+
+            @Override
+            Message read(Reader in, int version) throws IOException {
+                return new Message(in.nullableInt(), in.string(), in.nullableInt(), in.nullableInt());
+            }
+        });
+        register(new Schema<>(9, 1, Forum.class) {
+            @Override
+            void write(Writer out, Forum forum) {
+                out.nullableInt(forum.getId());
+                out.string(forum.getTopic());
+                out.stringArray(forum.getTopics());
+            }
+
+            @Override
+            Forum read(Reader in, int version) throws IOException {
+                Forum forum = new Forum(in.nullableInt(), in.string());
+                forum.setTopics(in.stringArray());
+                return forum;
+            }
+        });
+        register(new Schema<>(10, 1, Enrolled.class) {
+            @Override
+            void write(Writer out, Enrolled enrolled) {
+                out.nullableInt(enrolled.getId());
+                out.nullableInt(enrolled.getCourseId());
+            }
+
+            @Override
+            Enrolled read(Reader in, int version) throws IOException {
+                return new Enrolled(in.nullableInt(), in.nullableInt());
+            }
+        });
+        register(new Schema<>(11, 1, ModuleCourse.class) {
+            @Override
+            void write(Writer out, ModuleCourse moduleCourse) {
+                out.nullableInt(moduleCourse.getId());
+                out.nullableInt(moduleCourse.getCourseId());
+            }
+
+            @Override
+            ModuleCourse read(Reader in, int version) throws IOException {
+                return new ModuleCourse(in.nullableInt(), in.nullableInt());
+            }
+        });
+        register(new Schema<>(12, 1, AssignmentModule.class) {
+            @Override
+            void write(Writer out, AssignmentModule assignmentModule) {
+                out.nullableInt(assignmentModule.getId());
+                out.nullableInt(assignmentModule.getAssignmentId());
+            }
+
+            @Override
+            AssignmentModule read(Reader in, int version) throws IOException {
+                return new AssignmentModule(in.nullableInt(), in.nullableInt());
+            }
+        });
+        register(new Schema<>(13, 1, QuizAssignment.class) {
+            @Override
+            void write(Writer out, QuizAssignment quizAssignment) {
+                out.nullableInt(quizAssignment.getId());
+                out.nullableInt(quizAssignment.getQuizId());
+            }
+
+            @Override
+            QuizAssignment read(Reader in, int version) throws IOException {
+                return new QuizAssignment(in.nullableInt(), in.nullableInt());
+            }
+        });
+        register(new Schema<>(14, 1, MessageForum.class) {
+            @Override
+            void write(Writer out, MessageForum messageForum) {
+                out.nullableInt(messageForum.getId());
+                out.nullableInt(messageForum.getForumId());
+            }
+
+            @Override
+            MessageForum read(Reader in, int version) throws IOException {
+                return new MessageForum(in.nullableInt(), in.nullableInt());
+            }
+        });
+    }
+
+    private static void register(Schema<?> schema) {
+        SCHEMAS_BY_TAG[schema.tag] = schema;
+        SCHEMAS_BY_TYPE.put(schema.type, schema);
+    }
+
+    private static void writeUser(Writer out, User user) {
+        out.nullableInt(user.getId());
+        out.string(user.getUsername());
+        out.string(user.getPassword());
+        out.string(user.getEmail());
+        out.string(user.getType());
+    }
+
+    @Override
+    public byte[] encode(Identifiable entity) throws IOException {
+        Schema<?> schema = SCHEMAS_BY_TYPE.get(entity.getClass());
+        if (schema == null)
+            return JAVA_SERIALIZATION.encode(entity);
+        Writer out = new Writer();
+        out.buffer[0] = (byte) schema.tag;
+        out.buffer[1] = (byte) schema.version;
+        out.size = 2;
+        schema.writeEntity(out, entity);
+        return Arrays.copyOf(out.buffer, out.size);
+    }
+
+    @Override
+    public Identifiable decode(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        if (buffer.remaining() < 2)
+            throw new InvalidObjectException("Truncated entity encoding");
+        int tag = buffer.get(start) & 0xFF;
+        int version = buffer.get(start + 1) & 0xFF;
+        if (tag == JAVA_MAGIC_FIRST && version == JAVA_MAGIC_SECOND)
+            return JAVA_SERIALIZATION.decode(buffer);
+        Schema<?> schema = tag < SCHEMAS_BY_TAG.length ? SCHEMAS_BY_TAG[tag] : null;
+        if (schema == null)
+            throw new InvalidObjectException("Unknown entity tag " + tag);
+        if (version < 1 || version > schema.version)
+            throw new InvalidObjectException("Unsupported version " + version + " of " + schema.type.getSimpleName());
+        Reader in = new Reader(buffer.duplicate().position(start + 2));
+        try {
+            return schema.read(in, version);
+        } catch (RuntimeException e) {
+            throw new InvalidObjectException("Corrupt " + schema.type.getSimpleName() + " encoding: " + e);
+        }
+    }
+
+    /**
+     * The schema of one entity type.
+     */
+    private abstract static class Schema<T extends Identifiable> {
+        private final int tag;
+        private final int version;
+        private final Class<T> type;
+
+        private Schema(int tag, int version, Class<T> type) {
+            this.tag = tag;
+            this.version = version;
+            this.type = type;
+        }
+
+        abstract void write(Writer out, T entity);
+
+        abstract T read(Reader in, int version) throws IOException;
+
+        private void writeEntity(Writer out, Identifiable entity) {
+            write(out, type.cast(entity));
+        }
+    }
+
+    /**
+     * A growable byte array the fields are written to.
+     */
+    private static final class Writer {
+        private byte[] buffer = new byte[64];
+        private int size;
+
+        private void nullableInt(Integer value) {
+            varint(value == null ? 0 : zigzag(value) + 1);
+        }
+
+        private void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void stringArray(String[] values) {
+            if (values == null) {
+                varint(0);
+                return;
+            }
+            varint(values.length + 1L);
+            for (String value : values)
+                string(value);
+        }
+
+        private void intList(List<Integer> values) {
+            if (values == null) {
+                varint(0);
+                return;
+            }
+            varint(values.size() + 1L);
+            for (Integer value : values)
+                nullableInt(value);
+        }
+
+        private void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void ensure(int length) {
+            if (size + length > buffer.length)
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+        }
+
+        private static long zigzag(int value) {
+            return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+        }
+    }
+
+    /**
+     * Reads the fields from a buffer, bounds checked by the buffer itself.
+     */
+    private static final class Reader {
+        private final ByteBuffer buffer;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private Integer nullableInt() throws IOException {
+            long value = varint();
+            if (value == 0)
+                return null;
+            int zigzag = (int) (value - 1);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private String string() throws IOException {
+            int length = length();
+            if (length < 0)
+                return null;
+            if (length > buffer.remaining())
+                throw new InvalidObjectException("String longer than the encoding");
+            String value;
+            if (buffer.hasArray()) {
+                value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return value;
+        }
+
+        private String[] stringArray() throws IOException {
+            int count = length();
+            if (count < 0)
+                return null;
+            String[] values = new String[Math.min(count, buffer.remaining())];
+            if (values.length < count)
+                throw new InvalidObjectException("Array longer than the encoding");
+            for (int i = 0; i < count; i++)
+                values[i] = string();
+            return values;
+        }
+
+        private List<Integer> intList() throws IOException {
+            int count = length();
+            if (count < 0)
+                return null;
+            if (count > buffer.remaining())
+                throw new InvalidObjectException("List longer than the encoding");
+            List<Integer> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                values.add(nullableInt());
+            return values;
+        }
+
+        /**
+         * Reads a length stored plus one.
+         *
+         * @return The length, or -1 for null.
+         */
+        private int length() throws IOException {
+            long value = varint();
+            if (value > Integer.MAX_VALUE)
+                throw new InvalidObjectException("Length out of range");
+            return (int) value - 1;
+        }
+
+        private long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+            throw new InvalidObjectException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package Repository;
+
+import Exceptions.DataBaseException;
+import Models.Identifiable;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Moves whole tables between entities and PostgreSQL with the {@code COPY} protocol of the driver's
+ * {@link CopyManager}, for loads far larger than row by row inserts can handle, such as a term rollover.
+ * <p>
+ * Tables are described like for a {@link DataBaseRepository}: a table name, the entity type and the column list
+ * from {@link Utils.Utils}, for example {@code getUsersParameters()} or {@code getEnrolledParameters()}.
+ * Rows are encoded by a {@link CopyCodec}, CSV or binary. Imports pull entities from an iterator while the
+ * driver sends them, and exports hand every entity to a consumer as soon as its row is decoded, so both run in
+ * constant memory whatever the size of the table.
+ */
+public class BulkLoader {
+    /**
+     * The number of rows between two calls of the progress listener.
+     */
+    public static final int DEFAULT_PROGRESS_INTERVAL = 10_000;
+
+    private final ConnectionPool connectionPool;
+    private final CopyCodec codec;
+    private CopyProgressListener progressListener;
+    private int progressInterval = DEFAULT_PROGRESS_INTERVAL;
+
+    /**
+     * Creates a CSV loader on the application wide {@link ConnectionPool#getShared() shared connection pool}.
+     */
+    public BulkLoader() {
+        this(ConnectionPool.getShared(), CopyCodec.CSV);
+    }
+
+    /**
+     * @param connectionPool The pool the loader borrows connections from.
+     * @param codec          The format of the COPY data, {@link CopyCodec#CSV} or {@link CopyCodec#BINARY}.
+     */
+    public BulkLoader(ConnectionPool connectionPool, CopyCodec codec) {
+        this.connectionPool = connectionPool;
+        this.codec = codec;
+    }
+
+    /**
+     * Reports the progress of every transfer to a listener.
+     *
+     * @param listener The listener.
+     * @param interval The number of rows between two reports.
+     * @return This loader.
+     */
+    public BulkLoader withProgress(CopyProgressListener listener, int interval) {
+        if (interval < 1)
+            throw new IllegalArgumentException("Progress interval must be at least 1: " + interval);
+        this.progressListener = listener;
+        this.progressInterval = interval;
+        return this;
+    }
+
+    /**
+     * Inserts entities with {@code COPY ... FROM STDIN}. The copy is a single statement: either every row is
+     * inserted or none.
+     *
+     * @param tableName   The name of the table.
+     * @param type        The class type of the entities.
+     * @param columnNames The column names of the table, in constructor argument order.
+     * @param entities    The entities, pulled one at a time while the data is sent.
+     * @return The number of inserted rows.
+     * @throws DataBaseException If the copy fails.
+     */
+    public <T extends Identifiable> long importEntities(String tableName, Class<T> type, List<String> columnNames,
+                                                        Iterator<? extends T> entities) {
+        EntityMapping<T> mapping = mappingFor(tableName, type, columnNames);
+        String sql = "COPY " + tableName + " (" + mapping.getSelectColumns() + ") FROM STDIN (FORMAT " + codec.formatName() + ")";
+        Progress progress = new Progress(tableName);
+        try (Connection conn = connectionPool.getConnection()) {
+            long rows = copyApi(conn).copyIn(sql, new EntityInputStream<>(codec, mapping, entities, progress));
+            progress.finish(rows);
+            return rows;
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "copying into " + tableName);
+        } catch (IOException e) {
+            throw new DataBaseException("Error streaming rows into " + tableName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inserts entities with {@code COPY ... FROM STDIN}.
+     *
+     * @see #importEntities(String, Class, List, Iterator)
+     */
+    public <T extends Identifiable> long importEntities(String tableName, Class<T> type, List<String> columnNames,
+                                                        Iterable<? extends T> entities) {
+        return importEntities(tableName, type, columnNames, entities.iterator());
+    }
+
+    /**
+     * Reads a table with {@code COPY ... TO STDOUT}, handing every entity to the consumer as soon as its row
+     * is decoded.
+     *
+     * @param tableName   The name of the table.
+     * @param type        The class type of the entities.
+     * @param columnNames The column names of the table, in constructor argument order.
+     * @param consumer    Receives the entities, on the calling thread.
+     * @return The number of exported rows.
+     * @throws DataBaseException If the copy fails.
+     */
+    public <T extends Identifiable> long exportEntities(String tableName, Class<T> type, List<String> columnNames,
+                                                        Consumer<? super T> consumer) {
+        EntityMapping<T> mapping = mappingFor(tableName, type, columnNames);
+        Class<?>[] types = new Class<?>[mapping.getColumnCount()];
+        for (int i = 0; i < types.length; i++)
+            types[i] = mapping.getColumnType(i);
+        String sql = "COPY " + tableName + " (" + mapping.getSelectColumns() + ") TO STDOUT (FORMAT " + codec.formatName() + ")";
+        Progress progress = new Progress(tableName);
+        CopyCodec.RowDecoder decoder = codec.decoder(types, row -> {
+            consumer.accept(mapping.newInstance(row));
+            progress.row();
+        });
+        try (Connection conn = connectionPool.getConnection()) {
+            long rows = copyApi(conn).copyOut(sql, new DecodingOutputStream(decoder, progress));
+            decoder.finish();
+            progress.finish(rows);
+            return rows;
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "copying from " + tableName);
+        } catch (IOException e) {
+            throw new DataBaseException("Error streaming rows from " + tableName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a whole table into a list with {@code COPY ... TO STDOUT}.
+     *
+     * @see #exportEntities(String, Class, List, Consumer)
+     */
+    public <T extends Identifiable> List<T> exportAll(String tableName, Class<T> type, List<String> columnNames) {
+        List<T> entities = new ArrayList<>();
+        exportEntities(tableName, type, columnNames, entities::add);
+        return entities;
+    }
+
+    /**
+     * Copies raw COPY data, in the format of this loader, from a stream into a table. Useful to restore a dump
+     * written by {@link #exportTable}.
+     *
+     * @param tableName   The name of the table.
+     * @param columnNames The columns present in the data.
+     * @param in          The COPY data.
+     * @return The number of inserted rows.
+     * @throws DataBaseException If the copy fails.
+     */
+    public long importTable(String tableName, List<String> columnNames, InputStream in) {
+        String sql = "COPY " + tableName + " (" + String.join(", ", columnNames) + ") FROM STDIN (FORMAT " + codec.formatName() + ")";
+        try (Connection conn = connectionPool.getConnection()) {
+            long rows = copyApi(conn).copyIn(sql, in);
+            new Progress(tableName).finish(rows);
+            return rows;
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "copying into " + tableName);
+        } catch (IOException e) {
+            throw new DataBaseException("Error reading COPY data for " + tableName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copies a table as raw COPY data, in the format of this loader, to a stream.
+     *
+     * @param tableName   The name of the table.
+     * @param columnNames The columns to export.
+     * @param out         Receives the COPY data; it is not closed.
+     * @return The number of exported rows.
+     * @throws DataBaseException If the copy fails.
+     */
+    public long exportTable(String tableName, List<String> columnNames, OutputStream out) {
+        String sql = "COPY " + tableName + " (" + String.join(", ", columnNames) + ") TO STDOUT (FORMAT " + codec.formatName() + ")";
+        try (Connection conn = connectionPool.getConnection()) {
+            long rows = copyApi(conn).copyOut(sql, out);
+            new Progress(tableName).finish(rows);
+            return rows;
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "copying from " + tableName);
+        } catch (IOException e) {
+            throw new DataBaseException("Error writing COPY data of " + tableName + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static CopyManager copyApi(Connection conn) throws SQLException {
+        return conn.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    private static <T extends Identifiable> EntityMapping<T> mappingFor(String tableName, Class<T> type, List<String> columnNames) {
+        EntityMapping<T> mapping = new EntityMapping<>(tableName, type, columnNames);
+        for (int i = 0; i < mapping.getColumnCount(); i++)
+            if (mapping.isListColumn(i))
+                throw new IllegalArgumentException("Column " + mapping.getColumn(i) + " of " + tableName + " is an array, COPY supports scalar columns only");
+        return mapping;
+    }
+
+    /**
+     * Counts the rows and bytes of one transfer and reports them to the listener.
+     */
+    private final class Progress {
+        private final String tableName;
+        private long rows;
+        private long bytes;
+
+        private Progress(String tableName) {
+            this.tableName = tableName;
+        }
+
+        private void row() {
+            rows++;
+            if (progressListener != null && rows % progressInterval == 0)
+                progressListener.onProgress(tableName, rows, bytes, false);
+        }
+
+        private void bytes(int count) {
+            bytes += count;
+        }
+
+        private void finish(long total) {
+            if (progressListener != null)
+                progressListener.onProgress(tableName, total, bytes, true);
+        }
+    }
+
+    /**
+     * The COPY data of an entity iterator, encoded one row at a time when the driver asks for more bytes.
+     */
+    private static final class EntityInputStream<T extends Identifiable> extends InputStream {
+        private final CopyCodec codec;
+        private final EntityMapping<T> mapping;
+        private final Iterator<? extends T> entities;
+        private final Progress progress;
+        private final RowBuffer buffer = new RowBuffer();
+        private final Object[] values;
+        private int position;
+        private boolean started;
+        private boolean ended;
+
+        private EntityInputStream(CopyCodec codec, EntityMapping<T> mapping, Iterator<? extends T> entities, Progress progress) {
+            this.codec = codec;
+            this.mapping = mapping;
+            this.entities = entities;
+            this.progress = progress;
+            this.values = new Object[mapping.getColumnCount()];
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0)
+                return 0;
+            int copied = 0;
+            while (copied < length) {
+                if (position == buffer.size() && !refill())
+                    break;
+                int count = Math.min(length - copied, buffer.size() - position);
+                System.arraycopy(buffer.bytes(), position, bytes, offset + copied, count);
+                position += count;
+                copied += count;
+            }
+            progress.bytes(copied);
+            return copied == 0 ? -1 : copied;
+        }
+
+        /**
+         * Encodes the next row, or the end of the data, into the buffer.
+         *
+         * @return false once everything was sent.
+         */
+        private boolean refill() throws IOException {
+            buffer.reset();
+            position = 0;
+            if (!started) {
+                started = true;
+                codec.writeStart(buffer);
+                if (buffer.size() > 0)
+                    return true;
+            }
+            if (entities.hasNext()) {
+                T entity = entities.next();
+                for (int i = 0; i < values.length; i++)
+                    values[i] = mapping.read(entity, i);
+                codec.writeRow(buffer, values);
+                progress.row();
+                return true;
+            }
+            if (!ended) {
+                ended = true;
+                codec.writeEnd(buffer);
+                return buffer.size() > 0;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Feeds the COPY data written by the driver to a decoder.
+     */
+    private static final class DecodingOutputStream extends OutputStream {
+        private final CopyCodec.RowDecoder decoder;
+        private final Progress progress;
+
+        private DecodingOutputStream(CopyCodec.RowDecoder decoder, Progress progress) {
+            this.decoder = decoder;
+            this.progress = progress;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            progress.bytes(length);
+            decoder.feed(bytes, offset, length);
+        }
+    }
+
+    /**
+     * A reusable byte buffer whose content can be read without copying.
+     */
+    private static final class RowBuffer extends ByteArrayOutputStream {
+        private RowBuffer() {
+            super(256);
+        }
+
+        private byte[] bytes() {
+            return buf;
+        }
+    }
+}
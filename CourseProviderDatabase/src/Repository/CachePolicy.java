@@ -0,0 +1,27 @@
+package Repository;
+
+/**
+ * The eviction policies of a {@link CachingRepository}.
+ */
+public enum CachePolicy {
+    /** Evicts the least recently used entries. */
+    LRU {
+        @Override
+        EvictionPolicy create(long maximumWeight) {
+            return new LruPolicy(maximumWeight);
+        }
+    },
+
+    /**
+     * Keeps the entries used most often recently, and does not let a scan of keys read once evict them.
+     * Suited to skewed workloads such as course catalogues.
+     */
+    TINY_LFU {
+        @Override
+        EvictionPolicy create(long maximumWeight) {
+            return new TinyLfuPolicy(maximumWeight);
+        }
+    };
+
+    abstract EvictionPolicy create(long maximumWeight);
+}
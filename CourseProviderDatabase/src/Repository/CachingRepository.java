@@ -0,0 +1,417 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A repository that caches the entities returned by {@link #get} of another repository.
+ * <p>
+ * The cache is bounded by a maximum weight: each entity weighs 1 unless a weigher is set, and the
+ * {@link CachePolicy} decides which entities are evicted to stay within it. An entity may also expire a fixed
+ * time after it was loaded. Writes go to the wrapped repository and invalidate the cached entity, so the next
+ * {@link #get} loads it again; queries are not cached.
+ * <p>
+ * Changes made to the wrapped repository by other means are only seen once the entity is invalidated, evicted
+ * or expired; {@link #invalidate} is there for code that knows it changed an entity behind the cache.
+ * <p>
+ * Every caller of {@link #get} receives the same cached instance. A caller that changes it must write it back
+ * with {@link #update}, and should change copies of its lists rather than the lists themselves.
+ *
+ * @param <T> the type of the stored entity
+ */
+public class CachingRepository<T extends Identifiable> implements IRepository<T> {
+    private final IRepository<T> backend;
+    private final EvictionPolicy policy;
+    private final Map<Integer, Entry<T>> entries = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private ToIntFunction<? super T> weigher = entity -> 1;
+    private long timeToLiveNanos;
+    private LongSupplier ticker = System::nanoTime;
+    /** Incremented by every invalidation, so a load racing with a write does not cache what it read. */
+    private long generation;
+    private long weightedSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private record Entry<T>(T value, int weight, long loadedAt) {
+    }
+
+    /**
+     * Wraps a repository.
+     *
+     * @param backend       The repository the entities are read from and written to.
+     * @param policy        The eviction policy.
+     * @param maximumWeight The maximum total weight of the cached entities.
+     */
+    public CachingRepository(IRepository<T> backend, CachePolicy policy, long maximumWeight) {
+        if (maximumWeight < 1)
+            throw new IllegalArgumentException("maximumWeight must be positive");
+        this.backend = backend;
+        this.policy = policy.create(maximumWeight);
+    }
+
+    /**
+     * Sets the weight of the entities, for instance the number of ids in their lists. Call it before the cache
+     * is used.
+     *
+     * @param weigher Returns the weight of an entity; weights below 1 count as 1.
+     * @return This repository.
+     */
+    public CachingRepository<T> withWeigher(ToIntFunction<? super T> weigher) {
+        this.weigher = weigher;
+        return this;
+    }
+
+    /**
+     * Makes the entities expire a fixed time after they were loaded. Call it before the cache is used.
+     *
+     * @param timeToLive The time an entity stays cached.
+     * @return This repository.
+     */
+    public CachingRepository<T> withTimeToLive(Duration timeToLive) {
+        this.timeToLiveNanos = timeToLive.toNanos();
+        return this;
+    }
+
+    /**
+     * Replaces the clock of the expiry, in nanoseconds. Call it before the cache is used.
+     *
+     * @param ticker The clock.
+     * @return This repository.
+     */
+    public CachingRepository<T> withTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    @Override
+    public T get(Integer id) {
+        long loadGeneration;
+        lock.lock();
+        try {
+            T cached = lookup(id);
+            if (cached != null)
+                return cached;
+            loadGeneration = generation;
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        T loaded = backend.get(id);
+        if (loaded != null)
+            cacheLoaded(List.of(loaded), loadGeneration);
+        return loaded;
+    }
+
+    /**
+     * Serves the cached entities from the cache and reads the others with one {@link IRepository#findByIds} call.
+     *
+     * @param ids The IDs of the entities to retrieve.
+     * @return The entities found, in the order of their IDs; IDs without an entity are skipped.
+     */
+    @Override
+    public List<T> findByIds(Collection<Integer> ids) {
+        Map<Integer, T> found = new HashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+        long loadGeneration;
+        lock.lock();
+        try {
+            for (Integer id : ids) {
+                T cached = lookup(id);
+                if (cached != null)
+                    found.put(id, cached);
+                else if (id != null)
+                    missing.add(id);
+            }
+            loadGeneration = generation;
+        } finally {
+            lock.unlock();
+        }
+
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            List<T> loaded = backend.findByIds(missing);
+            for (T entity : loaded)
+                found.put(entity.getId(), entity);
+            cacheLoaded(loaded, loadGeneration);
+        }
+
+        List<T> results = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T entity = found.get(id);
+            if (entity != null)
+                results.add(entity);
+        }
+        return results;
+    }
+
+    @Override
+    public void create(T obj) {
+        backend.create(obj);
+        invalidate(obj.getId());
+    }
+
+    @Override
+    public void update(T obj) {
+        backend.update(obj);
+        invalidate(obj.getId());
+    }
+
+    @Override
+    public void delete(Integer id) {
+        backend.delete(id);
+        invalidate(id);
+    }
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        backend.createAll(objs);
+        for (T obj : objs)
+            invalidate(obj.getId());
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        backend.updateAll(objs);
+        for (T obj : objs)
+            invalidate(obj.getId());
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        backend.deleteAll(ids);
+        for (Integer id : ids)
+            invalidate(id);
+    }
+
+    @Override
+    public int deleteWhere(Criteria criteria) {
+        List<T> deleted = backend.find(criteria);
+        try {
+            return backend.deleteWhere(criteria);
+        } finally {
+            for (T entity : deleted)
+                invalidate(entity.getId());
+        }
+    }
+
+    @Override
+    public T compute(Integer id, UnaryOperator<T> function) {
+        try {
+            return backend.compute(id, function);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public T putIfAbsent(T obj) {
+        try {
+            return backend.putIfAbsent(obj);
+        } finally {
+            invalidate(obj.getId());
+        }
+    }
+
+    @Override
+    public List<T> getAll() {
+        return backend.getAll();
+    }
+
+    /**
+     * Streams from the wrapped repository without going through the cache, so a scan does not evict the hot
+     * entities.
+     */
+    @Override
+    public Stream<T> stream() {
+        return backend.stream();
+    }
+
+    @Override
+    public List<T> getPage(Integer afterId, int limit) {
+        return backend.getPage(afterId, limit);
+    }
+
+    @Override
+    public List<T> find(Criteria criteria) {
+        return backend.find(criteria);
+    }
+
+    @Override
+    public boolean exists(Criteria criteria) {
+        return backend.exists(criteria);
+    }
+
+    @Override
+    public IRepository<T> unwrap() {
+        return backend.unwrap();
+    }
+
+    @Override
+    public int count(Criteria criteria) {
+        return backend.count(criteria);
+    }
+
+    /**
+     * Drops an entity from the cache, so the next {@link #get} reads it from the wrapped repository.
+     *
+     * @param id The ID of the entity.
+     */
+    public void invalidate(Integer id) {
+        lock.lock();
+        try {
+            generation++;
+            remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every entity from the cache.
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            for (Integer id : List.copyOf(entries.keySet()))
+                remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of cached entities.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The total weight of the cached entities.
+     */
+    public long getWeightedSize() {
+        lock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of {@link #get} calls served from the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of {@link #get} calls that read the wrapped repository.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of entities evicted to stay within the maximum weight.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of entities dropped because their time to live had passed.
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return The share of {@link #get} calls served from the cache, 0 if there was none.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns a cached entity and records the hit, or drops it if it expired. Called under the lock.
+     */
+    private T lookup(Integer id) {
+        Entry<T> entry = entries.get(id);
+        if (entry == null)
+            return null;
+        if (timeToLiveNanos > 0 && ticker.getAsLong() - entry.loadedAt() >= timeToLiveNanos) {
+            remove(id);
+            expirations.increment();
+            return null;
+        }
+        policy.onAccess(id);
+        hits.increment();
+        return entry.value();
+    }
+
+    /**
+     * Caches entities read from the wrapped repository, unless an entity was invalidated since the read began.
+     */
+    private void cacheLoaded(List<T> loaded, long loadGeneration) {
+        lock.lock();
+        try {
+            if (generation != loadGeneration)
+                return;
+            for (T entity : loaded) {
+                Integer id = entity.getId();
+                if (entries.containsKey(id))
+                    continue;
+                int weight = Math.max(1, weigher.applyAsInt(entity));
+                entries.put(id, new Entry<>(entity, weight, ticker.getAsLong()));
+                weightedSize += weight;
+                policy.onInsert(id, weight, this::evict);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Integer id) {
+        Entry<T> entry = entries.remove(id);
+        if (entry != null) {
+            weightedSize -= entry.weight();
+            policy.onRemove(id);
+        }
+    }
+
+    private void evict(Integer id) {
+        Entry<T> entry = entries.remove(id);
+        if (entry != null) {
+            weightedSize -= entry.weight();
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package Repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections shared by the {@link DataBaseRepository} instances.
+ * <p>
+ * Connections handed out by the pool are proxies: calling {@link Connection#close()} returns the
+ * physical connection to the pool instead of closing it. Idle connections are validated before
+ * they are borrowed again, retired once they exceed their maximum lifetime and evicted by a
+ * background task after staying idle for too long.
+ */
+public class ConnectionPool {
+    private static volatile ConnectionPool shared;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Constructs a new connection pool.
+     *
+     * @param url                      The JDBC url of the database.
+     * @param user                     The database user.
+     * @param password                 The database password.
+     * @param maxSize                  The maximum number of open connections.
+     * @param borrowTimeoutMillis      How long a caller waits for a free connection before failing.
+     * @param idleTimeoutMillis        How long a connection may stay idle before it is evicted.
+     * @param maxLifetimeMillis        How long a physical connection may live before it is retired.
+     * @param validationTimeoutSeconds The timeout passed to {@link Connection#isValid(int)} on borrow.
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long maxLifetimeMillis, int validationTimeoutSeconds) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Pool size must be greater than 0");
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the pool shared by every repository of the application. It is created on first use
+     * from the {@code DB_URL}, {@code DB_USER} and {@code DB_PASSWORD} environment variables; the
+     * pool limits can be tuned through the {@code DB_POOL_*} variables.
+     *
+     * @return The shared connection pool.
+     */
+    public static ConnectionPool getShared() {
+        ConnectionPool pool = shared;
+        if (pool == null) {
+            synchronized (ConnectionPool.class) {
+                pool = shared;
+                if (pool == null) {
+                    pool = new ConnectionPool(
+                            System.getenv("DB_URL"),
+                            System.getenv("DB_USER"),
+                            System.getenv("DB_PASSWORD"),
+                            (int) envLong("DB_POOL_MAX_SIZE", 10),
+                            envLong("DB_POOL_BORROW_TIMEOUT_MS", 30_000),
+                            envLong("DB_POOL_IDLE_TIMEOUT_MS", 600_000),
+                            envLong("DB_POOL_MAX_LIFETIME_MS", 1_800_000),
+                            (int) envLong("DB_POOL_VALIDATION_TIMEOUT_S", 2));
+                    ShutdownHooks.register(ShutdownHooks.Phase.CLOSE, pool::close);
+                    shared = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if no idle connection is available
+     * and the pool is not at its maximum size.
+     *
+     * @return A connection that returns to the pool when closed.
+     * @throws SQLException If no connection becomes available within the borrow timeout or
+     *                      a new connection cannot be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLException("Connection pool is closed");
+
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis
+                    + " ms waiting for a database connection (active=" + getActiveCount() + ", idle=" + getIdleCount() + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdle();
+            if (pooled == null)
+                pooled = open();
+            active.incrementAndGet();
+            borrowed.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes every idle connection and rejects further borrows. Connections that are still in use
+     * are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null)
+            destroy(pooled);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return The number of connections currently borrowed. */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /** @return The number of open connections waiting in the pool. */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /** @return The number of callers currently waiting for a connection. */
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    public long getBorrowedCount() {
+        return borrowed.get();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "active=" + getActiveCount() +
+                ", idle=" + getIdleCount() +
+                ", waiting=" + getWaitingCount() +
+                ", borrowed=" + getBorrowedCount() +
+                ", created=" + getCreatedCount() +
+                ", destroyed=" + getDestroyedCount() +
+                ", timeouts=" + getTimeoutCount() +
+                '}';
+    }
+
+    /**
+     * Takes the most recently used idle connection that is still alive, discarding the ones that
+     * are expired or fail validation.
+     */
+    private PooledConnection takeValidIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (!pooled.isExpired(System.currentTimeMillis()) && pooled.isValid())
+                return pooled;
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Called by a leased connection when the caller closes it.
+     */
+    private void giveBack(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (closed || pooled.isExpired(System.currentTimeMillis()) || !pooled.reset())
+                destroy(pooled);
+            else
+                idle.offerFirst(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the connections that have been idle for longer than the idle timeout or that have
+     * outlived their maximum lifetime. Runs periodically on the evictor thread.
+     */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : idle) {
+            if ((pooled.idleMillis(now) >= idleTimeoutMillis || pooled.isExpired(now)) && idle.remove(pooled))
+                destroy(pooled);
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyed.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long envLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank())
+            return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid value for " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastReturnedAt = createdAt;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private boolean isExpired(long now) {
+            return now - createdAt >= maxLifetimeMillis;
+        }
+
+        private long idleMillis(long now) {
+            return now - lastReturnedAt;
+        }
+
+        private boolean isValid() {
+            try {
+                return physical.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Rolls back unfinished work and restores the defaults a borrower may have changed.
+         *
+         * @return false if the connection is no longer usable.
+         */
+        private boolean reset() {
+            try {
+                if (physical.isClosed())
+                    return false;
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly())
+                    physical.setReadOnly(false);
+                physical.clearWarnings();
+                lastReturnedAt = System.currentTimeMillis();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Wraps the physical connection in a proxy whose {@code close} returns it to the pool.
+         */
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection until the lease is closed.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        private LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!released) {
+                            released = true;
+                            giveBack(pooled);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    if (released)
+                        throw new SQLException("Connection has already been returned to the pool");
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Encodes and decodes the rows of a PostgreSQL {@code COPY} data stream.
+ * <p>
+ * Rows are handled as arrays of column values. The supported value types are {@link Integer}, {@link Long},
+ * {@link Short}, {@link Double}, {@link Boolean} and {@link String}; a null value is SQL {@code NULL}.
+ * Decoding is incremental: bytes are fed as they arrive and every complete row is handed over at once, so
+ * a stream of any size is decoded in constant memory.
+ */
+public interface CopyCodec {
+    /** The {@code FORMAT csv} codec. */
+    CopyCodec CSV = new CsvCopyCodec();
+    /** The {@code FORMAT binary} codec. */
+    CopyCodec BINARY = new BinaryCopyCodec();
+
+    /**
+     * @return The value of the {@code FORMAT} option of the {@code COPY} statement.
+     */
+    String formatName();
+
+    /**
+     * Writes what comes before the first row.
+     */
+    void writeStart(OutputStream out) throws IOException;
+
+    /**
+     * Writes one row.
+     *
+     * @param out    The stream.
+     * @param values The column values, in column order.
+     */
+    void writeRow(OutputStream out, Object[] values) throws IOException;
+
+    /**
+     * Writes what comes after the last row.
+     */
+    void writeEnd(OutputStream out) throws IOException;
+
+    /**
+     * Creates a decoder for one stream.
+     *
+     * @param types The Java type of every column, in column order.
+     * @param rows  Receives every decoded row; the array is not reused.
+     * @return The decoder.
+     */
+    RowDecoder decoder(Class<?>[] types, Consumer<Object[]> rows);
+
+    /**
+     * Decodes a {@code COPY} stream fed in arbitrary chunks.
+     */
+    interface RowDecoder {
+        /**
+         * Decodes the next bytes of the stream, emitting the rows they complete.
+         */
+        void feed(byte[] bytes, int offset, int length) throws IOException;
+
+        /**
+         * Ends the stream.
+         *
+         * @throws IOException If the stream ended in the middle of a row.
+         */
+        void finish() throws IOException;
+    }
+}
@@ -0,0 +1,17 @@
+package Repository;
+
+/**
+ * Receives the progress of a {@link BulkLoader} transfer.
+ */
+@FunctionalInterface
+public interface CopyProgressListener {
+    /**
+     * Called every few thousand rows and once more when the transfer is complete.
+     *
+     * @param tableName The table being copied.
+     * @param rows      The number of rows transferred so far.
+     * @param bytes     The number of bytes of COPY data transferred so far.
+     * @param finished  true for the last call of the transfer.
+     */
+    void onProgress(String tableName, long rows, long bytes, boolean finished);
+}
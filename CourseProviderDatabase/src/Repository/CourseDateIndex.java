@@ -0,0 +1,274 @@
+package Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The courses indexed by their dates, as epoch days: a sorted map of the end days answers "ends before" and end
+ * date ranges with a sub map, and an interval tree of the start to end periods, ordered by start day, answers start
+ * date ranges, "active on" and "overlaps" by skipping every subtree whose periods all end before the query or start
+ * after it. Each query costs O(log n) plus the number of courses it returns; adding, moving or removing a course
+ * costs O(log n).
+ * <p>
+ * A course without an end day is not indexed; one without a start day is only indexed by its end. The index is
+ * not synchronized.
+ */
+public class CourseDateIndex {
+    private final NavigableMap<Integer, Set<Integer>> byEndDay = new TreeMap<>();
+    private final Map<Integer, Node> periods = new HashMap<>();
+    private final Map<Integer, Integer> endDays = new HashMap<>();
+    private Node root;
+
+    /**
+     * A period of the interval tree, an AVL tree ordered by start day and course ID in which every node knows the
+     * latest end day of its subtree.
+     */
+    private static final class Node {
+        private final int start;
+        private final int end;
+        private final int id;
+        private int maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        private Node(int start, int end, int id) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.maxEnd = end;
+        }
+    }
+
+    /**
+     * @return The number of indexed courses.
+     */
+    public int size() {
+        return endDays.size();
+    }
+
+    /**
+     * Indexes the dates of a course, replacing its previous ones.
+     *
+     * @param courseId The ID of the course.
+     * @param startDay The start day, or null.
+     * @param endDay   The end day, or null.
+     */
+    public void put(int courseId, Integer startDay, Integer endDay) {
+        remove(courseId);
+        if (endDay == null)
+            return;
+        endDays.put(courseId, endDay);
+        byEndDay.computeIfAbsent(endDay, day -> new TreeSet<>()).add(courseId);
+        if (startDay != null) {
+            Node node = new Node(startDay, endDay, courseId);
+            root = insert(root, node);
+            periods.put(courseId, node);
+        }
+    }
+
+    /**
+     * Removes a course from the index.
+     *
+     * @param courseId The ID of the course.
+     */
+    public void remove(int courseId) {
+        Integer endDay = endDays.remove(courseId);
+        if (endDay == null)
+            return;
+        Set<Integer> ids = byEndDay.get(endDay);
+        ids.remove(courseId);
+        if (ids.isEmpty())
+            byEndDay.remove(endDay);
+        Node node = periods.remove(courseId);
+        if (node != null)
+            root = delete(root, node);
+    }
+
+    /**
+     * Removes every course from the index.
+     */
+    public void clear() {
+        byEndDay.clear();
+        periods.clear();
+        endDays.clear();
+        root = null;
+    }
+
+    /**
+     * @param day An epoch day.
+     * @return The IDs of the courses that end before the day, by end day then ID.
+     */
+    public List<Integer> endingBefore(int day) {
+        List<Integer> ids = new ArrayList<>();
+        for (Set<Integer> sameDay : byEndDay.headMap(day, false).values())
+            ids.addAll(sameDay);
+        return ids;
+    }
+
+    /**
+     * @param fromDay The first epoch day, or null for no lower bound.
+     * @param toDay   The last epoch day, or null for no upper bound.
+     * @return The IDs of the courses that end between the two days, by end day then ID.
+     */
+    public List<Integer> endingBetween(Integer fromDay, Integer toDay) {
+        NavigableMap<Integer, Set<Integer>> days = byEndDay;
+        if (fromDay != null)
+            days = days.tailMap(fromDay, true);
+        if (toDay != null)
+            days = days.headMap(toDay, true);
+        List<Integer> ids = new ArrayList<>();
+        for (Set<Integer> sameDay : days.values())
+            ids.addAll(sameDay);
+        return ids;
+    }
+
+    /**
+     * @param fromDay The first epoch day, or null for no lower bound.
+     * @param toDay   The last epoch day, or null for no upper bound.
+     * @return The IDs of the courses with a start day between the two days, by start day then ID.
+     */
+    public List<Integer> startingBetween(Integer fromDay, Integer toDay) {
+        List<Integer> ids = new ArrayList<>();
+        collectStarting(root, fromDay == null ? Integer.MIN_VALUE : fromDay, toDay == null ? Integer.MAX_VALUE : toDay, ids);
+        return ids;
+    }
+
+    /**
+     * @param day An epoch day.
+     * @return The IDs of the courses that start on or before the day and end on or after it, by start day then ID.
+     */
+    public List<Integer> activeOn(int day) {
+        return overlapping(day, day);
+    }
+
+    /**
+     * @param fromDay The first epoch day of the period.
+     * @param toDay   The last epoch day of the period.
+     * @return The IDs of the courses running on at least one day of the period, by start day then ID.
+     */
+    public List<Integer> overlapping(int fromDay, int toDay) {
+        List<Integer> ids = new ArrayList<>();
+        collectOverlapping(root, fromDay, toDay, ids);
+        return ids;
+    }
+
+    private static void collectOverlapping(Node node, int fromDay, int toDay, List<Integer> ids) {
+        if (node == null || node.maxEnd < fromDay)
+            return;
+        collectOverlapping(node.left, fromDay, toDay, ids);
+        if (node.start > toDay)
+            return;
+        if (node.end >= fromDay)
+            ids.add(node.id);
+        collectOverlapping(node.right, fromDay, toDay, ids);
+    }
+
+    private static void collectStarting(Node node, int fromDay, int toDay, List<Integer> ids) {
+        if (node == null)
+            return;
+        if (node.start >= fromDay)
+            collectStarting(node.left, fromDay, toDay, ids);
+        if (node.start >= fromDay && node.start <= toDay)
+            ids.add(node.id);
+        if (node.start <= toDay)
+            collectStarting(node.right, fromDay, toDay, ids);
+    }
+
+    private static int compare(Node a, Node b) {
+        return a.start != b.start ? Integer.compare(a.start, b.start) : Integer.compare(a.id, b.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null)
+            return added;
+        if (compare(added, node) < 0)
+            node.left = insert(node.left, added);
+        else
+            node.right = insert(node.right, added);
+        return balance(node);
+    }
+
+    private static Node delete(Node node, Node removed) {
+        if (node == null)
+            return null;
+        int comparison = compare(removed, node);
+        if (comparison < 0) {
+            node.left = delete(node.left, removed);
+        } else if (comparison > 0) {
+            node.right = delete(node.right, removed);
+        } else {
+            if (node.left == null)
+                return node.right;
+            if (node.right == null)
+                return node.left;
+            Node successor = node.right;
+            while (successor.left != null)
+                successor = successor.left;
+            successor.right = deleteFirst(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private static Node deleteFirst(Node node) {
+        if (node.left == null)
+            return node.right;
+        node.left = deleteFirst(node.left);
+        return balance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.maxEnd = node.end;
+        if (node.left != null)
+            node.maxEnd = Math.max(node.maxEnd, node.left.maxEnd);
+        if (node.right != null)
+            node.maxEnd = Math.max(node.maxEnd, node.right.maxEnd);
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right))
+                node.left = rotateLeft(node.left);
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left))
+                node.right = rotateRight(node.right);
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+}
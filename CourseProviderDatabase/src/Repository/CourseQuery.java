@@ -0,0 +1,275 @@
+package Repository;
+
+import Models.Course;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A query over the courses: filters on the instructor, the available spots, the start and end dates and the number
+ * of enrolled students, a sort on any number of keys and a page, for example
+ * {@code CourseQuery.courses().taughtBy(4).orderByDescending(SortKey.ENROLLMENT).page(0, 10)}.
+ * <p>
+ * Ranges are inclusive and a null bound leaves that side open; dates are epoch days (see {@code Utils.Dates}).
+ * Courses are always ordered by ID after the requested keys, so pages are stable. An {@link ICourseQueryRepository}
+ * runs the query natively: one SQL statement on the database, an index-driven plan on the other backends.
+ */
+public final class CourseQuery {
+    /**
+     * The keys courses can be sorted by.
+     */
+    public enum SortKey {
+        ID,
+        TITLE,
+        AVAILABLE_SPOTS,
+        START_DATE,
+        END_DATE,
+        /** The number of students enrolled in the course. */
+        ENROLLMENT
+    }
+
+    /**
+     * A sort key and its direction.
+     *
+     * @param key        The key.
+     * @param descending true to put the largest values first.
+     */
+    public record Order(SortKey key, boolean descending) {
+    }
+
+    private Integer instructorId;
+    private Integer minAvailableSpots;
+    private Integer maxAvailableSpots;
+    private Integer startFromDay;
+    private Integer startToDay;
+    private Integer endFromDay;
+    private Integer endToDay;
+    private Integer minEnrollment;
+    private Integer maxEnrollment;
+    private final List<Order> orders = new ArrayList<>();
+    private int offset;
+    private int limit = Integer.MAX_VALUE;
+
+    private CourseQuery() {
+    }
+
+    /**
+     * Starts a query matching every course.
+     *
+     * @return The new query.
+     */
+    public static CourseQuery courses() {
+        return new CourseQuery();
+    }
+
+    /**
+     * Keeps the courses taught by an instructor.
+     *
+     * @param instructorId The ID of the instructor.
+     * @return This query.
+     */
+    public CourseQuery taughtBy(Integer instructorId) {
+        this.instructorId = instructorId;
+        return this;
+    }
+
+    /**
+     * Keeps the courses whose number of available spots is in a range.
+     *
+     * @param min The lowest number, or null.
+     * @param max The highest number, or null.
+     * @return This query.
+     */
+    public CourseQuery availableSpotsBetween(Integer min, Integer max) {
+        this.minAvailableSpots = min;
+        this.maxAvailableSpots = max;
+        return this;
+    }
+
+    /**
+     * Keeps the courses starting in a range of days.
+     *
+     * @param fromDay The first epoch day, or null.
+     * @param toDay   The last epoch day, or null.
+     * @return This query.
+     */
+    public CourseQuery startingBetween(Integer fromDay, Integer toDay) {
+        this.startFromDay = fromDay;
+        this.startToDay = toDay;
+        return this;
+    }
+
+    /**
+     * Keeps the courses ending in a range of days.
+     *
+     * @param fromDay The first epoch day, or null.
+     * @param toDay   The last epoch day, or null.
+     * @return This query.
+     */
+    public CourseQuery endingBetween(Integer fromDay, Integer toDay) {
+        this.endFromDay = fromDay;
+        this.endToDay = toDay;
+        return this;
+    }
+
+    /**
+     * Keeps the courses whose number of enrolled students is in a range.
+     *
+     * @param min The lowest number, or null.
+     * @param max The highest number, or null.
+     * @return This query.
+     */
+    public CourseQuery enrollmentBetween(Integer min, Integer max) {
+        this.minEnrollment = min;
+        this.maxEnrollment = max;
+        return this;
+    }
+
+    /**
+     * Adds an ascending sort key, applied after the keys added before it.
+     *
+     * @param key The key.
+     * @return This query.
+     */
+    public CourseQuery orderBy(SortKey key) {
+        orders.add(new Order(key, false));
+        return this;
+    }
+
+    /**
+     * Adds a descending sort key, applied after the keys added before it.
+     *
+     * @param key The key.
+     * @return This query.
+     */
+    public CourseQuery orderByDescending(SortKey key) {
+        orders.add(new Order(key, true));
+        return this;
+    }
+
+    /**
+     * Returns a page of the sorted courses instead of all of them.
+     *
+     * @param offset The number of courses to skip.
+     * @param limit  The largest number of courses to return.
+     * @return This query.
+     */
+    public CourseQuery page(int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("The offset and limit of a page cannot be negative");
+        this.offset = offset;
+        this.limit = limit;
+        return this;
+    }
+
+    public Integer getInstructorId() {
+        return instructorId;
+    }
+
+    public Integer getMinAvailableSpots() {
+        return minAvailableSpots;
+    }
+
+    public Integer getMaxAvailableSpots() {
+        return maxAvailableSpots;
+    }
+
+    public Integer getStartFromDay() {
+        return startFromDay;
+    }
+
+    public Integer getStartToDay() {
+        return startToDay;
+    }
+
+    public Integer getEndFromDay() {
+        return endFromDay;
+    }
+
+    public Integer getEndToDay() {
+        return endToDay;
+    }
+
+    public Integer getMinEnrollment() {
+        return minEnrollment;
+    }
+
+    public Integer getMaxEnrollment() {
+        return maxEnrollment;
+    }
+
+    public List<Order> getOrders() {
+        return Collections.unmodifiableList(orders);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks a course against the filters of the query.
+     *
+     * @param course     The course.
+     * @param enrollment The number of students enrolled in the course.
+     * @return true if the course passes every filter.
+     */
+    public boolean matches(Course course, int enrollment) {
+        if (instructorId != null && !instructorId.equals(course.getInstructorId()))
+            return false;
+        return inRange(course.getAvailableSpots(), minAvailableSpots, maxAvailableSpots)
+                && inRange(course.getStartEpochDay(), startFromDay, startToDay)
+                && inRange(course.getEndEpochDay(), endFromDay, endToDay)
+                && inRange(enrollment, minEnrollment, maxEnrollment);
+    }
+
+    /**
+     * Builds the order of the query, ending with the course ID. Missing values sort last in either direction.
+     *
+     * @param enrollments The number of students enrolled in a course, by course ID.
+     * @return The comparator.
+     */
+    public Comparator<Course> comparator(ToIntFunction<Integer> enrollments) {
+        Comparator<Course> comparator = (a, b) -> 0;
+        for (Order order : orders) {
+            Comparator<Course> byKey = switch (order.key()) {
+                case ID -> nullsLast(Course::getId, order.descending());
+                case TITLE -> nullsLast(Course::getCourseTitle, order.descending());
+                case AVAILABLE_SPOTS -> nullsLast(Course::getAvailableSpots, order.descending());
+                case START_DATE -> nullsLast(Course::getStartEpochDay, order.descending());
+                case END_DATE -> nullsLast(Course::getEndEpochDay, order.descending());
+                case ENROLLMENT -> nullsLast(course -> enrollments.applyAsInt(course.getId()), order.descending());
+            };
+            comparator = comparator.thenComparing(byKey);
+        }
+        return comparator.thenComparing(Course::getId);
+    }
+
+    private static <K extends Comparable<? super K>> Comparator<Course> nullsLast(Function<Course, K> key, boolean descending) {
+        Comparator<K> natural = Comparator.naturalOrder();
+        return Comparator.comparing(key, Comparator.nullsLast(descending ? natural.reversed() : natural));
+    }
+
+    private static boolean inRange(Integer value, Integer min, Integer max) {
+        if (min == null && max == null)
+            return true;
+        return value != null && (min == null || value >= min) && (max == null || value <= max);
+    }
+
+    @Override
+    public String toString() {
+        return "CourseQuery{instructorId=" + instructorId
+                + ", availableSpots=[" + minAvailableSpots + ", " + maxAvailableSpots + "]"
+                + ", startDay=[" + startFromDay + ", " + startToDay + "]"
+                + ", endDay=[" + endFromDay + ", " + endToDay + "]"
+                + ", enrollment=[" + minEnrollment + ", " + maxEnrollment + "]"
+                + ", orders=" + orders + ", offset=" + offset + ", limit=" + limit + '}';
+    }
+}
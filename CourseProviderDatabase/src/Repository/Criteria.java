@@ -0,0 +1,151 @@
+package Repository;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A conjunction of field equalities and ranges used to query a repository, for example
+ * {@code Criteria.where("studentId", 3).and("courseId", 7)} or {@code Criteria.between("endDate", null, "2024-06-01")}.
+ * <p>
+ * Field names are the names of the entity fields (as in the column lists of {@code Utils.Utils}).
+ * Each backend evaluates the criteria natively: a {@code WHERE} clause for the database, secondary
+ * hash indexes for the in-memory and file repositories. Ranges are served by the database indexes; the other
+ * backends check them on the candidates of the equalities, or on every entity if there are none.
+ */
+public final class Criteria {
+    private final Map<String, Object> equalities = new LinkedHashMap<>();
+    private final Map<String, Range> ranges = new LinkedHashMap<>();
+
+    /**
+     * The values a field may take, from an inclusive lower bound to an exclusive upper bound; a null bound leaves
+     * that side open.
+     *
+     * @param from The lowest value, or null.
+     * @param to   The first value above the range, or null.
+     */
+    public record Range(Comparable<?> from, Comparable<?> to) {
+    }
+
+    private Criteria() {
+    }
+
+    /**
+     * Starts a criteria with a single field equality.
+     *
+     * @param field The name of the entity field.
+     * @param value The value the field must be equal to, may be null.
+     * @return The new criteria.
+     */
+    public static Criteria where(String field, Object value) {
+        return new Criteria().and(field, value);
+    }
+
+    /**
+     * Adds a field equality to the criteria.
+     *
+     * @param field The name of the entity field.
+     * @param value The value the field must be equal to, may be null.
+     * @return This criteria.
+     */
+    public Criteria and(String field, Object value) {
+        Objects.requireNonNull(field, "field");
+        equalities.put(field, value);
+        return this;
+    }
+
+    /**
+     * Starts a criteria with a single field range.
+     *
+     * @param field The name of the entity field.
+     * @param from  The lowest value of the field, inclusive, or null for no lower bound.
+     * @param to    The value the field must be below, or null for no upper bound.
+     * @return The new criteria.
+     */
+    public static Criteria between(String field, Comparable<?> from, Comparable<?> to) {
+        return new Criteria().andBetween(field, from, to);
+    }
+
+    /**
+     * Adds a field range to the criteria. A field with a range never matches null.
+     *
+     * @param field The name of the entity field.
+     * @param from  The lowest value of the field, inclusive, or null for no lower bound.
+     * @param to    The value the field must be below, or null for no upper bound.
+     * @return This criteria.
+     */
+    public Criteria andBetween(String field, Comparable<?> from, Comparable<?> to) {
+        Objects.requireNonNull(field, "field");
+        ranges.put(field, new Range(from, to));
+        return this;
+    }
+
+    /**
+     * @return The field equalities, in the order they were added.
+     */
+    public Map<String, Object> getEqualities() {
+        return Collections.unmodifiableMap(equalities);
+    }
+
+    /**
+     * @return The field ranges, in the order they were added.
+     */
+    public Map<String, Range> getRanges() {
+        return Collections.unmodifiableMap(ranges);
+    }
+
+    /**
+     * @return true if the criteria is a single field equality, which an index answers without checking entities.
+     */
+    boolean isSingleEquality() {
+        return equalities.size() == 1 && ranges.isEmpty();
+    }
+
+    /**
+     * Checks an entity against the criteria by reading its fields.
+     *
+     * @param entity The entity to check.
+     * @return true if every field of the criteria has the expected value.
+     */
+    public boolean matches(Object entity) {
+        for (Map.Entry<String, Object> equality : equalities.entrySet()) {
+            Object actual = FieldAccessor.read(entity, equality.getKey());
+            if (!Objects.equals(actual, equality.getValue()))
+                return false;
+        }
+        for (Map.Entry<String, Range> range : ranges.entrySet()) {
+            Object actual = FieldAccessor.read(entity, range.getKey());
+            if (actual == null || !inRange(actual, range.getValue()))
+                return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean inRange(Object actual, Range range) {
+        if (range.from() != null && ((Comparable) range.from()).compareTo(actual) > 0)
+            return false;
+        return range.to() == null || ((Comparable) range.to()).compareTo(actual) > 0;
+    }
+
+    /**
+     * @return A key identifying the fields of the criteria, used to cache the statements built for it.
+     */
+    String shape() {
+        StringBuilder shape = new StringBuilder();
+        for (Map.Entry<String, Object> equality : equalities.entrySet())
+            shape.append(equality.getKey()).append(equality.getValue() == null ? "~" : "=").append(',');
+        for (Map.Entry<String, Range> range : ranges.entrySet())
+            shape.append(range.getKey())
+                    .append(range.getValue().from() == null ? "" : ">=")
+                    .append(range.getValue().to() == null ? "" : "<")
+                    .append(',');
+        return shape.toString();
+    }
+
+    @Override
+    public String toString() {
+        return ranges.isEmpty() ? "Criteria" + equalities : "Criteria" + equalities + ranges;
+    }
+}
@@ -0,0 +1,231 @@
+package Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The {@code FORMAT csv} codec with the PostgreSQL defaults: comma delimiter, double quote as quote and escape
+ * character, and an unquoted empty field for {@code NULL}. An empty string is therefore written as {@code ""}.
+ * <p>
+ * The stream is UTF-8. Delimiters, quotes and line breaks are ASCII and never occur inside a multi-byte UTF-8
+ * sequence, so the decoder works on bytes and only decodes complete fields.
+ */
+final class CsvCopyCodec implements CopyCodec {
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+
+    @Override
+    public String formatName() {
+        return "csv";
+    }
+
+    @Override
+    public void writeStart(OutputStream out) {
+    }
+
+    @Override
+    public void writeRow(OutputStream out, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0)
+                out.write(DELIMITER);
+            Object value = values[i];
+            if (value == null)
+                continue;
+            if (value instanceof String text)
+                writeText(out, text);
+            else if (value instanceof Boolean flag)
+                out.write(flag ? 't' : 'f');
+            else
+                out.write(value.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+        out.write('\n');
+    }
+
+    @Override
+    public void writeEnd(OutputStream out) {
+    }
+
+    @Override
+    public RowDecoder decoder(Class<?>[] types, Consumer<Object[]> rows) {
+        return new Decoder(types, rows);
+    }
+
+    private static void writeText(OutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (!needsQuotes(text)) {
+            out.write(bytes);
+            return;
+        }
+        out.write(QUOTE);
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == QUOTE) {
+                out.write(bytes, start, i + 1 - start);
+                out.write(QUOTE);
+                start = i + 1;
+            }
+        }
+        out.write(bytes, start, bytes.length - start);
+        out.write(QUOTE);
+    }
+
+    /**
+     * Empty strings must be quoted to tell them from NULL, and a lone {@code \.} would end the data.
+     */
+    private static boolean needsQuotes(String text) {
+        if (text.isEmpty() || text.equals("\\.") || Character.isWhitespace(text.charAt(0))
+                || Character.isWhitespace(text.charAt(text.length() - 1)))
+            return true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == DELIMITER || c == QUOTE || c == '\n' || c == '\r')
+                return true;
+        }
+        return false;
+    }
+
+    static Object parse(String text, Class<?> type) {
+        if (type == String.class)
+            return text;
+        if (type == Integer.class || type == int.class)
+            return Integer.valueOf(text.trim());
+        if (type == Long.class || type == long.class)
+            return Long.valueOf(text.trim());
+        if (type == Short.class || type == short.class)
+            return Short.valueOf(text.trim());
+        if (type == Double.class || type == double.class)
+            return Double.valueOf(text.trim());
+        if (type == Boolean.class || type == boolean.class)
+            return text.equalsIgnoreCase("t") || text.equalsIgnoreCase("true");
+        throw new IllegalArgumentException("Unsupported COPY column type " + type.getName());
+    }
+
+    /**
+     * A state machine over the bytes of the stream.
+     */
+    private static final class Decoder implements RowDecoder {
+        private enum State { FIELD_START, UNQUOTED, QUOTED, QUOTE_IN_QUOTED, AFTER_CR }
+
+        private final Class<?>[] types;
+        private final Consumer<Object[]> rows;
+        private Object[] row;
+        private int column;
+        private byte[] field = new byte[64];
+        private int fieldLength;
+        private boolean fieldQuoted;
+        private State state = State.FIELD_START;
+        private boolean rowStarted;
+
+        private Decoder(Class<?>[] types, Consumer<Object[]> rows) {
+            this.types = types;
+            this.rows = rows;
+            this.row = new Object[types.length];
+        }
+
+        @Override
+        public void feed(byte[] bytes, int offset, int length) throws IOException {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                byte b = bytes[i];
+                if (state == State.AFTER_CR) {
+                    state = State.FIELD_START;
+                    // A CR LF ends a single row; otherwise the CR ended the row on its own and b starts the next one
+                    if (b == '\n')
+                        continue;
+                }
+                switch (state) {
+                    case FIELD_START:
+                        rowStarted = true;
+                        if (b == QUOTE) {
+                            fieldQuoted = true;
+                            state = State.QUOTED;
+                        } else if (b == DELIMITER) {
+                            endField();
+                        } else if (b == '\n' || b == '\r') {
+                            endRow(b);
+                        } else {
+                            append(b);
+                            state = State.UNQUOTED;
+                        }
+                        break;
+                    case UNQUOTED:
+                        if (b == DELIMITER) {
+                            endField();
+                            state = State.FIELD_START;
+                        } else if (b == '\n' || b == '\r') {
+                            endRow(b);
+                        } else {
+                            append(b);
+                        }
+                        break;
+                    case QUOTED:
+                        if (b == QUOTE)
+                            state = State.QUOTE_IN_QUOTED;
+                        else
+                            append(b);
+                        break;
+                    case QUOTE_IN_QUOTED:
+                        if (b == QUOTE) {
+                            append(b);
+                            state = State.QUOTED;
+                        } else if (b == DELIMITER) {
+                            endField();
+                            state = State.FIELD_START;
+                        } else if (b == '\n' || b == '\r') {
+                            endRow(b);
+                        } else {
+                            append(b);
+                            state = State.UNQUOTED;
+                        }
+                        break;
+                }
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (state == State.QUOTED)
+                throw new IOException("CSV stream ended inside a quoted field");
+            // the last row may lack its line break
+            if (rowStarted)
+                endRow((byte) '\n');
+        }
+
+        private void append(byte b) {
+            if (fieldLength == field.length)
+                field = Arrays.copyOf(field, field.length * 2);
+            field[fieldLength++] = b;
+        }
+
+        private void endField() throws IOException {
+            if (column >= types.length)
+                throw new IOException("CSV row has more than " + types.length + " columns");
+            if (fieldLength == 0 && !fieldQuoted) {
+                row[column] = null;
+            } else {
+                String text = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+                try {
+                    row[column] = parse(text, types[column]);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid value '" + text + "' in CSV column " + (column + 1), e);
+                }
+            }
+            column++;
+            fieldLength = 0;
+            fieldQuoted = false;
+        }
+
+        private void endRow(byte terminator) throws IOException {
+            endField();
+            if (column != types.length)
+                throw new IOException("CSV row has " + column + " columns, expected " + types.length);
+            rows.accept(row);
+            row = new Object[types.length];
+            column = 0;
+            rowStarted = false;
+            state = terminator == '\r' ? State.AFTER_CR : State.FIELD_START;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package Repository;
+
+import Exceptions.DataBaseException;
+import Models.Course;
+import Utils.Dates;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Course date queries on the database backend, run as range predicates on {@code startdate} and {@code enddate}
+ * through {@link IRepository#find(Criteria)}, each served by a B-tree index that the repository creates if it is
+ * missing.
+ * <p>
+ * The date columns hold text, and the bounds are passed as zero padded {@code yyyy-MM-dd} text, which orders
+ * like the dates. {@link Course} stores its dates in that form, so a course written through the repositories
+ * compares correctly; rows written unpadded by other means, such as {@code 2024-1-9}, do not.
+ */
+public class DataBaseCourseDateRepository implements ICourseDateRepository {
+    private static final Comparator<Course> BY_END_DATE =
+            Comparator.comparing(Course::getEndEpochDay, Comparator.nullsLast(Comparator.<Integer>naturalOrder())).thenComparing(Course::getId);
+    private static final Comparator<Course> BY_START_DATE =
+            Comparator.comparing(Course::getStartEpochDay, Comparator.nullsLast(Comparator.<Integer>naturalOrder())).thenComparing(Course::getId);
+
+    private final IRepository<Course> courseRepo;
+    private final ConnectionPool connectionPool;
+
+    /**
+     * @param courseRepo     The course repository the queries are run on, backed by the {@code course} table.
+     * @param connectionPool The pool used to create the indexes.
+     */
+    public DataBaseCourseDateRepository(IRepository<Course> courseRepo, ConnectionPool connectionPool) {
+        this.courseRepo = courseRepo;
+        this.connectionPool = connectionPool;
+        createDateIndexes();
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<Course> findEndingBefore(int epochDay) {
+        return sorted(courseRepo.find(Criteria.between("endDate", null, Dates.format(epochDay))), BY_END_DATE);
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<Course> findActiveOn(int epochDay) {
+        return findOverlapping(epochDay, epochDay);
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<Course> findOverlapping(int fromEpochDay, int toEpochDay) {
+        Criteria criteria = Criteria.between("startDate", null, Dates.format(toEpochDay + 1))
+                .andBetween("endDate", Dates.format(fromEpochDay), null);
+        return sorted(courseRepo.find(criteria), BY_START_DATE);
+    }
+
+    private static List<Course> sorted(List<Course> courses, Comparator<Course> order) {
+        List<Course> sorted = new ArrayList<>(courses);
+        sorted.sort(order);
+        return sorted;
+    }
+
+    /**
+     * Creates the indexes of the date columns if they do not exist yet. A failure is reported and the queries fall
+     * back to a sequential scan.
+     */
+    private void createDateIndexes() {
+        for (String column : new String[]{"startdate", "enddate"}) {
+            try (Connection conn = connectionPool.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS course_" + column + "_idx ON course (" + column + ")");
+            } catch (SQLException e) {
+                System.err.println("Could not create the " + column + " index of course: " + e.getMessage());
+            }
+        }
+    }
+}
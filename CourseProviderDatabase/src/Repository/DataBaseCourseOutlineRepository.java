@@ -0,0 +1,171 @@
+package Repository;
+
+import Exceptions.DataBaseException;
+import Models.*;
+import Models.Module;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static Repository.RowMappers.getInteger;
+
+/**
+ * Course outlines on the database backend. Each traversal is a single query that joins the relationship tables
+ * ({@code coursemodule}, {@code moduleassignment}, {@code assignmentquiz}) with the entity tables; a whole course
+ * outline is one query of LEFT JOINs whose rows are folded back into the object graph.
+ */
+public class DataBaseCourseOutlineRepository implements ICourseOutlineRepository {
+    private static final String OUTLINE_SQL =
+            "SELECT c.courseid, c.coursetitle, c.description, c.availablespots, c.startdate, c.enddate, c.instructorid, "
+                    + "m.moduleid, m.moduletitle, m.modulecontent, "
+                    + "a.assignmentid, a.description, a.duedate, a.score, "
+                    + "q.quizid, q.title, q.contents, q.correctanswer "
+                    + "FROM course c "
+                    + "LEFT JOIN coursemodule cm ON cm.courseid = c.courseid "
+                    + "LEFT JOIN module m ON m.moduleid = cm.moduleid "
+                    + "LEFT JOIN moduleassignment ma ON ma.moduleid = m.moduleid "
+                    + "LEFT JOIN assignment a ON a.assignmentid = ma.assignmentid "
+                    + "LEFT JOIN assignmentquiz aq ON aq.assignmentid = a.assignmentid "
+                    + "LEFT JOIN quiz q ON q.quizid = aq.quizid "
+                    + "WHERE c.courseid = ? "
+                    + "ORDER BY m.moduleid, a.assignmentid, q.quizid";
+    private static final String MODULES_OF_COURSE_SQL =
+            "SELECT m.moduleid, m.moduletitle, m.modulecontent FROM module m "
+                    + "JOIN coursemodule cm ON cm.moduleid = m.moduleid WHERE cm.courseid = ? ORDER BY m.moduleid";
+    private static final String ASSIGNMENTS_OF_MODULE_SQL =
+            "SELECT a.assignmentid, a.description, a.duedate, a.score FROM assignment a "
+                    + "JOIN moduleassignment ma ON ma.assignmentid = a.assignmentid WHERE ma.moduleid = ? ORDER BY a.assignmentid";
+    private static final String QUIZZES_OF_ASSIGNMENT_SQL =
+            "SELECT q.quizid, q.title, q.contents, q.correctanswer FROM quiz q "
+                    + "JOIN assignmentquiz aq ON aq.quizid = q.quizid WHERE aq.assignmentid = ? ORDER BY q.quizid";
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Uses the application wide {@link ConnectionPool#getShared() shared connection pool}.
+     */
+    public DataBaseCourseOutlineRepository() {
+        this(ConnectionPool.getShared());
+    }
+
+    /**
+     * @param connectionPool The pool the repository borrows connections from.
+     */
+    public DataBaseCourseOutlineRepository(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Reads the outline with one query; a row is returned for every quiz of every assignment of every module,
+     * with nulls where a module has no assignment or an assignment no quiz.
+     *
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public CourseOutline getCourseOutline(Integer courseId) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(OUTLINE_SQL)) {
+            stmt.setInt(1, courseId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                Course course = null;
+                Map<Integer, Module> modules = new LinkedHashMap<>();
+                Map<Integer, Map<Integer, Assignment>> assignments = new LinkedHashMap<>();
+                Map<Integer, Map<Integer, List<Quiz>>> quizzes = new HashMap<>();
+                while (rs.next()) {
+                    if (course == null)
+                        course = new Course(rs.getInt(1), rs.getString(2), rs.getString(3), getInteger(rs, 4),
+                                rs.getString(5), rs.getString(6), getInteger(rs, 7));
+                    Integer moduleId = getInteger(rs, 8);
+                    if (moduleId == null)
+                        continue;
+                    if (!modules.containsKey(moduleId)) {
+                        modules.put(moduleId, readModule(rs, 8));
+                        assignments.put(moduleId, new LinkedHashMap<>());
+                        quizzes.put(moduleId, new HashMap<>());
+                    }
+                    Integer assignmentId = getInteger(rs, 11);
+                    if (assignmentId == null)
+                        continue;
+                    if (!assignments.get(moduleId).containsKey(assignmentId)) {
+                        assignments.get(moduleId).put(assignmentId, readAssignment(rs, 11));
+                        quizzes.get(moduleId).put(assignmentId, new ArrayList<>());
+                    }
+                    if (getInteger(rs, 15) != null)
+                        quizzes.get(moduleId).get(assignmentId).add(readQuiz(rs, 15));
+                }
+                if (course == null)
+                    return null;
+
+                List<CourseOutline.ModuleOutline> moduleOutlines = new ArrayList<>();
+                for (Module module : modules.values()) {
+                    List<CourseOutline.AssignmentOutline> assignmentOutlines = new ArrayList<>();
+                    for (Assignment assignment : assignments.get(module.getId()).values())
+                        assignmentOutlines.add(new CourseOutline.AssignmentOutline(assignment,
+                                quizzes.get(module.getId()).get(assignment.getId())));
+                    moduleOutlines.add(new CourseOutline.ModuleOutline(module, assignmentOutlines));
+                }
+                return new CourseOutline(course, moduleOutlines);
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "reading the outline of course " + courseId);
+        }
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<Module> getModulesOfCourse(Integer courseId) {
+        return query(MODULES_OF_COURSE_SQL, courseId, rs -> readModule(rs, 1), "reading the modules of course " + courseId);
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<Assignment> getAssignmentsOfModule(Integer moduleId) {
+        return query(ASSIGNMENTS_OF_MODULE_SQL, moduleId, rs -> readAssignment(rs, 1), "reading the assignments of module " + moduleId);
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<Quiz> getQuizzesOfAssignment(Integer assignmentId) {
+        return query(QUIZZES_OF_ASSIGNMENT_SQL, assignmentId, rs -> readQuiz(rs, 1), "reading the quizzes of assignment " + assignmentId);
+    }
+
+    private <E> List<E> query(String sql, Integer id, RowMapper<E> mapper, String action) {
+        List<E> results = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next())
+                    results.add(mapper.mapRow(rs));
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, action);
+        }
+        return results;
+    }
+
+    private static Module readModule(ResultSet rs, int first) throws SQLException {
+        return new Module(rs.getInt(first), rs.getString(first + 1), rs.getString(first + 2));
+    }
+
+    private static Assignment readAssignment(ResultSet rs, int first) throws SQLException {
+        return new Assignment(rs.getInt(first), rs.getString(first + 1), rs.getString(first + 2), getInteger(rs, first + 3));
+    }
+
+    private static Quiz readQuiz(ResultSet rs, int first) throws SQLException {
+        return new Quiz(rs.getInt(first), rs.getString(first + 1), rs.getString(first + 2), getInteger(rs, first + 3));
+    }
+}
@@ -0,0 +1,176 @@
+package Repository;
+
+import Exceptions.DataBaseException;
+import Models.Course;
+import Utils.Dates;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static Repository.RowMappers.getInteger;
+
+/**
+ * Course queries on the database backend. A query is compiled into one {@code SELECT} with its filters in the
+ * {@code WHERE} clause, its sort keys in {@code ORDER BY} and its page as {@code LIMIT} and {@code OFFSET}, so only
+ * the requested page leaves the database.
+ * <p>
+ * The number of enrolled students is a correlated count on {@code studentcourse}, only added when the query filters
+ * or sorts on it. The repository creates the indexes the filters rely on if they are missing.
+ */
+public class DataBaseCourseQueryRepository implements ICourseQueryRepository {
+    private static final String COLUMNS =
+            "c.courseid, c.coursetitle, c.description, c.availablespots, c.startdate, c.enddate, c.instructorid";
+    private static final String ENROLLMENT = "(SELECT COUNT(*) FROM studentcourse s WHERE s.courseid = c.courseid)";
+    private static final String[] INDEXES = {
+            "course_instructorid_idx ON course (instructorid)",
+            "studentcourse_courseid_idx ON studentcourse (courseid)"
+    };
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Uses the application wide {@link ConnectionPool#getShared() shared connection pool}.
+     */
+    public DataBaseCourseQueryRepository() {
+        this(ConnectionPool.getShared());
+    }
+
+    /**
+     * @param connectionPool The pool the repository borrows connections from.
+     */
+    public DataBaseCourseQueryRepository(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        createIndexes();
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<Course> find(CourseQuery query) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = toSql(query, parameters);
+        List<Course> courses = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bind(stmt, parameters);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next())
+                    courses.add(new Course(rs.getInt(1), rs.getString(2), rs.getString(3), getInteger(rs, 4),
+                            rs.getString(5), rs.getString(6), getInteger(rs, 7)));
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "querying courses by " + query);
+        }
+        return courses;
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public int count(CourseQuery query) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM course c" + whereClause(query, parameters);
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            bind(stmt, parameters);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "counting courses by " + query);
+        }
+    }
+
+    /**
+     * Compiles a query into SQL.
+     *
+     * @param query      The query.
+     * @param parameters Receives the values of the parameters of the statement, in order.
+     * @return The text of the statement.
+     */
+    public static String toSql(CourseQuery query, List<Object> parameters) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM course c");
+        sql.append(whereClause(query, parameters));
+
+        sql.append(" ORDER BY ");
+        for (CourseQuery.Order order : query.getOrders())
+            sql.append(column(order.key())).append(order.descending() ? " DESC" : " ASC").append(" NULLS LAST, ");
+        sql.append("c.courseid");
+
+        if (query.getLimit() != Integer.MAX_VALUE) {
+            sql.append(" LIMIT ?");
+            parameters.add(query.getLimit());
+        }
+        if (query.getOffset() > 0) {
+            sql.append(" OFFSET ?");
+            parameters.add(query.getOffset());
+        }
+        return sql.toString();
+    }
+
+    private static String whereClause(CourseQuery query, List<Object> parameters) {
+        List<String> conditions = new ArrayList<>();
+        if (query.getInstructorId() != null) {
+            conditions.add("c.instructorid = ?");
+            parameters.add(query.getInstructorId());
+        }
+        range("c.availablespots", query.getMinAvailableSpots(), query.getMaxAvailableSpots(), conditions, parameters);
+        range("c.startdate", date(query.getStartFromDay()), date(query.getStartToDay()), conditions, parameters);
+        range("c.enddate", date(query.getEndFromDay()), date(query.getEndToDay()), conditions, parameters);
+        range(ENROLLMENT, query.getMinEnrollment(), query.getMaxEnrollment(), conditions, parameters);
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static void range(String column, Object min, Object max, List<String> conditions, List<Object> parameters) {
+        if (min != null) {
+            conditions.add(column + " >= ?");
+            parameters.add(min);
+        }
+        if (max != null) {
+            conditions.add(column + " <= ?");
+            parameters.add(max);
+        }
+    }
+
+    private static String date(Integer epochDay) {
+        return epochDay == null ? null : Dates.format(epochDay);
+    }
+
+    private static String column(CourseQuery.SortKey key) {
+        return switch (key) {
+            case ID -> "c.courseid";
+            case TITLE -> "c.coursetitle";
+            case AVAILABLE_SPOTS -> "c.availablespots";
+            case START_DATE -> "c.startdate";
+            case END_DATE -> "c.enddate";
+            case ENROLLMENT -> ENROLLMENT;
+        };
+    }
+
+    private static void bind(PreparedStatement stmt, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++)
+            stmt.setObject(i + 1, parameters.get(i));
+    }
+
+    /**
+     * Creates the indexes of the filtered columns if they do not exist yet. A failure is reported and the queries
+     * fall back to sequential scans.
+     */
+    private void createIndexes() {
+        for (String index : INDEXES) {
+            try (Connection conn = connectionPool.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS " + index);
+            } catch (SQLException e) {
+                System.err.println("Could not create the index " + index + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package Repository;
+
+import Exceptions.DataBaseException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Enrollments on the database backend. Each enrollment is one transaction: a conditional UPDATE takes a spot of
+ * the course only if one is left, then the {@code studentcourse} row is inserted unless it already exists.
+ * <p>
+ * The UPDATE locks the course row until the transaction ends, so enrollments in the same course are serialized
+ * by the database and the duplicate check of the insert always sees the enrollments committed before it.
+ */
+public class DataBaseEnrollmentRepository implements IEnrollmentRepository {
+    private static final String RESERVE_SEAT_SQL =
+            "UPDATE course SET availablespots = availablespots - 1 WHERE courseid = ? AND availablespots > 0";
+    private static final String RELEASE_SEAT_SQL =
+            "UPDATE course SET availablespots = availablespots + 1 WHERE courseid = ?";
+    private static final String COURSE_EXISTS_SQL = "SELECT 1 FROM course WHERE courseid = ?";
+    private static final String INSERT_ENROLLMENT_SQL =
+            "INSERT INTO studentcourse (studentid, courseid) SELECT ?, ? WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM studentcourse WHERE studentid = ? AND courseid = ?)";
+    private static final String DELETE_ENROLLMENT_SQL = "DELETE FROM studentcourse WHERE studentid = ? AND courseid = ?";
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Uses the application wide {@link ConnectionPool#getShared() shared connection pool}.
+     */
+    public DataBaseEnrollmentRepository() {
+        this(ConnectionPool.getShared());
+    }
+
+    /**
+     * @param connectionPool The pool the repository borrows connections from.
+     */
+    public DataBaseEnrollmentRepository(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Reserves a seat and inserts the enrollment in one transaction.
+     *
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public EnrollmentResult enroll(Integer studentId, Integer courseId) {
+        try (Connection conn = connectionPool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                EnrollmentResult result = reserveAndInsert(conn, studentId, courseId);
+                if (result == EnrollmentResult.ENROLLED)
+                    conn.commit();
+                else
+                    conn.rollback();
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "enrolling student " + studentId + " in course " + courseId);
+        }
+    }
+
+    /**
+     * Deletes the enrollment and gives the seat back in one transaction.
+     *
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public boolean unenroll(Integer studentId, Integer courseId) {
+        try (Connection conn = connectionPool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int deleted;
+                try (PreparedStatement stmt = conn.prepareStatement(DELETE_ENROLLMENT_SQL)) {
+                    stmt.setInt(1, studentId);
+                    stmt.setInt(2, courseId);
+                    deleted = stmt.executeUpdate();
+                }
+                if (deleted == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(RELEASE_SEAT_SQL)) {
+                    stmt.setInt(1, courseId);
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "unenrolling student " + studentId + " from course " + courseId);
+        }
+    }
+
+    private EnrollmentResult reserveAndInsert(Connection conn, Integer studentId, Integer courseId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(RESERVE_SEAT_SQL)) {
+            stmt.setInt(1, courseId);
+            if (stmt.executeUpdate() == 0)
+                return courseExists(conn, courseId) ? EnrollmentResult.COURSE_FULL : EnrollmentResult.COURSE_NOT_FOUND;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_ENROLLMENT_SQL)) {
+            stmt.setInt(1, studentId);
+            stmt.setInt(2, courseId);
+            stmt.setInt(3, studentId);
+            stmt.setInt(4, courseId);
+            return stmt.executeUpdate() == 0 ? EnrollmentResult.ALREADY_ENROLLED : EnrollmentResult.ENROLLED;
+        }
+    }
+
+    private boolean courseExists(Connection conn, Integer courseId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(COURSE_EXISTS_SQL)) {
+            stmt.setInt(1, courseId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -3,50 +3,84 @@ package Repository;
 import Exceptions.DataBaseException;
 import Models.Identifiable;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A generic repository class that interacts with a database to perform CRUD (Create, Read, Update, Delete)
  * operations for entities that implement the {@link Identifiable} interface.
+ * <p>
+ * The SQL text, the id column and the field accessors are resolved once, when the repository is created,
+ * by an {@link EntityMapping}. Rows are turned into entities by the {@link RowMapper} of the entity type.
  *
  * @param <T> the type of the entity that is stored and retrieved
  */
 public class DataBaseRepository<T extends Identifiable> implements IRepository<T> {
-    private static final String URL = System.getenv("DB_URL");
-    private static final String USER = System.getenv("DB_USER");
-    private static final String PASSWORD = System.getenv("DB_PASSWORD");
-    private final Class<T> type;
+    /**
+     * The number of rows sent per {@code executeBatch} call, overridden by the {@code DB_BATCH_SIZE} environment variable.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    /**
+     * The number of rows fetched per round trip by {@link #stream()}, overridden by the {@code DB_FETCH_SIZE}
+     * environment variable.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final ConnectionPool connectionPool;
     private final String tableName;
-    private final List<String> columnNames;
-    private final Constructor<T> constructor;
+    private final EntityMapping<T> mapping;
+    private final RowMapper<T> rowMapper;
+    private final Map<String, String> whereClauses = new ConcurrentHashMap<>();
+    private int batchSize = defaultBatchSize();
+    private int fetchSize = positiveEnv("DB_FETCH_SIZE", DEFAULT_FETCH_SIZE);
 
     /**
-     * Establishes a connection to the database.
+     * Borrows a connection from the connection pool. Closing the connection returns it to the pool.
      *
      * @return A Connection object.
-     * @throws SQLException If a database access error occurs.
+     * @throws SQLException If a database access error occurs or no connection becomes available in time.
      */
     protected Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return connectionPool.getConnection();
     }
 
     /**
      * Constructs a {@link DataBaseRepository} with the given table name, entity type, and column names.
+     * The repository uses the application wide {@link ConnectionPool#getShared() shared connection pool}.
      *
      * @param tableName    The name of the table in the database.
      * @param type         The class type of the entity being stored.
      * @param columnNames  The list of column names in the table.
      */
     public DataBaseRepository(String tableName, Class<T> type, List<String> columnNames) {
-        this.type = type;
+        this(tableName, type, columnNames, ConnectionPool.getShared());
+    }
+
+    /**
+     * Constructs a {@link DataBaseRepository} that borrows its connections from the given pool.
+     *
+     * @param tableName      The name of the table in the database.
+     * @param type           The class type of the entity being stored.
+     * @param columnNames    The list of column names in the table.
+     * @param connectionPool The pool the repository borrows connections from.
+     */
+    public DataBaseRepository(String tableName, Class<T> type, List<String> columnNames, ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
         this.tableName = tableName;
-        this.columnNames = columnNames;
-        this.constructor = getConstructor();
+        this.mapping = new EntityMapping<>(tableName, type, columnNames);
+        this.rowMapper = RowMappers.forMapping(mapping);
     }
 
 
@@ -62,47 +96,16 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
         PreparedStatement stmt = null;
         try {
             conn = getConnection();
-            StringBuilder sql = new StringBuilder("INSERT INTO " + tableName + " (");
-            StringBuilder values = new StringBuilder(") VALUES (");
-
-            for (int i = 0; i < columnNames.size(); i++) {
-                sql.append(columnNames.get(i));
-                values.append("?");
-                if (i < columnNames.size() - 1) {
-                    sql.append(", ");
-                    values.append(", ");
-                }
-            }
-            sql.append(values).append(")");
-
-            stmt = conn.prepareStatement(sql.toString());
-            for (int i = 0; i < columnNames.size(); i++) {
-                String columnName = columnNames.get(i);
-                String fieldName = toCamelCase(columnName);
-
-                Field field = findField(type, fieldName);
-                if (field == null) {
-                    throw new NoSuchFieldException(fieldName + " not found in class " + type.getName());
-                }
-
-                field.setAccessible(true);
-                Object value = field.get(obj);
-
-                if (value instanceof List) {
-                    Array sqlArray = conn.createArrayOf("text", ((List<?>) value).toArray());
-                    stmt.setArray(i + 1, sqlArray);
-                } else {
-                    stmt.setObject(i + 1, value);
-                }
-            }
+            stmt = conn.prepareStatement(mapping.getInsertSql());
+            mapping.bindInsert(conn, stmt, obj);
 
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
                 throw new SQLException("Creating object failed, no rows affected.");
             }
 
-        } catch (SQLException | IllegalAccessException | NoSuchFieldException e) {
-            throw DataBaseException.handleSQLException((SQLException) e, "inserting into " + tableName);
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "inserting into " + tableName);
         } finally {
             closeResources(conn, stmt, null);
         }
@@ -125,54 +128,67 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
 
         try{
             connection = getConnection();
-            // Determine the id column name based on the table name
-            String idColumnName;
-            if (tableName.equalsIgnoreCase("admin") ||
-                    tableName.equalsIgnoreCase("instructor") ||
-                    tableName.equalsIgnoreCase("student")) {
-                idColumnName = "userid"; // Use "userid" for these specific tables
-            } else if (tableName.equalsIgnoreCase("assignmentquiz")) {
-                idColumnName = "assignmentid";
-            } else if (tableName.equalsIgnoreCase("coursemodule")) {
-                idColumnName = "moduleid";
-            } else if (tableName.equalsIgnoreCase("messageforum")) {
-                idColumnName = "messageid";
-            } else if (tableName.equalsIgnoreCase("moduleassignment")) {
-                idColumnName = "moduleid";
-            } else if (tableName.equalsIgnoreCase("studentcourse")) {
-                idColumnName = "studentid";
-            } else {
-                idColumnName = tableName.toLowerCase() + "id"; // Default logic
-            }
-            String sql = "SELECT * FROM " + tableName + " WHERE " + idColumnName + " = ?";
-            statement = connection.prepareStatement(sql);
+            statement = connection.prepareStatement(mapping.getSelectByIdSql());
             statement.setInt(1,id);
 
             rs = statement.executeQuery();
 
             if(rs.next()){
-                Object[] args = new Object[columnNames.size()];
-                for(int i = 0 ; i < columnNames.size();i++){
-                    String columnName = columnNames.get(i);
-                    if(columnName.equals(idColumnName))
-                        args[i] = rs.getInt(columnName);
-                    else
-                        args[i] = rs.getObject(columnName);
-                }
-                result = constructor.newInstance(args);
-
-                result.setId(rs.getInt(idColumnName));
+                result = rowMapper.mapRow(rs);
             }
 
-        } catch (Exception e) {
+        } catch (SQLException e) {
             e.printStackTrace();
-            DataBaseException.handleSQLException((SQLException) e, "getting from " + tableName);
+            DataBaseException.handleSQLException(e, "getting from " + tableName);
         }finally {
             closeResources(connection,statement, rs);
         }
         return result;
     }
 
+    /**
+     * Retrieves the entities with the given IDs in one {@code WHERE id = ANY(?)} query.
+     *
+     * @param ids The IDs of the entities to retrieve.
+     * @return The entities found, in the order of their IDs; IDs without an entity are skipped.
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<T> findByIds(Collection<Integer> ids) {
+        Set<Integer> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        if (distinctIds.isEmpty())
+            return new ArrayList<>();
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        Map<Integer, T> byId = new HashMap<>();
+        try {
+            connection = getConnection();
+            statement = connection.prepareStatement(mapping.getSelectByIdsSql());
+            statement.setArray(1, connection.createArrayOf("integer", distinctIds.toArray()));
+            rs = statement.executeQuery();
+
+            while (rs.next()) {
+                T entity = rowMapper.mapRow(rs);
+                byId.put(entity.getId(), entity);
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "getting " + distinctIds.size() + " rows from " + tableName);
+        } finally {
+            closeResources(connection, statement, rs);
+        }
+
+        List<T> results = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T entity = byId.get(id);
+            if (entity != null)
+                results.add(entity);
+        }
+        return results;
+    }
+
     /**
      * Updates an existing entity in the database.
      *
@@ -185,67 +201,17 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
         PreparedStatement statement = null;
         try{
             connection = getConnection();
-            StringBuilder sql = new StringBuilder("UPDATE " + tableName + " SET ");
-            String idColumnName;
-            if (tableName.equalsIgnoreCase("admin") ||
-                    tableName.equalsIgnoreCase("instructor") ||
-                    tableName.equalsIgnoreCase("student")) {
-                idColumnName = "userid"; // Use "userid" for these specific tables
-            } else if (tableName.equalsIgnoreCase("assignmentquiz")) {
-                idColumnName = "assignmentid";
-            } else if (tableName.equalsIgnoreCase("coursemodule")) {
-                idColumnName = "moduleid";
-            } else if (tableName.equalsIgnoreCase("messageforum")) {
-                idColumnName = "messageid";
-            } else if (tableName.equalsIgnoreCase("moduleassignment")) {
-                idColumnName = "moduleid";
-            } else if (tableName.equalsIgnoreCase("studentcourse")) {
-                idColumnName = "studentid";
-            } else {
-                idColumnName = tableName.toLowerCase() + "id"; // Default logic
-            }
-
-            for(int i = 0; i < columnNames.size(); i++){
-                if(!columnNames.get(i).equals(idColumnName)){
-                    sql.append(columnNames.get(i)).append(" = ?");
-                    if(i < columnNames.size() - 1){
-                        sql.append(", ");
-                    }
-                }
-            }
-            sql.append(" WHERE ").append(idColumnName).append(" = ?");
-
-            statement = connection.prepareStatement(sql.toString());
-            int parameterIndex = 1;
-            for(String columnnName : columnNames){
-                if(!columnnName.equals(idColumnName)){
-                    String fieldName = toCamelCase(columnnName);
-                    Field field = findField(type,fieldName);
-                    if(field == null){
-                        throw new NoSuchFieldException(fieldName + " not found in class " + type.getName());
-                    }
-
-                    field.setAccessible(true);
-                    Object value = field.get(obj);
-
-                    if(value instanceof List) {
-                        Array sqlArray = connection.createArrayOf("text",((List<?>) value).toArray());
-                        statement.setArray(parameterIndex++, sqlArray);
-                    }else {
-                        statement.setObject(parameterIndex++, value);
-                    }
-                }
-            }
-            statement.setInt(parameterIndex, obj.getId());
+            statement = connection.prepareStatement(mapping.getUpdateSql());
+            mapping.bindUpdate(connection, statement, obj);
 
             int affectedRows = statement.executeUpdate();
             if(affectedRows == 0){
                 throw new SQLException("Updating object failed, no rows affected.");
 
             }
-        } catch (SQLException | IllegalAccessException | NoSuchFieldException e) {
+        } catch (SQLException e) {
             e.printStackTrace();
-            DataBaseException.handleSQLException((SQLException) e, "updating into " + tableName);
+            DataBaseException.handleSQLException(e, "updating into " + tableName);
         }finally {
             closeResources(connection,statement,null);
         }
@@ -263,27 +229,7 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
         PreparedStatement statement = null;
         try{
             connection = getConnection();
-            String idColumnName;
-            if (tableName.equalsIgnoreCase("admin") ||
-                    tableName.equalsIgnoreCase("instructor") ||
-                    tableName.equalsIgnoreCase("student")) {
-                idColumnName = "userid"; // Use "userid" for these specific tables
-            } else if (tableName.equalsIgnoreCase("assignmentquiz")) {
-                idColumnName = "assignmentid";
-            } else if (tableName.equalsIgnoreCase("coursemodule")) {
-                idColumnName = "moduleid";
-            } else if (tableName.equalsIgnoreCase("messageforum")) {
-                idColumnName = "messageid";
-            } else if (tableName.equalsIgnoreCase("moduleassignment")) {
-                idColumnName = "moduleid";
-            } else if (tableName.equalsIgnoreCase("studentcourse")) {
-                idColumnName = "studentid";
-            } else {
-                idColumnName = tableName.toLowerCase() + "id";// Default logic
-            }
-            String sql = "DELETE FROM " + tableName.toLowerCase() + " WHERE " + idColumnName + " = ?";
-
-            statement = connection.prepareStatement(sql);
+            statement = connection.prepareStatement(mapping.getDeleteSql());
             statement.setInt(1,id);
 
             int affectedRows = statement.executeUpdate();
@@ -293,11 +239,159 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            throw DataBaseException.handleSQLException((SQLException) e, "deleting object from " + tableName+ " failed");
+            throw DataBaseException.handleSQLException(e, "deleting object from " + tableName+ " failed");
         }finally {
             closeResources(connection, statement, null);
         }
     }
+    /**
+     * Inserts all the entities with one connection and one prepared statement, sending them in batches of
+     * {@link #getBatchSize()} rows. The inserts run in a single transaction: either every entity is created or none.
+     *
+     * @param objs The entities to create.
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        executeBatch(mapping.getInsertSql(), objs, mapping::bindInsert, "batch inserting into " + tableName);
+    }
+
+    /**
+     * Updates all the entities with one connection and one prepared statement, in batches of
+     * {@link #getBatchSize()} rows and in a single transaction.
+     *
+     * @param objs The entities with updated values.
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        executeBatch(mapping.getUpdateSql(), objs, mapping::bindUpdate, "batch updating " + tableName);
+    }
+
+    /**
+     * Deletes the entities with the given IDs with one connection and one prepared statement, in batches of
+     * {@link #getBatchSize()} rows and in a single transaction. IDs that do not exist are ignored.
+     *
+     * @param ids The IDs of the entities to delete.
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        executeBatch(mapping.getDeleteSql(), ids, (conn, stmt, id) -> stmt.setInt(1, id), "batch deleting from " + tableName);
+    }
+
+    /**
+     * @return The number of rows sent per {@code executeBatch} call by the batch operations.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of rows sent per {@code executeBatch} call by the batch operations.
+     *
+     * @param batchSize The chunk size, at least 1.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return The number of rows fetched per round trip by {@link #stream()}.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows fetched per round trip by {@link #stream()}, which bounds the number of rows held in
+     * memory by a stream.
+     *
+     * @param fetchSize The fetch size, at least 1.
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1)
+            throw new IllegalArgumentException("Fetch size must be at least 1: " + fetchSize);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Binds the parameters of one row of a batch.
+     */
+    @FunctionalInterface
+    private interface BatchBinder<E> {
+        void bind(Connection connection, PreparedStatement statement, E item) throws SQLException;
+    }
+
+    private <E> void executeBatch(String sql, Collection<? extends E> items, BatchBinder<? super E> binder, String action) {
+        if (items.isEmpty())
+            return;
+        Connection connection = null;
+        PreparedStatement statement = null;
+        boolean autoCommit = true;
+        try {
+            connection = getConnection();
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(sql);
+
+            int pending = 0;
+            for (E item : items) {
+                binder.bind(connection, statement, item);
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0)
+                statement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(connection);
+            throw DataBaseException.handleSQLException(e, action);
+        } catch (RuntimeException e) {
+            rollback(connection);
+            throw e;
+        } finally {
+            try {
+                if (connection != null)
+                    connection.setAutoCommit(autoCommit);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            closeResources(connection, statement, null);
+        }
+    }
+
+    private static void rollback(Connection connection) {
+        if (connection == null)
+            return;
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static int defaultBatchSize() {
+        return positiveEnv("DB_BATCH_SIZE", DEFAULT_BATCH_SIZE);
+    }
+
+    private static int positiveEnv(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank())
+            return defaultValue;
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid value for " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
     /**
      * Retrieves all entities from the database.
      *
@@ -305,7 +399,7 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
      * @throws DataBaseException If an error occurs during the database operation.
      */
     @Override
-    public List getAll() {
+    public List<T> getAll() {
         Connection connection = null;
         Statement statement = null;
         ResultSet rs = null;
@@ -313,45 +407,16 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
 
         try{
             connection = getConnection();
-            String sql = "SELECT * FROM " + tableName;
             statement = connection.createStatement();
-            rs = statement.executeQuery(sql);
+            rs = statement.executeQuery(mapping.getSelectAllSql());
 
             while(rs.next()){
-                Object[] args = new Object[columnNames.size()];
-                for(int i = 0; i < columnNames.size(); i++){
-                    String columnName = columnNames.get(i);
-                    args[i] = rs.getObject(columnName);
-                }
-                T obj = constructor.newInstance(args);
-
-                //Set the ID
-                String idColumnName;
-                if (tableName.equalsIgnoreCase("admin") ||
-                        tableName.equalsIgnoreCase("instructor") ||
-                        tableName.equalsIgnoreCase("student")) {
-                    idColumnName = "userid"; // Use "userid" for these specific tables
-                } else if (tableName.equalsIgnoreCase("assignmentquiz")) {
-                    idColumnName = "assignmentid";
-                } else if (tableName.equalsIgnoreCase("coursemodule")) {
-                    idColumnName = "moduleid";
-                } else if (tableName.equalsIgnoreCase("messageforum")) {
-                    idColumnName = "messageid";
-                } else if (tableName.equalsIgnoreCase("moduleassignment")) {
-                    idColumnName = "moduleid";
-                } else if (tableName.equalsIgnoreCase("studentcourse")) {
-                    idColumnName = "studentid";
-                } else {
-                    idColumnName = tableName.toLowerCase() + "id"; // Default logic
-                }
-                obj.setId(rs.getInt(idColumnName));
-
-                results.add(obj);
+                results.add(rowMapper.mapRow(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
-            DataBaseException.handleSQLException((SQLException) e, "getAll objects failed");
-        }catch (ReflectiveOperationException e){
+            DataBaseException.handleSQLException(e, "getAll objects failed");
+        }catch (DataBaseException e){
             System.err.println("Error creating object instance");
             e.printStackTrace();
         }finally {
@@ -360,43 +425,292 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
         return results;
     }
 
-
     /**
-     * Returns the constructor for the entity type that matches the number of columns.
+     * Streams the rows of the table through a cursor: the driver fetches {@link #getFetchSize()} rows per round
+     * trip as the stream is consumed, so only one chunk of rows is in memory at a time. The stream holds a
+     * connection of the pool, in a transaction, until it is consumed to the end or closed.
      *
-     * @return The constructor for the entity type.
-     * @throws IllegalArgumentException If no suitable constructor is found.
+     * @return A stream of all entities.
+     * @throws DataBaseException If an error occurs during the database operation, also while the stream is consumed.
      */
-    private Constructor<T> getConstructor() {
-        return Arrays.stream(type.getDeclaredConstructors())
-                .filter(c -> c.getParameterCount() == columnNames.size()) // Match exact parameter count
-                .map(c -> (Constructor<T>) c)
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("No suitable constructor found"));
+    @Override
+    public Stream<T> stream() {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        boolean autoCommit = true;
+        try {
+            connection = getConnection();
+            autoCommit = connection.getAutoCommit();
+            // The PostgreSQL driver only fetches in chunks inside a transaction, otherwise it reads every row at once
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(mapping.getSelectAllSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            rs = statement.executeQuery();
+        } catch (SQLException e) {
+            endCursor(connection, statement, rs, autoCommit);
+            throw DataBaseException.handleSQLException(e, "streaming " + tableName);
+        }
+        RowCursor cursor = new RowCursor(connection, statement, rs, autoCommit);
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
     }
 
     /**
-     * Finds a field by its name in the class or its superclasses.
+     * Retrieves a keyset page with {@code WHERE id > ? ORDER BY id LIMIT ?}, which the primary key index answers
+     * without reading the rows before the page. In join tables, where several rows share an id, the limit counts
+     * ids and the page holds every row of them, so the next page does not skip any row.
      *
-     * @param clazz     The class to search for the field.
-     * @param fieldName The name of the field.
-     * @return The field if found, otherwise null.
+     * @param afterId The ID the page starts after, or null for the first page.
+     * @param limit   The largest number of IDs in the page.
+     * @return The rows of the page, by increasing ID.
+     * @throws DataBaseException If an error occurs during the database operation.
      */
-    private Field findField(Class<?> clazz, String fieldName) {
-        Class<?> current = clazz;
-        while (current != null) {
+    @Override
+    public List<T> getPage(Integer afterId, int limit) {
+        KeysetPage.checkLimit(limit);
+        List<T> results = new ArrayList<>();
+        if (limit == 0)
+            return results;
+
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            connection = getConnection();
+            statement = connection.prepareStatement(mapping.getSelectPageSql(afterId == null));
+            int parameterIndex = 1;
+            if (afterId != null)
+                statement.setInt(parameterIndex++, afterId);
+            statement.setInt(parameterIndex, limit);
+            rs = statement.executeQuery();
+
+            while (rs.next()) {
+                results.add(rowMapper.mapRow(rs));
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "getting a page of " + tableName + " after " + afterId);
+        } finally {
+            closeResources(connection, statement, rs);
+        }
+        return results;
+    }
+
+    /**
+     * The rows of a {@link #stream()}, read from its result set one at a time. The cursor ends its transaction and
+     * returns the connection when the last row is read, when a read fails or when the stream is closed.
+     */
+    private final class RowCursor extends Spliterators.AbstractSpliterator<T> {
+        private final Connection connection;
+        private final Statement statement;
+        private final ResultSet rs;
+        private final boolean autoCommit;
+        private boolean closed;
+
+        private RowCursor(Connection connection, Statement statement, ResultSet rs, boolean autoCommit) {
+            super(Long.MAX_VALUE, Spliterator.NONNULL);
+            this.connection = connection;
+            this.statement = statement;
+            this.rs = rs;
+            this.autoCommit = autoCommit;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed)
+                return false;
+            T entity;
             try {
-                return current.getDeclaredField(fieldName);
-            } catch (NoSuchFieldException e) {
-                // Move to the superclass
-                current = current.getSuperclass();
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                entity = rowMapper.mapRow(rs);
+            } catch (SQLException e) {
+                close();
+                throw DataBaseException.handleSQLException(e, "streaming " + tableName);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            action.accept(entity);
+            return true;
+        }
+
+        private void close() {
+            if (closed)
+                return;
+            closed = true;
+            endCursor(connection, statement, rs, autoCommit);
+        }
+    }
+
+    /**
+     * Ends the read-only transaction of a cursor, restores the auto-commit mode of its connection and returns the
+     * connection to the pool.
+     */
+    private void endCursor(Connection connection, Statement statement, ResultSet rs, boolean autoCommit) {
+        closeResources(null, statement, rs);
+        rollback(connection);
+        try {
+            if (connection != null)
+                connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        closeResources(connection, null, null);
+    }
+
+    /**
+     * Retrieves the entities matching the criteria with a {@code WHERE} clause.
+     *
+     * @param criteria The field equalities the entities must satisfy.
+     * @return A list of the matching entities.
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public List<T> find(Criteria criteria) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        List<T> results = new ArrayList<>();
+
+        try {
+            connection = getConnection();
+            statement = connection.prepareStatement(mapping.getSelectAllSql() + whereClause(criteria));
+            bindCriteria(statement, criteria);
+            rs = statement.executeQuery();
+
+            while (rs.next()) {
+                results.add(rowMapper.mapRow(rs));
             }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "querying " + tableName + " by " + criteria);
+        } finally {
+            closeResources(connection, statement, rs);
         }
-        return null; // Field not found
+        return results;
+    }
+
+    /**
+     * Checks with a {@code SELECT EXISTS} query whether any entity matches the criteria.
+     *
+     * @param criteria The field equalities to check.
+     * @return true if at least one entity matches.
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public boolean exists(Criteria criteria) {
+        return queryInt("SELECT CASE WHEN EXISTS (SELECT 1 FROM " + tableName + whereClause(criteria) + ") THEN 1 ELSE 0 END", criteria) == 1;
+    }
+
+    /**
+     * Counts the entities matching the criteria with a {@code SELECT COUNT(*)} query.
+     *
+     * @param criteria The field equalities to check.
+     * @return The number of matching entities.
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public int count(Criteria criteria) {
+        return queryInt("SELECT COUNT(*) FROM " + tableName + whereClause(criteria), criteria);
+    }
+
+    /**
+     * Deletes the rows matching the criteria with one {@code DELETE ... WHERE} statement. Unlike {@link #delete}, it
+     * only removes the matching rows of a join table, not every row sharing their id.
+     *
+     * @param criteria The field equalities the rows to delete satisfy.
+     * @return The number of deleted rows.
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public int deleteWhere(Criteria criteria) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        try {
+            connection = getConnection();
+            statement = connection.prepareStatement("DELETE FROM " + tableName + whereClause(criteria));
+            bindCriteria(statement, criteria);
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "deleting from " + tableName + " by " + criteria);
+        } finally {
+            closeResources(connection, statement, null);
+        }
+    }
+
+    private int queryInt(String sql, Criteria criteria) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        ResultSet rs = null;
+        try {
+            connection = getConnection();
+            statement = connection.prepareStatement(sql);
+            bindCriteria(statement, criteria);
+            rs = statement.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "querying " + tableName + " by " + criteria);
+        } finally {
+            closeResources(connection, statement, rs);
+        }
+    }
+
+    /**
+     * Builds the {@code WHERE} clause of a criteria. Clauses are cached by the fields of the criteria.
+     */
+    private String whereClause(Criteria criteria) {
+        return whereClauses.computeIfAbsent(criteria.shape(), shape -> {
+            StringBuilder where = new StringBuilder(" WHERE ");
+            boolean first = true;
+            for (Map.Entry<String, Object> equality : criteria.getEqualities().entrySet()) {
+                if (!first)
+                    where.append(" AND ");
+                where.append(mapping.columnForField(equality.getKey()))
+                        .append(equality.getValue() == null ? " IS NULL" : " = ?");
+                first = false;
+            }
+            for (Map.Entry<String, Criteria.Range> range : criteria.getRanges().entrySet()) {
+                String column = mapping.columnForField(range.getKey());
+                if (!first)
+                    where.append(" AND ");
+                where.append(column).append(" IS NOT NULL");
+                if (range.getValue().from() != null)
+                    where.append(" AND ").append(column).append(" >= ?");
+                if (range.getValue().to() != null)
+                    where.append(" AND ").append(column).append(" < ?");
+                first = false;
+            }
+            return where.toString();
+        });
+    }
+
+    private void bindCriteria(PreparedStatement statement, Criteria criteria) throws SQLException {
+        int parameterIndex = 1;
+        for (Object value : criteria.getEqualities().values()) {
+            if (value != null)
+                statement.setObject(parameterIndex++, value);
+        }
+        for (Criteria.Range range : criteria.getRanges().values()) {
+            if (range.from() != null)
+                statement.setObject(parameterIndex++, range.from());
+            if (range.to() != null)
+                statement.setObject(parameterIndex++, range.to());
+        }
+    }
+
+    /**
+     * Returns the pool this repository borrows its connections from.
+     *
+     * @return The connection pool.
+     */
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
     }
 
     /**
      * Closes the database resources such as connection, statement, and result set.
+     * Closing the connection hands it back to the pool.
      *
      * @param conn The database connection to close.
      * @param stmt The statement to close.
@@ -412,20 +726,4 @@ public class DataBaseRepository<T extends Identifiable> implements IRepository<T
         }
     }
 
-    /**
-     * Converts a string in snake_case to camelCase.
-     *
-     * @param s The string to convert.
-     * @return The camelCase version of the string.
-     */
-    private String toCamelCase(String s) {
-        String[] parts = s.split("_");
-        StringBuilder camelCaseString = new StringBuilder(parts[0]);
-        for (int i = 1; i < parts.length; i++) {
-            camelCaseString.append(Character.toUpperCase(parts[i].charAt(0)))
-                    .append(parts[i].substring(1));
-        }
-        return camelCaseString.toString();
-    }
-
 }
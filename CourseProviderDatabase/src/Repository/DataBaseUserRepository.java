@@ -0,0 +1,89 @@
+package Repository;
+
+import Exceptions.DataBaseException;
+import Models.Admin;
+import Models.Instructor;
+import Models.Student;
+import Models.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Username lookups on the database backend. The three role tables are searched with one {@code UNION ALL} query,
+ * each branch served by a unique index on {@code username} that the repository creates if it is missing.
+ */
+public class DataBaseUserRepository implements IUserRepository {
+    private static final String[] ROLE_TABLES = {"student", "admin", "instructor"};
+    private static final String FIND_BY_USERNAME_SQL =
+            "SELECT 0 AS role, userid, username, password, email, type FROM student WHERE username = ? "
+                    + "UNION ALL SELECT 1, userid, username, password, email, type FROM admin WHERE username = ? "
+                    + "UNION ALL SELECT 2, userid, username, password, email, type FROM instructor WHERE username = ? "
+                    + "ORDER BY role LIMIT 1";
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Uses the application wide {@link ConnectionPool#getShared() shared connection pool}.
+     */
+    public DataBaseUserRepository() {
+        this(ConnectionPool.getShared());
+    }
+
+    /**
+     * @param connectionPool The pool the repository borrows connections from.
+     */
+    public DataBaseUserRepository(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+        createUsernameIndexes();
+    }
+
+    /**
+     * @throws DataBaseException If an error occurs during the database operation.
+     */
+    @Override
+    public User findByUsername(String username) {
+        if (username == null)
+            return null;
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_USERNAME_SQL)) {
+            for (int i = 1; i <= ROLE_TABLES.length; i++)
+                stmt.setString(i, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next())
+                    return null;
+                Integer id = rs.getInt(2);
+                String name = rs.getString(3);
+                String password = rs.getString(4);
+                String email = rs.getString(5);
+                String type = rs.getString(6);
+                return switch (rs.getInt(1)) {
+                    case 0 -> new Student(id, name, password, email, type);
+                    case 1 -> new Admin(id, name, password, email, type);
+                    default -> new Instructor(id, name, password, email, type);
+                };
+            }
+        } catch (SQLException e) {
+            throw DataBaseException.handleSQLException(e, "looking up user " + username);
+        }
+    }
+
+    /**
+     * Creates the unique username index of each role table if it does not exist yet. A table that already holds
+     * duplicate usernames keeps working without the index; the failure is reported and the lookup falls back to
+     * a sequential scan of that table.
+     */
+    private void createUsernameIndexes() {
+        for (String table : ROLE_TABLES) {
+            try (Connection conn = connectionPool.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + table + "_username_key ON " + table + " (username)");
+            } catch (SQLException e) {
+                System.err.println("Could not create the username index of " + table + ": " + e.getMessage());
+            }
+        }
+    }
+}
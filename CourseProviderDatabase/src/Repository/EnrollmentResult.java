@@ -0,0 +1,15 @@
+package Repository;
+
+/**
+ * The outcome of an {@link IEnrollmentRepository#enroll(Integer, Integer) enrollment attempt}.
+ */
+public enum EnrollmentResult {
+    /** The seat was reserved and the enrollment recorded. */
+    ENROLLED,
+    /** The student is already enrolled in the course; nothing was changed. */
+    ALREADY_ENROLLED,
+    /** The course has no available spots left; nothing was changed. */
+    COURSE_FULL,
+    /** The course does not exist. */
+    COURSE_NOT_FOUND
+}
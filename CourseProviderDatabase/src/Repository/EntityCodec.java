@@ -0,0 +1,52 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Turns entities into the bytes stored by the file backends and back.
+ */
+public interface EntityCodec {
+    /** Java serialization, the format the file backends have always used. */
+    EntityCodec JAVA_SERIALIZATION = new JavaSerializationCodec();
+
+    /** The compact binary encoding of the {@code Models} entities, which also reads Java serialization. */
+    EntityCodec BINARY = new BinaryEntityCodec();
+
+    /**
+     * Reads the codec of the file backends from the {@code FILE_CODEC} environment variable, {@code binary} or
+     * {@code java}.
+     *
+     * @return The configured codec, {@link #BINARY} if the variable is not set.
+     */
+    static EntityCodec fromEnvironment() {
+        String value = System.getenv("FILE_CODEC");
+        if (value == null || value.isBlank() || value.trim().equalsIgnoreCase("binary"))
+            return BINARY;
+        if (value.trim().equalsIgnoreCase("java"))
+            return JAVA_SERIALIZATION;
+        System.err.println("Ignoring invalid value for FILE_CODEC: " + value);
+        return BINARY;
+    }
+
+    /**
+     * Encodes an entity.
+     *
+     * @param entity The entity.
+     * @return Its encoded bytes.
+     * @throws IOException If the entity cannot be encoded.
+     */
+    byte[] encode(Identifiable entity) throws IOException;
+
+    /**
+     * Decodes an entity from the remaining bytes of a buffer. The buffer may be a view of a mapped file,
+     * the codec must not keep a reference to it.
+     *
+     * @param buffer The encoded bytes, from its position to its limit.
+     * @return The entity.
+     * @throws IOException If the bytes are not a valid encoding.
+     */
+    Identifiable decode(ByteBuffer buffer) throws IOException;
+}
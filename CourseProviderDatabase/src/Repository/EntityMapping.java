@@ -0,0 +1,346 @@
+package Repository;
+
+import Exceptions.DataBaseException;
+import Models.Identifiable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The table mapping of an entity type, resolved once when a {@link DataBaseRepository} is created.
+ * <p>
+ * It holds the SQL text of every statement the repository runs, the name and position of the id column
+ * and a {@link MethodHandle} per column to read the matching field, so that the per-row code paths do
+ * no reflection lookups and no string building.
+ *
+ * @param <T> the type of the mapped entity
+ */
+public class EntityMapping<T extends Identifiable> {
+    private final Class<T> type;
+    private final String tableName;
+    private final String[] columns;
+    private final String idColumnName;
+    private final int idColumnIndex;
+    private final MethodHandle[] getters;
+    private final Class<?>[] columnTypes;
+    private final boolean[] listColumns;
+    private final int[] updateColumns;
+    private final MethodHandle constructor;
+
+    private final String selectColumns;
+    private final String insertSql;
+    private final String updateSql;
+    private final String deleteSql;
+    private final String selectByIdSql;
+    private final String selectByIdsSql;
+    private final String selectAllSql;
+    private final String selectFirstPageSql;
+    private final String selectPageSql;
+
+    /**
+     * Resolves the mapping of the given entity type onto a table.
+     *
+     * @param tableName   The name of the table in the database.
+     * @param type        The class type of the entity.
+     * @param columnNames The column names of the table, in constructor argument order.
+     */
+    public EntityMapping(String tableName, Class<T> type, List<String> columnNames) {
+        this.type = type;
+        this.tableName = tableName;
+        this.columns = columnNames.toArray(new String[0]);
+        this.idColumnName = resolveIdColumnName(tableName);
+        this.getters = new MethodHandle[columns.length];
+        this.columnTypes = new Class<?>[columns.length];
+        this.listColumns = new boolean[columns.length];
+
+        int idIndex = -1;
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase(idColumnName))
+                idIndex = i;
+
+            String fieldName = toCamelCase(columns[i]);
+            Field field = findField(type, fieldName);
+            if (field == null)
+                throw new IllegalArgumentException(fieldName + " not found in class " + type.getName());
+            columnTypes[i] = field.getType();
+            listColumns[i] = List.class.isAssignableFrom(field.getType());
+            try {
+                getters[i] = MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                        .unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot access field " + fieldName + " of " + type.getName(), e);
+            }
+        }
+        this.idColumnIndex = idIndex;
+        this.updateColumns = IntStream.range(0, columns.length)
+                .filter(i -> i != idColumnIndex)
+                .toArray();
+        this.constructor = resolveConstructor(type, columns.length);
+
+        this.selectColumns = String.join(", ", columns);
+        this.insertSql = "INSERT INTO " + tableName + " (" + selectColumns + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+        StringBuilder update = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+        for (int i = 0; i < updateColumns.length; i++) {
+            if (i > 0)
+                update.append(", ");
+            update.append(columns[updateColumns[i]]).append(" = ?");
+        }
+        this.updateSql = update.append(" WHERE ").append(idColumnName).append(" = ?").toString();
+        this.deleteSql = "DELETE FROM " + tableName.toLowerCase() + " WHERE " + idColumnName + " = ?";
+        this.selectAllSql = "SELECT " + selectColumns + " FROM " + tableName;
+        this.selectByIdSql = selectAllSql + " WHERE " + idColumnName + " = ?";
+        this.selectByIdsSql = selectAllSql + " WHERE " + idColumnName + " = ANY(?)";
+        // Join tables hold several rows per id, so a page selects its ids first and then every row of them
+        String pageIds = "SELECT DISTINCT " + idColumnName + " FROM " + tableName;
+        String pageOrder = " ORDER BY " + idColumnName + " LIMIT ?) ORDER BY " + idColumnName;
+        this.selectFirstPageSql = selectAllSql + " WHERE " + idColumnName + " IN (" + pageIds + pageOrder;
+        this.selectPageSql = selectAllSql + " WHERE " + idColumnName + " IN (" + pageIds
+                + " WHERE " + idColumnName + " > ?" + pageOrder;
+    }
+
+    /**
+     * Determines the id column of a table. The user and join tables do not follow the
+     * {@code <table>id} naming used by the other tables.
+     *
+     * @param tableName The name of the table.
+     * @return The name of the id column.
+     */
+    public static String resolveIdColumnName(String tableName) {
+        switch (tableName.toLowerCase()) {
+            case "admin":
+            case "instructor":
+            case "student":
+                return "userid";
+            case "assignmentquiz":
+                return "assignmentid";
+            case "coursemodule":
+            case "moduleassignment":
+                return "moduleid";
+            case "messageforum":
+                return "messageid";
+            case "studentcourse":
+                return "studentid";
+            default:
+                return tableName.toLowerCase() + "id";
+        }
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getIdColumnName() {
+        return idColumnName;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * @param index The index of the column.
+     * @return The declared type of the field mapped to the column.
+     */
+    public Class<?> getColumnType(int index) {
+        return columnTypes[index];
+    }
+
+    public boolean isListColumn(int index) {
+        return listColumns[index];
+    }
+
+    /**
+     * Returns the column mapped to an entity field.
+     *
+     * @param fieldName The name of the field, matched case-insensitively.
+     * @return The column name.
+     * @throws IllegalArgumentException If the field is not mapped to a column.
+     */
+    String columnForField(String fieldName) {
+        for (String column : columns)
+            if (toCamelCase(column).equalsIgnoreCase(fieldName) || column.equalsIgnoreCase(fieldName))
+                return column;
+        throw new IllegalArgumentException(fieldName + " is not a column of " + tableName);
+    }
+
+    public String getInsertSql() {
+        return insertSql;
+    }
+
+    public String getUpdateSql() {
+        return updateSql;
+    }
+
+    public String getDeleteSql() {
+        return deleteSql;
+    }
+
+    public String getSelectByIdSql() {
+        return selectByIdSql;
+    }
+
+    public String getSelectByIdsSql() {
+        return selectByIdsSql;
+    }
+
+    public String getSelectAllSql() {
+        return selectAllSql;
+    }
+
+    /**
+     * @param first true for the first page, which has no id to start after.
+     * @return The select of a keyset page, with the id to start after, unless first, and the limit as parameters.
+     */
+    public String getSelectPageSql(boolean first) {
+        return first ? selectFirstPageSql : selectPageSql;
+    }
+
+    /**
+     * @return The comma separated column list, in constructor argument order.
+     */
+    public String getSelectColumns() {
+        return selectColumns;
+    }
+
+    /**
+     * Reads the value of a column from an entity.
+     *
+     * @param obj    The entity.
+     * @param column The index of the column.
+     * @return The value of the field mapped to the column.
+     */
+    Object read(T obj, int column) {
+        try {
+            return getters[column].invokeExact((Object) obj);
+        } catch (Throwable e) {
+            throw new DataBaseException("Cannot read column " + columns[column] + " of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Binds every column of the entity to the parameters of the insert statement.
+     *
+     * @param conn The connection the statement belongs to, used to create SQL arrays.
+     * @param stmt The prepared insert statement.
+     * @param obj  The entity to insert.
+     * @throws SQLException If a parameter cannot be bound.
+     */
+    void bindInsert(Connection conn, PreparedStatement stmt, T obj) throws SQLException {
+        for (int i = 0; i < columns.length; i++)
+            bind(conn, stmt, i + 1, i, obj);
+    }
+
+    /**
+     * Binds the non-id columns followed by the id to the parameters of the update statement.
+     *
+     * @param conn The connection the statement belongs to, used to create SQL arrays.
+     * @param stmt The prepared update statement.
+     * @param obj  The entity to update.
+     * @throws SQLException If a parameter cannot be bound.
+     */
+    void bindUpdate(Connection conn, PreparedStatement stmt, T obj) throws SQLException {
+        int parameterIndex = 1;
+        for (int column : updateColumns)
+            bind(conn, stmt, parameterIndex++, column, obj);
+        stmt.setInt(parameterIndex, obj.getId());
+    }
+
+    private void bind(Connection conn, PreparedStatement stmt, int parameterIndex, int column, T obj) throws SQLException {
+        Object value = read(obj, column);
+        if (listColumns[column] && value != null) {
+            Array sqlArray = conn.createArrayOf("text", ((List<?>) value).toArray());
+            stmt.setArray(parameterIndex, sqlArray);
+        } else {
+            stmt.setObject(parameterIndex, value);
+        }
+    }
+
+    /**
+     * Creates an entity from the values of its columns.
+     *
+     * @param args The column values, in constructor argument order.
+     * @return The new entity.
+     */
+    T newInstance(Object[] args) {
+        try {
+            return type.cast(constructor.invokeExact(args));
+        } catch (Throwable e) {
+            throw new DataBaseException("Error creating instance of " + type.getName() + " from " + Arrays.toString(args), e);
+        }
+    }
+
+    /**
+     * Finds the constructor taking one argument per column and adapts it to take an {@code Object[]}.
+     */
+    private static MethodHandle resolveConstructor(Class<?> type, int parameterCount) {
+        Constructor<?> constructor = Arrays.stream(type.getDeclaredConstructors())
+                .filter(c -> c.getParameterCount() == parameterCount) // Match exact parameter count
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("No suitable constructor found"));
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .unreflectConstructor(constructor)
+                    .asType(MethodType.genericMethodType(parameterCount))
+                    .asSpreader(Object[].class, parameterCount);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access constructor of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Finds a field by its name in the class or its superclasses.
+     *
+     * @param clazz     The class to search for the field.
+     * @param fieldName The name of the field.
+     * @return The field if found, otherwise null.
+     */
+    private static Field findField(Class<?> clazz, String fieldName) {
+        Class<?> current = clazz;
+        while (current != null) {
+            try {
+                return current.getDeclaredField(fieldName);
+            } catch (NoSuchFieldException e) {
+                // Move to the superclass
+                current = current.getSuperclass();
+            }
+        }
+        return null; // Field not found
+    }
+
+    /**
+     * Converts a string in snake_case to camelCase.
+     *
+     * @param s The string to convert.
+     * @return The camelCase version of the string.
+     */
+    private static String toCamelCase(String s) {
+        String[] parts = s.split("_");
+        StringBuilder camelCaseString = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            camelCaseString.append(Character.toUpperCase(parts[i].charAt(0)))
+                    .append(parts[i].substring(1));
+        }
+        return camelCaseString.toString();
+    }
+}
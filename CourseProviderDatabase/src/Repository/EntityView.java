@@ -0,0 +1,58 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The entities of a file store as a read-only map, decoded on access, so that {@link SecondaryIndexes} can
+ * work on stores that do not keep their entities in memory. Only used while the store is locked.
+ */
+final class EntityView extends AbstractMap<Integer, Identifiable> {
+    private final Supplier<Collection<Integer>> ids;
+    private final Function<Integer, Identifiable> reader;
+
+    /**
+     * @param ids    Returns the ids of the stored entities.
+     * @param reader Decodes the entity of an id, or returns null if there is none.
+     */
+    EntityView(Supplier<Collection<Integer>> ids, Function<Integer, Identifiable> reader) {
+        this.ids = ids;
+        this.reader = reader;
+    }
+
+    @Override
+    public Identifiable get(Object key) {
+        return key instanceof Integer id ? reader.apply(id) : null;
+    }
+
+    @Override
+    public Set<Entry<Integer, Identifiable>> entrySet() {
+        Collection<Integer> snapshot = new ArrayList<>(ids.get());
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, Identifiable>> iterator() {
+                Iterator<Integer> iterator = snapshot.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Integer, Identifiable> next() {
+                        Integer id = iterator.next();
+                        return new SimpleImmutableEntry<>(id, reader.apply(id));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return snapshot.size();
+            }
+        };
+    }
+}
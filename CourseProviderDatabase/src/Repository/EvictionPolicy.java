@@ -0,0 +1,35 @@
+package Repository;
+
+import java.util.function.Consumer;
+
+/**
+ * Decides which entries a {@link CachingRepository} evicts to stay within its maximum weight.
+ * <p>
+ * The policy only tracks keys and weights; the cache holds the values and calls the policy under its lock.
+ */
+interface EvictionPolicy {
+
+    /**
+     * Records a hit on a cached key.
+     *
+     * @param key The key.
+     */
+    void onAccess(Integer key);
+
+    /**
+     * Records a key added to the cache and evicts entries until the cache is within its maximum weight.
+     * The added key itself may be evicted.
+     *
+     * @param key    The key, not already in the cache.
+     * @param weight The weight of its entry.
+     * @param evict  Called with every evicted key.
+     */
+    void onInsert(Integer key, int weight, Consumer<Integer> evict);
+
+    /**
+     * Forgets a key removed from the cache by an invalidation or an expiry.
+     *
+     * @param key The key.
+     */
+    void onRemove(Integer key);
+}
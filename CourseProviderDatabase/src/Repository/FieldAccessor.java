@@ -0,0 +1,79 @@
+package Repository;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads entity fields by name through cached {@link MethodHandle} getters.
+ * <p>
+ * Field names are matched case-insensitively, so both the field names of the models and the column names
+ * of {@code Utils.Utils} resolve. The getter of a field is looked up once per class.
+ */
+final class FieldAccessor {
+    private static final ClassValue<Map<String, MethodHandle>> GETTERS = new ClassValue<>() {
+        @Override
+        protected Map<String, MethodHandle> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private FieldAccessor() {
+    }
+
+    /**
+     * Reads the value of a field.
+     *
+     * @param entity    The entity to read from.
+     * @param fieldName The name of the field, in the class or one of its superclasses.
+     * @return The value of the field.
+     * @throws IllegalArgumentException If the class has no such field.
+     */
+    static Object read(Object entity, String fieldName) {
+        MethodHandle getter = getter(entity.getClass(), fieldName);
+        try {
+            return getter.invokeExact(entity);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot read field " + fieldName + " of " + entity.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Returns the getter of a field, adapted to {@code (Object) -> Object}.
+     *
+     * @param type      The class declaring the field or a subclass of it.
+     * @param fieldName The name of the field.
+     * @return The getter.
+     * @throws IllegalArgumentException If the class has no such field.
+     */
+    static MethodHandle getter(Class<?> type, String fieldName) {
+        return GETTERS.get(type).computeIfAbsent(fieldName.toLowerCase(), name -> {
+            Field field = findField(type, name);
+            if (field == null)
+                throw new IllegalArgumentException(fieldName + " not found in class " + type.getName());
+            try {
+                return MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+                        .unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot access field " + fieldName + " of " + type.getName(), e);
+            }
+        });
+    }
+
+    /**
+     * Finds a field by its case-insensitive name in the class or its superclasses.
+     */
+    private static Field findField(Class<?> clazz, String fieldName) {
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getName().equalsIgnoreCase(fieldName))
+                    return field;
+            }
+        }
+        return null;
+    }
+}
@@ -1,87 +1,143 @@
 package Repository;
 
 import Models.Identifiable;
-import Repository.IRepository;
-
-
-import java.io.*;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.util.*;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A repository that stores its entities in a file.
+ * <p>
+ * The file is an append-only log of records managed by a {@link LogFileStore}: a write appends the record of
+ * one entity and a read decodes the record of one entity, whatever the size of the file. Repositories opened on
+ * the same file share its store, so they always see each other's writes.
+ *
+ * @param <T> the type of the stored entity
+ */
 public class FileRepository<T extends Identifiable> implements IRepository<T> {
     private final String fileName;
+    private final LogFileStore store;
 
 
+    /**
+     * Opens the repository stored in a file, encoding the entities with the codec configured by {@link EntityCodec#fromEnvironment()}.
+     *
+     * @param fileName The path of the file; it is created if it does not exist.
+     */
     public FileRepository(String fileName) {
-        this.fileName = fileName;
+        this(fileName, EntityCodec.fromEnvironment());
+    }
 
+    /**
+     * Opens the repository stored in a file.
+     *
+     * @param fileName The path of the file; it is created if it does not exist.
+     * @param codec    The codec of the entities, used if the file is not already open in this process.
+     */
+    public FileRepository(String fileName, EntityCodec codec) {
+        this.fileName = fileName;
+        this.store = LogFileStore.open(fileName, codec);
     }
 
     @Override
     public void create(T obj) {
-        doInFile(data -> data.putIfAbsent(obj.getId(), obj));
-
+        store.putAll(List.of(obj), LogFileStore.WriteMode.CREATE);
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public T get(Integer id) {
-        return readDataFromFile().get(id);
+        return (T) store.get(id);
     }
 
     @Override
     public void update(T obj) {
-        doInFile(data -> data.replace(obj.getId(), obj));
+        store.putAll(List.of(obj), LogFileStore.WriteMode.UPDATE);
     }
 
     @Override
     public void delete(Integer id) {
-        doInFile(data -> data.remove(id));
+        store.deleteAll(List.of(id));
     }
 
     @Override
+    public void createAll(Collection<? extends T> objs) {
+        store.putAll(objs, LogFileStore.WriteMode.CREATE);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        store.putAll(objs, LogFileStore.WriteMode.UPDATE);
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        store.deleteAll(ids);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
     public List<T> getAll() {
-        return readDataFromFile().values().stream().toList();
+        return (List<T>) store.getAll();
     }
 
-    /**
-     * Performs an operation on the data stored in the file.
-     *
-     * @param function The function to apply to the data.
-     */
-    private void doInFile(Consumer<Map<Integer, T>> function) {
-        Map<Integer, T> data = readDataFromFile();
-        function.accept(data);
-        writeDataToFile(data);
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<T> stream() {
+        return (Stream<T>) store.stream();
     }
 
-    /**
-     * Reads the data from the file.
-     *
-     * @return The data stored in the file, or an empty map if the file is empty or does not exist.
-     */
-    private Map<Integer, T> readDataFromFile() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(fileName))) {
-            return (Map<Integer, T>) ois.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            return new HashMap<>();
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> getPage(Integer afterId, int limit) {
+        KeysetPage.checkLimit(limit);
+        return (List<T>) store.page(afterId, limit);
+    }
+
+    @Override
+    public T compute(Integer id, UnaryOperator<T> function) {
+        synchronized (store) {
+            return IRepository.super.compute(id, function);
         }
     }
 
+    @Override
+    public T putIfAbsent(T obj) {
+        synchronized (store) {
+            return IRepository.super.putIfAbsent(obj);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> find(Criteria criteria) {
+        return (List<T>) store.find(criteria);
+    }
+
+    @Override
+    public boolean exists(Criteria criteria) {
+        return store.exists(criteria);
+    }
+
+    @Override
+    public int count(Criteria criteria) {
+        return store.count(criteria);
+    }
+
     /**
-     * Writes the data to the file.
-     *
-     * @param data The data to write to the file.
+     * Rewrites the file without the records of overwritten and deleted entities. This also happens
+     * automatically once they take more space than the live entities.
      */
-    private void writeDataToFile(Map<Integer, T> data) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-            oos.writeObject(data);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public void compact() {
+        store.compact();
     }
 
-}
\ No newline at end of file
+    /**
+     * @return The path of the file.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+}
@@ -0,0 +1,61 @@
+package Repository;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forces the writes of the file stores that use {@link FsyncPolicy#INTERVAL} to the disk, every
+ * {@code FILE_FSYNC_INTERVAL_MS} milliseconds (1000 by default), on one daemon thread.
+ */
+final class FileSyncer {
+    private static final long INTERVAL_MS = Math.max(10, intervalFromEnvironment());
+    private static final Set<Runnable> TASKS = ConcurrentHashMap.newKeySet();
+    private static ScheduledExecutorService executor;
+
+    private FileSyncer() {
+    }
+
+    /**
+     * Runs a sync task every interval until it is unregistered.
+     *
+     * @param sync The task; the same instance must be passed to {@link #unregister}.
+     */
+    static synchronized void register(Runnable sync) {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "file-store-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(() -> {
+                for (Runnable task : TASKS) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        TASKS.add(sync);
+    }
+
+    static void unregister(Runnable sync) {
+        TASKS.remove(sync);
+    }
+
+    private static long intervalFromEnvironment() {
+        String value = System.getenv("FILE_FSYNC_INTERVAL_MS");
+        if (value == null || value.isBlank())
+            return 1000;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid value for FILE_FSYNC_INTERVAL_MS: " + value);
+            return 1000;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package Repository;
+
+/**
+ * When the file backends force their writes to the disk.
+ */
+public enum FsyncPolicy {
+    /** After every write; nothing acknowledged is ever lost, at the cost of one disk flush per write. */
+    ALWAYS,
+    /** Periodically in the background; a crash loses at most the last interval of writes. */
+    INTERVAL,
+    /** Never explicitly, only when the file is closed; the operating system decides. */
+    NEVER;
+
+    /**
+     * Reads the policy from the {@code FILE_FSYNC_POLICY} environment variable, {@link #INTERVAL} by default.
+     *
+     * @return The configured policy.
+     */
+    public static FsyncPolicy fromEnvironment() {
+        String value = System.getenv("FILE_FSYNC_POLICY");
+        if (value == null || value.isBlank())
+            return INTERVAL;
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring invalid value for FILE_FSYNC_POLICY: " + value);
+            return INTERVAL;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package Repository;
+
+import Models.Course;
+
+import java.util.List;
+
+/**
+ * Finds courses by their dates, given as epoch days (see {@code Utils.Dates}), with range queries served by an
+ * index instead of parsing the dates of every course.
+ */
+public interface ICourseDateRepository {
+    /**
+     * Finds the courses that end before a day.
+     *
+     * @param epochDay The day.
+     * @return The courses, by end date then ID.
+     */
+    List<Course> findEndingBefore(int epochDay);
+
+    /**
+     * Finds the courses that run on a day, the start and end days included.
+     *
+     * @param epochDay The day.
+     * @return The courses, by start date then ID.
+     */
+    List<Course> findActiveOn(int epochDay);
+
+    /**
+     * Finds the courses that run on at least one day of a period.
+     *
+     * @param fromEpochDay The first day of the period.
+     * @param toEpochDay   The last day of the period.
+     * @return The courses, by start date then ID.
+     */
+    List<Course> findOverlapping(int fromEpochDay, int toEpochDay);
+
+    /**
+     * Called after a course was added or updated, for implementations that index the courses themselves.
+     *
+     * @param course The course.
+     */
+    default void courseSaved(Course course) {
+    }
+
+    /**
+     * Called after a course was removed, for implementations that index the courses themselves.
+     *
+     * @param courseId The ID of the course.
+     */
+    default void courseRemoved(Integer courseId) {
+    }
+}
@@ -0,0 +1,46 @@
+package Repository;
+
+import Models.Assignment;
+import Models.CourseOutline;
+import Models.Module;
+import Models.Quiz;
+
+import java.util.List;
+
+/**
+ * Follows the course → module → assignment → quiz relationships, reading the relationship tables and the entities
+ * they link together instead of one repository call per ID.
+ */
+public interface ICourseOutlineRepository {
+    /**
+     * Reads a course with its modules, their assignments and the quizzes of these.
+     *
+     * @param courseId The ID of the course.
+     * @return The outline, or null if the course does not exist.
+     */
+    CourseOutline getCourseOutline(Integer courseId);
+
+    /**
+     * Reads the modules of a course.
+     *
+     * @param courseId The ID of the course.
+     * @return The modules, ordered by ID.
+     */
+    List<Module> getModulesOfCourse(Integer courseId);
+
+    /**
+     * Reads the assignments of a module.
+     *
+     * @param moduleId The ID of the module.
+     * @return The assignments, ordered by ID.
+     */
+    List<Assignment> getAssignmentsOfModule(Integer moduleId);
+
+    /**
+     * Reads the quizzes of an assignment.
+     *
+     * @param assignmentId The ID of the assignment.
+     * @return The quizzes, ordered by ID.
+     */
+    List<Quiz> getQuizzesOfAssignment(Integer assignmentId);
+}
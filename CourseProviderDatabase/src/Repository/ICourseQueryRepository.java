@@ -0,0 +1,26 @@
+package Repository;
+
+import Models.Course;
+
+import java.util.List;
+
+/**
+ * Runs {@link CourseQuery course queries} on a backend.
+ */
+public interface ICourseQueryRepository {
+    /**
+     * Finds the courses matching the filters of a query, sorted and paged as it asks.
+     *
+     * @param query The query.
+     * @return The page of courses.
+     */
+    List<Course> find(CourseQuery query);
+
+    /**
+     * Counts the courses matching the filters of a query, ignoring its page.
+     *
+     * @param query The query.
+     * @return The number of matching courses.
+     */
+    int count(CourseQuery query);
+}
@@ -0,0 +1,36 @@
+package Repository;
+
+/**
+ * Records enrollments together with the seat they take in the course, as a single atomic step.
+ * <p>
+ * Reserving the seat, writing the {@link Models.Enrolled} row and updating the available spots of the course are
+ * never observed half done, so concurrent enrollments can neither overbook a course nor enroll a student twice.
+ */
+public interface IEnrollmentRepository {
+    /**
+     * Enrolls a student in a course if the course has an available spot and the student is not enrolled yet.
+     *
+     * @param studentId The ID of the student.
+     * @param courseId  The ID of the course.
+     * @return What happened; nothing is changed unless the result is {@link EnrollmentResult#ENROLLED}.
+     */
+    EnrollmentResult enroll(Integer studentId, Integer courseId);
+
+    /**
+     * Removes the enrollment of a student in a course and gives the seat back.
+     *
+     * @param studentId The ID of the student.
+     * @param courseId  The ID of the course.
+     * @return true if the student was enrolled in the course.
+     */
+    boolean unenroll(Integer studentId, Integer courseId);
+
+    /**
+     * Tells the repository that a course or its enrollments were changed without going through it, for example
+     * when the course or one of its students was removed. Repositories that cache seats reload them.
+     *
+     * @param courseId The ID of the course.
+     */
+    default void courseChanged(Integer courseId) {
+    }
+}
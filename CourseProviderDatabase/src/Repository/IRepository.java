@@ -2,7 +2,12 @@ package Repository;
 
 import Models.Identifiable;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 public interface IRepository<T extends Identifiable> {
@@ -37,10 +42,191 @@ public interface IRepository<T extends Identifiable> {
      */
     void delete(Integer id);
 
+    /**
+     * Returns the repository that stores the objects. The repositories that decorate another one, such as the
+     * caching and write-behind repositories, return the repository they wrap, itself unwrapped.
+     *
+     * @return The storage repository; this repository by default.
+     */
+    default IRepository<T> unwrap() {
+        return this;
+    }
+
     /**
      * Retrieves all objects from the repository.
      *
      * @return A list of all objects in the repository.
      */
     List<T> getAll();
-}
\ No newline at end of file
+
+    /**
+     * Streams all objects from the repository, in no particular order.
+     * The default implementation streams {@link #getAll()}; the repositories produce the objects lazily, so the
+     * memory used does not grow with the number of objects. The stream may hold resources such as a database
+     * connection until it is consumed or closed, so it should be used in a try-with-resources block.
+     *
+     * @return A stream of all objects in the repository.
+     */
+    default Stream<T> stream() {
+        return getAll().stream();
+    }
+
+    /**
+     * Retrieves a page of objects by keyset: the objects with the smallest IDs after a given ID. Passing the ID of
+     * the last object of a page returns the next page, which stays correct when objects are added or deleted
+     * between the pages.
+     * The default implementation makes one pass over {@link #stream()}, keeping only the page.
+     *
+     * @param afterId The ID the page starts after, or null for the first page.
+     * @param limit   The largest number of objects to return.
+     * @return At most limit objects whose ID is greater than afterId, by increasing ID.
+     */
+    default List<T> getPage(Integer afterId, int limit) {
+        KeysetPage.checkLimit(limit);
+        try (Stream<T> objects = stream()) {
+            return KeysetPage.after(objects.iterator(), Identifiable::getId, afterId, limit);
+        }
+    }
+
+    /**
+     * Retrieves the objects with the given IDs.
+     * The default implementation calls {@link #get} for each ID; the database repository reads them in one query.
+     *
+     * @param ids The IDs of the objects to retrieve.
+     * @return The objects found, in the order of their IDs; IDs without an object are skipped.
+     */
+    default List<T> findByIds(Collection<Integer> ids) {
+        List<T> results = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T obj = get(id);
+            if (obj != null)
+                results.add(obj);
+        }
+        return results;
+    }
+
+    /**
+     * Adds many entities at once.
+     * The default implementation calls {@link #create} for each entity; the repositories write them in bulk.
+     *
+     * @param objs The entities to add.
+     */
+    default void createAll(Collection<? extends T> objs) {
+        for (T obj : objs)
+            create(obj);
+    }
+
+    /**
+     * Updates many entities at once.
+     * The default implementation calls {@link #update} for each entity; the repositories write them in bulk.
+     *
+     * @param objs The entities with updated values.
+     */
+    default void updateAll(Collection<? extends T> objs) {
+        for (T obj : objs)
+            update(obj);
+    }
+
+    /**
+     * Deletes many entities at once.
+     * The default implementation calls {@link #delete} for each ID; the repositories delete them in bulk.
+     *
+     * @param ids The IDs of the entities to delete.
+     */
+    default void deleteAll(Collection<Integer> ids) {
+        for (Integer id : ids)
+            delete(id);
+    }
+
+    /**
+     * Deletes the objects matching the criteria.
+     * The default implementation deletes the IDs of the objects {@link #find} returns; the database repository runs
+     * one {@code DELETE ... WHERE}, which in join tables, where several rows share an ID, deletes the matching rows only.
+     *
+     * @param criteria The field equalities the objects to delete satisfy.
+     * @return The number of deleted objects.
+     */
+    default int deleteWhere(Criteria criteria) {
+        List<Integer> ids = find(criteria).stream().map(Identifiable::getId).collect(Collectors.toList());
+        deleteAll(ids);
+        return ids.size();
+    }
+
+    /**
+     * Retrieves the objects whose field has the given value.
+     *
+     * @param field The name of the entity field.
+     * @param value The value to look for, may be null.
+     * @return A list of the matching objects.
+     */
+    default List<T> findBy(String field, Object value) {
+        return find(Criteria.where(field, value));
+    }
+
+    /**
+     * Retrieves the objects matching the criteria.
+     * The default implementation scans {@link #getAll()}; the repositories answer it natively.
+     *
+     * @param criteria The field equalities the objects must satisfy.
+     * @return A list of the matching objects.
+     */
+    default List<T> find(Criteria criteria) {
+        return getAll().stream().filter(criteria::matches).collect(Collectors.toList());
+    }
+
+    /**
+     * Checks whether any object matches the criteria.
+     *
+     * @param criteria The field equalities to check.
+     * @return true if at least one object matches.
+     */
+    default boolean exists(Criteria criteria) {
+        return getAll().stream().anyMatch(criteria::matches);
+    }
+
+    /**
+     * Counts the objects matching the criteria.
+     *
+     * @param criteria The field equalities to check.
+     * @return The number of matching objects.
+     */
+    default int count(Criteria criteria) {
+        return (int) getAll().stream().filter(criteria::matches).count();
+    }
+
+    /**
+     * Replaces the entity with the given id by the result of a function of its current value.
+     * A null result deletes the entity. The default implementation is a plain read followed by a write;
+     * repositories shared between threads override it to run atomically.
+     *
+     * @param id       The ID of the entity.
+     * @param function Receives the current entity, or null if there is none, and returns its new value.
+     * @return The new value of the entity, or null if it was deleted.
+     */
+    default T compute(Integer id, UnaryOperator<T> function) {
+        T current = get(id);
+        T next = function.apply(current);
+        if (next == null) {
+            if (current != null)
+                delete(id);
+        } else if (current == null)
+            create(next);
+        else
+            update(next);
+        return next;
+    }
+
+    /**
+     * Adds an entity unless one with the same ID already exists.
+     * The default implementation is not atomic; repositories shared between threads override it.
+     *
+     * @param obj The entity to add.
+     * @return The existing entity with the same ID, or null if the entity was added.
+     */
+    default T putIfAbsent(T obj) {
+        T existing = get(obj.getId());
+        if (existing == null)
+            create(obj);
+        return existing;
+    }
+}
@@ -0,0 +1,16 @@
+package Repository;
+
+import Models.User;
+
+/**
+ * Looks users up by username across the student, admin and instructor repositories.
+ */
+public interface IUserRepository {
+    /**
+     * Finds the user with the given username. Students are looked up first, then admins, then instructors.
+     *
+     * @param username The username.
+     * @return The user, or null if no user has this username.
+     */
+    User findByUsername(String username);
+}
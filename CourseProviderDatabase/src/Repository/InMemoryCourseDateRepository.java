@@ -0,0 +1,108 @@
+package Repository;
+
+import Models.Course;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Course date queries for the in-memory and file backends, answered by a {@link CourseDateIndex} of the courses.
+ * <p>
+ * The index is built from the course repository the first time it is queried, then kept up to date through
+ * {@link #courseSaved} and {@link #courseRemoved}. Courses whose dates are not valid are reported once, when they
+ * are indexed, and left out of the results.
+ */
+public class InMemoryCourseDateRepository implements ICourseDateRepository {
+    private final IRepository<Course> courseRepo;
+    private final CourseDateIndex index = new CourseDateIndex();
+    private boolean built;
+
+    public InMemoryCourseDateRepository(IRepository<Course> courseRepo) {
+        this.courseRepo = courseRepo;
+    }
+
+    @Override
+    public List<Course> findEndingBefore(int epochDay) {
+        List<Integer> ids;
+        synchronized (this) {
+            ensureBuilt();
+            ids = index.endingBefore(epochDay);
+        }
+        return inOrder(ids);
+    }
+
+    @Override
+    public List<Course> findActiveOn(int epochDay) {
+        return findOverlapping(epochDay, epochDay);
+    }
+
+    @Override
+    public List<Course> findOverlapping(int fromEpochDay, int toEpochDay) {
+        List<Integer> ids;
+        synchronized (this) {
+            ensureBuilt();
+            ids = index.overlapping(fromEpochDay, toEpochDay);
+        }
+        return inOrder(ids);
+    }
+
+    @Override
+    public synchronized void courseSaved(Course course) {
+        if (built)
+            put(course);
+    }
+
+    @Override
+    public synchronized void courseRemoved(Integer courseId) {
+        if (built)
+            index.remove(courseId);
+    }
+
+    /**
+     * @return The IDs of the courses ending between two epoch days, by end day then ID.
+     */
+    synchronized List<Integer> findIdsEndingBetween(Integer fromEpochDay, Integer toEpochDay) {
+        ensureBuilt();
+        return index.endingBetween(fromEpochDay, toEpochDay);
+    }
+
+    /**
+     * @return The IDs of the courses starting between two epoch days, by start day then ID.
+     */
+    synchronized List<Integer> findIdsStartingBetween(Integer fromEpochDay, Integer toEpochDay) {
+        ensureBuilt();
+        return index.startingBetween(fromEpochDay, toEpochDay);
+    }
+
+    private void ensureBuilt() {
+        if (built)
+            return;
+        for (Course course : courseRepo.getAll())
+            put(course);
+        built = true;
+    }
+
+    private void put(Course course) {
+        if (course.getEndDate() != null && course.getEndEpochDay() == null)
+            System.err.println("Invalid end date format for course: " + course.getCourseTitle());
+        else if (course.getStartDate() != null && course.getStartEpochDay() == null)
+            System.err.println("Invalid start date format for course: " + course.getCourseTitle());
+        index.put(course.getId(), course.getStartEpochDay(), course.getEndEpochDay());
+    }
+
+    /**
+     * Reads the courses and returns them in the order of the index.
+     */
+    private List<Course> inOrder(List<Integer> ids) {
+        Map<Integer, Course> byId = new HashMap<>();
+        for (Course course : courseRepo.findByIds(ids))
+            byId.put(course.getId(), course);
+        List<Course> courses = new ArrayList<>(ids.size());
+        for (Integer id : ids)
+            if (byId.containsKey(id))
+                courses.add(byId.get(id));
+        return courses;
+    }
+}
@@ -0,0 +1,84 @@
+package Repository;
+
+import Models.*;
+import Models.Module;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Course outlines on top of the entity and relationship repositories, for the in-memory and file backends.
+ * Each step of the traversal is one indexed {@link IRepository#findBy} on a relationship repository followed by one
+ * {@link IRepository#findByIds} on the entity repository.
+ */
+public class InMemoryCourseOutlineRepository implements ICourseOutlineRepository {
+    private final IRepository<Course> courseRepo;
+    private final IRepository<Module> moduleRepo;
+    private final IRepository<Assignment> assignmentRepo;
+    private final IRepository<Quiz> quizRepo;
+    private final IRepository<ModuleCourse> moduleCourseRepo;
+    private final IRepository<AssignmentModule> assignmentModuleRepo;
+    private final IRepository<QuizAssignment> assignmentQuizRepo;
+
+    public InMemoryCourseOutlineRepository(IRepository<Course> courseRepo, IRepository<Module> moduleRepo,
+                                           IRepository<Assignment> assignmentRepo, IRepository<Quiz> quizRepo,
+                                           IRepository<ModuleCourse> moduleCourseRepo,
+                                           IRepository<AssignmentModule> assignmentModuleRepo,
+                                           IRepository<QuizAssignment> assignmentQuizRepo) {
+        this.courseRepo = courseRepo;
+        this.moduleRepo = moduleRepo;
+        this.assignmentRepo = assignmentRepo;
+        this.quizRepo = quizRepo;
+        this.moduleCourseRepo = moduleCourseRepo;
+        this.assignmentModuleRepo = assignmentModuleRepo;
+        this.assignmentQuizRepo = assignmentQuizRepo;
+    }
+
+    @Override
+    public CourseOutline getCourseOutline(Integer courseId) {
+        Course course = courseRepo.get(courseId);
+        if (course == null)
+            return null;
+
+        List<CourseOutline.ModuleOutline> moduleOutlines = new ArrayList<>();
+        for (Module module : getModulesOfCourse(courseId)) {
+            List<CourseOutline.AssignmentOutline> assignmentOutlines = new ArrayList<>();
+            for (Assignment assignment : getAssignmentsOfModule(module.getId()))
+                assignmentOutlines.add(new CourseOutline.AssignmentOutline(assignment, getQuizzesOfAssignment(assignment.getId())));
+            moduleOutlines.add(new CourseOutline.ModuleOutline(module, assignmentOutlines));
+        }
+        return new CourseOutline(course, moduleOutlines);
+    }
+
+    @Override
+    public List<Module> getModulesOfCourse(Integer courseId) {
+        return sortedById(moduleRepo.findByIds(moduleCourseRepo.findBy("courseId", courseId).stream()
+                .map(ModuleCourse::getId)
+                .distinct()
+                .collect(Collectors.toList())));
+    }
+
+    @Override
+    public List<Assignment> getAssignmentsOfModule(Integer moduleId) {
+        return sortedById(assignmentRepo.findByIds(assignmentModuleRepo.findBy("moduleId", moduleId).stream()
+                .map(AssignmentModule::getAssignmentId)
+                .distinct()
+                .collect(Collectors.toList())));
+    }
+
+    @Override
+    public List<Quiz> getQuizzesOfAssignment(Integer assignmentId) {
+        return sortedById(quizRepo.findByIds(assignmentQuizRepo.findBy("assignmentId", assignmentId).stream()
+                .map(QuizAssignment::getQuizId)
+                .distinct()
+                .collect(Collectors.toList())));
+    }
+
+    private static <E extends Identifiable> List<E> sortedById(List<E> entities) {
+        List<E> sorted = new ArrayList<>(entities);
+        sorted.sort(Comparator.comparing(Identifiable::getId));
+        return sorted;
+    }
+}
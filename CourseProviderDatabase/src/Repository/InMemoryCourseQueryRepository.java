@@ -0,0 +1,123 @@
+package Repository;
+
+import Models.Course;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Course queries for the in-memory and file backends.
+ * <p>
+ * A query is planned on the most selective index it can use: the {@code instructorId} index of the course
+ * repository for an instructor filter, else the {@link CourseDateIndex} for an end or start date range, and only
+ * without any of these a scan of the courses. The remaining filters are checked on the candidates, and a page keeps
+ * its courses in a heap of size offset plus limit instead of sorting every match.
+ */
+public class InMemoryCourseQueryRepository implements ICourseQueryRepository {
+    /**
+     * The access paths a query can be planned on, from the most to the least selective.
+     */
+    public enum Plan {
+        INSTRUCTOR_INDEX,
+        END_DATE_INDEX,
+        START_DATE_INDEX,
+        SCAN
+    }
+
+    private final IRepository<Course> courseRepo;
+    private final InMemoryCourseDateRepository dateRepo;
+    private final ToIntFunction<Integer> enrollments;
+
+    /**
+     * @param courseRepo  The courses.
+     * @param dateRepo    The date index of the same courses.
+     * @param enrollments The number of students enrolled in a course, by course ID.
+     */
+    public InMemoryCourseQueryRepository(IRepository<Course> courseRepo, InMemoryCourseDateRepository dateRepo,
+                                         ToIntFunction<Integer> enrollments) {
+        this.courseRepo = courseRepo;
+        this.dateRepo = dateRepo;
+        this.enrollments = enrollments;
+    }
+
+    /**
+     * Picks the access path of a query.
+     *
+     * @param query The query.
+     * @return The plan the query runs on.
+     */
+    public Plan plan(CourseQuery query) {
+        if (query.getInstructorId() != null)
+            return Plan.INSTRUCTOR_INDEX;
+        if (query.getEndFromDay() != null || query.getEndToDay() != null)
+            return Plan.END_DATE_INDEX;
+        if (query.getStartFromDay() != null || query.getStartToDay() != null)
+            return Plan.START_DATE_INDEX;
+        return Plan.SCAN;
+    }
+
+    @Override
+    public List<Course> find(CourseQuery query) {
+        Comparator<Course> order = query.comparator(enrollments);
+        long kept = (long) query.getOffset() + query.getLimit();
+        try (Stream<Course> candidates = candidates(query)) {
+            if (kept >= Integer.MAX_VALUE) {
+                List<Course> matches = candidates.filter(course -> matches(query, course))
+                        .collect(Collectors.toCollection(ArrayList::new));
+                matches.sort(order);
+                return page(matches, query);
+            }
+
+            // The worst course kept so far is at the head of the heap
+            PriorityQueue<Course> best = new PriorityQueue<>(Math.max(1, (int) Math.min(kept, 1024)), order.reversed());
+            candidates.filter(course -> matches(query, course)).forEach(course -> {
+                if (best.size() < kept) {
+                    best.add(course);
+                } else if (kept > 0 && order.compare(course, best.peek()) < 0) {
+                    best.poll();
+                    best.add(course);
+                }
+            });
+            List<Course> sorted = new ArrayList<>(best);
+            sorted.sort(order);
+            return page(sorted, query);
+        }
+    }
+
+    @Override
+    public int count(CourseQuery query) {
+        try (Stream<Course> candidates = candidates(query)) {
+            return (int) candidates.filter(course -> matches(query, course)).count();
+        }
+    }
+
+    /**
+     * Returns the courses a query has to check. A scan streams the course repository, so the whole table
+     * is never materialized; the caller closes the stream.
+     */
+    private Stream<Course> candidates(CourseQuery query) {
+        return switch (plan(query)) {
+            case INSTRUCTOR_INDEX -> courseRepo.findBy("instructorId", query.getInstructorId()).stream();
+            case END_DATE_INDEX -> courseRepo.findByIds(dateRepo.findIdsEndingBetween(query.getEndFromDay(), query.getEndToDay())).stream();
+            case START_DATE_INDEX -> courseRepo.findByIds(dateRepo.findIdsStartingBetween(query.getStartFromDay(), query.getStartToDay())).stream();
+            case SCAN -> courseRepo.stream();
+        };
+    }
+
+    private boolean matches(CourseQuery query, Course course) {
+        int enrollment = query.getMinEnrollment() != null || query.getMaxEnrollment() != null
+                ? enrollments.applyAsInt(course.getId()) : 0;
+        return query.matches(course, enrollment);
+    }
+
+    private static List<Course> page(List<Course> sorted, CourseQuery query) {
+        int from = Math.min(query.getOffset(), sorted.size());
+        int to = (int) Math.min((long) from + query.getLimit(), sorted.size());
+        return new ArrayList<>(sorted.subList(from, to));
+    }
+}
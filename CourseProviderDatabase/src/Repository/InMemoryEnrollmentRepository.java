@@ -0,0 +1,158 @@
+package Repository;
+
+import Models.Course;
+import Models.Enrolled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enrollments for the repositories that live in this process (in memory or in files).
+ * <p>
+ * Every course gets a seat counter, loaded from its available spots the first time the course is used, and the
+ * set of its enrolled students. A seat is taken with a compare-and-set on the counter, so enrollments never block
+ * each other and a course is never overbooked; the course and enrollment repositories are written only after the
+ * seat is reserved. The counters are the authority once loaded; they are dropped by
+ * {@link #courseChanged(Integer)} when a course is changed or removed by other means.
+ */
+public class InMemoryEnrollmentRepository implements IEnrollmentRepository {
+    private final IRepository<Course> courseRepository;
+    private final IRepository<Enrolled> enrolledRepository;
+    private final Map<Integer, CourseSeats> seatsByCourse = new ConcurrentHashMap<>();
+
+    private final LongAdder enrolled = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder rejectedDuplicate = new LongAdder();
+    private final LongAdder casRetries = new LongAdder();
+
+    /**
+     * @param courseRepository   The repository of the courses.
+     * @param enrolledRepository The repository of the enrollments.
+     */
+    public InMemoryEnrollmentRepository(IRepository<Course> courseRepository, IRepository<Enrolled> enrolledRepository) {
+        this.courseRepository = courseRepository;
+        this.enrolledRepository = enrolledRepository;
+    }
+
+    @Override
+    public EnrollmentResult enroll(Integer studentId, Integer courseId) {
+        CourseSeats seats = seatsOf(courseId);
+        if (seats == null)
+            return EnrollmentResult.COURSE_NOT_FOUND;
+
+        if (!seats.students.add(studentId)) {
+            rejectedDuplicate.increment();
+            return EnrollmentResult.ALREADY_ENROLLED;
+        }
+        while (true) {
+            int left = seats.available.get();
+            if (left <= 0) {
+                seats.students.remove(studentId);
+                rejectedFull.increment();
+                return EnrollmentResult.COURSE_FULL;
+            }
+            if (seats.available.compareAndSet(left, left - 1))
+                break;
+            casRetries.increment();
+        }
+
+        enrolledRepository.create(new Enrolled(studentId, courseId));
+        courseRepository.compute(courseId, course -> {
+            if (course != null) {
+                course.setAvailableSpots(course.getAvailableSpots() - 1);
+                List<Integer> students = course.getEnrolledStudents();
+                students.add(studentId);
+                course.setEnrolledStudents(students);
+            }
+            return course;
+        });
+        enrolled.increment();
+        return EnrollmentResult.ENROLLED;
+    }
+
+    @Override
+    public boolean unenroll(Integer studentId, Integer courseId) {
+        CourseSeats seats = seatsOf(courseId);
+        if (seats == null || !seats.students.remove(studentId))
+            return false;
+
+        // the enrollments are keyed by student, only the row of this course is removed
+        enrolledRepository.compute(studentId, row -> row != null && courseId.equals(row.getCourseId()) ? null : row);
+        seats.available.incrementAndGet();
+        courseRepository.compute(courseId, course -> {
+            if (course != null) {
+                course.setAvailableSpots(course.getAvailableSpots() + 1);
+                List<Integer> students = new ArrayList<>(course.getEnrolledStudents());
+                students.remove(studentId);
+                course.setEnrolledStudents(students);
+            }
+            return course;
+        });
+        return true;
+    }
+
+    /**
+     * Drops the seat counter of the course; it is reloaded from the repositories the next time the course is used.
+     */
+    @Override
+    public void courseChanged(Integer courseId) {
+        seatsByCourse.remove(courseId);
+    }
+
+    /**
+     * @return The number of successful enrollments.
+     */
+    public long getEnrolledCount() {
+        return enrolled.sum();
+    }
+
+    /**
+     * @return The number of enrollments rejected because the course was full.
+     */
+    public long getRejectedFullCount() {
+        return rejectedFull.sum();
+    }
+
+    /**
+     * @return The number of enrollments rejected because the student was already enrolled.
+     */
+    public long getRejectedDuplicateCount() {
+        return rejectedDuplicate.sum();
+    }
+
+    /**
+     * @return How many times a seat reservation lost a race and had to retry, a measure of contention.
+     */
+    public long getCasRetries() {
+        return casRetries.sum();
+    }
+
+    private CourseSeats seatsOf(Integer courseId) {
+        return seatsByCourse.computeIfAbsent(courseId, id -> {
+            Course course = courseRepository.get(id);
+            if (course == null)
+                return null;
+            CourseSeats seats = new CourseSeats(course.getAvailableSpots() == null ? 0 : course.getAvailableSpots());
+            for (Enrolled enrollment : enrolledRepository.findBy("courseId", id))
+                seats.students.add(enrollment.getId());
+            return seats;
+        });
+    }
+
+    /**
+     * The seats left in a course and the students holding the others.
+     */
+    private static final class CourseSeats {
+        private final AtomicInteger available;
+        private final Set<Integer> students = ConcurrentHashMap.newKeySet();
+
+        private CourseSeats(int available) {
+            this.available = new AtomicInteger(available);
+        }
+    }
+}
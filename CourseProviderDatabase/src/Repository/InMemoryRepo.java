@@ -1,20 +1,77 @@
 package Repository;
 
 import Models.Identifiable;
+import Utils.IntIntMap;
+import Utils.IntMultiMap;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
+/**
+ * A repository that keeps its entities in memory and can be shared between threads.
+ * <p>
+ * Entities are stored in a {@link ConcurrentHashMap}, so {@link #get} and {@link #getAll} never block. Writes to
+ * the same id are serialized by one of a fixed set of striped locks, which also makes {@link #compute} and
+ * {@link #putIfAbsent} atomic. The secondary indexes are guarded by a read-write lock held only while they are
+ * read or patched; query results are re-checked against the current entity, so a concurrent write is never
+ * reported with a stale value.
+ * <p>
+ * Besides the primary map by id, integer fields can be declared as indexed with
+ * {@link #withIndex(String, Function)}, for example {@code Enrolled.courseId}. Declared indexes are maintained
+ * on every create, update and delete and answer {@link #find}, {@link #exists} and {@link #count} on that field
+ * in constant time. Other fields are served by hash indexes built the first time they are queried.
+ *
+ * @param <T> the type of the stored entity
+ */
 public class InMemoryRepo<T extends Identifiable>implements IRepository<T> {
+    private static final int STRIPES = 64;
+
+    private final Map<Integer, T> entities = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+    private final SecondaryIndexes<T> indexes = new SecondaryIndexes<>();
+    private final Map<String, IntIndex<T>> intIndexes = new HashMap<>();
+
+    public InMemoryRepo() {
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new ReentrantLock();
+    }
+
+    /**
+     * Declares an index on an integer field. Entities whose field is null are not indexed.
+     *
+     * @param field The name of the field, as used in {@link Criteria}.
+     * @param key   Reads the field from an entity.
+     * @return This repository.
+     */
+    public InMemoryRepo<T> withIndex(String field, Function<T, Integer> key) {
+        indexLock.writeLock().lock();
+        try {
+            IntIndex<T> index = new IntIndex<>(key);
+            for (T entity : entities.values())
+                index.put(entity);
+            intIndexes.put(field.toLowerCase(), index);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+        return this;
+    }
 
-    private Map<Integer, T> entities = new HashMap<>();
     @Override
     public void create(T obj) {
-        if (obj != null && obj.getId() != null) {
-            entities.put(obj.getId(), obj);
-        }
+        if (obj != null && obj.getId() != null)
+            store(obj);
     }
 
     @Override
@@ -24,18 +81,286 @@ public class InMemoryRepo<T extends Identifiable>implements IRepository<T> {
 
     @Override
     public void update(T obj) {
-        if (obj != null && obj.getId() != null) {
-            entities.put(obj.getId(), obj);
-        }
+        if (obj != null && obj.getId() != null)
+            store(obj);
     }
 
     @Override
     public void delete(Integer id) {
-        entities.remove(id);
+        if (id == null)
+            return;
+        ReentrantLock lock = stripeFor(id);
+        lock.lock();
+        try {
+            if (entities.remove(id) != null)
+                indexRemove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        storeAll(objs);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        storeAll(objs);
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        writeAll(() -> {
+            for (Integer id : ids)
+                if (id != null && entities.remove(id) != null) {
+                    indexes.remove(id);
+                    for (IntIndex<T> index : intIndexes.values())
+                        index.remove(id);
+                }
+        });
     }
 
     @Override
     public List<T> getAll() {
         return new ArrayList<>(entities.values());
     }
+
+    /**
+     * Streams the entities straight from the map, without copying them. Like {@link #getAll}, the stream never
+     * blocks; it may or may not see the writes made while it is consumed.
+     */
+    @Override
+    public Stream<T> stream() {
+        return entities.values().stream();
+    }
+
+    /**
+     * Atomically replaces the entity with the given id. No other write to the same id can happen while the
+     * function runs, so the function should be short and must not write to this repository.
+     */
+    @Override
+    public T compute(Integer id, UnaryOperator<T> function) {
+        ReentrantLock lock = stripeFor(id);
+        lock.lock();
+        try {
+            T next = function.apply(entities.get(id));
+            if (next == null) {
+                if (entities.remove(id) != null)
+                    indexRemove(id);
+            } else {
+                entities.put(id, next);
+                indexPut(next);
+            }
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public T putIfAbsent(T obj) {
+        ReentrantLock lock = stripeFor(obj.getId());
+        lock.lock();
+        try {
+            T existing = entities.putIfAbsent(obj.getId(), obj);
+            if (existing == null)
+                indexPut(obj);
+            return existing;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> find(Criteria criteria) {
+        return query(criteria, () -> {
+            Map.Entry<IntIndex<T>, Integer> indexed = declaredIndexFor(criteria);
+            if (indexed == null)
+                return indexes.find(criteria, entities);
+
+            List<T> results = new ArrayList<>();
+            indexed.getKey().ids.forEach(indexed.getValue(), id -> {
+                T entity = entities.get(id);
+                if (entity != null && criteria.matches(entity))
+                    results.add(entity);
+            });
+            return results;
+        });
+    }
+
+    @Override
+    public boolean exists(Criteria criteria) {
+        return query(criteria, () -> {
+            Map.Entry<IntIndex<T>, Integer> indexed = declaredIndexFor(criteria);
+            if (indexed == null)
+                return indexes.exists(criteria, entities);
+            if (criteria.isSingleEquality())
+                return indexed.getKey().ids.containsKey(indexed.getValue());
+            for (int id : indexed.getKey().ids.get(indexed.getValue())) {
+                T entity = entities.get(id);
+                if (entity != null && criteria.matches(entity))
+                    return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public int count(Criteria criteria) {
+        return query(criteria, () -> {
+            Map.Entry<IntIndex<T>, Integer> indexed = declaredIndexFor(criteria);
+            if (indexed == null)
+                return indexes.count(criteria, entities);
+            if (criteria.isSingleEquality())
+                return indexed.getKey().ids.size(indexed.getValue());
+            int count = 0;
+            for (int id : indexed.getKey().ids.get(indexed.getValue())) {
+                T entity = entities.get(id);
+                if (entity != null && criteria.matches(entity))
+                    count++;
+            }
+            return count;
+        });
+    }
+
+    private void store(T obj) {
+        ReentrantLock lock = stripeFor(obj.getId());
+        lock.lock();
+        try {
+            entities.put(obj.getId(), obj);
+            indexPut(obj);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void storeAll(Collection<? extends T> objs) {
+        writeAll(() -> {
+            for (T obj : objs)
+                if (obj != null && obj.getId() != null) {
+                    entities.put(obj.getId(), obj);
+                    indexes.put(obj);
+                    for (IntIndex<T> index : intIndexes.values())
+                        index.put(obj);
+                }
+        });
+    }
+
+    /**
+     * Runs a bulk write as one mutation: every stripe is locked, in order, and the indexes are patched under a
+     * single acquisition of their write lock.
+     */
+    private void writeAll(Runnable write) {
+        for (ReentrantLock stripe : stripes)
+            stripe.lock();
+        try {
+            indexLock.writeLock().lock();
+            try {
+                write.run();
+            } finally {
+                indexLock.writeLock().unlock();
+            }
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--)
+                stripes[i].unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(Integer id) {
+        int h = id * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private void indexPut(T obj) {
+        indexLock.writeLock().lock();
+        try {
+            indexes.put(obj);
+            for (IntIndex<T> index : intIndexes.values())
+                index.put(obj);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    private void indexRemove(Integer id) {
+        indexLock.writeLock().lock();
+        try {
+            indexes.remove(id);
+            for (IntIndex<T> index : intIndexes.values())
+                index.remove(id);
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a query under the read lock of the indexes. When the query needs a hash index that was not built yet,
+     * it is built and the query run under the write lock instead.
+     */
+    private <R> R query(Criteria criteria, Supplier<R> query) {
+        indexLock.readLock().lock();
+        try {
+            if (declaredIndexFor(criteria) != null || indexes.hasIndexFor(criteria))
+                return query.get();
+        } finally {
+            indexLock.readLock().unlock();
+        }
+        indexLock.writeLock().lock();
+        try {
+            indexes.ensureIndexFor(criteria, entities);
+            return query.get();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Picks the first field of the criteria that has a declared index and an integer value.
+     */
+    private Map.Entry<IntIndex<T>, Integer> declaredIndexFor(Criteria criteria) {
+        if (intIndexes.isEmpty())
+            return null;
+        for (Map.Entry<String, Object> equality : criteria.getEqualities().entrySet()) {
+            IntIndex<T> index = intIndexes.get(equality.getKey().toLowerCase());
+            if (index != null && equality.getValue() instanceof Integer)
+                return Map.entry(index, (Integer) equality.getValue());
+        }
+        return null;
+    }
+
+    /**
+     * A declared index on an integer field: the ids by field value, and the indexed value of every id so that
+     * an entity modified in place is still removed from its previous bucket.
+     */
+    private static final class IntIndex<T extends Identifiable> {
+        private final Function<T, Integer> key;
+        private final IntMultiMap ids = new IntMultiMap();
+        private final IntIntMap keyById = new IntIntMap();
+
+        private IntIndex(Function<T, Integer> key) {
+            this.key = key;
+        }
+
+        private void put(T entity) {
+            int id = entity.getId();
+            Integer value = key.apply(entity);
+            if (keyById.containsKey(id)) {
+                if (value != null && keyById.get(id, 0) == value)
+                    return;
+                remove(id);
+            }
+            if (value != null) {
+                ids.put(value, id);
+                keyById.put(id, value);
+            }
+        }
+
+        private void remove(int id) {
+            if (keyById.containsKey(id)) {
+                ids.remove(keyById.get(id, 0), id);
+                keyById.remove(id);
+            }
+        }
+    }
 }
@@ -0,0 +1,35 @@
+package Repository;
+
+import Models.Admin;
+import Models.Instructor;
+import Models.Student;
+import Models.User;
+
+import java.util.List;
+
+/**
+ * Username lookups for the in-memory and file backends. Each role repository answers
+ * {@link IRepository#findBy} on the username from a hash index, so a lookup does not scan the users.
+ */
+public class InMemoryUserRepository implements IUserRepository {
+    private static final String USERNAME_FIELD = "userName";
+
+    private final List<IRepository<? extends User>> repositories;
+
+    public InMemoryUserRepository(IRepository<Student> studentRepo, IRepository<Admin> adminRepo,
+                                  IRepository<Instructor> instructorRepo) {
+        this.repositories = List.of(studentRepo, adminRepo, instructorRepo);
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        if (username == null)
+            return null;
+        for (IRepository<? extends User> repository : repositories) {
+            List<? extends User> users = repository.findBy(USERNAME_FIELD, username);
+            if (!users.isEmpty())
+                return users.get(0);
+        }
+        return null;
+    }
+}
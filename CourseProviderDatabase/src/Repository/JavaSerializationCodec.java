@@ -0,0 +1,38 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes entities with {@link ObjectOutputStream}, one stream per entity.
+ */
+final class JavaSerializationCodec implements EntityCodec {
+
+    @Override
+    public byte[] encode(Identifiable entity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(entity);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Identifiable decode(ByteBuffer buffer) throws IOException {
+        InputStream in;
+        if (buffer.hasArray()) {
+            in = new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            in = new ByteArrayInputStream(bytes);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(in)) {
+            return (Identifiable) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new InvalidObjectException("Not a serialized entity: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package Repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Selects a keyset page, the items with the smallest ids after a given id, in one pass over unordered items. Only
+ * the page is kept, in a heap of at most limit items, so the memory used does not depend on the number of items.
+ */
+final class KeysetPage {
+    private KeysetPage() {
+    }
+
+    /**
+     * @param items   The items, in any order; items without an id are skipped.
+     * @param id      Reads the id of an item.
+     * @param afterId The id the page starts after, or null for the first page.
+     * @param limit   The largest number of items to return.
+     * @return At most limit items whose id is greater than afterId, by increasing id.
+     */
+    static <E> List<E> after(Iterator<E> items, Function<E, Integer> id, Integer afterId, int limit) {
+        checkLimit(limit);
+        if (limit == 0)
+            return new ArrayList<>();
+        Comparator<E> byId = Comparator.comparing(id);
+        // The largest id kept so far is at the head of the heap
+        PriorityQueue<E> page = new PriorityQueue<>(Math.min(limit, 1024), byId.reversed());
+        while (items.hasNext()) {
+            E item = items.next();
+            Integer itemId = item == null ? null : id.apply(item);
+            if (itemId == null || (afterId != null && itemId <= afterId))
+                continue;
+            if (page.size() < limit) {
+                page.add(item);
+            } else if (itemId < id.apply(page.peek())) {
+                page.poll();
+                page.add(item);
+            }
+        }
+        List<E> sorted = new ArrayList<>(page);
+        sorted.sort(byId);
+        return sorted;
+    }
+
+    /**
+     * @param ids     The ids, in any order.
+     * @param afterId The id the page starts after, or null for the first page.
+     * @param limit   The largest number of ids to return.
+     * @return At most limit ids greater than afterId, in increasing order.
+     */
+    static List<Integer> idsAfter(Iterable<Integer> ids, Integer afterId, int limit) {
+        return after(ids.iterator(), Function.identity(), afterId, limit);
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("The limit of a page cannot be negative: " + limit);
+    }
+}
@@ -0,0 +1,555 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * The append-only file behind a {@link FileRepository}.
+ * <p>
+ * The file starts with an 8 byte header, then holds one record per write:
+ * <pre>
+ *   int   body length
+ *   byte  kind (1 = put, 2 = delete)
+ *   int   entity id
+ *   bytes entity encoded by the {@link EntityCodec} (puts only)
+ *   int   CRC32 of the body
+ * </pre>
+ * A write appends one record, so it costs the size of the entity rather than the size of the file. When the
+ * file is opened the records are scanned once to rebuild the position of the latest record of every id; a
+ * record cut short by a crash is detected by its length or checksum and truncated. Records that were
+ * overwritten or deleted are garbage, and once they outweigh the live records the file is compacted: the live
+ * records are copied to a new file that atomically replaces the old one.
+ * <p>
+ * There is one store per file, shared by every repository opened on the same path. The store holds an exclusive
+ * lock on a {@code .lock} file next to it while it is open, so a second process opening the file fails instead
+ * of appending over the records of the first or losing them to its compaction. Files in the previous format, a
+ * serialized {@code HashMap}, are converted when they are opened; the original is kept as a {@code .bak} file.
+ */
+final class LogFileStore {
+    private static final int MAGIC = 0x43504C47; // "CPLG"
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 8;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    /** Length, kind, id and checksum. */
+    private static final int RECORD_OVERHEAD = 13;
+    private static final int MAX_RECORD_LENGTH = 64 << 20;
+
+    /** The amount of garbage below which a file is never compacted automatically. */
+    static final long DEFAULT_COMPACTION_MIN_BYTES = 1 << 20;
+
+    private static final Map<Path, LogFileStore> OPEN_STORES = new ConcurrentHashMap<>();
+
+    static {
+        ShutdownHooks.register(ShutdownHooks.Phase.CLOSE, () -> {
+            for (LogFileStore store : OPEN_STORES.values())
+                store.close();
+        });
+    }
+
+    /**
+     * How a put treats an id that is, or is not, already stored.
+     */
+    enum WriteMode {
+        /** Only writes ids that are not stored yet. */
+        CREATE,
+        /** Only writes ids that are already stored. */
+        UPDATE,
+        /** Always writes. */
+        UPSERT
+    }
+
+    /**
+     * The position and total length of the latest record of an id.
+     */
+    private record Slot(long position, int length) {
+    }
+
+    private final Path path;
+    private final EntityCodec codec;
+    private final FsyncPolicy fsyncPolicy;
+    private final Map<Integer, Slot> slots = new HashMap<>();
+    private final SecondaryIndexes<Identifiable> indexes = new SecondaryIndexes<>();
+    private final Map<Integer, Identifiable> entityView = new EntityView(() -> slots.keySet(), this::read);
+    private final Runnable syncTask = this::sync;
+    private FileChannel channel;
+    private FileChannel lockChannel;
+    private long end;
+    private long liveBytes;
+    private long garbageBytes;
+    private long compactionMinBytes = DEFAULT_COMPACTION_MIN_BYTES;
+    private boolean dirty;
+
+    /**
+     * Returns the store of a file, opening it the first time.
+     *
+     * @param fileName The path of the file.
+     * @param codec    The codec of the entities, used if the store is not open yet.
+     * @return The shared store of the file.
+     */
+    static LogFileStore open(String fileName, EntityCodec codec) {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        return OPEN_STORES.computeIfAbsent(path, p -> new LogFileStore(p, codec, FsyncPolicy.fromEnvironment()));
+    }
+
+    private LogFileStore(Path path, EntityCodec codec, FsyncPolicy fsyncPolicy) {
+        this.path = path;
+        this.codec = codec;
+        this.fsyncPolicy = fsyncPolicy;
+        try {
+            lock();
+            openFile();
+        } catch (IOException e) {
+            unlock();
+            throw new UncheckedIOException("Cannot open " + path, e);
+        }
+        if (fsyncPolicy == FsyncPolicy.INTERVAL)
+            FileSyncer.register(syncTask);
+    }
+
+    synchronized Identifiable get(Integer id) {
+        return read(id);
+    }
+
+    synchronized List<Identifiable> getAll() {
+        List<Identifiable> entities = new ArrayList<>(slots.size());
+        for (Integer id : slots.keySet()) {
+            Identifiable entity = read(id);
+            if (entity != null)
+                entities.add(entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Streams the entities from a snapshot of the ids taken when the stream is created, decoding one entity per
+     * element under the lock of the store. Entities deleted since the snapshot are skipped.
+     */
+    Stream<Identifiable> stream() {
+        int[] ids;
+        synchronized (this) {
+            ids = slots.keySet().stream().mapToInt(Integer::intValue).toArray();
+        }
+        return Arrays.stream(ids).mapToObj(this::get).filter(Objects::nonNull);
+    }
+
+    /**
+     * Decodes the entities of a keyset page only, after picking their ids from the positions in memory.
+     */
+    synchronized List<Identifiable> page(Integer afterId, int limit) {
+        List<Identifiable> page = new ArrayList<>();
+        for (Integer id : KeysetPage.idsAfter(slots.keySet(), afterId, limit)) {
+            Identifiable entity = read(id);
+            if (entity != null)
+                page.add(entity);
+        }
+        return page;
+    }
+
+    synchronized boolean contains(Integer id) {
+        return slots.containsKey(id);
+    }
+
+    /**
+     * Appends the entities that the write mode accepts, as one write.
+     *
+     * @return The number of entities written.
+     */
+    synchronized int putAll(Collection<? extends Identifiable> entities, WriteMode mode) {
+        List<Identifiable> accepted = new ArrayList<>(entities.size());
+        List<byte[]> payloads = new ArrayList<>(entities.size());
+        Set<Integer> batchIds = new HashSet<>();
+        for (Identifiable entity : entities) {
+            if (entity == null || entity.getId() == null)
+                continue;
+            boolean stored = slots.containsKey(entity.getId()) || batchIds.contains(entity.getId());
+            if ((mode == WriteMode.CREATE && stored) || (mode == WriteMode.UPDATE && !stored))
+                continue;
+            try {
+                payloads.add(codec.encode(entity));
+            } catch (IOException e) {
+                e.printStackTrace();
+                continue;
+            }
+            accepted.add(entity);
+            batchIds.add(entity.getId());
+        }
+        if (accepted.isEmpty())
+            return 0;
+
+        int total = 0;
+        for (byte[] payload : payloads)
+            total += RECORD_OVERHEAD + payload.length;
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (int i = 0; i < accepted.size(); i++)
+            writeRecord(buffer, PUT, accepted.get(i).getId(), payloads.get(i));
+
+        long position = end;
+        if (!append(buffer))
+            return 0;
+        for (int i = 0; i < accepted.size(); i++) {
+            Identifiable entity = accepted.get(i);
+            int length = RECORD_OVERHEAD + payloads.get(i).length;
+            place(entity.getId(), new Slot(position, length));
+            position += length;
+            indexes.put(entity);
+        }
+        afterWrite();
+        return accepted.size();
+    }
+
+    /**
+     * Appends a delete record for every stored id, as one write.
+     *
+     * @return The number of entities deleted.
+     */
+    synchronized int deleteAll(Collection<Integer> ids) {
+        Set<Integer> deleted = new LinkedHashSet<>();
+        for (Integer id : ids)
+            if (id != null && slots.containsKey(id))
+                deleted.add(id);
+        if (deleted.isEmpty())
+            return 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(deleted.size() * RECORD_OVERHEAD);
+        for (Integer id : deleted)
+            writeRecord(buffer, DELETE, id, new byte[0]);
+        if (!append(buffer))
+            return 0;
+        for (Integer id : deleted) {
+            Slot old = slots.remove(id);
+            liveBytes -= old.length();
+            garbageBytes += old.length() + RECORD_OVERHEAD;
+            indexes.remove(id);
+        }
+        afterWrite();
+        return deleted.size();
+    }
+
+    synchronized List<Identifiable> find(Criteria criteria) {
+        return indexes.find(criteria, entityView);
+    }
+
+    synchronized boolean exists(Criteria criteria) {
+        return indexes.exists(criteria, entityView);
+    }
+
+    synchronized int count(Criteria criteria) {
+        return indexes.count(criteria, entityView);
+    }
+
+    /**
+     * Sets the amount of garbage below which the file is never compacted automatically.
+     */
+    synchronized void setCompactionMinBytes(long compactionMinBytes) {
+        this.compactionMinBytes = compactionMinBytes;
+    }
+
+    /**
+     * @return The size of the records that were overwritten or deleted since the last compaction.
+     */
+    synchronized long getGarbageBytes() {
+        return garbageBytes;
+    }
+
+    /**
+     * Rewrites the file with the live records only.
+     */
+    synchronized void compact() {
+        Path target = path.resolveSibling(path.getFileName() + ".compact");
+        Map<Integer, Slot> moved = new HashMap<>();
+        long position = HEADER_LENGTH;
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, header(), 0);
+            for (Map.Entry<Integer, Slot> entry : slots.entrySet()) {
+                Slot slot = entry.getValue();
+                ByteBuffer record = readFully(slot.position(), slot.length());
+                writeFully(out, record, position);
+                moved.put(entry.getKey(), new Slot(position, slot.length()));
+                position += slot.length();
+            }
+            out.force(true);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            channel.close();
+            Files.move(target, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            reopen();
+            return;
+        }
+        slots.clear();
+        slots.putAll(moved);
+        end = position;
+        liveBytes = position - HEADER_LENGTH;
+        garbageBytes = 0;
+        dirty = false;
+    }
+
+    /**
+     * Forces the pending writes to the disk.
+     */
+    synchronized void sync() {
+        if (!dirty || channel == null || !channel.isOpen())
+            return;
+        try {
+            channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces the pending writes, closes the file and releases its lock. The store is forgotten; the next
+     * repository opened on the path opens it again.
+     */
+    synchronized void close() {
+        OPEN_STORES.remove(path, this);
+        FileSyncer.unregister(syncTask);
+        if (channel != null && channel.isOpen()) {
+            sync();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        unlock();
+    }
+
+    private Identifiable read(Integer id) {
+        Slot slot = slots.get(id);
+        if (slot == null)
+            return null;
+        try {
+            ByteBuffer record = readFully(slot.position(), slot.length());
+            record.position(9).limit(slot.length() - 4);
+            return codec.decode(record.slice());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void place(Integer id, Slot slot) {
+        Slot old = slots.put(id, slot);
+        if (old != null) {
+            liveBytes -= old.length();
+            garbageBytes += old.length();
+        }
+        liveBytes += slot.length();
+    }
+
+    private static void writeRecord(ByteBuffer buffer, byte kind, int id, byte[] payload) {
+        int start = buffer.position();
+        buffer.putInt(5 + payload.length).put(kind).putInt(id).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start + 4, 5 + payload.length);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes the buffer at the end of the file. A failed write is cut off so the file keeps ending on a record.
+     */
+    private boolean append(ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            writeFully(channel, buffer, end);
+            end += buffer.limit();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            try {
+                channel.truncate(end);
+            } catch (IOException truncateFailure) {
+                truncateFailure.printStackTrace();
+            }
+            return false;
+        }
+    }
+
+    private void afterWrite() {
+        dirty = true;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS)
+            sync();
+        if (garbageBytes >= compactionMinBytes && garbageBytes > liveBytes)
+            compact();
+    }
+
+    private void reopen() {
+        try {
+            if (channel != null)
+                channel.close();
+            openFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + path, e);
+        }
+    }
+
+    private void openFile() throws IOException {
+        if (isLegacyFile())
+            migrateLegacyFile();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            writeFully(channel, header(), 0);
+        } else {
+            ByteBuffer header = readFully(0, HEADER_LENGTH);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException(path + " is not a repository file");
+        }
+        slots.clear();
+        indexes.clear();
+        liveBytes = 0;
+        garbageBytes = 0;
+        scan(HEADER_LENGTH);
+    }
+
+    /**
+     * Takes the lock of the file for this process, failing if another process holds it.
+     */
+    private void lock() throws IOException {
+        Path lockPath = path.resolveSibling(path.getFileName() + ".lock");
+        lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null)
+            throw new IOException(path + " is already open in another process");
+    }
+
+    /**
+     * Releases the lock of the file, closing the channel it was taken on.
+     */
+    private void unlock() {
+        if (lockChannel == null)
+            return;
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        lockChannel = null;
+    }
+
+    /**
+     * Reads the records from a position to the end of the file, cutting off a torn last record. No other process
+     * writes to the file while it is locked, so a torn record can only be left by a crash.
+     */
+    private void scan(long from) throws IOException {
+        long size = channel.size();
+        long position = from;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(from)), 64 * 1024));
+        CRC32 crc = new CRC32();
+        while (position + RECORD_OVERHEAD <= size) {
+            int bodyLength = in.readInt();
+            if (bodyLength < 5 || bodyLength > MAX_RECORD_LENGTH || position + bodyLength + 8 > size)
+                break;
+            byte[] body = new byte[bodyLength];
+            in.readFully(body);
+            int checksum = in.readInt();
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum)
+                break;
+
+            int id = ByteBuffer.wrap(body, 1, 4).getInt();
+            int length = bodyLength + 8;
+            if (body[0] == PUT) {
+                place(id, new Slot(position, length));
+            } else {
+                Slot old = slots.remove(id);
+                if (old != null) {
+                    liveBytes -= old.length();
+                    garbageBytes += old.length();
+                }
+                garbageBytes += length;
+            }
+            position += length;
+        }
+        if (position < size) {
+            System.err.println("Truncating " + (size - position) + " bytes of incomplete records at the end of " + path);
+            channel.truncate(position);
+        }
+        end = position;
+    }
+
+    private boolean isLegacyFile() throws IOException {
+        if (!Files.exists(path) || Files.size(path) < 2)
+            return false;
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0xAC && in.read() == 0xED;
+        }
+    }
+
+    /**
+     * Converts a file holding a serialized {@code Map<Integer, entity>} into a log with one record per entity,
+     * after copying it to a {@code .bak} file.
+     */
+    private void migrateLegacyFile() throws IOException {
+        Map<?, ?> legacy;
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            legacy = (Map<?, ?>) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Cannot read the legacy file " + path, e);
+        }
+        Path target = path.resolveSibling(path.getFileName() + ".migrate");
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = writeFully(out, header(), 0);
+            for (Object value : legacy.values()) {
+                Identifiable entity = (Identifiable) value;
+                byte[] payload = codec.encode(entity);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + payload.length);
+                writeRecord(record, PUT, entity.getId(), payload);
+                record.flip();
+                position += writeFully(out, record, position);
+            }
+            out.force(true);
+        }
+        Path backup = path.resolveSibling(path.getFileName() + ".bak");
+        Files.copy(path, backup, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        Files.move(target, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Converted " + path + " to the append-only format (" + legacy.size() + " entities), the original is kept in " + backup);
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION).flip();
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Record at " + position + " of " + path + " is cut short");
+        }
+        return buffer.flip();
+    }
+
+    private static long writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining())
+            written += out.write(buffer, position + written);
+        return written;
+    }
+}
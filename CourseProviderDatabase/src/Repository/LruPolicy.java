@@ -0,0 +1,44 @@
+package Repository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Evicts the least recently used entries.
+ */
+final class LruPolicy implements EvictionPolicy {
+    private final long maximumWeight;
+    private final LinkedHashMap<Integer, Integer> weights = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+
+    LruPolicy(long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    @Override
+    public void onAccess(Integer key) {
+        weights.get(key);
+    }
+
+    @Override
+    public void onInsert(Integer key, int weight, Consumer<Integer> evict) {
+        weights.put(key, weight);
+        totalWeight += weight;
+        Iterator<Map.Entry<Integer, Integer>> eldest = weights.entrySet().iterator();
+        while (totalWeight > maximumWeight && eldest.hasNext()) {
+            Map.Entry<Integer, Integer> entry = eldest.next();
+            eldest.remove();
+            totalWeight -= entry.getValue();
+            evict.accept(entry.getKey());
+        }
+    }
+
+    @Override
+    public void onRemove(Integer key) {
+        Integer weight = weights.remove(key);
+        if (weight != null)
+            totalWeight -= weight;
+    }
+}
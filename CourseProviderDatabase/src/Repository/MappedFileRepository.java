@@ -0,0 +1,153 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A repository that stores its entities in a memory-mapped file of fixed-size slots keyed by id, managed by a
+ * {@link MappedSlotStore}.
+ * <p>
+ * Opening the repository maps the file without reading its content, and {@code get(id)} decodes the slot of
+ * the id straight from the mapped pages, so hot rows are served from the page cache with no file reads.
+ * Repositories opened on the same file share its store.
+ *
+ * @param <T> the type of the stored entity
+ */
+public class MappedFileRepository<T extends Identifiable> implements IRepository<T> {
+    private final String fileName;
+    private final MappedSlotStore store;
+
+    /**
+     * Opens the repository stored in a file, encoding the entities with the codec configured by {@link EntityCodec#fromEnvironment()}.
+     *
+     * @param fileName The path of the file; it is created if it does not exist.
+     */
+    public MappedFileRepository(String fileName) {
+        this(fileName, EntityCodec.fromEnvironment());
+    }
+
+    /**
+     * Opens the repository stored in a file.
+     *
+     * @param fileName The path of the file; it is created if it does not exist.
+     * @param codec    The codec of the entities, used if the file is not already open in this process.
+     */
+    public MappedFileRepository(String fileName, EntityCodec codec) {
+        this.fileName = fileName;
+        this.store = MappedSlotStore.open(fileName, codec);
+    }
+
+    /**
+     * Opens the repository stored in a memory-mapped file and, if it holds no entities yet, copies into it the
+     * entities of the {@link FileRepository} stored in another file.
+     *
+     * @param fileName     The path of the memory-mapped file.
+     * @param seedFileName The path of the file of a {@link FileRepository}; ignored if it does not exist.
+     * @return The repository.
+     */
+    public static <T extends Identifiable> MappedFileRepository<T> seededFrom(String fileName, String seedFileName) {
+        MappedFileRepository<T> repository = new MappedFileRepository<>(fileName);
+        synchronized (repository.store) {
+            if (repository.store.size() == 0 && new File(seedFileName).isFile())
+                repository.createAll(new FileRepository<T>(seedFileName).getAll());
+        }
+        return repository;
+    }
+
+    @Override
+    public void create(T obj) {
+        store.putAll(List.of(obj), LogFileStore.WriteMode.CREATE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(Integer id) {
+        return (T) store.get(id);
+    }
+
+    @Override
+    public void update(T obj) {
+        store.putAll(List.of(obj), LogFileStore.WriteMode.UPDATE);
+    }
+
+    @Override
+    public void delete(Integer id) {
+        store.deleteAll(List.of(id));
+    }
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        store.putAll(objs, LogFileStore.WriteMode.CREATE);
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        store.putAll(objs, LogFileStore.WriteMode.UPDATE);
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        store.deleteAll(ids);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> getAll() {
+        return (List<T>) store.getAll();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<T> stream() {
+        return (Stream<T>) store.stream();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> getPage(Integer afterId, int limit) {
+        KeysetPage.checkLimit(limit);
+        return (List<T>) store.page(afterId, limit);
+    }
+
+    @Override
+    public T compute(Integer id, UnaryOperator<T> function) {
+        synchronized (store) {
+            return IRepository.super.compute(id, function);
+        }
+    }
+
+    @Override
+    public T putIfAbsent(T obj) {
+        synchronized (store) {
+            return IRepository.super.putIfAbsent(obj);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> find(Criteria criteria) {
+        return (List<T>) store.find(criteria);
+    }
+
+    @Override
+    public boolean exists(Criteria criteria) {
+        return store.exists(criteria);
+    }
+
+    @Override
+    public int count(Criteria criteria) {
+        return store.count(criteria);
+    }
+
+    /**
+     * @return The path of the file.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+}
@@ -0,0 +1,430 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * The memory-mapped file behind a {@link MappedFileRepository}: a hash table of fixed-size slots keyed by
+ * entity id, laid out directly in the file.
+ * <pre>
+ *   header  int magic, int version, int slot size, int capacity, int count, int tombstones, 8 bytes reserved
+ *   slot i  int id, int length (0 = empty, -1 = deleted), the entity encoded by the {@link EntityCodec}
+ * </pre>
+ * The slot of an id is found by hashing the id and probing linearly, reading the mapped pages themselves, so
+ * opening a file reads its header only and {@code get(id)} decodes one slot straight from the mapping. When
+ * the table is half full, or an entity does not fit in a slot, the table is rebuilt into a new file with more
+ * or larger slots, which then replaces the old one.
+ * <p>
+ * Slots are overwritten in place. Writes reach the disk according to the {@link FsyncPolicy}; a crash in the
+ * middle of a write can damage the entity being written, the log format of {@link FileRepository} is the one
+ * to use when that matters. There is one store per file, shared by every repository opened on the same path.
+ */
+final class MappedSlotStore {
+    private static final int MAGIC = 0x43504D4D; // "CPMM"
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 32;
+    private static final int SLOT_HEADER = 8;
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The size of a slot in a new file; enough for most encoded entities. */
+    static final int DEFAULT_SLOT_SIZE = 512;
+
+    private static final Map<Path, MappedSlotStore> OPEN_STORES = new ConcurrentHashMap<>();
+
+    static {
+        ShutdownHooks.register(ShutdownHooks.Phase.CLOSE, () -> {
+            for (MappedSlotStore store : OPEN_STORES.values())
+                store.close();
+        });
+    }
+
+    private final Path path;
+    private final EntityCodec codec;
+    private final FsyncPolicy fsyncPolicy;
+    private final SecondaryIndexes<Identifiable> indexes = new SecondaryIndexes<>();
+    private final Map<Integer, Identifiable> entityView = new EntityView(this::ids, this::read);
+    private final Runnable syncTask = this::sync;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int slotSize;
+    private int capacity;
+    private int count;
+    private int tombstones;
+    private boolean dirty;
+
+    /**
+     * Returns the store of a file, opening it the first time.
+     *
+     * @param fileName The path of the file.
+     * @param codec    The codec of the entities, used if the store is not open yet.
+     * @return The shared store of the file.
+     */
+    static MappedSlotStore open(String fileName, EntityCodec codec) {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        return OPEN_STORES.computeIfAbsent(path, p -> new MappedSlotStore(p, codec, FsyncPolicy.fromEnvironment()));
+    }
+
+    private MappedSlotStore(Path path, EntityCodec codec, FsyncPolicy fsyncPolicy) {
+        this.path = path;
+        this.codec = codec;
+        this.fsyncPolicy = fsyncPolicy;
+        try {
+            openFile();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + path, e);
+        }
+        if (fsyncPolicy == FsyncPolicy.INTERVAL)
+            FileSyncer.register(syncTask);
+    }
+
+    synchronized Identifiable get(Integer id) {
+        return id == null ? null : read(id);
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    synchronized List<Identifiable> getAll() {
+        List<Identifiable> entities = new ArrayList<>(count);
+        for (int slot = 0; slot < capacity; slot++) {
+            if (map.getInt(base(slot) + 4) > 0) {
+                Identifiable entity = decode(slot);
+                if (entity != null)
+                    entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Streams the entities from a snapshot of the ids taken when the stream is created, in slot order, decoding
+     * one slot per element under the lock of the store. Entities deleted since the snapshot are skipped.
+     */
+    Stream<Identifiable> stream() {
+        List<Integer> ids;
+        synchronized (this) {
+            ids = ids();
+        }
+        return ids.stream().map(this::get).filter(Objects::nonNull);
+    }
+
+    /**
+     * Decodes the entities of a keyset page only, after picking their ids from the slot headers.
+     */
+    synchronized List<Identifiable> page(Integer afterId, int limit) {
+        List<Identifiable> page = new ArrayList<>();
+        for (Integer id : KeysetPage.idsAfter(ids(), afterId, limit)) {
+            Identifiable entity = read(id);
+            if (entity != null)
+                page.add(entity);
+        }
+        return page;
+    }
+
+    /**
+     * Writes the entities that the write mode accepts.
+     *
+     * @return The number of entities written.
+     */
+    synchronized int putAll(Collection<? extends Identifiable> entities, LogFileStore.WriteMode mode) {
+        int written = 0;
+        for (Identifiable entity : entities) {
+            if (entity == null || entity.getId() == null)
+                continue;
+            try {
+                if (put(entity, mode))
+                    written++;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (written > 0)
+            afterWrite();
+        return written;
+    }
+
+    /**
+     * Marks the slots of the ids as deleted.
+     *
+     * @return The number of entities deleted.
+     */
+    synchronized int deleteAll(Collection<Integer> ids) {
+        int deleted = 0;
+        for (Integer id : ids) {
+            int slot = id == null ? -1 : find(id);
+            if (slot < 0)
+                continue;
+            map.putInt(base(slot) + 4, DELETED);
+            count--;
+            tombstones++;
+            indexes.remove(id);
+            deleted++;
+        }
+        if (deleted > 0) {
+            writeCounts();
+            afterWrite();
+        }
+        return deleted;
+    }
+
+    synchronized List<Identifiable> find(Criteria criteria) {
+        return indexes.find(criteria, entityView);
+    }
+
+    synchronized boolean exists(Criteria criteria) {
+        return indexes.exists(criteria, entityView);
+    }
+
+    synchronized int count(Criteria criteria) {
+        return indexes.count(criteria, entityView);
+    }
+
+    /**
+     * Forces the pending writes to the disk.
+     */
+    synchronized void sync() {
+        if (!dirty || map == null)
+            return;
+        map.force();
+        dirty = false;
+    }
+
+    /**
+     * Forces the pending writes and closes the file. The store is forgotten; the next repository opened on
+     * the path opens it again.
+     */
+    synchronized void close() {
+        OPEN_STORES.remove(path, this);
+        FileSyncer.unregister(syncTask);
+        if (channel == null || !channel.isOpen())
+            return;
+        sync();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean put(Identifiable entity, LogFileStore.WriteMode mode) throws IOException {
+        int id = entity.getId();
+        int slot = find(id);
+        if ((mode == LogFileStore.WriteMode.CREATE && slot >= 0) || (mode == LogFileStore.WriteMode.UPDATE && slot < 0))
+            return false;
+
+        byte[] payload = codec.encode(entity);
+        if (payload.length > slotSize - SLOT_HEADER) {
+            rebuild(capacity, slotSizeFor(payload.length));
+            slot = find(id);
+        }
+        if (slot < 0) {
+            if ((count + tombstones + 1) * 2 > capacity) {
+                rebuild((count + 1) * 4 > capacity ? capacity * 2 : capacity, slotSize);
+            }
+            slot = insertionSlot(id);
+            if (map.getInt(base(slot) + 4) == DELETED)
+                tombstones--;
+            count++;
+            writeCounts();
+        }
+        int base = base(slot);
+        map.put(base + SLOT_HEADER, payload);
+        map.putInt(base, id);
+        map.putInt(base + 4, payload.length);
+        indexes.put(entity);
+        return true;
+    }
+
+    private void afterWrite() {
+        dirty = true;
+        if (fsyncPolicy == FsyncPolicy.ALWAYS)
+            sync();
+    }
+
+    private Identifiable read(int id) {
+        int slot = find(id);
+        return slot < 0 ? null : decode(slot);
+    }
+
+    private Identifiable decode(int slot) {
+        int base = base(slot);
+        int length = map.getInt(base + 4);
+        try {
+            return codec.decode(map.slice(base + SLOT_HEADER, length));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private List<Integer> ids() {
+        List<Integer> ids = new ArrayList<>(count);
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = base(slot);
+            if (map.getInt(base + 4) > 0)
+                ids.add(map.getInt(base));
+        }
+        return ids;
+    }
+
+    /**
+     * @return The slot holding the id, or -1.
+     */
+    private int find(int id) {
+        int mask = capacity - 1;
+        for (int slot = hash(id) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int base = base(slot);
+            int length = map.getInt(base + 4);
+            if (length == EMPTY)
+                return -1;
+            if (length > 0 && map.getInt(base) == id)
+                return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The first deleted or empty slot on the probe sequence of an id that is not stored.
+     */
+    private int insertionSlot(int id) {
+        int mask = capacity - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask)
+            if (map.getInt(base(slot) + 4) <= 0)
+                return slot;
+    }
+
+    /**
+     * @return The offset of a slot; the table never exceeds 2 GB so it fits in an int.
+     */
+    private int base(int slot) {
+        return HEADER_LENGTH + slot * slotSize;
+    }
+
+    private void writeCounts() {
+        map.putInt(16, count);
+        map.putInt(20, tombstones);
+    }
+
+    private void openFile() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            map = mapTable(channel, INITIAL_CAPACITY, DEFAULT_SLOT_SIZE);
+            capacity = INITIAL_CAPACITY;
+            slotSize = DEFAULT_SLOT_SIZE;
+            count = 0;
+            tombstones = 0;
+            return;
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            throw new IOException(path + " is not a memory-mapped repository file");
+        slotSize = header.getInt(8);
+        capacity = header.getInt(12);
+        count = header.getInt(16);
+        tombstones = header.getInt(20);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, tableLength(capacity, slotSize));
+    }
+
+    /**
+     * Sizes and maps an empty table in a channel, leaving the table of the store untouched.
+     */
+    private static MappedByteBuffer mapTable(FileChannel target, int newCapacity, int newSlotSize) throws IOException {
+        MappedByteBuffer table = target.map(FileChannel.MapMode.READ_WRITE, 0, tableLength(newCapacity, newSlotSize));
+        table.putInt(0, MAGIC);
+        table.putInt(4, VERSION);
+        table.putInt(8, newSlotSize);
+        table.putInt(12, newCapacity);
+        table.putInt(16, 0);
+        table.putInt(20, 0);
+        return table;
+    }
+
+    /**
+     * Copies the live slots into a new table with the given geometry, which then replaces the file. The store
+     * switches to the new table only once it has replaced the file; on failure the store keeps its table and
+     * the partial copy is deleted.
+     */
+    private void rebuild(int newCapacity, int newSlotSize) throws IOException {
+        Path target = path.resolveSibling(path.getFileName() + ".rebuild");
+        Files.deleteIfExists(target);
+
+        FileChannel newChannel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer newMap;
+        int newCount = 0;
+        try {
+            newMap = mapTable(newChannel, newCapacity, newSlotSize);
+            int mask = newCapacity - 1;
+            for (int slot = 0; slot < capacity; slot++) {
+                int oldBase = base(slot);
+                int length = map.getInt(oldBase + 4);
+                if (length <= 0)
+                    continue;
+                int id = map.getInt(oldBase);
+                // The new table has no deleted slots, so the first empty slot on the probe sequence is free
+                int newSlot = hash(id) & mask;
+                while (newMap.getInt(HEADER_LENGTH + newSlot * newSlotSize + 4) != EMPTY)
+                    newSlot = (newSlot + 1) & mask;
+                int base = HEADER_LENGTH + newSlot * newSlotSize;
+                newMap.put(base + SLOT_HEADER, map, oldBase + SLOT_HEADER, length);
+                newMap.putInt(base, id);
+                newMap.putInt(base + 4, length);
+                newCount++;
+            }
+            newMap.putInt(16, newCount);
+            newMap.force();
+            Files.move(target, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                newChannel.close();
+                Files.deleteIfExists(target);
+            } catch (IOException cleanup) {
+                e.addSuppressed(cleanup);
+            }
+            throw e;
+        }
+
+        FileChannel oldChannel = channel;
+        channel = newChannel;
+        map = newMap;
+        capacity = newCapacity;
+        slotSize = newSlotSize;
+        count = newCount;
+        tombstones = 0;
+        try {
+            oldChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long tableLength(int capacity, int slotSize) {
+        long length = HEADER_LENGTH + (long) capacity * slotSize;
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalStateException("A memory-mapped repository file cannot exceed 2 GB");
+        return length;
+    }
+
+    private static int slotSizeFor(int payloadLength) {
+        int size = DEFAULT_SLOT_SIZE;
+        while (size - SLOT_HEADER < payloadLength)
+            size <<= 1;
+        return size;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
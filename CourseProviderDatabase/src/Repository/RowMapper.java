@@ -0,0 +1,23 @@
+package Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds an entity from the current row of a {@link ResultSet}.
+ * <p>
+ * Mappers read the columns by index, in the order of the column list the repository was created with.
+ *
+ * @param <T> the type of the entity built from the row
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Maps the current row of the result set to an entity.
+     *
+     * @param rs The result set, positioned on the row to map.
+     * @return The entity built from the row.
+     * @throws SQLException If a column cannot be read.
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,139 @@
+package Repository;
+
+import Models.*;
+import Models.Module;
+import Utils.Utils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Type-specialized {@link RowMapper}s for the entities of the {@code Models} package.
+ * <p>
+ * Each mapper reads its columns by index with the primitive getters of the result set and calls the entity
+ * constructor directly. A mapper is only used when the repository columns are exactly the ones it was written
+ * for (the lists of {@link Utils}); any other entity or column layout falls back to the reflective mapper of
+ * its {@link EntityMapping}, with a warning when the entity has a specialized mapper.
+ */
+public final class RowMappers {
+    private static final Map<Class<?>, Registration<?>> MAPPERS = new HashMap<>();
+
+    static {
+        Utils utils = new Utils();
+        register(Course.class, utils.getCourseParameters(), rs -> new Course(
+                rs.getInt(1), rs.getString(2), rs.getString(3), getInteger(rs, 4),
+                rs.getString(5), rs.getString(6), getInteger(rs, 7)));
+        register(Student.class, utils.getUsersParameters(), rs -> new Student(
+                rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+        register(Instructor.class, utils.getUsersParameters(), rs -> new Instructor(
+                rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+        register(Admin.class, utils.getUsersParameters(), rs -> new Admin(
+                rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+        register(Module.class, utils.getModuleParameters(), rs -> new Module(
+                rs.getInt(1), rs.getString(2), rs.getString(3)));
+        register(Assignment.class, utils.getAssignmentParameteres(), rs -> new Assignment(
+                rs.getInt(1), rs.getString(2), rs.getString(3), getInteger(rs, 4)));
+        register(Quiz.class, utils.getQuizParameters(), rs -> new Quiz(
+                rs.getInt(1), rs.getString(2), rs.getString(3), getInteger(rs, 4)));
+        register(Message.class, utils.getMessageParamteres(), rs -> new Message(
+                rs.getInt(1), rs.getString(2), getInteger(rs, 3), getInteger(rs, 4)));
+        register(Enrolled.class, utils.getEnrolledParameters(), rs -> new Enrolled(
+                rs.getInt(1), getInteger(rs, 2)));
+        register(ModuleCourse.class, utils.getCourseModuleParameters(), rs -> new ModuleCourse(
+                rs.getInt(1), getInteger(rs, 2)));
+        register(AssignmentModule.class, utils.getModuleAssignmentParameteres(), rs -> new AssignmentModule(
+                rs.getInt(1), getInteger(rs, 2)));
+        register(QuizAssignment.class, utils.getQuizAssignmentParameteres(), rs -> new QuizAssignment(
+                rs.getInt(1), getInteger(rs, 2)));
+    }
+
+    private RowMappers() {
+    }
+
+    /**
+     * Returns the row mapper for the entity of a mapping.
+     *
+     * @param mapping The mapping of the entity onto its table.
+     * @param <T>     The type of the entity.
+     * @return A specialized mapper if one matches the mapped columns, otherwise the reflective mapper.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Identifiable> RowMapper<T> forMapping(EntityMapping<T> mapping) {
+        Registration<T> registration = (Registration<T>) MAPPERS.get(mapping.getType());
+        if (registration == null)
+            return reflective(mapping);
+        if (!registration.matches(mapping)) {
+            System.err.println("The columns " + mapping.getSelectColumns() + " of " + mapping.getTableName()
+                    + " do not match the row mapper of " + mapping.getType().getSimpleName() + ", reading it reflectively");
+            return reflective(mapping);
+        }
+        return registration.mapper;
+    }
+
+    /**
+     * @param mapping The mapping of an entity onto its table.
+     * @return true if {@link #forMapping(EntityMapping)} returns a specialized mapper for it.
+     */
+    public static boolean isSpecialized(EntityMapping<?> mapping) {
+        Registration<?> registration = MAPPERS.get(mapping.getType());
+        return registration != null && registration.matches(mapping);
+    }
+
+    /**
+     * @return The entity types that have a specialized mapper.
+     */
+    public static Set<Class<?>> registeredTypes() {
+        return Set.copyOf(MAPPERS.keySet());
+    }
+
+    /**
+     * Returns a mapper that reads every column as an object and calls the constructor through the mapping.
+     *
+     * @param mapping The mapping of the entity onto its table.
+     * @param <T>     The type of the entity.
+     * @return The reflective mapper.
+     */
+    public static <T extends Identifiable> RowMapper<T> reflective(EntityMapping<T> mapping) {
+        return rs -> {
+            Object[] args = new Object[mapping.getColumnCount()];
+            for (int i = 0; i < args.length; i++)
+                args[i] = rs.getObject(i + 1);
+            return mapping.newInstance(args);
+        };
+    }
+
+    /**
+     * Reads a nullable integer column without going through {@link ResultSet#getObject(int)}.
+     */
+    static Integer getInteger(ResultSet rs, int columnIndex) throws SQLException {
+        int value = rs.getInt(columnIndex);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static <T> void register(Class<T> type, List<String> columns, RowMapper<T> mapper) {
+        MAPPERS.put(type, new Registration<>(columns, mapper));
+    }
+
+    private static final class Registration<T> {
+        private final List<String> columns;
+        private final RowMapper<T> mapper;
+
+        private Registration(List<String> columns, RowMapper<T> mapper) {
+            this.columns = columns;
+            this.mapper = mapper;
+        }
+
+        private boolean matches(EntityMapping<?> mapping) {
+            if (mapping.getColumnCount() != columns.size())
+                return false;
+            for (int i = 0; i < columns.size(); i++)
+                if (!columns.get(i).equalsIgnoreCase(mapping.getColumn(i)))
+                    return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.util.*;
+
+/**
+ * Hash indexes from field values to entity ids, kept next to the primary map of a repository.
+ * <p>
+ * An index is built the first time a field is queried and from then on maintained on every put and
+ * remove. The value indexed for an id is remembered, so an entity that was modified in place before
+ * being updated is still removed from the right bucket.
+ * <p>
+ * The indexes are not synchronized; repositories shared between threads guard them with their own lock.
+ *
+ * @param <T> the type of the indexed entity
+ */
+class SecondaryIndexes<T extends Identifiable> {
+    private final Map<String, HashIndex> indexes = new HashMap<>();
+
+    /**
+     * Finds the entities matching the criteria. The first field equality of the criteria is served by its index,
+     * the remaining fields and the ranges are checked on the candidates; a criteria of ranges only checks every
+     * entity.
+     *
+     * @param criteria The criteria to match.
+     * @param entities The primary map of the repository, by id.
+     * @return The matching entities.
+     */
+    List<T> find(Criteria criteria, Map<Integer, T> entities) {
+        List<T> results = new ArrayList<>();
+        for (Integer id : candidates(criteria, entities)) {
+            T entity = entities.get(id);
+            if (entity != null && criteria.matches(entity))
+                results.add(entity);
+        }
+        return results;
+    }
+
+    /**
+     * Checks whether any entity matches the criteria.
+     *
+     * @param criteria The criteria to match.
+     * @param entities The primary map of the repository, by id.
+     * @return true if at least one entity matches.
+     */
+    boolean exists(Criteria criteria, Map<Integer, T> entities) {
+        for (Integer id : candidates(criteria, entities)) {
+            T entity = entities.get(id);
+            if (entity != null && criteria.matches(entity))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts the entities matching the criteria. A single field criteria is answered by the size of
+     * its index bucket.
+     *
+     * @param criteria The criteria to match.
+     * @param entities The primary map of the repository, by id.
+     * @return The number of matching entities.
+     */
+    int count(Criteria criteria, Map<Integer, T> entities) {
+        Set<Integer> candidates = candidates(criteria, entities);
+        if (criteria.isSingleEquality())
+            return candidates.size();
+        int count = 0;
+        for (Integer id : candidates) {
+            T entity = entities.get(id);
+            if (entity != null && criteria.matches(entity))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Records an entity that was created or updated in every index built so far.
+     *
+     * @param entity The entity.
+     */
+    void put(T entity) {
+        for (HashIndex index : indexes.values())
+            index.put(entity);
+    }
+
+    /**
+     * Removes an entity from every index built so far.
+     *
+     * @param id The id of the removed entity.
+     */
+    void remove(Integer id) {
+        for (HashIndex index : indexes.values())
+            index.remove(id);
+    }
+
+    /**
+     * Checks whether the index serving a criteria has already been built.
+     *
+     * @param criteria The criteria.
+     * @return true if a query with the criteria will not build an index.
+     */
+    boolean hasIndexFor(Criteria criteria) {
+        return criteria.getEqualities().isEmpty() || indexes.containsKey(firstField(criteria).toLowerCase());
+    }
+
+    /**
+     * Builds the index serving a criteria if it does not exist yet.
+     *
+     * @param criteria The criteria.
+     * @param entities The primary map of the repository, by id.
+     */
+    void ensureIndexFor(Criteria criteria, Map<Integer, T> entities) {
+        if (criteria.getEqualities().isEmpty())
+            return;
+        String field = firstField(criteria);
+        if (!indexes.containsKey(field.toLowerCase())) {
+            HashIndex index = new HashIndex(field);
+            for (T entity : entities.values())
+                index.put(entity);
+            indexes.put(field.toLowerCase(), index);
+        }
+    }
+
+    /**
+     * Drops every index; they are rebuilt on the next query.
+     */
+    void clear() {
+        indexes.clear();
+    }
+
+    private Set<Integer> candidates(Criteria criteria, Map<Integer, T> entities) {
+        if (criteria.getEqualities().isEmpty())
+            return entities.keySet();
+        ensureIndexFor(criteria, entities);
+        String field = firstField(criteria);
+        return indexes.get(field.toLowerCase()).ids(criteria.getEqualities().get(field));
+    }
+
+    private static String firstField(Criteria criteria) {
+        return criteria.getEqualities().keySet().iterator().next();
+    }
+
+    /**
+     * The index of a single field.
+     */
+    private static final class HashIndex {
+        private final String field;
+        private final Map<Object, Set<Integer>> idsByValue = new HashMap<>();
+        private final Map<Integer, Object> valueById = new HashMap<>();
+
+        private HashIndex(String field) {
+            this.field = field;
+        }
+
+        private void put(Identifiable entity) {
+            Integer id = entity.getId();
+            Object value = FieldAccessor.read(entity, field);
+            if (valueById.containsKey(id)) {
+                Object previous = valueById.get(id);
+                if (Objects.equals(previous, value))
+                    return;
+                remove(id);
+            }
+            valueById.put(id, value);
+            idsByValue.computeIfAbsent(value, v -> new HashSet<>()).add(id);
+        }
+
+        private void remove(Integer id) {
+            if (!valueById.containsKey(id))
+                return;
+            Object value = valueById.remove(id);
+            Set<Integer> ids = idsByValue.get(value);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty())
+                    idsByValue.remove(value);
+            }
+        }
+
+        private Set<Integer> ids(Object value) {
+            return idsByValue.getOrDefault(value, Collections.emptySet());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package Repository;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The single JVM shutdown hook of the repositories. The JVM starts its shutdown hooks concurrently and in no
+ * fixed order, so the repositories register their shutdown tasks here instead, and the tasks run in the order of
+ * their {@link Phase}: the pending writes are flushed before the stores and pools they are written to are closed.
+ */
+final class ShutdownHooks {
+    /**
+     * The phases of the shutdown, in the order they run.
+     */
+    enum Phase {
+        /** Writes the changes still buffered in memory, while the stores and pools are open. */
+        FLUSH,
+        /** Closes the file stores and the connection pools. */
+        CLOSE
+    }
+
+    private static final Map<Phase, List<Runnable>> TASKS = new EnumMap<>(Phase.class);
+    private static boolean ran;
+
+    static {
+        for (Phase phase : Phase.values())
+            TASKS.put(phase, new ArrayList<>());
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(ShutdownHooks::run, "repository-shutdown"));
+        } catch (IllegalStateException e) {
+            System.err.println("The JVM is already shutting down, the repositories will not be flushed: " + e.getMessage());
+        }
+    }
+
+    private ShutdownHooks() {
+    }
+
+    /**
+     * Registers a task run once when the JVM shuts down.
+     *
+     * @param phase The phase the task runs in.
+     * @param task  The task; a failure is reported and does not stop the other tasks.
+     */
+    static synchronized void register(Phase phase, Runnable task) {
+        TASKS.get(phase).add(task);
+    }
+
+    /**
+     * Runs the registered tasks, phase by phase. Only the first call runs them.
+     */
+    static void run() {
+        Map<Phase, List<Runnable>> tasks = new EnumMap<>(Phase.class);
+        synchronized (ShutdownHooks.class) {
+            if (ran)
+                return;
+            ran = true;
+            for (Map.Entry<Phase, List<Runnable>> phase : TASKS.entrySet())
+                tasks.put(phase.getKey(), new ArrayList<>(phase.getValue()));
+        }
+        for (Map.Entry<Phase, List<Runnable>> phase : tasks.entrySet()) {
+            for (Runnable task : phase.getValue()) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Shutdown task failed in phase " + phase.getKey() + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package Repository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Window TinyLFU: new entries go to a small LRU window; an entry leaving the window only enters the main area
+ * if it was used more often than the entry it would displace, as estimated by a frequency sketch of recent
+ * accesses. The main area is a segmented LRU, whose protected segment holds the entries hit at least twice.
+ * <p>
+ * A burst of keys read once stays in the window and does not push the popular entries out of the cache.
+ */
+final class TinyLfuPolicy implements EvictionPolicy {
+    private final long windowMaximum;
+    private final long mainMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+
+    private final LinkedHashMap<Integer, Integer> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Integer, Integer> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Integer, Integer> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    TinyLfuPolicy(long maximumWeight) {
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.mainMaximum = Math.max(0, maximumWeight - windowMaximum);
+        this.protectedMaximum = mainMaximum * 4 / 5;
+        this.sketch = new FrequencySketch(maximumWeight);
+    }
+
+    @Override
+    public void onAccess(Integer key) {
+        sketch.increment(key);
+        if (window.get(key) != null || protectedSegment.get(key) != null)
+            return;
+        Integer weight = probation.remove(key);
+        if (weight != null) {
+            probationWeight -= weight;
+            protectedSegment.put(key, weight);
+            protectedWeight += weight;
+            while (protectedWeight > protectedMaximum) {
+                Map.Entry<Integer, Integer> demoted = pollEldest(protectedSegment);
+                protectedWeight -= demoted.getValue();
+                probation.put(demoted.getKey(), demoted.getValue());
+                probationWeight += demoted.getValue();
+            }
+        }
+    }
+
+    @Override
+    public void onInsert(Integer key, int weight, Consumer<Integer> evict) {
+        sketch.increment(key);
+        window.put(key, weight);
+        windowWeight += weight;
+        while (windowWeight > windowMaximum) {
+            Map.Entry<Integer, Integer> candidate = pollEldest(window);
+            windowWeight -= candidate.getValue();
+            admit(candidate.getKey(), candidate.getValue(), evict);
+        }
+    }
+
+    @Override
+    public void onRemove(Integer key) {
+        Integer weight;
+        if ((weight = window.remove(key)) != null)
+            windowWeight -= weight;
+        else if ((weight = probation.remove(key)) != null)
+            probationWeight -= weight;
+        else if ((weight = protectedSegment.remove(key)) != null)
+            protectedWeight -= weight;
+    }
+
+    /**
+     * Moves an entry leaving the window to the probation segment, evicting the entries it displaces if it is
+     * more frequent than each of them, or evicts the entry itself.
+     */
+    private void admit(Integer key, int weight, Consumer<Integer> evict) {
+        if (weight > mainMaximum) {
+            evict.accept(key);
+            return;
+        }
+        int frequency = sketch.frequency(key);
+        while (probationWeight + protectedWeight + weight > mainMaximum) {
+            boolean fromProbation = !probation.isEmpty();
+            LinkedHashMap<Integer, Integer> segment = fromProbation ? probation : protectedSegment;
+            Map.Entry<Integer, Integer> victim = segment.entrySet().iterator().next();
+            if (frequency <= sketch.frequency(victim.getKey())) {
+                evict.accept(key);
+                return;
+            }
+            segment.remove(victim.getKey());
+            if (fromProbation)
+                probationWeight -= victim.getValue();
+            else
+                protectedWeight -= victim.getValue();
+            evict.accept(victim.getKey());
+        }
+        probation.put(key, weight);
+        probationWeight += weight;
+    }
+
+    private static Map.Entry<Integer, Integer> pollEldest(LinkedHashMap<Integer, Integer> segment) {
+        Iterator<Map.Entry<Integer, Integer>> eldest = segment.entrySet().iterator();
+        Map.Entry<Integer, Integer> entry = eldest.next();
+        Map.Entry<Integer, Integer> polled = Map.entry(entry.getKey(), entry.getValue());
+        eldest.remove();
+        return polled;
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters estimating how often each key was accessed recently. The counters are
+     * halved every time the number of increments reaches ten times the width, so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97CB3127, 0xB8B34B2D, 0x9E3779B9, 0x7FEB352D};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] counters;
+        private final int shift;
+        private final int sampleSize;
+        private int increments;
+
+        private FrequencySketch(long maximumWeight) {
+            int width = Integer.highestOneBit((int) Math.min(1 << 20, Math.max(16, maximumWeight)) * 2 - 1);
+            this.counters = new byte[SEEDS.length][width];
+            this.shift = 32 - Integer.numberOfTrailingZeros(width);
+            this.sampleSize = 10 * width;
+        }
+
+        private int frequency(Integer key) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++)
+                frequency = Math.min(frequency, counters[row][index(key, row)]);
+            return frequency;
+        }
+
+        private void increment(Integer key) {
+            // Conservative update: only the smallest counters grow, which keeps the overestimate low.
+            int frequency = frequency(key);
+            if (frequency == MAX_COUNT)
+                return;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = index(key, row);
+                if (counters[row][index] == frequency)
+                    counters[row][index]++;
+            }
+            if (++increments >= sampleSize)
+                halve();
+        }
+
+        private void halve() {
+            for (byte[] row : counters)
+                for (int i = 0; i < row.length; i++)
+                    row[i] >>= 1;
+            increments /= 2;
+        }
+
+        private int index(Integer key, int row) {
+            int hash = key.hashCode() * SEEDS[row];
+            return (hash ^ (hash >>> 16)) * SEEDS[(row + 1) % SEEDS.length] >>> shift;
+        }
+    }
+}
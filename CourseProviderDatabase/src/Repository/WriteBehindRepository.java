@@ -0,0 +1,525 @@
+package Repository;
+
+import Models.Identifiable;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A repository that writes its changes to another repository in the background.
+ * <p>
+ * Updates and deletes are recorded as pending changes, one per id, so repeated writes of the same entity are coalesced; the pending changes are
+ * flushed with {@link IRepository#deleteAll} and {@link IRepository#updateAll} when there are {@code maxPending}
+ * of them, every {@code flushIntervalMillis}, on {@link #flush()}, on {@link #close()} and when the JVM shuts down,
+ * before the connection pools and file stores are closed.
+ * Creates are written through, so rows of other tables may reference a new entity at once and a duplicate id
+ * fails at the call as it does on the wrapped repository.
+ * <p>
+ * Reads always see the writes made through this repository, flushed or not; queries ({@link #getAll},
+ * {@link #stream}, {@link #getPage}, {@link #find}, {@link #exists}, {@link #count}) flush first and then run on
+ * the wrapped repository. Writes made to the wrapped repository by other means may be overwritten by a pending
+ * change, so this repository should be the only writer of the data it wraps. It does not cache the entities it
+ * reads; wrap it in a {@link CachingRepository} for that.
+ * <p>
+ * If a flush fails transiently, its changes are pending again and retried on the next flush; changes rejected for
+ * good are dropped and kept in {@link #getRejectedChanges()}, so they never block the other changes or the reads.
+ *
+ * @param <T> the type of the stored entity
+ */
+public final class WriteBehindRepository<T extends Identifiable> implements IRepository<T>, AutoCloseable {
+    public static final int DEFAULT_MAX_PENDING = 256;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    /** The number of rejected changes kept for {@link #getRejectedChanges()}. */
+    public static final int MAX_REJECTED_CHANGES = 1000;
+    /** The SQLSTATE classes of connection errors, transaction rollbacks, exhausted resources and interventions. */
+    private static final Set<String> TRANSIENT_SQL_STATE_CLASSES = Set.of("08", "40", "53", "57");
+
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "write-behind-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Set<WriteBehindRepository<?>> OPEN_REPOSITORIES = ConcurrentHashMap.newKeySet();
+
+    static {
+        // Flushed before the connection pools and file stores close, see ShutdownHooks
+        ShutdownHooks.register(ShutdownHooks.Phase.FLUSH, () -> {
+            for (WriteBehindRepository<?> repository : OPEN_REPOSITORIES)
+                repository.close();
+        });
+    }
+
+    private final IRepository<T> backend;
+    private final int maxPending;
+    /** Guards the pending changes; a thread that takes both locks takes {@link #flushLock} first. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledFuture<?> periodicFlush;
+    private volatile boolean closed;
+
+    /** The pending changes by id, null for a delete; guarded by {@link #lock}. */
+    private Map<Integer, T> pending = new LinkedHashMap<>();
+    /** The changes of the flush in progress, still to be served to readers; guarded by {@link #lock}. */
+    private Map<Integer, T> flushing = Collections.emptyMap();
+
+    private final LongAdder coalescedWrites = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedWrites = new LongAdder();
+    private final LongAdder rejectedWrites = new LongAdder();
+    /** The latest rejected changes; guarded by {@link #lock}. */
+    private final Deque<RejectedChange<T>> rejected = new ArrayDeque<>();
+
+    /**
+     * A change the wrapped repository rejected with a permanent error, which was dropped.
+     *
+     * @param id    The id of the entity.
+     * @param value The new value of the entity, null for a delete.
+     * @param error The error of the wrapped repository.
+     */
+    public record RejectedChange<T>(Integer id, T value, RuntimeException error) {
+    }
+
+    /**
+     * Wraps a repository, flushing every {@value #DEFAULT_MAX_PENDING} changes or
+     * {@value #DEFAULT_FLUSH_INTERVAL_MILLIS} ms.
+     *
+     * @param backend The repository the changes are written to.
+     */
+    public WriteBehindRepository(IRepository<T> backend) {
+        this(backend, DEFAULT_MAX_PENDING, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Wraps a repository.
+     *
+     * @param backend             The repository the changes are written to.
+     * @param maxPending          The number of pending changes that triggers a flush.
+     * @param flushIntervalMillis The time between two periodic flushes.
+     */
+    public WriteBehindRepository(IRepository<T> backend, int maxPending, long flushIntervalMillis) {
+        if (maxPending < 1 || flushIntervalMillis < 1)
+            throw new IllegalArgumentException("maxPending and flushIntervalMillis must be positive");
+        this.backend = backend;
+        this.maxPending = maxPending;
+        this.periodicFlush = FLUSHER.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        OPEN_REPOSITORIES.add(this);
+    }
+
+    @Override
+    public void create(T obj) {
+        createAll(List.of(obj));
+    }
+
+    @Override
+    public void createAll(Collection<? extends T> objs) {
+        if (objs.isEmpty())
+            return;
+        flushLock.lock();
+        lock.lock();
+        try {
+            for (T obj : objs) {
+                if (pending.containsKey(obj.getId()) || flushing.containsKey(obj.getId())) {
+                    flush();
+                    break;
+                }
+            }
+            backend.createAll(objs);
+        } finally {
+            lock.unlock();
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public T get(Integer id) {
+        lock.lock();
+        try {
+            if (pending.containsKey(id))
+                return pending.get(id);
+            if (flushing.containsKey(id))
+                return flushing.get(id);
+        } finally {
+            lock.unlock();
+        }
+        return backend.get(id);
+    }
+
+    @Override
+    public List<T> findByIds(Collection<Integer> ids) {
+        Map<Integer, T> changed = new HashMap<>();
+        List<Integer> unchanged = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Integer id : ids) {
+                if (pending.containsKey(id))
+                    changed.put(id, pending.get(id));
+                else if (flushing.containsKey(id))
+                    changed.put(id, flushing.get(id));
+                else
+                    unchanged.add(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (changed.isEmpty())
+            return backend.findByIds(ids);
+
+        Map<Integer, T> found = new HashMap<>(changed);
+        for (T entity : backend.findByIds(unchanged))
+            found.put(entity.getId(), entity);
+        List<T> results = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            T entity = found.get(id);
+            if (entity != null)
+                results.add(entity);
+        }
+        return results;
+    }
+
+    @Override
+    public void update(T obj) {
+        updateAll(List.of(obj));
+    }
+
+    @Override
+    public void updateAll(Collection<? extends T> objs) {
+        record(objs, null);
+    }
+
+    @Override
+    public void delete(Integer id) {
+        deleteAll(List.of(id));
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        record(null, ids);
+    }
+
+    @Override
+    public int deleteWhere(Criteria criteria) {
+        flushLock.lock();
+        try {
+            flush();
+            return backend.deleteWhere(criteria);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> getAll() {
+        flush();
+        return backend.getAll();
+    }
+
+    @Override
+    public Stream<T> stream() {
+        flush();
+        return backend.stream();
+    }
+
+    @Override
+    public List<T> getPage(Integer afterId, int limit) {
+        flush();
+        return backend.getPage(afterId, limit);
+    }
+
+    @Override
+    public List<T> find(Criteria criteria) {
+        flush();
+        return backend.find(criteria);
+    }
+
+    @Override
+    public boolean exists(Criteria criteria) {
+        flush();
+        return backend.exists(criteria);
+    }
+
+    @Override
+    public IRepository<T> unwrap() {
+        return backend.unwrap();
+    }
+
+    @Override
+    public int count(Criteria criteria) {
+        flush();
+        return backend.count(criteria);
+    }
+
+    @Override
+    public T compute(Integer id, UnaryOperator<T> function) {
+        flushLock.lock();
+        lock.lock();
+        try {
+            return IRepository.super.compute(id, function);
+        } finally {
+            lock.unlock();
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public T putIfAbsent(T obj) {
+        flushLock.lock();
+        lock.lock();
+        try {
+            return IRepository.super.putIfAbsent(obj);
+        } finally {
+            lock.unlock();
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending changes to the wrapped repository and waits for them to be written.
+     * <p>
+     * If the wrapped repository rejects the batch, its changes are written one at a time, so that a change that can
+     * never be written, such as one breaking a unique constraint, does not hold back the others: it is dropped,
+     * reported and kept in {@link #getRejectedChanges()}. A transient failure, such as a lost connection, leaves the
+     * changes pending for the next flush.
+     *
+     * @throws RuntimeException The transient error of the wrapped repository; the changes stay pending.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Integer, T> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty())
+                    return;
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushing = batch;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                List<Integer> deletes = new ArrayList<>();
+                List<T> updates = new ArrayList<>();
+                for (Map.Entry<Integer, T> change : batch.entrySet()) {
+                    if (change.getValue() == null)
+                        deletes.add(change.getKey());
+                    else
+                        updates.add(change.getValue());
+                }
+                boolean deleted = false;
+                try {
+                    if (!deletes.isEmpty())
+                        backend.deleteAll(deletes);
+                    deleted = true;
+                    if (!updates.isEmpty())
+                        backend.updateAll(updates);
+                    flushedWrites.add(batch.size());
+                } catch (RuntimeException e) {
+                    List<Map.Entry<Integer, T>> unwritten = new ArrayList<>();
+                    for (Map.Entry<Integer, T> change : batch.entrySet())
+                        if (change.getValue() != null || !deleted)
+                            unwritten.add(change);
+                    if (deleted)
+                        flushedWrites.add(deletes.size());
+                    if (isTransient(e)) {
+                        requeue(unwritten);
+                        throw e;
+                    }
+                    writeOneByOne(unwritten);
+                }
+            } finally {
+                lock.lock();
+                try {
+                    flushing = Collections.emptyMap();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            flushes.increment();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the changes of a rejected batch one at a time, rejecting the ones that fail.
+     *
+     * @throws RuntimeException A transient error; the changes not written yet are pending again.
+     */
+    private void writeOneByOne(List<Map.Entry<Integer, T>> changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            Map.Entry<Integer, T> change = changes.get(i);
+            try {
+                if (change.getValue() == null)
+                    backend.deleteAll(List.of(change.getKey()));
+                else
+                    backend.updateAll(List.of(change.getValue()));
+                flushedWrites.increment();
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    requeue(changes.subList(i, changes.size()));
+                    throw e;
+                }
+                reject(change.getKey(), change.getValue(), e);
+            }
+        }
+    }
+
+    /**
+     * Makes changes that could not be written pending again, unless the same entity was changed since.
+     */
+    private void requeue(Collection<Map.Entry<Integer, T>> changes) {
+        lock.lock();
+        try {
+            for (Map.Entry<Integer, T> change : changes)
+                pending.putIfAbsent(change.getKey(), change.getValue());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reject(Integer id, T value, RuntimeException error) {
+        System.err.println("Write-behind dropped the " + (value == null ? "delete" : "update") + " of id " + id
+                + ", rejected by the wrapped repository: " + error.getMessage());
+        rejectedWrites.increment();
+        lock.lock();
+        try {
+            if (rejected.size() == MAX_REJECTED_CHANGES)
+                rejected.removeFirst();
+            rejected.addLast(new RejectedChange<>(id, value, error));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells whether an error may go away by itself: a lost connection, a pool timeout, a deadlock or a serialization
+     * failure. Other errors, such as constraint violations, fail again on every retry.
+     */
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException || cause instanceof SQLRecoverableException)
+                return true;
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                String sqlClass = sqlException.getSQLState().substring(0, Math.min(2, sqlException.getSQLState().length()));
+                if (TRANSIENT_SQL_STATE_CLASSES.contains(sqlClass))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops the periodic flush and flushes the pending changes. Later writes are written through.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        periodicFlush.cancel(false);
+        OPEN_REPOSITORIES.remove(this);
+        flush();
+    }
+
+    /**
+     * @return The number of changes not written to the wrapped repository yet.
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The latest changes the wrapped repository rejected and that were dropped, at most
+     * {@value #MAX_REJECTED_CHANGES}, oldest first.
+     */
+    public List<RejectedChange<T>> getRejectedChanges() {
+        lock.lock();
+        try {
+            return new ArrayList<>(rejected);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of changes the wrapped repository rejected and that were dropped.
+     */
+    public long getRejectedCount() {
+        return rejectedWrites.sum();
+    }
+
+    /**
+     * @return The number of changes replaced by a later change of the same entity before being flushed.
+     */
+    public long getCoalescedCount() {
+        return coalescedWrites.sum();
+    }
+
+    /**
+     * @return The number of flushes that wrote changes.
+     */
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    /**
+     * @return The number of changes written to the wrapped repository.
+     */
+    public long getFlushedCount() {
+        return flushedWrites.sum();
+    }
+
+    private void record(Collection<? extends T> updates, Collection<Integer> deletes) {
+        int size;
+        lock.lock();
+        try {
+            if (updates != null) {
+                for (T obj : updates) {
+                    Integer id = obj.getId();
+                    // An update of a deleted entity does nothing, as on the repositories.
+                    if (pending.containsKey(id) && pending.get(id) == null)
+                        continue;
+                    if (pending.put(id, obj) != null)
+                        coalescedWrites.increment();
+                }
+            } else {
+                for (Integer id : deletes) {
+                    if (pending.put(id, null) != null)
+                        coalescedWrites.increment();
+                }
+            }
+            size = pending.size();
+        } finally {
+            lock.unlock();
+        }
+
+        if (closed || size >= 4 * maxPending)
+            flush();
+        else if (size >= maxPending && flushRequested.compareAndSet(false, true))
+            FLUSHER.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Write-behind flush failed, retrying later: " + e.getMessage());
+        }
+    }
+}
@@ -4,10 +4,18 @@ import Exceptions.EntityNotFoundException;
 import Exceptions.ValidationException;
 import Models.*;
 import Models.Module;
+import Repository.Criteria;
 import Repository.DataBaseRepository;
 import Repository.FileRepository;
 import Repository.IRepository;
 import Repository.InMemoryRepo;
+import Repository.CachePolicy;
+import Repository.CachingRepository;
+import Repository.DataBaseCourseOutlineRepository;
+import Repository.ICourseOutlineRepository;
+import Repository.InMemoryCourseOutlineRepository;
+import Repository.MappedFileRepository;
+import Repository.WriteBehindRepository;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -26,6 +34,9 @@ public class AssignmentService {
     private final IRepository<AssignmentModule> assignmentModuleRepo;
     private final IRepository<QuizAssignment> assignmentQuizRepo;
     private final IRepository<Message> messageRepo;
+    private final ICourseOutlineRepository courseOutlineRepo;
+    /** Write-behind repositories whose queued writes must reach the database before a join query reads it. */
+    private final List<WriteBehindRepository<?>> writeBehindRepos = new ArrayList<>();
 
     public AssignmentService(IRepository<Quiz> quizRepo, IRepository<Assignment> assignmentRepo, IRepository<Module> moduleRepo, IRepository<Course> courseRepo, IRepository<ModuleCourse> moduleCourseRepo, IRepository<AssignmentModule> assignmentModuleRepo, IRepository<QuizAssignment> assignmentQuizRepo, IRepository<Message> messageRepo) {
         this.quizRepo = quizRepo;
@@ -36,6 +47,11 @@ public class AssignmentService {
         this.assignmentModuleRepo = assignmentModuleRepo;
         this.assignmentQuizRepo = assignmentQuizRepo;
         this.messageRepo = messageRepo;
+        if (courseRepo.unwrap() instanceof DataBaseRepository<Course> db)
+            this.courseOutlineRepo = new DataBaseCourseOutlineRepository(db.getConnectionPool());
+        else
+            this.courseOutlineRepo = new InMemoryCourseOutlineRepository(courseRepo, moduleRepo, assignmentRepo, quizRepo,
+                    moduleCourseRepo, assignmentModuleRepo, assignmentQuizRepo);
     }
 
     public AssignmentService(String storageMethod) {
@@ -45,10 +61,10 @@ public class AssignmentService {
                 this.assignmentRepo = new InMemoryRepo<>();
                 this.moduleRepo = new InMemoryRepo<>();
                 this.courseRepo = new InMemoryRepo<>();
-                this.moduleCourseRepo = new InMemoryRepo<>();
-                this.assignmentQuizRepo = new InMemoryRepo<>();
-                this.assignmentModuleRepo = new InMemoryRepo<>();
-                this.messageRepo = new InMemoryRepo<>();
+                this.moduleCourseRepo = new InMemoryRepo<ModuleCourse>().withIndex("courseId", ModuleCourse::getCourseId);
+                this.assignmentQuizRepo = new InMemoryRepo<QuizAssignment>().withIndex("quizId", QuizAssignment::getQuizId);
+                this.assignmentModuleRepo = new InMemoryRepo<AssignmentModule>().withIndex("assignmentId", AssignmentModule::getAssignmentId);
+                this.messageRepo = new InMemoryRepo<Message>().withIndex("receiverid", Message::getReceiver);
                 break;
             case "file":
                 this.quizRepo = new FileRepository<>("quiz.csv");
@@ -60,19 +76,36 @@ public class AssignmentService {
                 this.assignmentModuleRepo = new FileRepository<>("assignmentModule.csv");
                 this.messageRepo = new FileRepository<>("message.csv");
                 break;
+            case "mmap":
+                this.quizRepo = MappedFileRepository.seededFrom("quiz.mmap", "quiz.csv");
+                this.assignmentRepo = MappedFileRepository.seededFrom("assignment.mmap", "assignment.csv");
+                this.moduleRepo = MappedFileRepository.seededFrom("module.mmap", "module.csv");
+                this.courseRepo = MappedFileRepository.seededFrom("course.mmap", "course.csv");
+                this.moduleCourseRepo = MappedFileRepository.seededFrom("moduleCourse.mmap", "moduleCourse.csv");
+                this.assignmentQuizRepo = MappedFileRepository.seededFrom("assignmentQuiz.mmap", "assignmentQuiz.csv");
+                this.assignmentModuleRepo = MappedFileRepository.seededFrom("assignmentModule.mmap", "assignmentModule.csv");
+                this.messageRepo = MappedFileRepository.seededFrom("message.mmap", "message.csv");
+                break;
             case "db":
-                this.quizRepo = new DataBaseRepository<>("quiz", Quiz.class, utils.getQuizParameters());
-                this.assignmentRepo = new DataBaseRepository<>("assignment", Assignment.class, utils.getAssignmentParameteres());
-                this.moduleRepo = new DataBaseRepository<>("module", Module.class, utils.getModuleParameters());
+                WriteBehindRepository<Quiz> quizWriteBehind = new WriteBehindRepository<>(new DataBaseRepository<>("quiz", Quiz.class, utils.getQuizParameters()));
+                WriteBehindRepository<Assignment> assignmentWriteBehind = new WriteBehindRepository<>(new DataBaseRepository<>("assignment", Assignment.class, utils.getAssignmentParameteres()));
+                WriteBehindRepository<Module> moduleWriteBehind = new WriteBehindRepository<>(new DataBaseRepository<>("module", Module.class, utils.getModuleParameters()));
+                this.writeBehindRepos.addAll(List.of(quizWriteBehind, assignmentWriteBehind, moduleWriteBehind));
+                this.quizRepo = new CachingRepository<>(quizWriteBehind, CachePolicy.LRU, 5_000);
+                this.assignmentRepo = assignmentWriteBehind;
+                this.moduleRepo = moduleWriteBehind;
                 this.courseRepo = new DataBaseRepository<>("course", Course.class, utils.getCourseParameters());
                 this.moduleCourseRepo = new DataBaseRepository<>("coursemodule", ModuleCourse.class, utils.getCourseModuleParameters());
                 this.assignmentQuizRepo = new DataBaseRepository<>("assignmentquiz", QuizAssignment.class, utils.getQuizAssignmentParameteres());
                 this.assignmentModuleRepo = new DataBaseRepository<>("moduleassignment", AssignmentModule.class, utils.getModuleAssignmentParameteres());
                 this.messageRepo = new DataBaseRepository<>("message", Message.class, utils.getMessageParamteres());
-                break;
+                this.courseOutlineRepo = new DataBaseCourseOutlineRepository();
+                return;
             default:
                 throw new IllegalArgumentException("Unknown storage method: " + storageMethod);
         }
+        this.courseOutlineRepo = new InMemoryCourseOutlineRepository(courseRepo, moduleRepo, assignmentRepo, quizRepo,
+                moduleCourseRepo, assignmentModuleRepo, assignmentQuizRepo);
     }
 
 
@@ -110,8 +143,7 @@ public class AssignmentService {
             throw new IllegalArgumentException("Module with id " + moduleId + " not found");
 
         //check if the module is already in the course
-        List<ModuleCourse> moduleCourses = moduleCourseRepo.getAll();
-        boolean alreadyExist = moduleCourses.stream().anyMatch(e -> e.getId().equals(moduleId) && e.getCourseId().equals(courseId));
+        boolean alreadyExist = moduleCourseRepo.exists(Criteria.where("moduleId", moduleId).and("courseId", courseId));
 
         if (alreadyExist)
             throw new IllegalArgumentException("Module with id " + moduleId + " already exists");
@@ -165,8 +197,7 @@ public class AssignmentService {
             throw new IllegalArgumentException("Assignment with id " + assignmentId + " not found");
 
         //check if the assignment is already in the module
-        List<AssignmentModule> assignmentModules = assignmentModuleRepo.getAll();
-        boolean alreadyExist = assignmentModules.stream().anyMatch(e -> e.getId().equals(moduleId) && e.getAssignmentId().equals(assignmentId));
+        boolean alreadyExist = assignmentModuleRepo.exists(Criteria.where("moduleId", moduleId).and("assignmentId", assignmentId));
 
         if (alreadyExist)
             throw new IllegalArgumentException("Assignment with id " + assignmentId + " already exists");
@@ -217,8 +248,7 @@ public class AssignmentService {
             throw new IllegalArgumentException("Quiz with id " + quizId + " not found");
 
         //check if the quiz is already in the assignment
-        List<QuizAssignment> quizAssignments = assignmentQuizRepo.getAll();
-        boolean alreadyExist = quizAssignments.stream().anyMatch(e -> e.getId().equals(assignmentId) && e.getQuizId().equals(quizId));
+        boolean alreadyExist = assignmentQuizRepo.exists(Criteria.where("assignmentId", assignmentId).and("quizId", quizId));
 
         if (alreadyExist)
             throw new IllegalArgumentException("Quiz with id " + quizId + " already exists");
@@ -248,19 +278,13 @@ public class AssignmentService {
         }
 
         // Remove related entries from the module-course table
-        List<ModuleCourse> moduleCourses = moduleCourseRepo.getAll();
-        for (ModuleCourse moduleCourse : moduleCourses) {
-            if (moduleCourse.getId().equals(moduleId)) {
-                moduleCourseRepo.delete(moduleCourse.getId());
-            }
+        if (moduleCourseRepo.exists(Criteria.where("moduleId", moduleId))) {
+            moduleCourseRepo.delete(moduleId);
         }
 
         // Remove related entries from the module-assignment table
-        List<AssignmentModule> moduleAssignments = assignmentModuleRepo.getAll();
-        for (AssignmentModule moduleAssignment : moduleAssignments) {
-            if (moduleAssignment.getId().equals(moduleId)) {
-                assignmentModuleRepo.delete(moduleAssignment.getId());
-            }
+        if (assignmentModuleRepo.exists(Criteria.where("moduleId", moduleId))) {
+            assignmentModuleRepo.delete(moduleId);
         }
 
         // Remove the module itself
@@ -283,20 +307,17 @@ public class AssignmentService {
         if (module == null)
             throw new EntityNotFoundException(moduleId);
 
-        List<ModuleCourse> moduleCourses = moduleCourseRepo.getAll();
+        List<ModuleCourse> moduleCourses = moduleCourseRepo.findBy("moduleId", moduleId);
 
         List<ModuleCourse> moduleCoursesThatDOntMatch = new ArrayList<>();
         for (ModuleCourse moduleCourse : moduleCourses) {
-            if (moduleCourse.getId().equals(moduleId) && moduleCourse.getCourseId() != courseId)
+            if (!moduleCourse.getCourseId().equals(courseId))
                 moduleCoursesThatDOntMatch.add(moduleCourse);
         }
 
         //find and remove searched entry
-        for (ModuleCourse moduleCourse : moduleCourses) {
-            if (moduleCourse.getId().equals(moduleId) && moduleCourse.getCourseId().equals(courseId)) {
-                moduleCourseRepo.delete(moduleCourse.getId());
-                break;
-            }
+        if (moduleCourses.size() > moduleCoursesThatDOntMatch.size()) {
+            moduleCourseRepo.delete(moduleId);
         }
 
 
@@ -326,19 +347,14 @@ public class AssignmentService {
         }
 
         // Remove related entries from the assignment-module table
-        List<AssignmentModule> assignmentModules = assignmentModuleRepo.getAll();
+        List<AssignmentModule> assignmentModules = assignmentModuleRepo.findBy("assignmentId", assignmentId);
         for (AssignmentModule assignmentModule : assignmentModules) {
-            if (assignmentModule.getAssignmentId().equals(assignmentId)) {
-                assignmentModuleRepo.delete(assignmentModule.getId());
-            }
+            assignmentModuleRepo.delete(assignmentModule.getId());
         }
 
         // Remove related entries from the assignment-quiz table
-        List<QuizAssignment> quizAssignments = assignmentQuizRepo.getAll();
-        for (QuizAssignment quizAssignment : quizAssignments) {
-            if (quizAssignment.getId().equals(assignmentId)) {
-                assignmentQuizRepo.delete(quizAssignment.getId());
-            }
+        if (assignmentQuizRepo.exists(Criteria.where("assignmentId", assignmentId))) {
+            assignmentQuizRepo.delete(assignmentId);
         }
 
         // Remove the assignment itself
@@ -361,20 +377,17 @@ public class AssignmentService {
         if (assignment == null)
             throw new EntityNotFoundException(assignmentId);
 
-        List<AssignmentModule> moduleAssignments = assignmentModuleRepo.getAll();
+        List<AssignmentModule> moduleAssignments = assignmentModuleRepo.findBy("moduleId", moduleId);
 
         List<AssignmentModule> assignmentModulesThatDontMatch = new ArrayList<>();
         for (AssignmentModule assignmentModule : moduleAssignments) {
-            if (assignmentModule.getId().equals(moduleId) && assignmentModule.getAssignmentId() != assignmentId)
+            if (!assignmentModule.getAssignmentId().equals(assignmentId))
                 assignmentModulesThatDontMatch.add(assignmentModule);
         }
 
         //find and remove specific entry
-        for (AssignmentModule assignmentModule : moduleAssignments) {
-            if (assignmentModule.getId().equals(moduleId) && assignmentModule.getAssignmentId().equals(assignmentId)) {
-                assignmentModuleRepo.delete(assignmentModule.getId());
-                break;
-            }
+        if (moduleAssignments.size() > assignmentModulesThatDontMatch.size()) {
+            assignmentModuleRepo.delete(moduleId);
         }
 
         for (AssignmentModule assignmentModule : assignmentModulesThatDontMatch)
@@ -401,11 +414,9 @@ public class AssignmentService {
         }
 
         // Remove related entries from the quiz-assignment table
-        List<QuizAssignment> quizAssignments = assignmentQuizRepo.getAll();
+        List<QuizAssignment> quizAssignments = assignmentQuizRepo.findBy("quizId", quizId);
         for (QuizAssignment quizAssignment : quizAssignments) {
-            if (quizAssignment.getQuizId().equals(quizId)) {
-                assignmentQuizRepo.delete(quizAssignment.getId());
-            }
+            assignmentQuizRepo.delete(quizAssignment.getId());
         }
 
         // Remove the quiz itself
@@ -429,20 +440,17 @@ public class AssignmentService {
             throw new EntityNotFoundException(quizId);
 
 
-        List<QuizAssignment> quizAssignments = assignmentQuizRepo.getAll();
+        List<QuizAssignment> quizAssignments = assignmentQuizRepo.findBy("assignmentId", assignmentId);
 
         List<QuizAssignment> quizAssignmentsThatDontMatch = new ArrayList<>();
         for (QuizAssignment quizAssignment : quizAssignments)
-            if (quizAssignment.getId().equals(assignmentId) && !quizAssignment.getQuizId().equals(quizId))
+            if (!quizAssignment.getQuizId().equals(quizId))
                 quizAssignmentsThatDontMatch.add(quizAssignment);
 
 
         //find and remove the specific entry
-        for (QuizAssignment quizAssignment : quizAssignments)
-            if (quizAssignment.getId().equals(assignmentId) && quizAssignment.getQuizId().equals(quizId)) {
-                assignmentQuizRepo.delete(quizAssignment.getId());
-                break;
-            }
+        if (quizAssignments.size() > quizAssignmentsThatDontMatch.size())
+            assignmentQuizRepo.delete(assignmentId);
 
         System.out.println(quizAssignmentsThatDontMatch);
         for (QuizAssignment quizAssignment : quizAssignmentsThatDontMatch)
@@ -473,32 +481,31 @@ public class AssignmentService {
         Scanner scanner = new Scanner(System.in);
         List<Integer> answers = new ArrayList<>();
 
-        List<QuizAssignment> quizAssignments = assignmentQuizRepo.getAll();
+        List<QuizAssignment> quizAssignments = assignmentQuizRepo.findBy("assignmentId", assignmentId);
         System.out.println(quizAssignments);
 
-        // Iterate over each QuizAssignment linking the assignment and quizzes
-        for (QuizAssignment quizAssignment : quizAssignments) {
-            // Only process the quizzes that are associated with the current assignment
-            if (quizAssignment.getId().equals(assignmentId)) {
-                // Fetch the corresponding quiz by its ID
-                Quiz quiz = quizRepo.get(quizAssignment.getQuizId());
-                System.out.println(quiz.getContents());
-
-                // Prompt the user for their answer to the quiz
-                System.out.println("Your answer:");
-                int answer = scanner.nextInt();  // Capture the user's answer
-
-                // Check if the user's answer is correct
-                if (answer == quiz.getCorrectAnswer()) {
-                    // If correct, inform the user and increment the score
-                    System.out.println("Correct!\n");
-                    assignment.setScore(assignment.getScore() + 1);  // Update score
-                } else {
-                    // If wrong, inform the user and reveal the correct answer
-                    System.out.println("Wrong answer! The answer was " + quiz.getCorrectAnswer() + "\n");
-                }
-                answers.add(answer);
+        // Fetch the quizzes linked to the assignment in one lookup
+        List<Quiz> quizzes = quizRepo.findByIds(quizAssignments.stream()
+                .map(QuizAssignment::getQuizId)
+                .collect(Collectors.toList()));
+
+        for (Quiz quiz : quizzes) {
+            System.out.println(quiz.getContents());
+
+            // Prompt the user for their answer to the quiz
+            System.out.println("Your answer:");
+            int answer = scanner.nextInt();  // Capture the user's answer
+
+            // Check if the user's answer is correct
+            if (answer == quiz.getCorrectAnswer()) {
+                // If correct, inform the user and increment the score
+                System.out.println("Correct!\n");
+                assignment.setScore(assignment.getScore() + 1);  // Update score
+            } else {
+                // If wrong, inform the user and reveal the correct answer
+                System.out.println("Wrong answer! The answer was " + quiz.getCorrectAnswer() + "\n");
             }
+            answers.add(answer);
         }
 
         // Print the user's total score at the end of the quiz
@@ -515,6 +522,22 @@ public class AssignmentService {
         messageRepo.create(message);
     }
 
+    /**
+     * Retrieves a course together with its modules, their assignments and the quizzes of these.
+     * On the database backend the whole outline is read with one join query.
+     *
+     * @param courseId The ID of the course.
+     * @return The outline of the course.
+     * @throws EntityNotFoundException If the course does not exist.
+     */
+    public CourseOutline getCourseOutline(Integer courseId) throws EntityNotFoundException {
+        flushPendingWrites();
+        CourseOutline outline = courseOutlineRepo.getCourseOutline(courseId);
+        if (outline == null)
+            throw new EntityNotFoundException(courseId);
+        return outline;
+    }
+
     /**
      * Retrieves all modules associated with a specific course.
      * This is useful for accessing and displaying the list of modules for a given course.
@@ -528,22 +551,8 @@ public class AssignmentService {
         if (course == null)
             throw new EntityNotFoundException(courseId);
 
-        List<ModuleCourse> moduleCourses = moduleCourseRepo.getAll();
-        List<Integer> moduleCourssesIds = moduleCourses.stream()
-                .filter(e -> e.getCourseId().equals(courseId))
-                .map(ModuleCourse::getId)
-                .collect(Collectors.toList());
-
-        //fetch Modules
-        List<Module> modules = new ArrayList<>();
-        for (Integer moduleId : moduleCourssesIds) {
-            Module module = moduleRepo.get(moduleId);
-            if (module != null)
-                modules.add(module);
-        }
-
-        return modules;
-
+        flushPendingWrites();
+        return courseOutlineRepo.getModulesOfCourse(courseId);
     }
 
     /**
@@ -559,22 +568,8 @@ public class AssignmentService {
         if (module == null)
             throw new EntityNotFoundException(moduleId);
 
-        List<AssignmentModule> assignmentModules = assignmentModuleRepo.getAll();
-        List<Integer> moduleAssignmentsIds = assignmentModules.stream()
-                .filter(e -> e.getId().equals(moduleId))
-                .map(AssignmentModule::getAssignmentId)
-                .collect(Collectors.toList());
-
-        //fetch the assignments
-        List<Assignment> assignments = new ArrayList<>();
-        for (Integer assignmentId : moduleAssignmentsIds) {
-            Assignment assignment = assignmentRepo.get(assignmentId);
-            if (assignment != null)
-                assignments.add(assignment);
-        }
-
-        return assignments;
-
+        flushPendingWrites();
+        return courseOutlineRepo.getAssignmentsOfModule(moduleId);
     }
 
     /**
@@ -588,23 +583,16 @@ public class AssignmentService {
         Assignment assignment = assignmentRepo.get(assignmentId);
         if (assignment == null)
             throw new EntityNotFoundException(assignmentId);
-        List<QuizAssignment> quizAssignments = assignmentQuizRepo.getAll();
-        List<Integer> quizAssignmentsIds = quizAssignments.stream()
-                .filter(e -> e.getId().equals(assignmentId))
-                .map(QuizAssignment::getQuizId)
-                .collect(Collectors.toList());
-
-        //fetch all quizes
-        List<Quiz> quizzes = new ArrayList<>();
-        for (Integer quizId : quizAssignmentsIds) {
-            Quiz quiz = quizRepo.get(quizId);
-            if (quiz != null)
-                quizzes.add(quiz);
-        }
-        return quizzes;
-    }
-
-
 
+        flushPendingWrites();
+        return courseOutlineRepo.getQuizzesOfAssignment(assignmentId);
+    }
 
+    /**
+     * Writes the queued module, assignment and quiz changes, which the join queries read from the tables directly.
+     */
+    private void flushPendingWrites() {
+        for (WriteBehindRepository<?> repo : writeBehindRepos)
+            repo.flush();
+    }
 }
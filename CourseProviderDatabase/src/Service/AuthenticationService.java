@@ -3,25 +3,55 @@ package Service;
 import Exceptions.ValidationException;
 import Models.*;
 import Repository.DataBaseRepository;
+import Repository.DataBaseUserRepository;
 import Repository.FileRepository;
 import Repository.IRepository;
+import Repository.IUserRepository;
 import Repository.InMemoryRepo;
+import Repository.InMemoryUserRepository;
+import Repository.MappedFileRepository;
+import Utils.PasswordHasher;
 import Utils.Utils;
 import jdk.jshell.execution.Util;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class AuthenticationService {
     Utils utils = new Utils();
     private IRepository<Student> studentIRepository;
     private IRepository<Admin> adminIRepository;
     private IRepository<Instructor> instructorIRepository;
+    private IUserRepository userRepository;
+    private final PasswordHasher passwordHasher;
+    /** Verified when the username is unknown, so that the response time does not tell which usernames exist. */
+    private volatile String unknownUserHash;
 
+    /**
+     * Bounds the number of password verifications running at once, so a burst of logins cannot occupy every core.
+     * Logins beyond the queue are refused instead of waiting.
+     */
+    private static final ThreadPoolExecutor VERIFIER = createVerifier();
+    private static final long VERIFY_TIMEOUT_SECONDS = 10;
 
-
-
+    private record Verification(boolean matches, String rehashed) {
+    }
 
     public AuthenticationService(String storageMethode) {
+        this(storageMethode, PasswordHasher.fromEnvironment());
+    }
+
+    /**
+     * @param storageMethode The storage backend.
+     * @param passwordHasher Hashes the passwords; its iterations set the cost of a login.
+     */
+    public AuthenticationService(String storageMethode, PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
         switch (storageMethode) {
             case "inmemory":
                 studentIRepository = new InMemoryRepo<>();
@@ -29,87 +59,204 @@ public class AuthenticationService {
                 instructorIRepository = new InMemoryRepo<>();
                 populate();
 
+                userRepository = new InMemoryUserRepository(studentIRepository, adminIRepository, instructorIRepository);
                 break;
             case "file":
                 studentIRepository = new FileRepository<>("student.csv");
                 adminIRepository = new FileRepository<>("admin.csv");
                 instructorIRepository = new FileRepository<>("instructor.csv");
+                userRepository = new InMemoryUserRepository(studentIRepository, adminIRepository, instructorIRepository);
+                break;
+            case "mmap":
+                studentIRepository = MappedFileRepository.seededFrom("student.mmap", "student.csv");
+                adminIRepository = MappedFileRepository.seededFrom("admin.mmap", "admin.csv");
+                instructorIRepository = MappedFileRepository.seededFrom("instructor.mmap", "instructor.csv");
+                userRepository = new InMemoryUserRepository(studentIRepository, adminIRepository, instructorIRepository);
                 break;
             case "database":
                 studentIRepository = new DataBaseRepository<>("student",Student.class,utils.getUsersParameters());
                 adminIRepository = new DataBaseRepository<>("admin",Admin.class,utils.getUsersParameters());
                 instructorIRepository = new DataBaseRepository<>("instructor",Instructor.class,utils.getUsersParameters());
+                userRepository = new DataBaseUserRepository();
                 break;
             default:
                 studentIRepository = new DataBaseRepository<>("student",Student.class,utils.getUsersParameters());
                 adminIRepository = new DataBaseRepository<>("admin",Admin.class,utils.getUsersParameters());
                 instructorIRepository = new DataBaseRepository<>("instructor",Instructor.class,utils.getUsersParameters());
+                userRepository = new DataBaseUserRepository();
                 break;
         }
     }
 
+    public AuthenticationService(CoursesUserService coursesUserService) {
+        this(coursesUserService, PasswordHasher.fromEnvironment());
+    }
+
+    /**
+     * Authenticates the users of a {@link CoursesUserService} through its own repositories, so that an upgraded
+     * password hash goes through the same cache and write buffer as every other change to the user.
+     *
+     * @param coursesUserService The service whose users log in.
+     * @param passwordHasher     Hashes the passwords; its iterations set the cost of a login.
+     */
+    public AuthenticationService(CoursesUserService coursesUserService, PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+        studentIRepository = coursesUserService.getStudentRepository();
+        adminIRepository = coursesUserService.getAdminRepository();
+        instructorIRepository = coursesUserService.getInstructorRepository();
+        if (studentIRepository.unwrap() instanceof DataBaseRepository<Student>)
+            userRepository = new DataBaseUserRepository();
+        else
+            userRepository = new InMemoryUserRepository(studentIRepository, adminIRepository, instructorIRepository);
+    }
+
+    private static ThreadPoolExecutor createVerifier() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 32), runnable -> {
+            Thread thread = new Thread(runnable, "password-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Authenticates a user with one indexed lookup of the username across the students, admins and instructors.
+     * The password is verified against its salted hash on the bounded verifier pool. A password still stored in
+     * plain text, or hashed with fewer iterations than configured, is hashed again and saved.
+     *
+     * @param username The username.
+     * @param password The password.
+     * @return The user, or null if the username is unknown, the password does not match or too many logins are
+     * in progress.
+     */
     public User authenticate(String username, String password) {
-        List<Student>students = studentIRepository.getAll();
-        for(Student student : students) {
-            if(student.getUsername().equals(username) && student.getPassword().equals(password)) {
-                return student;
-            }
-        }
+        User user = userRepository.findByUsername(username);
+        String stored = user != null ? user.getPassword() : getUnknownUserHash();
 
-        List<Admin>admins = adminIRepository.getAll();
-        for(Admin admin : admins) {
-            if(admin.getUsername().equals(username) && admin.getPassword().equals(password)) {
-                return admin;
-            }
+        Verification verification;
+        try {
+            verification = VERIFIER.submit(() -> {
+                if (!passwordHasher.verify(password, stored))
+                    return new Verification(false, null);
+                return new Verification(true, passwordHasher.needsRehash(stored) ? passwordHasher.hash(password) : null);
+            }).get(VERIFY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException | TimeoutException e) {
+            System.err.println("Too many logins in progress, please try again.");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            System.err.println("Failed to verify the password: " + e.getCause().getMessage());
+            return null;
         }
 
-        List<Instructor>instructors = instructorIRepository.getAll();
-        for(Instructor instructor : instructors) {
-            if(instructor.getUsername().equals(username) && instructor.getPassword().equals(password)) {
-                return instructor;
+        if (user == null || !verification.matches())
+            return null;
+        if (verification.rehashed() != null)
+            storePassword(user, stored, verification.rehashed());
+        return user;
+    }
+
+    /**
+     * Saves the new hash of a user's password. A failure is reported but does not fail the login, the password is
+     * hashed again on the next one.
+     *
+     * @param stored The password the login was verified against.
+     */
+    private void storePassword(User user, String stored, String hash) {
+        try {
+            switch (user) {
+                case Student student -> upgradePassword(studentIRepository, student.getId(), stored, hash);
+                case Admin admin -> upgradePassword(adminIRepository, admin.getId(), stored, hash);
+                case Instructor instructor -> upgradePassword(instructorIRepository, instructor.getId(), stored, hash);
+                default -> {
+                }
             }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to upgrade the password hash of " + user.getUsername() + ": " + e.getMessage());
         }
+        user.setPassword(hash);
+    }
+
+    /**
+     * Replaces the password of the user as the repository holds it now, so that the other changes made to the user
+     * since it was looked up are kept. A password changed in the meantime is left alone.
+     */
+    private static <U extends User> void upgradePassword(IRepository<U> repository, Integer id, String stored, String hash) {
+        repository.compute(id, current -> {
+            if (current != null && stored.equals(current.getPassword()))
+                current.setPassword(hash);
+            return current;
+        });
+    }
+
+    /**
+     * Hashes the passwords of new users, in parallel as each hash costs a few hundred milliseconds.
+     */
+    private <U extends User> List<U> withHashedPasswords(List<U> users) {
+        users.parallelStream().forEach(user -> user.setPassword(passwordHasher.forStorage(user.getPassword(), null)));
+        return users;
+    }
 
-        return null;
+    private String getUnknownUserHash() {
+        String hash = unknownUserHash;
+        if (hash == null) {
+            hash = passwordHasher.hash("");
+            unknownUserHash = hash;
+        }
+        return hash;
     }
 
+    /**
+     * Adds the demo users, with their passwords hashed.
+     */
     public void populate(){
-        studentIRepository.create(new Student(1, "maia", "maiapass", "maia@gmail.com", "student"));
-        studentIRepository.create(new Student(2, "johnDoe", "jd123pass", "john.doe@yahoo.com", "student"));
-        studentIRepository.create(new Student(3, "mikeSmith", "pass789", "mike.smith@example.com", "student"));
-        studentIRepository.create(new Student(4, "sarahJones", "sarahJ2023", "sarah.jones@outlook.com", "student"));
-        studentIRepository.create(new Student(5, "alexWong", "wongAlex22", "alex.wong@gmail.com", "student"));
-        studentIRepository.create(new Student(6, "emilyBrown", "brownEmily1", "emily.brown@hotmail.com", "student"));
-        studentIRepository.create(new Student(7, "davidLee", "lee123David", "david.lee@example.com", "student"));
-        studentIRepository.create(new Student(8, "lisaChen", "chenLisa99", "lisa.chen@yahoo.com", "student"));
-        studentIRepository.create(new Student(9, "ryanTaylor", "taylorRyan21", "ryan.taylor@outlook.com", "student"));
-        studentIRepository.create(new Student(10, "oliviaGarcia", "garcia2023", "olivia.garcia@gmail.com", "student"));
+        studentIRepository.createAll(withHashedPasswords(List.of(
+                new Student(1, "maia", "maiapass", "maia@gmail.com", "student"),
+                new Student(2, "johnDoe", "jd123pass", "john.doe@yahoo.com", "student"),
+                new Student(3, "mikeSmith", "pass789", "mike.smith@example.com", "student"),
+                new Student(4, "sarahJones", "sarahJ2023", "sarah.jones@outlook.com", "student"),
+                new Student(5, "alexWong", "wongAlex22", "alex.wong@gmail.com", "student"),
+                new Student(6, "emilyBrown", "brownEmily1", "emily.brown@hotmail.com", "student"),
+                new Student(7, "davidLee", "lee123David", "david.lee@example.com", "student"),
+                new Student(8, "lisaChen", "chenLisa99", "lisa.chen@yahoo.com", "student"),
+                new Student(9, "ryanTaylor", "taylorRyan21", "ryan.taylor@outlook.com", "student"),
+                new Student(10, "oliviaGarcia", "garcia2023", "olivia.garcia@gmail.com", "student")
+        )));
 
 
         // Adding Instructors
-        instructorIRepository.create(new Instructor(1, "profMiller", "teach123", "miller@example.com", "instructor"));
-        instructorIRepository.create(new Instructor(2, "drJohnson", "jPhD2023", "johnson@university.edu", "instructor"));
-        instructorIRepository.create(new Instructor(3, "profWilliams", "willTeach22", "williams@college.edu", "instructor"));
-        instructorIRepository.create(new Instructor(4, "drBrown", "brownLectures", "brown@institute.edu", "instructor"));
-        instructorIRepository.create(new Instructor(5, "profDavis", "davisClass101", "davis@academy.com", "instructor"));
-        instructorIRepository.create(new Instructor(6, "drWilson", "wilsonLab2023", "wilson@school.edu", "instructor"));
-        instructorIRepository.create(new Instructor(7, "profTaylor", "taylorTeach", "taylor@university.com", "instructor"));
-        instructorIRepository.create(new Instructor(8, "drAnderson", "andersonLectures", "anderson@college.edu", "instructor"));
-        instructorIRepository.create(new Instructor(9, "profMoore", "mooreMath2023", "moore@institute.com", "instructor"));
-        instructorIRepository.create(new Instructor(10, "drLee", "leeScience101", "lee@academy.edu", "instructor"));
-
-
-        adminIRepository.create(new Admin(1, "adminUser", "adminPass", "admin@example.com", "admin"));
-        adminIRepository.create(new Admin(2, "sysAdmin", "sysPass123", "sysadmin@university.edu", "admin"));
-        adminIRepository.create(new Admin(3, "techSupport", "techPass456", "techsupport@college.edu", "admin"));
-        adminIRepository.create(new Admin(4, "itManager", "itPass789", "itmanager@institute.edu", "admin"));
-        adminIRepository.create(new Admin(5, "securityAdmin", "securePass", "security@academy.com", "admin"));
-        adminIRepository.create(new Admin(6, "dataAdmin", "dataPass321", "dataadmin@school.edu", "admin"));
-        adminIRepository.create(new Admin(7, "networkAdmin", "netPass654", "network@university.com", "admin"));
-        adminIRepository.create(new Admin(8, "supportAdmin", "suppPass987", "support@college.edu", "admin"));
-        adminIRepository.create(new Admin(9, "maintenanceAdmin", "maintPass", "maintenance@institute.com", "admin"));
-        adminIRepository.create(new Admin(10, "systemManager", "sysManPass", "sysman@academy.edu", "admin"));
+        instructorIRepository.createAll(withHashedPasswords(List.of(
+                new Instructor(1, "profMiller", "teach123", "miller@example.com", "instructor"),
+                new Instructor(2, "drJohnson", "jPhD2023", "johnson@university.edu", "instructor"),
+                new Instructor(3, "profWilliams", "willTeach22", "williams@college.edu", "instructor"),
+                new Instructor(4, "drBrown", "brownLectures", "brown@institute.edu", "instructor"),
+                new Instructor(5, "profDavis", "davisClass101", "davis@academy.com", "instructor"),
+                new Instructor(6, "drWilson", "wilsonLab2023", "wilson@school.edu", "instructor"),
+                new Instructor(7, "profTaylor", "taylorTeach", "taylor@university.com", "instructor"),
+                new Instructor(8, "drAnderson", "andersonLectures", "anderson@college.edu", "instructor"),
+                new Instructor(9, "profMoore", "mooreMath2023", "moore@institute.com", "instructor"),
+                new Instructor(10, "drLee", "leeScience101", "lee@academy.edu", "instructor")
+        )));
+
+
+        adminIRepository.createAll(withHashedPasswords(List.of(
+                new Admin(1, "adminUser", "adminPass", "admin@example.com", "admin"),
+                new Admin(2, "sysAdmin", "sysPass123", "sysadmin@university.edu", "admin"),
+                new Admin(3, "techSupport", "techPass456", "techsupport@college.edu", "admin"),
+                new Admin(4, "itManager", "itPass789", "itmanager@institute.edu", "admin"),
+                new Admin(5, "securityAdmin", "securePass", "security@academy.com", "admin"),
+                new Admin(6, "dataAdmin", "dataPass321", "dataadmin@school.edu", "admin"),
+                new Admin(7, "networkAdmin", "netPass654", "network@university.com", "admin"),
+                new Admin(8, "supportAdmin", "suppPass987", "support@college.edu", "admin"),
+                new Admin(9, "maintenanceAdmin", "maintPass", "maintenance@institute.com", "admin"),
+                new Admin(10, "systemManager", "sysManPass", "sysman@academy.edu", "admin")
+        )));
 
 
     }
-}
+}
\ No newline at end of file
@@ -4,20 +4,40 @@ import Exceptions.BusinessException;
 import Exceptions.EntityNotFoundException;
 import Exceptions.ValidationException;
 import Models.*;
+import Repository.ConnectionPool;
+import Repository.CourseQuery;
+import Repository.Criteria;
+import Repository.DataBaseCourseDateRepository;
+import Repository.DataBaseCourseQueryRepository;
+import Repository.DataBaseEnrollmentRepository;
 import Repository.DataBaseRepository;
 import Repository.FileRepository;
+import Repository.ICourseDateRepository;
+import Repository.ICourseQueryRepository;
+import Repository.IEnrollmentRepository;
 import Repository.IRepository;
+import Repository.InMemoryCourseDateRepository;
+import Repository.InMemoryCourseQueryRepository;
+import Repository.InMemoryEnrollmentRepository;
 import Repository.InMemoryRepo;
+import Repository.CachePolicy;
+import Repository.CachingRepository;
+import Repository.MappedFileRepository;
+import Repository.WriteBehindRepository;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import Utils.Dates;
+import Utils.PasswordHasher;
 import Utils.Utils;
 
 
-public class CoursesUserService {
+public final class CoursesUserService {
     Utils utils = new Utils();
     private final IRepository<Course> courseIRepository;
     private final IRepository<Student> studentIRepository;
@@ -25,6 +45,13 @@ public class CoursesUserService {
     private final IRepository<Admin> adminIRepository;
     private final IRepository<Enrolled> enrolledIRepository;
     private final IRepository<Message> messageIRepository;
+    private final IEnrollmentRepository enrollmentRepository;
+    private final ICourseDateRepository courseDateRepository;
+    private final ICourseQueryRepository courseQueryRepository;
+    private final EnrollmentCounters enrollmentCounters = new EnrollmentCounters(this::streamEnrollments);
+    private final InstructorLeaderboard instructorLeaderboard = new InstructorLeaderboard(this::getAllInstructors, this::getAllCourses, this::streamEnrollments);
+    private PasswordHasher passwordHasher = PasswordHasher.fromEnvironment();
+    private final List<EnrollmentListener> enrollmentListeners = new CopyOnWriteArrayList<>(List.of(instructorLeaderboard));
 
 
     /**
@@ -44,17 +71,30 @@ public class CoursesUserService {
         this.adminIRepository = adminIRepository;
         this.enrolledIRepository = enrolledIRepository;
         this.messageIRepository = messageIRepository;
+        // The course repository may be cached or written behind; the SQL repositories need the database underneath
+        if (courseIRepository.unwrap() instanceof DataBaseRepository<Course> dataBaseRepository) {
+            this.enrollmentRepository = new DataBaseEnrollmentRepository(dataBaseRepository.getConnectionPool());
+            this.courseDateRepository = new DataBaseCourseDateRepository(courseIRepository, dataBaseRepository.getConnectionPool());
+            this.courseQueryRepository = new DataBaseCourseQueryRepository(dataBaseRepository.getConnectionPool());
+        } else {
+            this.enrollmentRepository = new InMemoryEnrollmentRepository(courseIRepository, enrolledIRepository);
+            InMemoryCourseDateRepository dateRepository = new InMemoryCourseDateRepository(courseIRepository);
+            this.courseDateRepository = dateRepository;
+            this.courseQueryRepository = new InMemoryCourseQueryRepository(courseIRepository, dateRepository, enrollmentCounters::getCourseCount);
+        }
     }
 
     public CoursesUserService(String storageMethod) {
         switch (storageMethod.toLowerCase()) {
             case "inmemory":
-                this.courseIRepository = new InMemoryRepo<>();
+                this.courseIRepository = new InMemoryRepo<Course>().withIndex("instructorId", Course::getInstructorId);
                 this.studentIRepository = new InMemoryRepo<>();
                 this.instructorIRepository = new InMemoryRepo<>();
                 this.adminIRepository = new InMemoryRepo<>();
-                this.enrolledIRepository = new InMemoryRepo<>();
-                this.messageIRepository = new InMemoryRepo<>();
+                this.enrolledIRepository = new InMemoryRepo<Enrolled>().withIndex("courseId", Enrolled::getCourseId);
+                this.messageIRepository = new InMemoryRepo<Message>().withIndex("receiverid", Message::getReceiver);
+                this.enrollmentRepository = new InMemoryEnrollmentRepository(courseIRepository, enrolledIRepository);
+                this.courseDateRepository = new InMemoryCourseDateRepository(courseIRepository);
                 break;
             case "file":
                 this.courseIRepository = new FileRepository<>("course.csv");
@@ -63,18 +103,127 @@ public class CoursesUserService {
                 this.adminIRepository = new FileRepository<>("admin.csv");
                 this.enrolledIRepository = new FileRepository<>("enrolled.csv");
                 this.messageIRepository = new FileRepository<>("message.csv");
+                this.enrollmentRepository = new InMemoryEnrollmentRepository(courseIRepository, enrolledIRepository);
+                this.courseDateRepository = new InMemoryCourseDateRepository(courseIRepository);
+                break;
+            case "mmap":
+                this.courseIRepository = MappedFileRepository.seededFrom("course.mmap", "course.csv");
+                this.studentIRepository = MappedFileRepository.seededFrom("student.mmap", "student.csv");
+                this.instructorIRepository = MappedFileRepository.seededFrom("instructor.mmap", "instructor.csv");
+                this.adminIRepository = MappedFileRepository.seededFrom("admin.mmap", "admin.csv");
+                this.enrolledIRepository = MappedFileRepository.seededFrom("enrolled.mmap", "enrolled.csv");
+                this.messageIRepository = MappedFileRepository.seededFrom("message.mmap", "message.csv");
+                this.enrollmentRepository = new InMemoryEnrollmentRepository(courseIRepository, enrolledIRepository);
+                this.courseDateRepository = new InMemoryCourseDateRepository(courseIRepository);
                 break;
             case "db":
-                this.courseIRepository = new DataBaseRepository<>("course", Course.class, utils.getCourseParameters());
-                this.studentIRepository = new DataBaseRepository<>("student", Student.class, utils.getUsersParameters());
-                this.instructorIRepository = new DataBaseRepository<>("instructor", Instructor.class, utils.getUsersParameters());
+                // The seat counts of the courses are updated in SQL by the enrollment repository, so only the users are written
+                // behind; the cached courses and users expire so that changes made by the other services show up, such as
+                // the password hashes the authentication service upgrades on login.
+                this.courseIRepository = new CachingRepository<>(new DataBaseRepository<>("course", Course.class, utils.getCourseParameters()), CachePolicy.TINY_LFU, 50_000)
+                        .withWeigher(course -> 1 + course.getEnrolledStudents().size() + course.getModules().size())
+                        .withTimeToLive(Duration.ofSeconds(30));
+                this.studentIRepository = new CachingRepository<>(new WriteBehindRepository<>(new DataBaseRepository<>("student", Student.class, utils.getUsersParameters())), CachePolicy.TINY_LFU, 10_000)
+                        .withTimeToLive(Duration.ofSeconds(30));
+                this.instructorIRepository = new CachingRepository<>(new WriteBehindRepository<>(new DataBaseRepository<>("instructor", Instructor.class, utils.getUsersParameters())), CachePolicy.LRU, 1_000)
+                        .withTimeToLive(Duration.ofSeconds(30));
                 this.adminIRepository = new DataBaseRepository<>("admin", Admin.class, utils.getUsersParameters());
                 this.enrolledIRepository = new DataBaseRepository<>("studentcourse", Enrolled.class, utils.getEnrolledParameters());
                 this.messageIRepository = new DataBaseRepository<>("message", Message.class, utils.getMessageParamteres());
+                this.enrollmentRepository = new DataBaseEnrollmentRepository();
+                this.courseDateRepository = new DataBaseCourseDateRepository(courseIRepository, ConnectionPool.getShared());
                 break;
             default:
                 throw new IllegalArgumentException("Unknown storage method: " + storageMethod);
         }
+        this.courseQueryRepository = courseDateRepository instanceof InMemoryCourseDateRepository dateRepository
+                ? new InMemoryCourseQueryRepository(courseIRepository, dateRepository, enrollmentCounters::getCourseCount)
+                : new DataBaseCourseQueryRepository();
+    }
+
+    /**
+     * Drops a course from the cache after the enrollment repository changed its seats behind the course repository.
+     *
+     * @param courseId The ID of the course.
+     */
+    private void seatsChanged(Integer courseId) {
+        if (courseIRepository instanceof CachingRepository<Course> cachingRepository)
+            cachingRepository.invalidate(courseId);
+    }
+
+    /**
+     * Sets the hasher of the passwords of the users added or updated through this service.
+     *
+     * @param passwordHasher The hasher; its iterations set the cost of adding or updating a user.
+     */
+    public void setPasswordHasher(PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+    }
+
+    /**
+     * @return The repository of the students, shared with the {@link AuthenticationService} of the same storage.
+     */
+    IRepository<Student> getStudentRepository() {
+        return studentIRepository;
+    }
+
+    /**
+     * @return The repository of the instructors, shared with the {@link AuthenticationService} of the same storage.
+     */
+    IRepository<Instructor> getInstructorRepository() {
+        return instructorIRepository;
+    }
+
+    /**
+     * @return The repository of the admins, shared with the {@link AuthenticationService} of the same storage.
+     */
+    IRepository<Admin> getAdminRepository() {
+        return adminIRepository;
+    }
+
+    /**
+     * Returns the enrollment counters per course and per student, kept up to date by this service.
+     *
+     * @return The counters.
+     */
+    public EnrollmentCounters getEnrollmentCounters() {
+        return enrollmentCounters;
+    }
+
+    /**
+     * Returns the instructor rankings by courses taught and by enrollment, kept up to date by this service.
+     *
+     * @return The leaderboard.
+     */
+    public InstructorLeaderboard getInstructorLeaderboard() {
+        return instructorLeaderboard;
+    }
+
+    private Stream<Enrolled> streamEnrollments() {
+        return enrolledIRepository.stream();
+    }
+
+    /**
+     * Registers a listener notified after enrollments or courses change.
+     *
+     * @param listener The listener.
+     */
+    public void addEnrollmentListener(EnrollmentListener listener) {
+        enrollmentListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener registered with {@link #addEnrollmentListener}.
+     *
+     * @param listener The listener.
+     */
+    public void removeEnrollmentListener(EnrollmentListener listener) {
+        enrollmentListeners.remove(listener);
+    }
+
+    private void notifyListeners(Consumer<EnrollmentListener> event) {
+        for (EnrollmentListener listener : enrollmentListeners)
+            event.accept(listener);
     }
 
     /**
@@ -101,22 +250,13 @@ public class CoursesUserService {
             throw new EntityNotFoundException(courseId);
 
 
-        List<Enrolled> enrollments = enrolledIRepository.getAll();
-        List<Integer> enrolledStudentIds = enrollments.stream()
-                .filter(e -> e.getCourseId().equals(courseId))
+        List<Integer> enrolledStudentIds = enrolledIRepository.findBy("courseId", courseId).stream()
                 .map(Enrolled::getId)
                 .collect(Collectors.toList());
 
 
-        //Fetch student objects for each student
-        List<Student> enrolledStudents = new ArrayList<>();
-        for (Integer studentId : enrolledStudentIds) {
-            Student student = studentIRepository.get(studentId);
-            if (student != null)
-                enrolledStudents.add(student);
-        }
-
-        return enrolledStudents;
+        //Fetch the student objects in one lookup
+        return studentIRepository.findByIds(enrolledStudentIds);
 
 
     }
@@ -138,6 +278,8 @@ public class CoursesUserService {
 
     /**
      * Enrolls a student in a course if there are available spots.
+     * Reserving the seat and recording the enrollment happen as one atomic step. The enrollment is the record of
+     * the student's courses, see {@link #getCoursesAStudentEnrolledIn}; the student itself is not changed.
      *
      * @param studId   The ID of the student to enroll.
      * @param courseId The ID of the course.
@@ -147,39 +289,17 @@ public class CoursesUserService {
         if (student == null)
             throw new EntityNotFoundException(studId);
 
-        Course course = courseIRepository.get(courseId);
-        if (course == null)
-            throw new EntityNotFoundException(courseId);
-
-        if (course.getAvailableSpots() <= getEnrolledStudents(courseId).size())
-            throw new BusinessException("Course is already at full capacity");
-
-        //check if the student is already enrolled
-        List<Enrolled> enrollments = enrolledIRepository.getAll();
-        boolean alreadyEnrolled = enrollments.stream().anyMatch(e -> e.getId().equals(studId) && e.getCourseId().equals(courseId));
-
-        if (alreadyEnrolled)
-            throw new IllegalArgumentException("Student is already enrolled");
-
-        //create new enrollment
-        Enrolled newEnrollment = new Enrolled(studId, courseId);
-        enrolledIRepository.create(newEnrollment);
-
-        //update course availability
-        course.setAvailableSpots(course.getAvailableSpots() - 1);
-        courseIRepository.update(course);
-
-        //update the Students list of courses
-        List<Integer> studentCourses = student.getCourses();
-        studentCourses.add(courseId);
-        student.setCourses(studentCourses);
-
-        //update the Courses list of students
-        List<Integer> coursesStudents = course.getEnrolledStudents();
-        coursesStudents.add(studId);
-        course.setEnrolledStudents(coursesStudents);
-
-
+        switch (enrollmentRepository.enroll(studId, courseId)) {
+            case COURSE_NOT_FOUND -> throw new EntityNotFoundException(courseId);
+            case COURSE_FULL -> throw new BusinessException("Course is already at full capacity");
+            case ALREADY_ENROLLED -> throw new IllegalArgumentException("Student is already enrolled");
+            case ENROLLED -> {
+            }
+        }
+        seatsChanged(courseId);
+        enrollmentCounters.enrolled(studId, courseId);
+        notifyListeners(listener -> listener.studentEnrolled(studId, courseId));
+        notifyListeners(listener -> listener.enrollmentsChanged(studId));
     }
 
     /**
@@ -205,16 +325,18 @@ public class CoursesUserService {
         }
 
         //Add the course to the list of courses an instructor teaches
-        List<Integer> assignedCourses = instructor.getCourses();
+        List<Integer> assignedCourses = new ArrayList<>(instructor.getCourses());
         assignedCourses.add(courseId);
         instructor.setCourses(assignedCourses);
 
         // Assign the instructor to the course (overwriting any existing assignment)
+        Integer previousInstructorId = course.getInstructorId();
         course.setInstructorId(instructorId);
 
         // Update the instructor and course in the repository
         instructorIRepository.update(instructor);
         courseIRepository.update(course);
+        notifyListeners(listener -> listener.instructorChanged(courseId, previousInstructorId, instructorId));
 
         System.out.println("Instructor with id " + instructorId + " has been assigned to course with id " + courseId);
     }
@@ -242,16 +364,18 @@ public class CoursesUserService {
         }
 
         //Remove the course from the list of courses an instructor teaches
-        List<Integer> assignedCourses = instructor.getCourses();
+        List<Integer> assignedCourses = new ArrayList<>(instructor.getCourses());
         assignedCourses.remove(courseId);
         instructor.setCourses(assignedCourses);
 
         // Unassign the instructor from the course (overwriting any existing assignment)
+        Integer previousInstructorId = course.getInstructorId();
         course.setInstructorId(null);
 
         // Update the instructor and course in the repository
         instructorIRepository.update(instructor);
         courseIRepository.update(course);
+        notifyListeners(listener -> listener.instructorChanged(courseId, previousInstructorId, null));
 
         System.out.println("Instructor with id " + instructorId + " has been unassigned from course with id " + courseId);
     }
@@ -266,6 +390,9 @@ public class CoursesUserService {
             ValidationException.validateId(course.getId());
 
             courseIRepository.create(course);
+            courseDateRepository.courseSaved(course);
+            if (course.getInstructorId() != null)
+                notifyListeners(listener -> listener.instructorChanged(course.getId(), null, course.getInstructorId()));
 
         } catch (ValidationException e) {
             System.err.println("Failed to add course: " + e.getMessage());
@@ -282,6 +409,7 @@ public class CoursesUserService {
         try {
             ValidationException.validateId(student.getId());
             ValidationException.validateEmail(student.getEmail());
+            student.setPassword(passwordHasher.forStorage(student.getPassword(), null));
             studentIRepository.create(student);
         } catch (ValidationException e) {
             System.err.println("Failed to add student: " + e.getMessage());
@@ -298,7 +426,9 @@ public class CoursesUserService {
         try {
             ValidationException.validateId(instructor.getId());
             ValidationException.validateEmail(instructor.getEmail());
+            instructor.setPassword(passwordHasher.forStorage(instructor.getPassword(), null));
             instructorIRepository.create(instructor);
+            notifyListeners(listener -> listener.instructorAdded(instructor.getId()));
         } catch (ValidationException e) {
             System.err.println("Failed to add instructor: " + e.getMessage());
         }
@@ -314,6 +444,7 @@ public class CoursesUserService {
         try {
             ValidationException.validateId(admin.getId());
             ValidationException.validateEmail(admin.getEmail());
+            admin.setPassword(passwordHasher.forStorage(admin.getPassword(), null));
             adminIRepository.create(admin);
         } catch (ValidationException e) {
             System.err.println("Failed to add admin: " + e.getMessage());
@@ -343,7 +474,7 @@ public class CoursesUserService {
             Instructor instructor = instructorIRepository.get(course.getInstructorId());
             if (instructor != null) {
                 // Unassign instructor from course
-                List<Integer> assignedCourses = instructor.getCourses();
+                List<Integer> assignedCourses = new ArrayList<>(instructor.getCourses());
                 assignedCourses.remove(courseId);
                 instructor.setCourses(assignedCourses);
                 instructorIRepository.update(instructor);
@@ -351,31 +482,34 @@ public class CoursesUserService {
         }
 
         // Unenroll students from the course
-        List<Enrolled> enrollments = enrolledIRepository.getAll();
+        List<Enrolled> enrollments = enrolledIRepository.findBy("courseId", courseId);
         for (Enrolled enrollment : enrollments) {
-            if (enrollment.getCourseId().equals(courseId)) {
-                // Unenroll the student
-                Student student = studentIRepository.get(enrollment.getId());
-                if (student != null) {
-                    // Remove the course from the student's list of enrolled courses
-                    List<Integer> studentCourses = student.getCourses();
-                    studentCourses.remove(courseId);
-                    student.setCourses(studentCourses);
-                    studentIRepository.update(student);
-
-                    // Remove the student from the course's enrolled students
-                    List<Integer> courseStudents = course.getEnrolledStudents();
-                    courseStudents.remove(enrollment.getId());
-                    course.setEnrolledStudents(courseStudents);
-                }
-
-                // Delete the enrollment record
-                enrolledIRepository.delete(enrollment.getId());
+            // Unenroll the student
+            Student student = studentIRepository.get(enrollment.getId());
+            if (student != null) {
+                // Remove the course from the student's list of enrolled courses
+                List<Integer> studentCourses = new ArrayList<>(student.getCourses());
+                studentCourses.remove(courseId);
+                student.setCourses(studentCourses);
+                studentIRepository.update(student);
             }
+
+            enrollmentCounters.unenrolled(enrollment.getId(), courseId);
+            notifyListeners(listener -> listener.studentUnenrolled(enrollment.getId(), courseId));
         }
+        // Delete the enrollment records of this course only; they are keyed by student, and a delete by id would
+        // also remove the student's enrollments in other courses
+        enrolledIRepository.deleteWhere(Criteria.where("courseId", courseId));
 
         // Now delete the course itself
         courseIRepository.delete(courseId);
+        courseDateRepository.courseRemoved(courseId);
+        enrollmentCounters.courseRemoved(courseId);
+        enrollmentRepository.courseChanged(courseId);
+        if (course.getInstructorId() != null)
+            notifyListeners(listener -> listener.instructorChanged(courseId, course.getInstructorId(), null));
+        notifyListeners(listener -> listener.courseRemoved(courseId));
+        notifyListeners(listener -> listener.courseChanged(courseId));
         System.out.println("Course with id " + courseId + " has been successfully removed");
     }
 
@@ -397,16 +531,16 @@ public class CoursesUserService {
         }
 
 
-        List<Course> courses = courseIRepository.getAll();
-        for (Course c : courses)
-            if (c.getInstructorId() == instructorId) {
-                c.setInstructorId(null);
-                courseIRepository.update(c);
-
-            }
+        List<Course> courses = courseIRepository.findBy("instructorId", instructorId);
+        for (Course c : courses) {
+            c.setInstructorId(null);
+            courseIRepository.update(c);
+            notifyListeners(listener -> listener.instructorChanged(c.getId(), instructorId, null));
+        }
 
         // Now, remove the instructor from the system
         instructorIRepository.delete(instructorId);
+        notifyListeners(listener -> listener.instructorRemoved(instructorId));
         System.out.println("Instructor with id " + instructorId + " has been successfully removed");
     }
 
@@ -428,33 +562,36 @@ public class CoursesUserService {
         }
 
         // Retrieve all enrollments for the student
-        List<Enrolled> enrollments = enrolledIRepository.getAll();
+        List<Enrolled> enrollments = enrolledIRepository.findBy("studentId", studentId);
         for (Enrolled enrollment : enrollments) {
-            if (enrollment.getId().equals(studentId)) {
-                // Retrieve the course the student is enrolled in
-                Course course = courseIRepository.get(enrollment.getCourseId());
-
-                if (course != null) {
-                    // Remove the student from the course's list of enrolled students
-                    List<Integer> courseStudents = course.getEnrolledStudents();
-                    courseStudents.remove(studentId);
-                    course.setEnrolledStudents(courseStudents);
-                    courseIRepository.update(course);
-                }
-
-                // Remove the student from the student's list of enrolled courses
-                List<Integer> studentCourses = student.getCourses();
-                studentCourses.remove(enrollment.getCourseId());
-                student.setCourses(studentCourses);
-                studentIRepository.update(student);
-
-                // Delete the enrollment record
-                enrolledIRepository.delete(enrollment.getId());
+            // Retrieve the course the student is enrolled in
+            Course course = courseIRepository.get(enrollment.getCourseId());
+
+            if (course != null) {
+                // Remove the student from the course's list of enrolled students
+                List<Integer> courseStudents = new ArrayList<>(course.getEnrolledStudents());
+                courseStudents.remove(studentId);
+                course.setEnrolledStudents(courseStudents);
+                courseIRepository.update(course);
             }
+
+            // Remove the student from the student's list of enrolled courses
+            List<Integer> studentCourses = new ArrayList<>(student.getCourses());
+            studentCourses.remove(enrollment.getCourseId());
+            student.setCourses(studentCourses);
+            studentIRepository.update(student);
+
+            // Delete the enrollment record of this course
+            enrolledIRepository.deleteWhere(Criteria.where("studentId", studentId).and("courseId", enrollment.getCourseId()));
+            enrollmentRepository.courseChanged(enrollment.getCourseId());
+            enrollmentCounters.unenrolled(studentId, enrollment.getCourseId());
+            notifyListeners(listener -> listener.studentUnenrolled(studentId, enrollment.getCourseId()));
         }
 
         // Now, delete the student
         studentIRepository.delete(studentId);
+        enrollmentCounters.studentRemoved(studentId);
+        notifyListeners(listener -> listener.enrollmentsChanged(studentId));
         System.out.println("Student with id " + studentId + " has been successfully removed");
     }
 
@@ -527,47 +664,21 @@ public class CoursesUserService {
         if (course == null)
             throw new EntityNotFoundException(courseId);
 
-        // Check if the student is enrolled in the course
-        List<Enrolled> enrollments = enrolledIRepository.getAll();
-        boolean isEnrolled = enrollments.stream()
-                .anyMatch(e -> e.getId().equals(studId) && e.getCourseId().equals(courseId));
-
-        if (!isEnrolled)
+        // Remove the enrollment and give the seat back in one atomic step
+        if (!enrollmentRepository.unenroll(studId, courseId))
             throw new BusinessException("Student is not enrolled in this course");
-
-        List<Enrolled> enrollmentsThatDonMatch = new ArrayList<>();
-        for (Enrolled enrollment : enrollments)
-            if (enrollment.getId() == studId && enrollment.getCourseId() != courseId)
-                enrollmentsThatDonMatch.add(enrollment);
-
-
-        // Find and remove the specific enrollment
-        for (Enrolled enrollment : enrollments) {
-            if (enrollment.getId().equals(studId) && enrollment.getCourseId().equals(courseId)) {
-                enrolledIRepository.delete(enrollment.getId());
-                break; // Exit the loop after removing the target enrollment
-            }
-        }
-
-        for (Enrolled enrollment : enrollmentsThatDonMatch)
-            enrolledIRepository.create(enrollment);
-
-        // Update course availability
-        course.setAvailableSpots(course.getAvailableSpots() + 1);
+        seatsChanged(courseId);
+        enrollmentCounters.unenrolled(studId, courseId);
+        notifyListeners(listener -> listener.studentUnenrolled(studId, courseId));
+        notifyListeners(listener -> listener.enrollmentsChanged(studId));
 
         // Update the student's list of enrolled courses (use a copy)
         List<Integer> studentCourses = new ArrayList<>(student.getCourses());
         studentCourses.remove(courseId);
         student.setCourses(studentCourses); // Set the modified list back to the student
 
-        // Update the course's list of enrolled students (use a copy)
-        List<Integer> courseStudents = new ArrayList<>(course.getEnrolledStudents());
-        courseStudents.remove(studId);
-        course.setEnrolledStudents(courseStudents); // Set the modified list back to the course
-
-        // Save the updated student and course objects
+        // Save the updated student
         studentIRepository.update(student);
-        courseIRepository.update(course);
     }
 
 
@@ -595,16 +706,18 @@ public class CoursesUserService {
             throw new BusinessException("Course already been unassigned");
 
         //remove the course from the instructor list
-        List<Integer> assignedCourses = instructor.getCourses();
+        List<Integer> assignedCourses = new ArrayList<>(instructor.getCourses());
         assignedCourses.remove(courseId);
         instructor.setCourses(assignedCourses);
 
         //unassign the instructor from the course
+        Integer previousInstructorId = course.getInstructorId();
         course.setInstructorId(null);
 
         //update the instructor and course
         instructorIRepository.update(instructor);
         courseIRepository.update(course);
+        notifyListeners(listener -> listener.instructorChanged(courseId, previousInstructorId, null));
 
         System.out.println("Instructor with id " + instructorId + " has been unassigned from thr course with id " + courseId);
     }
@@ -622,16 +735,11 @@ public class CoursesUserService {
         if (student == null)
             throw new EntityNotFoundException(studentId);
 
-        List<Enrolled> allEnrollments = enrolledIRepository.getAll();
-
-        List<Integer> studentCourseIds = allEnrollments.stream()
-                .filter(e -> e.getId().equals(studentId))
+        List<Integer> studentCourseIds = enrolledIRepository.findBy("studentId", studentId).stream()
                 .map(Enrolled::getCourseId)
                 .collect(Collectors.toList());
 
-        return studentCourseIds.stream()
-                .map(courseIRepository::get)
-                .collect(Collectors.toList());
+        return courseIRepository.findByIds(studentCourseIds);
 
 
     }
@@ -646,14 +754,7 @@ public class CoursesUserService {
     public List<Course> getCoursesAInstructorTeaches(Integer instructorId) {
 
 
-        List<Course> courses = courseIRepository.getAll();
-        List<Course> enrolledCourses = new ArrayList<>();
-        for (Course course : courses) {
-            if (course != null && course.getInstructorId().equals(instructorId))
-                enrolledCourses.add(course);
-        }
-
-        return enrolledCourses;
+        return courseIRepository.findBy("instructorId", instructorId);
     }
 
     /**
@@ -706,9 +807,15 @@ public class CoursesUserService {
      */
     public void updateCourse(Course course) throws EntityNotFoundException {
 
-        if (courseIRepository.get(course.getId()) == null)
+        Course previous = courseIRepository.get(course.getId());
+        if (previous == null)
             throw new EntityNotFoundException(course.getId());
+        Integer previousInstructorId = previous.getInstructorId();
         courseIRepository.update(course);
+        courseDateRepository.courseSaved(course);
+        if (!Objects.equals(previousInstructorId, course.getInstructorId()))
+            notifyListeners(listener -> listener.instructorChanged(course.getId(), previousInstructorId, course.getInstructorId()));
+        notifyListeners(listener -> listener.courseChanged(course.getId()));
     }
 
     /**
@@ -718,8 +825,10 @@ public class CoursesUserService {
      * @throws EntityNotFoundException if no student is found with the given ID.
      */
     public void updateStudent(Student student) throws EntityNotFoundException {
-        if (studentIRepository.get(student.getId()) == null)
+        Student existing = studentIRepository.get(student.getId());
+        if (existing == null)
             throw new EntityNotFoundException(student.getId());
+        student.setPassword(passwordHasher.forStorage(student.getPassword(), existing.getPassword()));
         studentIRepository.update(student);
     }
 
@@ -730,8 +839,10 @@ public class CoursesUserService {
      * @throws EntityNotFoundException if no instructor is found with the given ID.
      */
     public void updateInstructor(Instructor instructor) throws EntityNotFoundException {
-        if (instructorIRepository.get(instructor.getId()) == null)
+        Instructor existing = instructorIRepository.get(instructor.getId());
+        if (existing == null)
             throw new EntityNotFoundException(instructor.getId());
+        instructor.setPassword(passwordHasher.forStorage(instructor.getPassword(), existing.getPassword()));
         instructorIRepository.update(instructor);
     }
 
@@ -742,16 +853,11 @@ public class CoursesUserService {
      */
     public List<Course> getAllUnderOcupiedCourses() {
         List<Course> courses = courseIRepository.getAll();
-        List<Enrolled> enrolleds = enrolledIRepository.getAll();
         List<Course> underOcupiedCourses = new ArrayList<>();
 
         for (Course course : courses) {
-            // Count the number of students enrolled in this course using the `enrolleds` list
-            long enrolledCount = enrolleds.stream()
-                    .filter(enrollment -> enrollment.getCourseId().equals(course.getId()))
-                    .count();
             // Check if the enrolled count is less than or equal to 20% of available spots
-            if ((int)enrolledCount <= course.getAvailableSpots() * 0.2) {
+            if (enrollmentCounters.getCourseCount(course.getId()) <= course.getAvailableSpots() * 0.2) {
                 underOcupiedCourses.add(course);
             }
         }
@@ -767,53 +873,89 @@ public class CoursesUserService {
      * @return a sorted list of instructors.
      */
     public List<Instructor> sortAllInstructorsByNumberOfTeachingCourses() {
-        List<Instructor> instructors = new ArrayList<>(instructorIRepository.getAll());
-        List<Course> courses = courseIRepository.getAll();
+        List<Instructor> instructors = instructorIRepository.getAll();
+        ReportingEngine engine = new ReportingEngine(courseIRepository.getAll(), instructors, List.of());
+        return ReportingEngine.select(instructors, ReportingEngine.topK(engine.countCoursesPerInstructor(), instructors.size()));
+    }
 
-        // Map to count the number of courses taught by each instructor
-        Map<Integer, Integer> instructorCourseCount = courses.stream()
-                .collect(Collectors.groupingBy(Course::getInstructorId, Collectors.summingInt(course -> 1)));
+    /**
+     * Retrieves the instructors teaching the most courses from the {@link InstructorLeaderboard}; instructors teaching
+     * as many courses rank by increasing ID.
+     *
+     * @param k the number of instructors to return.
+     * @return at most k instructors, in descending order of the number of courses they teach.
+     */
+    public List<Instructor> getTopInstructorsByNumberOfTeachingCourses(int k) {
+        return getInstructorsInOrder(instructorLeaderboard.getTopByCourseCount(k));
+    }
 
-        // Sort instructors by the number of courses they are teaching
-        instructors.sort((instructor1, instructor2) -> {
-            int count1 = instructorCourseCount.getOrDefault(instructor1.getId(), 0);
-            int count2 = instructorCourseCount.getOrDefault(instructor2.getId(), 0);
-            return Integer.compare(count2, count1); // Descending order
-        });
 
-        return instructors;
+    /**
+     * Retrieves all courses that end before a specified date, from the course date index.
+     *
+     * @param date the date to compare course end dates against, in the yyyy-MM-dd format.
+     * @return a list of courses that end before the specified date, by end date; empty if the date is invalid.
+     */
+    public List<Course> getAllCoursesThatEndBeforeADate(String date) {
+        Integer day = Dates.toEpochDay(date);
+        if (day == null) {
+            System.err.println("Invalid input date format. Please use the format yyyy-MM-dd.");
+            return new ArrayList<>();
+        }
+        return courseDateRepository.findEndingBefore(day);
     }
 
+    /**
+     * Finds the courses matching a query, filtered, sorted and paged by the backend.
+     *
+     * @param query the filters, sort keys and page.
+     * @return the page of matching courses.
+     */
+    public List<Course> findCourses(CourseQuery query) {
+        return courseQueryRepository.find(query);
+    }
 
     /**
-     * Retrieves all courses that end before a specified date.
+     * Counts the courses matching the filters of a query.
      *
-     * @param date the date to compare course end dates against.
-     * @return a list of courses that end before the specified date.
-     * @throws ParseException if the date format is incorrect.
+     * @param query the filters.
+     * @return the number of matching courses, on every page.
      */
-    public List<Course> getAllCoursesThatEndBeforeADate(String date) {
-        List<Course> courses = courseIRepository.getAll();
-        List<Course> coursesThatEndBeforeADate = new ArrayList<>();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        try {
-            Date inputDate = dateFormat.parse(date);
-
-            for (Course course : courses) {
-                try {
-                    Date courseEndDate = dateFormat.parse(course.getEndDate());
-
-                    if (courseEndDate.before(inputDate)) {
-                        coursesThatEndBeforeADate.add(course);
-                    }
-                } catch (ParseException e) {
-                    System.err.println("Invalid end date format for course: " + course.getCourseTitle());
-                }
-            }
-        } catch (ParseException e) {
+    public int countCourses(CourseQuery query) {
+        return courseQueryRepository.count(query);
+    }
+
+    /**
+     * Retrieves the courses running on a date, from the course date index.
+     *
+     * @param date the date, in the yyyy-MM-dd format.
+     * @return the courses that start on or before the date and end on or after it, by start date; empty if the date
+     * is invalid.
+     */
+    public List<Course> getCoursesActiveOn(String date) {
+        Integer day = Dates.toEpochDay(date);
+        if (day == null) {
             System.err.println("Invalid input date format. Please use the format yyyy-MM-dd.");
+            return new ArrayList<>();
         }
-        return coursesThatEndBeforeADate;
+        return courseDateRepository.findActiveOn(day);
+    }
+
+    /**
+     * Retrieves the courses running on at least one day of a period, from the course date index.
+     *
+     * @param from the first day of the period, in the yyyy-MM-dd format.
+     * @param to   the last day of the period, in the yyyy-MM-dd format.
+     * @return the courses overlapping the period, by start date; empty if a date is invalid.
+     */
+    public List<Course> getCoursesOverlapping(String from, String to) {
+        Integer fromDay = Dates.toEpochDay(from);
+        Integer toDay = Dates.toEpochDay(to);
+        if (fromDay == null || toDay == null) {
+            System.err.println("Invalid input date format. Please use the format yyyy-MM-dd.");
+            return new ArrayList<>();
+        }
+        return courseDateRepository.findOverlapping(fromDay, toDay);
     }
 
     /**
@@ -822,26 +964,37 @@ public class CoursesUserService {
      * @return A list of instructors sorted by total enrollment in descending order.
      */
     public List<Instructor> getInstructorsSortedByEnrollment() {
-        List<Instructor> allInstructors = instructorIRepository.getAll();
-        List<Course> allCourses = courseIRepository.getAll();
-        List<Enrolled> allEnrollments = enrolledIRepository.getAll();
-
-        // Create a map of course ID to number of enrolled students
-        Map<Integer, Long> courseEnrollmentCounts = allEnrollments.stream()
-                .collect(Collectors.groupingBy(Enrolled::getCourseId, Collectors.counting()));
-
-        // Calculate total enrollment for each instructor
-        Map<Integer, Long> instructorEnrollmentCounts = allCourses.stream()
-                .collect(Collectors.groupingBy(
-                        Course::getInstructorId,
-                        Collectors.summingLong(course -> courseEnrollmentCounts.getOrDefault(course.getId(), 0L))
-                ));
-
-        // Sort instructors by total enrollment
-        return allInstructors.stream()
-                .sorted(Comparator.comparingLong((Instructor i) ->
-                        instructorEnrollmentCounts.getOrDefault(i.getId(), 0L)).reversed())
-                .collect(Collectors.toList());
+        List<Instructor> instructors = instructorIRepository.getAll();
+        ReportingEngine engine = new ReportingEngine(courseIRepository.getAll(), instructors, enrolledIRepository.getAll());
+        return ReportingEngine.select(instructors, ReportingEngine.topK(engine.countEnrollmentsPerInstructor(), instructors.size()));
+    }
+
+    /**
+     * Retrieves the instructors with the most students enrolled in the courses they teach from the
+     * {@link InstructorLeaderboard}; instructors with as many students rank by increasing ID.
+     *
+     * @param k the number of instructors to return.
+     * @return at most k instructors, in descending order of total enrollment.
+     */
+    public List<Instructor> getTopInstructorsByEnrollment(int k) {
+        return getInstructorsInOrder(instructorLeaderboard.getTopByEnrollment(k));
+    }
+
+    /**
+     * Reads instructors by ID, keeping the order of the IDs and skipping the ones that no longer exist.
+     */
+    private List<Instructor> getInstructorsInOrder(int[] instructorIds) {
+        List<Integer> ids = new ArrayList<>(instructorIds.length);
+        for (int id : instructorIds)
+            ids.add(id);
+        Map<Integer, Instructor> byId = new HashMap<>();
+        for (Instructor instructor : instructorIRepository.findByIds(ids))
+            byId.put(instructor.getId(), instructor);
+        List<Instructor> instructors = new ArrayList<>(ids.size());
+        for (Integer id : ids)
+            if (byId.containsKey(id))
+                instructors.add(byId.get(id));
+        return instructors;
     }
 
 
@@ -854,14 +1007,7 @@ public class CoursesUserService {
         Student student = studentIRepository.get(studentId);
         if (student == null)
             throw new EntityNotFoundException(studentId);
-        List<Message> messages = messageIRepository.getAll();
-        List<Message> messages1 = new ArrayList<>();
-        for (Message message : messages) {
-            if(message.getReceiver().equals(student.getId()))
-                messages1.add(message);
-        }
-
-        return messages1;
+        return messageIRepository.findBy("receiverid", student.getId());
 
     }
 
@@ -0,0 +1,164 @@
+package Service;
+
+import Models.Enrolled;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The number of students enrolled in each course and of courses each student is enrolled in, kept up to date by
+ * {@link CoursesUserService} as it enrolls and unenrolls students, so occupancy reports read a counter instead of
+ * scanning the enrollments.
+ * <p>
+ * The counters are built from the enrollments the first time they are read. Changes made before that are not
+ * recorded, the build reads them. Enrollments changed without going through the service, or while the counters are
+ * being built, make them drift; {@link #verify} recounts the enrollments and repairs the counters, and with
+ * verification enabled every report does so.
+ */
+public class EnrollmentCounters {
+    private final Supplier<Stream<Enrolled>> source;
+    private final Map<Integer, AtomicInteger> byCourse = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> byStudent = new ConcurrentHashMap<>();
+    private volatile boolean built;
+    private volatile boolean verifying;
+
+    /**
+     * @param source Streams every enrollment, to build and verify the counters; the stream is closed after use.
+     */
+    public EnrollmentCounters(Supplier<Stream<Enrolled>> source) {
+        this.source = source;
+    }
+
+    /**
+     * Makes every read of the counters recount the enrollments first and report any drift. Meant for tests and for
+     * checking a deployment, as it brings back the cost of a scan.
+     *
+     * @param verifying true to verify on every read.
+     */
+    public void setVerifying(boolean verifying) {
+        this.verifying = verifying;
+    }
+
+    /**
+     * @param courseId The ID of the course.
+     * @return The number of students enrolled in the course.
+     */
+    public int getCourseCount(Integer courseId) {
+        ensureBuilt();
+        AtomicInteger count = byCourse.get(courseId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @param studentId The ID of the student.
+     * @return The number of courses the student is enrolled in.
+     */
+    public int getStudentCount(Integer studentId) {
+        ensureBuilt();
+        AtomicInteger count = byStudent.get(studentId);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Records a new enrollment.
+     */
+    void enrolled(Integer studentId, Integer courseId) {
+        if (!built)
+            return;
+        byCourse.computeIfAbsent(courseId, id -> new AtomicInteger()).incrementAndGet();
+        byStudent.computeIfAbsent(studentId, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * Records a removed enrollment.
+     */
+    void unenrolled(Integer studentId, Integer courseId) {
+        if (!built)
+            return;
+        decrement(byCourse, courseId);
+        decrement(byStudent, studentId);
+    }
+
+    /**
+     * Forgets a removed course, after its enrollments were recorded as removed.
+     */
+    void courseRemoved(Integer courseId) {
+        byCourse.remove(courseId);
+    }
+
+    /**
+     * Forgets a removed student, after their enrollments were recorded as removed.
+     */
+    void studentRemoved(Integer studentId) {
+        byStudent.remove(studentId);
+    }
+
+    /**
+     * Recounts the enrollments and replaces the counters with the result.
+     *
+     * @return A description of every counter that differed, empty if they were all correct.
+     */
+    public synchronized List<String> verify() {
+        Map<Integer, Integer> courses = new HashMap<>();
+        Map<Integer, Integer> students = new HashMap<>();
+        try (Stream<Enrolled> enrollments = source.get()) {
+            enrollments.forEach(enrolled -> {
+                courses.merge(enrolled.getCourseId(), 1, Integer::sum);
+                students.merge(enrolled.getId(), 1, Integer::sum);
+            });
+        }
+
+        List<String> differences = new ArrayList<>();
+        if (built) {
+            compare("course", byCourse, courses, differences);
+            compare("student", byStudent, students, differences);
+            for (String difference : differences)
+                System.err.println("Enrollment counter drifted: " + difference);
+        }
+        replace(byCourse, courses);
+        replace(byStudent, students);
+        built = true;
+        return differences;
+    }
+
+    private void ensureBuilt() {
+        if (verifying || !built) {
+            synchronized (this) {
+                if (verifying || !built)
+                    verify();
+            }
+        }
+    }
+
+    private static void decrement(Map<Integer, AtomicInteger> counters, Integer id) {
+        AtomicInteger count = counters.get(id);
+        if (count != null)
+            count.decrementAndGet();
+    }
+
+    private static void compare(String kind, Map<Integer, AtomicInteger> counters, Map<Integer, Integer> actual,
+                                List<String> differences) {
+        Set<Integer> ids = new TreeSet<>(counters.keySet());
+        ids.addAll(actual.keySet());
+        for (Integer id : ids) {
+            AtomicInteger counted = counters.get(id);
+            int expected = actual.getOrDefault(id, 0);
+            int found = counted == null ? 0 : counted.get();
+            if (found != expected)
+                differences.add(kind + " " + id + " counted " + found + ", actual " + expected);
+        }
+    }
+
+    private static void replace(Map<Integer, AtomicInteger> counters, Map<Integer, Integer> actual) {
+        actual.forEach((id, count) -> counters.put(id, new AtomicInteger(count)));
+        counters.keySet().retainAll(actual.keySet());
+    }
+}
@@ -0,0 +1,76 @@
+package Service;
+
+/**
+ * Notified by {@link CoursesUserService} when enrollments, courses or instructors change, so that data derived from
+ * them, such as the courses cached by a session or the instructor leaderboards, can be dropped or updated.
+ * <p>
+ * The detailed events have empty default implementations, for listeners that only need to know what to drop.
+ */
+public interface EnrollmentListener {
+    /**
+     * Called after a student was enrolled in or unenrolled from a course, or removed.
+     *
+     * @param studentId The ID of the student.
+     */
+    void enrollmentsChanged(Integer studentId);
+
+    /**
+     * Called after a course was updated or removed.
+     *
+     * @param courseId The ID of the course.
+     */
+    void courseChanged(Integer courseId);
+
+    /**
+     * Called after a student was enrolled in a course.
+     *
+     * @param studentId The ID of the student.
+     * @param courseId  The ID of the course.
+     */
+    default void studentEnrolled(Integer studentId, Integer courseId) {
+    }
+
+    /**
+     * Called after a student was unenrolled from a course, including when the student or the course is removed.
+     *
+     * @param studentId The ID of the student.
+     * @param courseId  The ID of the course.
+     */
+    default void studentUnenrolled(Integer studentId, Integer courseId) {
+    }
+
+    /**
+     * Called after the instructor of a course changed, when an instructor is assigned, unassigned or removed, or
+     * a course is added or updated.
+     *
+     * @param courseId             The ID of the course.
+     * @param previousInstructorId The ID of the instructor that taught the course, or null.
+     * @param instructorId         The ID of the instructor that teaches the course now, or null.
+     */
+    default void instructorChanged(Integer courseId, Integer previousInstructorId, Integer instructorId) {
+    }
+
+    /**
+     * Called after a course was removed, once its students were unenrolled and its instructor unassigned.
+     *
+     * @param courseId The ID of the course.
+     */
+    default void courseRemoved(Integer courseId) {
+    }
+
+    /**
+     * Called after an instructor was added.
+     *
+     * @param instructorId The ID of the instructor.
+     */
+    default void instructorAdded(Integer instructorId) {
+    }
+
+    /**
+     * Called after an instructor was removed, once the courses they taught were unassigned.
+     *
+     * @param instructorId The ID of the instructor.
+     */
+    default void instructorRemoved(Integer instructorId) {
+    }
+}
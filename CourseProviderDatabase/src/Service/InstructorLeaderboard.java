@@ -0,0 +1,221 @@
+package Service;
+
+import Models.Course;
+import Models.Enrolled;
+import Models.Instructor;
+import Utils.IndexedSkipList;
+import Utils.IntIntMap;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The instructors ranked by the number of courses they teach and by the number of students enrolled in these, kept
+ * up to date by the enrollment and instructor events of {@link CoursesUserService}. Each event moves at most two
+ * instructors in each ranking, in O(log n), and the top k or the rank of an instructor are read from the rankings
+ * without going to the repositories.
+ * <p>
+ * The rankings are built from the repositories the first time they are read; events received before that are
+ * ignored, the build reads their result. Instructors with the same score rank by increasing ID. Changes made without
+ * going through the service are only picked up by {@link #rebuild}.
+ */
+public class InstructorLeaderboard implements EnrollmentListener {
+    private final Supplier<List<Instructor>> instructors;
+    private final Supplier<List<Course>> courses;
+    private final Supplier<Stream<Enrolled>> enrollments;
+
+    private final IndexedSkipList byCourseCount = new IndexedSkipList();
+    private final IndexedSkipList byEnrollment = new IndexedSkipList();
+    /** The instructor of each course that has one. */
+    private final IntIntMap courseInstructor = new IntIntMap();
+    /** The number of students enrolled in each course. */
+    private final IntIntMap courseEnrollments = new IntIntMap();
+    private boolean built;
+
+    /**
+     * @param instructors Reads every instructor, to build the rankings.
+     * @param courses     Reads every course.
+     * @param enrollments Streams every enrollment; the stream is closed after use.
+     */
+    public InstructorLeaderboard(Supplier<List<Instructor>> instructors, Supplier<List<Course>> courses,
+                                 Supplier<Stream<Enrolled>> enrollments) {
+        this.instructors = instructors;
+        this.courses = courses;
+        this.enrollments = enrollments;
+    }
+
+    /**
+     * @param k The number of instructors to return.
+     * @return The IDs of at most k instructors, in descending order of the number of courses they teach.
+     */
+    public synchronized int[] getTopByCourseCount(int k) {
+        ensureBuilt();
+        return byCourseCount.top(k);
+    }
+
+    /**
+     * @param k The number of instructors to return.
+     * @return The IDs of at most k instructors, in descending order of the students enrolled in their courses.
+     */
+    public synchronized int[] getTopByEnrollment(int k) {
+        ensureBuilt();
+        return byEnrollment.top(k);
+    }
+
+    /**
+     * @param instructorId The ID of the instructor.
+     * @return The rank of the instructor by the number of courses they teach, 1 for the first, or -1 if the
+     * instructor is unknown.
+     */
+    public synchronized int getRankByCourseCount(Integer instructorId) {
+        ensureBuilt();
+        int rank = byCourseCount.rank(instructorId);
+        return rank < 0 ? -1 : rank + 1;
+    }
+
+    /**
+     * @param instructorId The ID of the instructor.
+     * @return The rank of the instructor by the students enrolled in their courses, 1 for the first, or -1 if the
+     * instructor is unknown.
+     */
+    public synchronized int getRankByEnrollment(Integer instructorId) {
+        ensureBuilt();
+        int rank = byEnrollment.rank(instructorId);
+        return rank < 0 ? -1 : rank + 1;
+    }
+
+    /**
+     * @param instructorId The ID of the instructor.
+     * @return The number of courses the instructor teaches.
+     */
+    public synchronized long getCourseCount(Integer instructorId) {
+        ensureBuilt();
+        return byCourseCount.getScore(instructorId, 0);
+    }
+
+    /**
+     * @param instructorId The ID of the instructor.
+     * @return The number of students enrolled in the courses the instructor teaches.
+     */
+    public synchronized long getEnrollmentCount(Integer instructorId) {
+        ensureBuilt();
+        return byEnrollment.getScore(instructorId, 0);
+    }
+
+    /**
+     * Reads the instructors, courses and enrollments again and rebuilds the rankings from them.
+     */
+    public synchronized void rebuild() {
+        byCourseCount.clear();
+        byEnrollment.clear();
+        courseInstructor.clear();
+        courseEnrollments.clear();
+
+        for (Instructor instructor : instructors.get())
+            rank(instructor.getId());
+        try (Stream<Enrolled> all = enrollments.get()) {
+            all.forEach(enrolled -> {
+                if (enrolled.getCourseId() != null)
+                    courseEnrollments.addTo(enrolled.getCourseId(), 1);
+            });
+        }
+        for (Course course : courses.get()) {
+            Integer instructorId = course.getInstructorId();
+            if (instructorId != null && byCourseCount.contains(instructorId))
+                teach(course.getId(), instructorId, 1);
+        }
+        built = true;
+    }
+
+    @Override
+    public void enrollmentsChanged(Integer studentId) {
+    }
+
+    @Override
+    public void courseChanged(Integer courseId) {
+    }
+
+    @Override
+    public synchronized void studentEnrolled(Integer studentId, Integer courseId) {
+        if (built)
+            addEnrollments(courseId, 1);
+    }
+
+    @Override
+    public synchronized void studentUnenrolled(Integer studentId, Integer courseId) {
+        if (built)
+            addEnrollments(courseId, -1);
+    }
+
+    @Override
+    public synchronized void instructorChanged(Integer courseId, Integer previousInstructorId, Integer instructorId) {
+        if (!built)
+            return;
+        if (courseInstructor.containsKey(courseId))
+            teach(courseId, courseInstructor.get(courseId, 0), -1);
+        if (instructorId != null && byCourseCount.contains(instructorId))
+            teach(courseId, instructorId, 1);
+    }
+
+    @Override
+    public synchronized void courseRemoved(Integer courseId) {
+        if (!built)
+            return;
+        if (courseInstructor.containsKey(courseId))
+            teach(courseId, courseInstructor.get(courseId, 0), -1);
+        courseEnrollments.remove(courseId);
+    }
+
+    @Override
+    public synchronized void instructorAdded(Integer instructorId) {
+        if (built)
+            rank(instructorId);
+    }
+
+    @Override
+    public synchronized void instructorRemoved(Integer instructorId) {
+        if (!built)
+            return;
+        byCourseCount.remove(instructorId);
+        byEnrollment.remove(instructorId);
+    }
+
+    private void ensureBuilt() {
+        if (!built)
+            rebuild();
+    }
+
+    /**
+     * Ranks an instructor with no courses, unless they are already ranked.
+     */
+    private void rank(int instructorId) {
+        if (!byCourseCount.contains(instructorId)) {
+            byCourseCount.put(instructorId, 0);
+            byEnrollment.put(instructorId, 0);
+        }
+    }
+
+    /**
+     * Adds a course to, or with a sign of -1 removes it from, the courses of an instructor.
+     */
+    private void teach(int courseId, int instructorId, int sign) {
+        if (sign > 0)
+            courseInstructor.put(courseId, instructorId);
+        else
+            courseInstructor.remove(courseId);
+        if (byCourseCount.contains(instructorId)) {
+            byCourseCount.addTo(instructorId, sign);
+            byEnrollment.addTo(instructorId, (long) sign * courseEnrollments.get(courseId, 0));
+        }
+    }
+
+    private void addEnrollments(int courseId, int delta) {
+        courseEnrollments.addTo(courseId, delta);
+        if (courseInstructor.containsKey(courseId)) {
+            int instructorId = courseInstructor.get(courseId, 0);
+            if (byCourseCount.contains(instructorId))
+                byEnrollment.addTo(instructorId, delta);
+        }
+    }
+}
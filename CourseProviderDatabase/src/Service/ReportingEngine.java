@@ -0,0 +1,224 @@
+package Service;
+
+import Models.Course;
+import Models.Enrolled;
+import Models.Instructor;
+import Utils.IntIntMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the instructor and course reports over a snapshot of the courses, instructors and enrollments.
+ * <p>
+ * The snapshot is copied once into primitive arrays in which courses and instructors are referred to by their
+ * position in the given lists, so the aggregates are plain {@code int[]} and {@code long[]} counters filled in one
+ * pass each, without boxed maps. Counting the enrollments, the only pass over a large input, is split across the
+ * common fork/join pool once there are at least {@link #PARALLEL_THRESHOLD} of them. Rankings keep the best
+ * {@code k} entries in a heap instead of sorting everything.
+ */
+public class ReportingEngine {
+    /** The number of enrollments from which they are counted in parallel. */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int LEAF_SIZE = 1 << 14;
+
+    private final int courseCount;
+    private final int instructorCount;
+    /** The position of the instructor of each course, -1 if it has none or an unknown one. */
+    private final int[] courseInstructor;
+    /** The position of the course of each enrollment, -1 if the course is unknown. */
+    private final int[] enrollmentCourse;
+    private final boolean parallel;
+
+    /**
+     * Copies a snapshot of the data to report on.
+     *
+     * @param courses     The courses; results refer to a course by its position in this list.
+     * @param instructors The instructors; results refer to an instructor by its position in this list.
+     * @param enrollments The enrollments.
+     */
+    public ReportingEngine(List<Course> courses, List<Instructor> instructors, List<Enrolled> enrollments) {
+        this(courses, instructors, enrollments, enrollments.size() >= PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param parallel Whether the enrollments are counted on the fork/join pool.
+     */
+    public ReportingEngine(List<Course> courses, List<Instructor> instructors, List<Enrolled> enrollments, boolean parallel) {
+        this.courseCount = courses.size();
+        this.instructorCount = instructors.size();
+        this.parallel = parallel;
+
+        IntIntMap instructorPositions = new IntIntMap(instructorCount);
+        for (int i = 0; i < instructorCount; i++)
+            instructorPositions.put(instructors.get(i).getId(), i);
+        IntIntMap coursePositions = new IntIntMap(courseCount);
+        courseInstructor = new int[courseCount];
+        for (int c = 0; c < courseCount; c++) {
+            Course course = courses.get(c);
+            coursePositions.put(course.getId(), c);
+            Integer instructorId = course.getInstructorId();
+            courseInstructor[c] = instructorId == null ? -1 : instructorPositions.get(instructorId, -1);
+        }
+
+        enrollmentCourse = new int[enrollments.size()];
+        for (int e = 0; e < enrollmentCourse.length; e++) {
+            Integer courseId = enrollments.get(e).getCourseId();
+            enrollmentCourse[e] = courseId == null ? -1 : coursePositions.get(courseId, -1);
+        }
+    }
+
+    /**
+     * @return The number of students enrolled in each course, by course position.
+     */
+    public int[] countEnrollmentsPerCourse() {
+        if (parallel && enrollmentCourse.length >= 2 * LEAF_SIZE)
+            return ForkJoinPool.commonPool().invoke(new CountTask(0, enrollmentCourse.length));
+        return count(0, enrollmentCourse.length);
+    }
+
+    /**
+     * @return The number of courses each instructor teaches, by instructor position.
+     */
+    public long[] countCoursesPerInstructor() {
+        long[] counts = new long[instructorCount];
+        for (int instructor : courseInstructor)
+            if (instructor >= 0)
+                counts[instructor]++;
+        return counts;
+    }
+
+    /**
+     * @return The number of students enrolled in the courses each instructor teaches, by instructor position.
+     */
+    public long[] countEnrollmentsPerInstructor() {
+        int[] perCourse = countEnrollmentsPerCourse();
+        long[] counts = new long[instructorCount];
+        for (int c = 0; c < courseCount; c++)
+            if (courseInstructor[c] >= 0)
+                counts[courseInstructor[c]] += perCourse[c];
+        return counts;
+    }
+
+    /**
+     * Ranks positions by score with a heap of size {@code k}, in O(n log k).
+     *
+     * @param scores The score of each position.
+     * @param k      The number of positions to return.
+     * @return The positions with the highest scores, highest first; equal scores keep the order of the positions.
+     */
+    public static int[] topK(long[] scores, int k) {
+        int size = Math.min(Math.max(k, 0), scores.length);
+        if (size == 0)
+            return new int[0];
+
+        // A min-heap whose root is the worst position kept so far
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int position = 0; position < scores.length; position++) {
+            if (heapSize < size) {
+                heap[heapSize] = position;
+                siftUp(heap, heapSize++, scores);
+            } else if (ranksBefore(position, heap[0], scores)) {
+                heap[0] = position;
+                siftDown(heap, heapSize, scores);
+            }
+        }
+
+        int[] ranked = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heap, heapSize, scores);
+        }
+        return ranked;
+    }
+
+    /**
+     * Picks the elements at the given positions.
+     *
+     * @param items     The list the positions refer to.
+     * @param positions The positions.
+     * @return The elements, in the order of the positions.
+     */
+    public static <E> List<E> select(List<E> items, int[] positions) {
+        List<E> selected = new ArrayList<>(positions.length);
+        for (int position : positions)
+            selected.add(items.get(position));
+        return selected;
+    }
+
+    private int[] count(int from, int to) {
+        int[] counts = new int[courseCount];
+        for (int e = from; e < to; e++)
+            if (enrollmentCourse[e] >= 0)
+                counts[enrollmentCourse[e]]++;
+        return counts;
+    }
+
+    private static boolean ranksBefore(int a, int b, long[] scores) {
+        return scores[a] != scores[b] ? scores[a] > scores[b] : a < b;
+    }
+
+    private static void siftUp(int[] heap, int index, long[] scores) {
+        int position = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksBefore(heap[parent], position, scores))
+                break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = position;
+    }
+
+    private static void siftDown(int[] heap, int size, long[] scores) {
+        if (size == 0)
+            return;
+        int index = 0;
+        int position = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && ranksBefore(heap[child], heap[child + 1], scores))
+                child++;
+            if (!ranksBefore(position, heap[child], scores))
+                break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = position;
+    }
+
+    /**
+     * Counts a range of the enrollments, splitting it in halves down to {@link #LEAF_SIZE}. Fork/join tasks are
+     * serializable, but these are only ever run in this process, so they declare no serialized form.
+     */
+    @SuppressWarnings("serial")
+    private final class CountTask extends RecursiveTask<int[]> {
+        private final int from;
+        private final int to;
+
+        private CountTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= LEAF_SIZE)
+                return count(from, to);
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(from, middle);
+            left.fork();
+            int[] counts = new CountTask(middle, to).compute();
+            int[] leftCounts = left.join();
+            for (int c = 0; c < counts.length; c++)
+                counts[c] += leftCounts[c];
+            return counts;
+        }
+    }
+}
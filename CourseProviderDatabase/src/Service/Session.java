@@ -0,0 +1,76 @@
+package Service;
+
+import Models.Course;
+import Models.User;
+
+import java.util.List;
+
+/**
+ * An authenticated user behind an opaque token, with the data cached for the user while the session lives.
+ */
+public class Session {
+    private final String token;
+    private final User user;
+    private volatile long lastAccessedAt;
+    /** Null until the enrolled courses are read, and again after they changed. */
+    private List<Course> enrolledCourses;
+    /** Incremented when the enrolled courses change, so a read racing with the change does not cache what it read. */
+    private long enrollmentGeneration;
+
+    Session(String token, User user, long createdAt) {
+        this.token = token;
+        this.user = user;
+        this.lastAccessedAt = createdAt;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * @return The role of the user: student, admin or instructor.
+     */
+    public String getRole() {
+        return user.getType();
+    }
+
+    long getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    void touch(long now) {
+        lastAccessedAt = now;
+    }
+
+    synchronized List<Course> getEnrolledCourses() {
+        return enrolledCourses;
+    }
+
+    synchronized long getEnrollmentGeneration() {
+        return enrollmentGeneration;
+    }
+
+    /**
+     * @return true if the courses were cached, false if they changed since the generation was read.
+     */
+    synchronized boolean cacheEnrolledCourses(List<Course> courses, long generation) {
+        if (enrollmentGeneration != generation)
+            return false;
+        enrolledCourses = List.copyOf(courses);
+        return true;
+    }
+
+    /**
+     * @return The courses that were cached, or null.
+     */
+    synchronized List<Course> enrollmentsChanged() {
+        List<Course> dropped = enrolledCourses;
+        enrollmentGeneration++;
+        enrolledCourses = null;
+        return dropped;
+    }
+}
@@ -0,0 +1,341 @@
+package Service;
+
+import Exceptions.BusinessException;
+import Exceptions.EntityNotFoundException;
+import Models.Course;
+import Models.Student;
+import Models.User;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the authenticated users behind opaque tokens, so repeated requests do not authenticate again.
+ * <p>
+ * Sessions live in a concurrent map and expire once they have not been used for the idle timeout; every use
+ * restarts it. When the maximum number of sessions is reached, expired sessions are dropped and, if that is not
+ * enough, the least recently used ones. A session caches the courses its student is enrolled in; the cache is
+ * dropped when {@link CoursesUserService} reports a change to the enrollments of the student or to one of the
+ * cached courses. The tokens are indexed by student and by cached course, so a change reaches only the sessions
+ * it concerns. {@link #close()} stops listening to the changes.
+ */
+public final class SessionService implements EnrollmentListener, AutoCloseable {
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+    private static final int TOKEN_BYTES = 32;
+
+    private final AuthenticationService authService;
+    private final CoursesUserService coursesUserService;
+    private final long idleTimeoutNanos;
+    private final int maxSessions;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<String>> tokensByStudent = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<String>> tokensByCourse = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final SecureRandom random = new SecureRandom();
+    private LongSupplier ticker = System::nanoTime;
+
+    private record AccessedSession(Session session, long lastAccessedAt) {
+    }
+
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder courseCacheHits = new LongAdder();
+    private final LongAdder courseCacheMisses = new LongAdder();
+
+    /**
+     * Creates a session service with the default idle timeout and maximum number of sessions.
+     *
+     * @param authService        Authenticates the users at login.
+     * @param coursesUserService Reads the enrolled courses and reports their changes.
+     */
+    public SessionService(AuthenticationService authService, CoursesUserService coursesUserService) {
+        this(authService, coursesUserService, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_SESSIONS);
+    }
+
+    /**
+     * @param authService        Authenticates the users at login.
+     * @param coursesUserService Reads the enrolled courses and reports their changes.
+     * @param idleTimeout        The time after its last use a session expires.
+     * @param maxSessions        The maximum number of sessions kept.
+     */
+    public SessionService(AuthenticationService authService, CoursesUserService coursesUserService,
+                          Duration idleTimeout, int maxSessions) {
+        if (maxSessions < 1)
+            throw new IllegalArgumentException("maxSessions must be positive");
+        this.authService = authService;
+        this.coursesUserService = coursesUserService;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.maxSessions = maxSessions;
+        coursesUserService.addEnrollmentListener(this);
+    }
+
+    /**
+     * Replaces the clock of the expiry, in nanoseconds. Call it before the service is used.
+     *
+     * @param ticker The clock.
+     * @return This service.
+     */
+    public SessionService withTicker(LongSupplier ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    /**
+     * Authenticates a user and opens a session for them.
+     *
+     * @param username The username.
+     * @param password The password.
+     * @return The token of the session, or null if the credentials are invalid.
+     */
+    public String login(String username, String password) {
+        User user = authService.authenticate(username, password);
+        if (user == null)
+            return null;
+        if (sessions.size() >= maxSessions)
+            makeRoom();
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        if (user instanceof Student)
+            index(tokensByStudent, user.getId(), token);
+        sessions.put(token, new Session(token, user, ticker.getAsLong()));
+        return token;
+    }
+
+    /**
+     * Returns the session of a token and restarts its idle timeout.
+     *
+     * @param token The token returned by {@link #login}.
+     * @return The session, or null if the token is unknown or its session expired.
+     */
+    public Session getSession(String token) {
+        if (token == null)
+            return null;
+        Session session = sessions.get(token);
+        if (session == null)
+            return null;
+        long now = ticker.getAsLong();
+        if (now - session.getLastAccessedAt() >= idleTimeoutNanos) {
+            if (remove(session))
+                expirations.increment();
+            return null;
+        }
+        session.touch(now);
+        return session;
+    }
+
+    /**
+     * @param token The token returned by {@link #login}.
+     * @return The user of the session, or null if the token is unknown or its session expired.
+     */
+    public User getUser(String token) {
+        Session session = getSession(token);
+        return session == null ? null : session.getUser();
+    }
+
+    /**
+     * @param token The token returned by {@link #login}.
+     * @return The role of the user of the session, or null if the token is unknown or its session expired.
+     */
+    public String getRole(String token) {
+        Session session = getSession(token);
+        return session == null ? null : session.getRole();
+    }
+
+    /**
+     * Returns the courses the student of a session is enrolled in. They are read once and then served from the
+     * session until they change.
+     *
+     * @param token The token returned by {@link #login}.
+     * @return The courses the student is enrolled in.
+     * @throws BusinessException       If the session expired or does not belong to a student.
+     * @throws EntityNotFoundException If the student no longer exists.
+     */
+    public List<Course> getEnrolledCourses(String token) throws BusinessException, EntityNotFoundException {
+        Session session = getSession(token);
+        if (session == null)
+            throw new BusinessException("Session expired, please log in again");
+        if (!(session.getUser() instanceof Student student))
+            throw new BusinessException("Only students are enrolled in courses");
+
+        List<Course> cached = session.getEnrolledCourses();
+        if (cached != null) {
+            courseCacheHits.increment();
+            return cached;
+        }
+        courseCacheMisses.increment();
+        long generation = session.getEnrollmentGeneration();
+        List<Course> courses = coursesUserService.getCoursesAStudentEnrolledIn(student.getId());
+        // Indexed before they are cached, so a change to one of the courses from now on finds the session
+        for (Course course : courses)
+            index(tokensByCourse, course.getId(), token);
+        if (!session.cacheEnrolledCourses(courses, generation))
+            unindexCourses(courses, token);
+        return courses;
+    }
+
+    /**
+     * Ends a session.
+     *
+     * @param token The token returned by {@link #login}.
+     */
+    public void logout(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session != null)
+            remove(session);
+    }
+
+    /**
+     * Stops listening to the changes reported by {@link CoursesUserService} and ends every session, as their
+     * cached courses would no longer be kept up to date.
+     */
+    @Override
+    public void close() {
+        coursesUserService.removeEnrollmentListener(this);
+        for (Session session : sessions.values())
+            remove(session);
+    }
+
+    @Override
+    public void enrollmentsChanged(Integer studentId) {
+        dropEnrolledCourses(tokensByStudent.get(studentId));
+    }
+
+    @Override
+    public void courseChanged(Integer courseId) {
+        dropEnrolledCourses(tokensByCourse.get(courseId));
+    }
+
+    /**
+     * @return The number of open sessions, including expired ones not dropped yet.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return The number of sessions dropped because their idle timeout had passed.
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return The number of sessions dropped to stay within the maximum number of sessions.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The number of {@link #getEnrolledCourses} calls served from the session.
+     */
+    public long getCourseCacheHitCount() {
+        return courseCacheHits.sum();
+    }
+
+    /**
+     * @return The number of {@link #getEnrolledCourses} calls that read the enrolled courses.
+     */
+    public long getCourseCacheMissCount() {
+        return courseCacheMisses.sum();
+    }
+
+    /**
+     * Ends a session and removes its token from the indexes.
+     *
+     * @return true if the session was still open.
+     */
+    private boolean remove(Session session) {
+        String token = session.getToken();
+        if (!sessions.remove(token, session))
+            return false;
+        if (session.getUser() instanceof Student)
+            unindex(tokensByStudent, session.getUser().getId(), token);
+        unindexCourses(session.enrollmentsChanged(), token);
+        return true;
+    }
+
+    /**
+     * Drops the cached courses of the sessions of the tokens.
+     */
+    private void dropEnrolledCourses(Set<String> tokens) {
+        if (tokens == null)
+            return;
+        for (String token : tokens) {
+            Session session = sessions.get(token);
+            if (session != null)
+                unindexCourses(session.enrollmentsChanged(), token);
+        }
+    }
+
+    private void unindexCourses(List<Course> courses, String token) {
+        if (courses == null)
+            return;
+        for (Course course : courses)
+            unindex(tokensByCourse, course.getId(), token);
+    }
+
+    private static void index(Map<Integer, Set<String>> index, Integer key, String token) {
+        index.compute(key, (id, tokens) -> {
+            Set<String> indexed = tokens == null ? ConcurrentHashMap.newKeySet() : tokens;
+            indexed.add(token);
+            return indexed;
+        });
+    }
+
+    private static void unindex(Map<Integer, Set<String>> index, Integer key, String token) {
+        index.computeIfPresent(key, (id, tokens) -> {
+            tokens.remove(token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+
+    /**
+     * Drops the expired sessions, then the least recently used ones until a sixteenth of the capacity is free,
+     * so that the sessions are not sorted again on every login.
+     */
+    private void makeRoom() {
+        evictionLock.lock();
+        try {
+            if (sessions.size() < maxSessions)
+                return;
+            long now = ticker.getAsLong();
+            // The access times are copied, as other threads keep touching the sessions while they are sorted.
+            List<AccessedSession> live = new ArrayList<>();
+            for (Session session : sessions.values()) {
+                long lastAccessedAt = session.getLastAccessedAt();
+                if (now - lastAccessedAt >= idleTimeoutNanos) {
+                    if (remove(session))
+                        expirations.increment();
+                } else {
+                    live.add(new AccessedSession(session, lastAccessedAt));
+                }
+            }
+
+            int target = maxSessions - Math.max(1, maxSessions / 16);
+            if (live.size() <= target)
+                return;
+            live.sort(Comparator.comparingLong(AccessedSession::lastAccessedAt));
+            for (int i = 0; i < live.size() - target; i++) {
+                Session session = live.get(i).session();
+                if (remove(session))
+                    evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+}
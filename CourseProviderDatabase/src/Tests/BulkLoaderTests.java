@@ -0,0 +1,95 @@
+package Tests;
+
+import Models.Student;
+import Repository.BulkLoader;
+import Repository.ConnectionPool;
+import Repository.CopyCodec;
+import Repository.DataBaseRepository;
+import Utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class BulkLoaderTests {
+    private static final Class<?>[] TYPES = {Integer.class, String.class, String.class, Long.class, Boolean.class};
+    private static final List<Object[]> ROWS = List.of(
+            new Object[]{1, "plain", "", 5L, true},
+            new Object[]{2, "a,b", null, null, false},
+            new Object[]{3, "say \"hi\"\nand bye", " padded ", -7L, null},
+            new Object[]{null, "ăîșț – ünïcode", "\\.", Long.MAX_VALUE, true});
+
+    private static byte[] encode(CopyCodec codec, List<Object[]> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.writeStart(out);
+        for (Object[] row : rows)
+            codec.writeRow(out, row);
+        codec.writeEnd(out);
+        return out.toByteArray();
+    }
+
+    private static List<Object[]> decodeByteByByte(CopyCodec codec, byte[] data) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        CopyCodec.RowDecoder decoder = codec.decoder(TYPES, rows::add);
+        for (int i = 0; i < data.length; i++)
+            decoder.feed(data, i, 1);
+        decoder.finish();
+        return rows;
+    }
+
+    private static void assertRowsEqual(List<Object[]> expected, List<Object[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(Arrays.asList(expected.get(i)), Arrays.asList(actual.get(i)));
+    }
+
+    @Test
+    void testCsvRoundTrip() throws IOException {
+        assertRowsEqual(ROWS, decodeByteByByte(CopyCodec.CSV, encode(CopyCodec.CSV, ROWS)));
+    }
+
+    @Test
+    void testBinaryRoundTrip() throws IOException {
+        assertRowsEqual(ROWS, decodeByteByByte(CopyCodec.BINARY, encode(CopyCodec.BINARY, ROWS)));
+    }
+
+    @Test
+    void testCsvDecodesServerOutput() throws IOException {
+        byte[] data = "1,\"x,y\",\"\",,t\r\n2,\"q\"\"q\",z,3,f".getBytes(StandardCharsets.UTF_8);
+        List<Object[]> rows = decodeByteByByte(CopyCodec.CSV, data);
+        assertRowsEqual(List.of(new Object[]{1, "x,y", "", null, true}, new Object[]{2, "q\"q", "z", 3L, false}), rows);
+    }
+
+    @Test
+    void testCopyRoundTripAgainstDatabase() {
+        Utils utils = new Utils();
+        DataBaseRepository<Student> studentRepo = new DataBaseRepository<>("student", Student.class, utils.getUsersParameters());
+        List<Integer> ids = IntStream.rangeClosed(900_001, 900_200).boxed().collect(Collectors.toList());
+        List<Student> students = ids.stream()
+                .map(id -> new Student(id, "bulk" + id, "pass,\"" + id, "bulk" + id + "@example.com", "student"))
+                .collect(Collectors.toList());
+
+        for (CopyCodec codec : List.of(CopyCodec.CSV, CopyCodec.BINARY)) {
+            BulkLoader loader = new BulkLoader(ConnectionPool.getShared(), codec);
+            try {
+                assertEquals(200L, loader.importEntities("student", Student.class, utils.getUsersParameters(), students));
+                List<Student> exported = loader.exportAll("student", Student.class, utils.getUsersParameters()).stream()
+                        .filter(s -> s.getId() > 900_000)
+                        .collect(Collectors.toList());
+                assertEquals(200, exported.size());
+                assertEquals(studentRepo.get(900_001).getPassword(), "pass,\"900001");
+            } finally {
+                studentRepo.deleteAll(ids);
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package Tests;
+
+import Repository.ConnectionPool;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the pool on a stub JDBC driver, so no database is needed.
+ */
+public class ConnectionPoolTests {
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @Test
+    void testBorrowReusesConnectionsAndTimesOut() throws SQLException {
+        StubDatabase database = new StubDatabase();
+        ConnectionPool pool = database.pool(2, 600_000, 1_800_000);
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertEquals(2, pool.getActiveCount());
+
+        SQLTransientConnectionException timeout = assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+        assertTrue(timeout.getMessage().contains("active=2"));
+        assertEquals(1, pool.getTimeoutCount());
+
+        first.close();
+        assertEquals(1, pool.getIdleCount());
+        Connection third = pool.getConnection();
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(3, pool.getBorrowedCount());
+        second.close();
+        third.close();
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(2, pool.getIdleCount());
+        pool.close();
+    }
+
+    @Test
+    void testLeaseIsReturnedOnceAndUnusableAfterClose() throws SQLException {
+        StubDatabase database = new StubDatabase();
+        ConnectionPool pool = database.pool(1, 600_000, 1_800_000);
+        Connection lease = pool.getConnection();
+        assertFalse(lease.isClosed());
+        lease.setAutoCommit(false);
+
+        lease.close();
+        lease.close();
+        assertTrue(lease.isClosed());
+        assertThrows(SQLException.class, lease::createStatement);
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+
+        // The second close gave back no extra permit, and the returned connection was rolled back and reset
+        Connection again = pool.getConnection();
+        assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+        StubConnection physical = database.opened.get(0);
+        assertEquals(1, physical.rollbacks);
+        assertTrue(physical.autoCommit);
+        assertNotSame(lease, again);
+        again.close();
+        pool.close();
+    }
+
+    @Test
+    void testInvalidAndExpiredConnectionsAreReplaced() throws SQLException, InterruptedException {
+        StubDatabase database = new StubDatabase();
+        ConnectionPool pool = database.pool(1, 600_000, 1_800_000);
+        pool.getConnection().close();
+        database.opened.get(0).valid = false;
+        pool.getConnection().close();
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(1, pool.getDestroyedCount());
+        assertTrue(database.opened.get(0).closed);
+        pool.close();
+        assertTrue(database.opened.get(1).closed);
+
+        ConnectionPool shortLived = database.pool(1, 600_000, 20);
+        Connection lease = shortLived.getConnection();
+        Thread.sleep(40);
+        lease.close();
+        assertEquals(0, shortLived.getIdleCount());
+        assertEquals(1, shortLived.getDestroyedCount());
+        shortLived.close();
+    }
+
+    @Test
+    void testIdleConnectionsAreEvicted() throws SQLException, InterruptedException {
+        StubDatabase database = new StubDatabase();
+        ConnectionPool pool = database.pool(2, 50, 1_800_000);
+        Connection first = pool.getConnection();
+        pool.getConnection().close();
+        first.close();
+        assertEquals(2, pool.getIdleCount());
+
+        // The evictor runs every second at the most
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (pool.getIdleCount() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(2, pool.getDestroyedCount());
+        assertTrue(database.opened.stream().allMatch(connection -> connection.closed));
+        pool.close();
+    }
+
+    @Test
+    void testClosedPoolRejectsBorrowsAndClosesReturnedConnections() throws SQLException {
+        StubDatabase database = new StubDatabase();
+        ConnectionPool pool = database.pool(2, 600_000, 1_800_000);
+        Connection lease = pool.getConnection();
+        pool.close();
+        assertThrows(SQLException.class, pool::getConnection);
+        lease.close();
+        assertTrue(database.opened.get(0).closed);
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    /**
+     * A database of stub connections, reached through its own JDBC url.
+     */
+    private static final class StubDatabase implements Driver {
+        private final String url = "jdbc:stub:" + DATABASES.incrementAndGet();
+        private final List<StubConnection> opened = new CopyOnWriteArrayList<>();
+
+        private StubDatabase() throws SQLException {
+            DriverManager.registerDriver(this);
+        }
+
+        private ConnectionPool pool(int maxSize, long idleTimeoutMillis, long maxLifetimeMillis) {
+            return new ConnectionPool(url, "user", "password", maxSize, 50, idleTimeoutMillis, maxLifetimeMillis, 1);
+        }
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url))
+                return null;
+            StubConnection connection = new StubConnection();
+            opened.add(connection);
+            return connection.proxy();
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return this.url.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    /**
+     * The state of a physical stub connection.
+     */
+    private static final class StubConnection {
+        private volatile boolean closed;
+        private volatile boolean valid = true;
+        private volatile boolean autoCommit = true;
+        private volatile int rollbacks;
+
+        private Connection proxy() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> closed;
+                        case "isValid" -> valid && !closed;
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> {
+                            autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            rollbacks++;
+                            yield null;
+                        }
+                        case "isReadOnly" -> false;
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> "StubConnection";
+                        default -> null;
+                    });
+        }
+    }
+}
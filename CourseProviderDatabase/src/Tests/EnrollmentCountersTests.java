@@ -0,0 +1,142 @@
+package Tests;
+
+import Models.Course;
+import Models.Enrolled;
+import Models.Student;
+import Repository.Criteria;
+import Repository.IRepository;
+import Repository.InMemoryRepo;
+import Service.CoursesUserService;
+import Service.EnrollmentCounters;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EnrollmentCountersTests {
+
+    @Test
+    void testCountersFollowEnrollments() throws Exception {
+        CoursesUserService service = new CoursesUserService("inmemory");
+        service.addCourse(new Course(1, "Java", "Basics", 10, "2024-01-01", "2024-06-01", 1));
+        service.addCourse(new Course(2, "SQL", "Joins", 100, "2024-01-01", "2024-06-01", 1));
+        for (int id = 1; id <= 4; id++)
+            service.addStudent(new Student(id, "student" + id, "pass", "s" + id + "@gmail.com", "student"));
+        service.enroll(1, 1);
+        // The enrollment is recorded on its own, the student read from the repository is not changed
+        assertTrue(service.getStudentInfo(1).getCourses().isEmpty());
+        assertEquals(List.of(1), service.getCoursesAStudentEnrolledIn(1).stream().map(Course::getId).toList());
+
+        EnrollmentCounters counters = service.getEnrollmentCounters();
+        assertEquals(1, counters.getCourseCount(1));
+        service.enroll(2, 1);
+        service.enroll(3, 1);
+        service.enroll(4, 2);
+        assertEquals(3, counters.getCourseCount(1));
+        assertEquals(1, counters.getStudentCount(4));
+
+        // 3 students of 7 remaining spots is over 20%, 1 of 99 is not
+        assertEquals(List.of(2), service.getAllUnderOcupiedCourses().stream().map(Course::getId).toList());
+
+        service.unenroll(3, 1);
+        service.removeStudent(2);
+        assertEquals(1, counters.getCourseCount(1));
+        assertEquals(0, counters.getStudentCount(2));
+        service.removeCourse(2);
+        assertEquals(0, counters.getCourseCount(2));
+        assertTrue(counters.verify().isEmpty());
+    }
+
+    @Test
+    void testVerifyRepairsDrift() {
+        List<Enrolled> enrollments = new ArrayList<>(List.of(new Enrolled(1, 10), new Enrolled(2, 10)));
+        EnrollmentCounters counters = new EnrollmentCounters(enrollments::stream);
+        assertEquals(2, counters.getCourseCount(10));
+
+        // An enrollment written behind the counters' back
+        enrollments.add(new Enrolled(3, 10));
+        assertEquals(2, counters.getCourseCount(10));
+        assertEquals(List.of("course 10 counted 2, actual 3", "student 3 counted 0, actual 1"), counters.verify());
+        assertEquals(3, counters.getCourseCount(10));
+
+        enrollments.remove(0);
+        counters.setVerifying(true);
+        assertEquals(2, counters.getCourseCount(10));
+        assertEquals(0, counters.getStudentCount(1));
+    }
+
+    @Test
+    void testRemovingACourseKeepsTheOtherEnrollmentsOfItsStudents() throws Exception {
+        EnrollmentTable enrollments = new EnrollmentTable();
+        CoursesUserService service = new CoursesUserService(new InMemoryRepo<>(), new InMemoryRepo<>(), new InMemoryRepo<>(),
+                new InMemoryRepo<>(), enrollments, new InMemoryRepo<>());
+        service.addCourse(new Course(1, "Java", "Basics", 10, "2024-01-01", "2024-06-01", 1));
+        service.addCourse(new Course(2, "SQL", "Joins", 10, "2024-01-01", "2024-06-01", 1));
+        for (int id = 3; id <= 4; id++)
+            service.addStudent(new Student(id, "student" + id, "pass", "s" + id + "@gmail.com", "student"));
+        service.enroll(3, 1);
+        service.enroll(3, 2);
+        service.enroll(4, 2);
+        EnrollmentCounters counters = service.getEnrollmentCounters();
+        assertEquals(2, counters.getStudentCount(3));
+
+        // Student 3 is also enrolled in course 2, which must keep that enrollment and its seat
+        service.removeCourse(1);
+        assertEquals(List.of("3-2", "4-2"), enrollments.rows());
+        assertEquals(2, counters.getCourseCount(2));
+        assertEquals(1, counters.getStudentCount(3));
+        assertEquals(8, service.getCourseInfo(2).getAvailableSpots());
+        assertTrue(counters.verify().isEmpty());
+
+        service.removeStudent(3);
+        assertEquals(List.of("4-2"), enrollments.rows());
+        assertTrue(counters.verify().isEmpty());
+    }
+
+    /**
+     * The enrollments stored as (student, course) rows like the studentcourse table, where the id of a row is its
+     * student: a delete by id removes every row of the student, a delete by criteria the matching rows only.
+     */
+    private static final class EnrollmentTable implements IRepository<Enrolled> {
+        private final List<Enrolled> rows = new CopyOnWriteArrayList<>();
+
+        List<String> rows() {
+            return rows.stream().map(row -> row.getId() + "-" + row.getCourseId()).toList();
+        }
+
+        @Override
+        public void create(Enrolled obj) {
+            rows.add(obj);
+        }
+
+        @Override
+        public Enrolled get(Integer id) {
+            return rows.stream().filter(row -> row.getId().equals(id)).findFirst().orElse(null);
+        }
+
+        @Override
+        public void update(Enrolled obj) {
+            throw new UnsupportedOperationException("The rows of a join table are not updated");
+        }
+
+        @Override
+        public void delete(Integer id) {
+            rows.removeIf(row -> row.getId().equals(id));
+        }
+
+        @Override
+        public List<Enrolled> getAll() {
+            return new ArrayList<>(rows);
+        }
+
+        @Override
+        public int deleteWhere(Criteria criteria) {
+            int before = rows.size();
+            rows.removeIf(criteria::matches);
+            return before - rows.size();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package Tests;
+
+import Models.*;
+import Models.Module;
+import Repository.EntityMapping;
+import Utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the SQL compiled by {@link EntityMapping} for the tables of the application, so no database is needed.
+ */
+public class EntityMappingTests {
+    private final Utils utils = new Utils();
+
+    @Test
+    void testIdColumnResolution() {
+        assertEquals("userid", EntityMapping.resolveIdColumnName("student"));
+        assertEquals("userid", EntityMapping.resolveIdColumnName("Instructor"));
+        assertEquals("userid", EntityMapping.resolveIdColumnName("admin"));
+        assertEquals("courseid", EntityMapping.resolveIdColumnName("course"));
+        assertEquals("studentid", EntityMapping.resolveIdColumnName("studentcourse"));
+        assertEquals("moduleid", EntityMapping.resolveIdColumnName("coursemodule"));
+        assertEquals("moduleid", EntityMapping.resolveIdColumnName("moduleassignment"));
+        assertEquals("assignmentid", EntityMapping.resolveIdColumnName("assignmentquiz"));
+        assertEquals("messageid", EntityMapping.resolveIdColumnName("messageforum"));
+        assertEquals("messageid", EntityMapping.resolveIdColumnName("message"));
+    }
+
+    @Test
+    void testEveryTableHasItsIdColumn() {
+        List<EntityMapping<?>> mappings = List.of(
+                new EntityMapping<>("course", Course.class, utils.getCourseParameters()),
+                new EntityMapping<>("student", Student.class, utils.getUsersParameters()),
+                new EntityMapping<>("instructor", Instructor.class, utils.getUsersParameters()),
+                new EntityMapping<>("admin", Admin.class, utils.getUsersParameters()),
+                new EntityMapping<>("module", Module.class, utils.getModuleParameters()),
+                new EntityMapping<>("assignment", Assignment.class, utils.getAssignmentParameteres()),
+                new EntityMapping<>("quiz", Quiz.class, utils.getQuizParameters()),
+                new EntityMapping<>("message", Message.class, utils.getMessageParamteres()),
+                new EntityMapping<>("studentcourse", Enrolled.class, utils.getEnrolledParameters()),
+                new EntityMapping<>("coursemodule", ModuleCourse.class, utils.getCourseModuleParameters()),
+                new EntityMapping<>("moduleassignment", AssignmentModule.class, utils.getModuleAssignmentParameteres()),
+                new EntityMapping<>("assignmentquiz", QuizAssignment.class, utils.getQuizAssignmentParameteres()));
+        for (EntityMapping<?> mapping : mappings) {
+            // The id is the first column and the only one left out of the SET list of the update
+            String id = mapping.getIdColumnName();
+            assertTrue(mapping.getColumn(0).equalsIgnoreCase(id), mapping.getTableName());
+            assertTrue(mapping.getUpdateSql().endsWith(" WHERE " + id + " = ?"), mapping.getTableName());
+            assertFalse(mapping.getUpdateSql().contains(mapping.getColumn(0) + " = ?,"), mapping.getTableName());
+            assertEquals(mapping.getColumnCount(), mapping.getInsertSql().chars().filter(c -> c == '?').count());
+            assertEquals(mapping.getColumnCount(), mapping.getUpdateSql().chars().filter(c -> c == '?').count());
+        }
+    }
+
+    @Test
+    void testCourseSql() {
+        EntityMapping<Course> mapping = new EntityMapping<>("course", Course.class, utils.getCourseParameters());
+        String columns = "courseID, courseTitle, description, availableSpots, startDate, endDate, instructorId";
+        assertEquals(columns, mapping.getSelectColumns());
+        assertEquals("INSERT INTO course (" + columns + ") VALUES (?, ?, ?, ?, ?, ?, ?)", mapping.getInsertSql());
+        assertEquals("UPDATE course SET courseTitle = ?, description = ?, availableSpots = ?, startDate = ?, endDate = ?, "
+                + "instructorId = ? WHERE courseid = ?", mapping.getUpdateSql());
+        assertEquals("DELETE FROM course WHERE courseid = ?", mapping.getDeleteSql());
+        assertEquals("SELECT " + columns + " FROM course", mapping.getSelectAllSql());
+        assertEquals("SELECT " + columns + " FROM course WHERE courseid = ?", mapping.getSelectByIdSql());
+        assertEquals("SELECT " + columns + " FROM course WHERE courseid = ANY(?)", mapping.getSelectByIdsSql());
+        assertEquals("SELECT " + columns + " FROM course WHERE courseid IN "
+                + "(SELECT DISTINCT courseid FROM course ORDER BY courseid LIMIT ?) ORDER BY courseid", mapping.getSelectPageSql(true));
+        assertEquals("SELECT " + columns + " FROM course WHERE courseid IN "
+                + "(SELECT DISTINCT courseid FROM course WHERE courseid > ? ORDER BY courseid LIMIT ?) ORDER BY courseid", mapping.getSelectPageSql(false));
+    }
+
+    @Test
+    void testUserSqlUsesTheUserIdColumn() {
+        EntityMapping<Student> mapping = new EntityMapping<>("student", Student.class, utils.getUsersParameters());
+        assertEquals("INSERT INTO student (userID, userName, password, email, type) VALUES (?, ?, ?, ?, ?)", mapping.getInsertSql());
+        assertEquals("UPDATE student SET userName = ?, password = ?, email = ?, type = ? WHERE userid = ?", mapping.getUpdateSql());
+        assertEquals("SELECT userID, userName, password, email, type FROM student WHERE userid = ANY(?)", mapping.getSelectByIdsSql());
+        assertEquals("DELETE FROM student WHERE userid = ?", mapping.getDeleteSql());
+    }
+
+    @Test
+    void testJoinTableSqlPagesWholeIds() {
+        // Several rows share a student id, so a page limits the distinct ids and returns every row of each of them
+        EntityMapping<Enrolled> enrolled = new EntityMapping<>("studentcourse", Enrolled.class, utils.getEnrolledParameters());
+        assertEquals("INSERT INTO studentcourse (studentId, courseId) VALUES (?, ?)", enrolled.getInsertSql());
+        assertEquals("UPDATE studentcourse SET courseId = ? WHERE studentid = ?", enrolled.getUpdateSql());
+        assertEquals("SELECT studentId, courseId FROM studentcourse WHERE studentid = ?", enrolled.getSelectByIdSql());
+        assertEquals("SELECT studentId, courseId FROM studentcourse WHERE studentid = ANY(?)", enrolled.getSelectByIdsSql());
+        assertEquals("SELECT studentId, courseId FROM studentcourse WHERE studentid IN "
+                + "(SELECT DISTINCT studentid FROM studentcourse ORDER BY studentid LIMIT ?) ORDER BY studentid", enrolled.getSelectPageSql(true));
+        assertEquals("SELECT studentId, courseId FROM studentcourse WHERE studentid IN "
+                + "(SELECT DISTINCT studentid FROM studentcourse WHERE studentid > ? ORDER BY studentid LIMIT ?) ORDER BY studentid", enrolled.getSelectPageSql(false));
+
+        EntityMapping<ModuleCourse> moduleCourse = new EntityMapping<>("coursemodule", ModuleCourse.class, utils.getCourseModuleParameters());
+        assertEquals("UPDATE coursemodule SET courseId = ? WHERE moduleid = ?", moduleCourse.getUpdateSql());
+        assertEquals("SELECT moduleId, courseId FROM coursemodule WHERE moduleid = ANY(?)", moduleCourse.getSelectByIdsSql());
+        assertEquals("SELECT moduleId, courseId FROM coursemodule WHERE moduleid IN "
+                + "(SELECT DISTINCT moduleid FROM coursemodule WHERE moduleid > ? ORDER BY moduleid LIMIT ?) ORDER BY moduleid", moduleCourse.getSelectPageSql(false));
+
+        EntityMapping<QuizAssignment> quizAssignment = new EntityMapping<>("assignmentquiz", QuizAssignment.class, utils.getQuizAssignmentParameteres());
+        assertEquals("INSERT INTO assignmentquiz (assignmentId, quizId) VALUES (?, ?)", quizAssignment.getInsertSql());
+        assertEquals("UPDATE assignmentquiz SET quizId = ? WHERE assignmentid = ?", quizAssignment.getUpdateSql());
+        assertEquals("DELETE FROM assignmentquiz WHERE assignmentid = ?", quizAssignment.getDeleteSql());
+    }
+
+    @Test
+    void testUnknownFieldIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new EntityMapping<>("course", Course.class, List.of("courseID", "courseTitel")));
+    }
+}
@@ -0,0 +1,88 @@
+package Tests;
+
+import Models.Course;
+import Models.Instructor;
+import Models.Student;
+import Service.CoursesUserService;
+import Service.InstructorLeaderboard;
+import Utils.IndexedSkipList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstructorLeaderboardTests {
+
+    @Test
+    void testLeaderboardFollowsEvents() throws Exception {
+        CoursesUserService service = new CoursesUserService("inmemory");
+        for (int id = 1; id <= 3; id++)
+            service.addInstructor(new Instructor(id, "instructor" + id, "pass", "i" + id + "@gmail.com", "instructor"));
+        for (int id = 1; id <= 4; id++)
+            service.addStudent(new Student(id, "student" + id, "pass", "s" + id + "@gmail.com", "student"));
+        service.addCourse(new Course(1, "Java", "Basics", 10, "2024-01-01", "2024-06-01", 1));
+        service.addCourse(new Course(2, "SQL", "Joins", 10, "2024-01-01", "2024-06-01", 2));
+
+        InstructorLeaderboard leaderboard = service.getInstructorLeaderboard();
+        assertArrayEquals(new int[]{1, 2, 3}, leaderboard.getTopByCourseCount(3));
+
+        service.enroll(1, 2);
+        service.enroll(2, 2);
+        service.enroll(3, 1);
+        assertArrayEquals(new int[]{2, 1}, leaderboard.getTopByEnrollment(2));
+        assertEquals(2, leaderboard.getRankByEnrollment(1));
+
+        // Course 1 and its student move to instructor 3, who then also takes course 2
+        service.assignInstructor(3, 1);
+        service.assignInstructor(3, 2);
+        assertEquals(2, leaderboard.getCourseCount(3));
+        assertEquals(3, leaderboard.getEnrollmentCount(3));
+        assertEquals(1, leaderboard.getRankByEnrollment(3));
+
+        service.unenroll(1, 2);
+        service.removeCourse(1);
+        service.removeInstructor(2);
+        service.addInstructor(new Instructor(4, "instructor4", "pass", "i4@gmail.com", "instructor"));
+        assertEquals(1, leaderboard.getEnrollmentCount(3));
+        assertEquals(1, leaderboard.getCourseCount(3));
+        assertEquals(-1, leaderboard.getRankByCourseCount(2));
+        assertArrayEquals(new int[]{3, 1, 4}, leaderboard.getTopByCourseCount(10));
+        assertEquals(List.of(3, 1), service.getTopInstructorsByEnrollment(2).stream().map(Instructor::getId).toList());
+
+        // The incremental rankings agree with rankings rebuilt from the repositories
+        int[] incremental = leaderboard.getTopByEnrollment(10);
+        leaderboard.rebuild();
+        assertArrayEquals(incremental, leaderboard.getTopByEnrollment(10));
+    }
+
+    @Test
+    void testSkipListMatchesSortedScores() {
+        Random random = new Random(42);
+        IndexedSkipList list = new IndexedSkipList();
+        Map<Integer, Long> scores = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            int id = random.nextInt(500);
+            if (random.nextInt(5) == 0) {
+                assertEquals(scores.remove(id) != null, list.remove(id));
+            } else {
+                long delta = random.nextInt(21) - 10;
+                scores.merge(id, delta, Long::sum);
+                list.addTo(id, delta);
+            }
+        }
+
+        List<Integer> expected = new ArrayList<>(scores.keySet());
+        expected.sort(Comparator.comparing((Integer id) -> -scores.get(id)).thenComparing(id -> id));
+        assertEquals(expected.size(), list.size());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), list.top(expected.size()));
+        for (int rank = 0; rank < expected.size(); rank++)
+            assertEquals(rank, list.rank(expected.get(rank)));
+        assertEquals(-1, list.rank(1_000));
+    }
+}
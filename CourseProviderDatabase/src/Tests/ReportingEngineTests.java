@@ -0,0 +1,63 @@
+package Tests;
+
+import Models.Course;
+import Models.Enrolled;
+import Models.Instructor;
+import Service.ReportingEngine;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportingEngineTests {
+
+    @Test
+    void testTopKMatchesAStableSort() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            long[] scores = new long[random.nextInt(200)];
+            for (int i = 0; i < scores.length; i++)
+                scores[i] = random.nextInt(10);
+            int k = random.nextInt(scores.length + 2);
+
+            int[] expected = IntStream.range(0, scores.length).boxed()
+                    .sorted(Comparator.comparingLong((Integer i) -> scores[i]).reversed())
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, ReportingEngine.topK(scores, k));
+        }
+    }
+
+    @Test
+    void testParallelCountsMatchSerialCounts() {
+        Random random = new Random(7);
+        List<Instructor> instructors = new ArrayList<>();
+        for (int id = 1; id <= 50; id++)
+            instructors.add(new Instructor(id, "instructor" + id, "pass", "i" + id + "@example.com", "instructor"));
+        List<Course> courses = new ArrayList<>();
+        for (int id = 1; id <= 500; id++)
+            courses.add(new Course(id, "Course " + id, "", 100, "2024-01-01", "2024-06-01", id % 7 == 0 ? null : 1 + random.nextInt(60)));
+        List<Enrolled> enrollments = new ArrayList<>();
+        for (int student = 0; student < 200_000; student++)
+            enrollments.add(new Enrolled(student, 1 + random.nextInt(510)));
+
+        ReportingEngine serial = new ReportingEngine(courses, instructors, enrollments, false);
+        ReportingEngine parallel = new ReportingEngine(courses, instructors, enrollments, true);
+        assertArrayEquals(serial.countEnrollmentsPerCourse(), parallel.countEnrollmentsPerCourse());
+        assertArrayEquals(serial.countEnrollmentsPerInstructor(), parallel.countEnrollmentsPerInstructor());
+
+        long expected = 0;
+        for (Enrolled enrolled : enrollments) {
+            Course course = enrolled.getCourseId() <= 500 ? courses.get(enrolled.getCourseId() - 1) : null;
+            if (course != null && course.getInstructorId() != null && course.getInstructorId() == 3)
+                expected++;
+        }
+        assertEquals(expected, parallel.countEnrollmentsPerInstructor()[2]);
+    }
+}
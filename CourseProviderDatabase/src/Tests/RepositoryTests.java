@@ -0,0 +1,779 @@
+package Tests;
+
+import Exceptions.DataBaseException;
+import Models.*;
+import Repository.CachePolicy;
+import Repository.CachingRepository;
+import Repository.CourseDateIndex;
+import Repository.CourseQuery;
+import Repository.Criteria;
+import Repository.DataBaseCourseQueryRepository;
+import Repository.EnrollmentResult;
+import Repository.EntityCodec;
+import Repository.InMemoryCourseDateRepository;
+import Repository.FileRepository;
+import Repository.InMemoryCourseOutlineRepository;
+import Repository.InMemoryEnrollmentRepository;
+import Repository.InMemoryCourseQueryRepository;
+import Repository.IRepository;
+import Repository.InMemoryRepo;
+import Repository.InMemoryUserRepository;
+import Repository.MappedFileRepository;
+import Repository.WriteBehindRepository;
+import Utils.Dates;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class RepositoryTests {
+
+    @Test
+    void testFindByUsesCurrentValues() {
+        InMemoryRepo<Course> courseRepo = new InMemoryRepo<>();
+        courseRepo.create(new Course(1, "MAP", "greu", 11, "2024-07-09", "2024-08-12", 4));
+        courseRepo.create(new Course(2, "LP", "usor", 10, "2024-01-09", "2024-05-09", 4));
+        courseRepo.create(new Course(3, "OOP", "mediu", 10, "2024-01-09", "2024-05-09", 5));
+
+        assertEquals(2, courseRepo.findBy("instructorId", 4).size());
+
+        Course course = courseRepo.get(2);
+        course.setInstructorId(5);
+        courseRepo.update(course);
+
+        assertEquals(1, courseRepo.findBy("instructorId", 4).size());
+        assertEquals(2, courseRepo.count(Criteria.where("instructorId", 5)));
+
+        courseRepo.delete(3);
+        List<Course> courses = courseRepo.findBy("instructorId", 5);
+        assertEquals(1, courses.size());
+        assertEquals(2, courses.get(0).getId());
+    }
+
+    @Test
+    void testExistsWithSeveralFields() {
+        InMemoryRepo<Enrolled> enrolledRepo = new InMemoryRepo<>();
+        enrolledRepo.create(new Enrolled(1, 10));
+        enrolledRepo.create(new Enrolled(2, 10));
+
+        assertTrue(enrolledRepo.exists(Criteria.where("studentId", 1).and("courseId", 10)));
+        assertFalse(enrolledRepo.exists(Criteria.where("studentId", 1).and("courseId", 11)));
+        assertEquals(2, enrolledRepo.count(Criteria.where("courseId", 10)));
+        assertEquals(0, enrolledRepo.count(Criteria.where("courseId", 12)));
+    }
+
+    @Test
+    void testDeclaredIntIndex() {
+        InMemoryRepo<Course> courseRepo = new InMemoryRepo<Course>().withIndex("instructorId", Course::getInstructorId);
+        for (int id = 1; id <= 100; id++)
+            courseRepo.create(new Course(id, "Course " + id, "", 10, "2024-01-09", "2024-05-09", id % 3 == 0 ? null : id % 7));
+
+        assertEquals(courseRepo.getAll().stream().filter(c -> Integer.valueOf(2).equals(c.getInstructorId())).count(),
+                (long) courseRepo.count(Criteria.where("instructorId", 2)));
+        assertEquals(33, courseRepo.findBy("instructorId", null).size());
+
+        Course course = courseRepo.get(3);
+        course.setInstructorId(2);
+        courseRepo.update(course);
+        assertTrue(courseRepo.findBy("instructorId", 2).contains(course));
+        assertEquals(32, courseRepo.findBy("instructorId", null).size());
+
+        courseRepo.delete(3);
+        assertFalse(courseRepo.findBy("instructorId", 2).contains(course));
+    }
+
+    @Test
+    void testConcurrentCompute() throws InterruptedException {
+        InMemoryRepo<Course> courseRepo = new InMemoryRepo<Course>().withIndex("instructorId", Course::getInstructorId);
+        courseRepo.create(new Course(1, "MAP", "greu", 8000, "2024-07-09", "2024-08-12", 4));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 1000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    courseRepo.compute(1, course -> {
+                        course.setAvailableSpots(course.getAvailableSpots() - 1);
+                        return course;
+                    });
+                    courseRepo.putIfAbsent(new Course(100 + offset + i, "C", "", 1, "2024-01-09", "2024-05-09", 4));
+                    courseRepo.count(Criteria.where("instructorId", 4));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(0, courseRepo.get(1).getAvailableSpots());
+        assertEquals(8001, courseRepo.count(Criteria.where("instructorId", 4)));
+        assertNotNull(courseRepo.putIfAbsent(new Course(1, "MAP", "greu", 1, "2024-07-09", "2024-08-12", 4)));
+    }
+
+    @Test
+    void testEnrollmentResults() {
+        InMemoryRepo<Course> courseRepo = new InMemoryRepo<>();
+        InMemoryRepo<Enrolled> enrolledRepo = new InMemoryRepo<Enrolled>().withIndex("courseId", Enrolled::getCourseId);
+        courseRepo.create(new Course(1, "MAP", "greu", 1, "2024-07-09", "2024-08-12", 4));
+        InMemoryEnrollmentRepository enrollments = new InMemoryEnrollmentRepository(courseRepo, enrolledRepo);
+
+        assertEquals(EnrollmentResult.ENROLLED, enrollments.enroll(1, 1));
+        assertEquals(EnrollmentResult.ALREADY_ENROLLED, enrollments.enroll(1, 1));
+        assertEquals(EnrollmentResult.COURSE_FULL, enrollments.enroll(2, 1));
+        assertEquals(EnrollmentResult.COURSE_NOT_FOUND, enrollments.enroll(2, 9));
+        assertEquals(0, courseRepo.get(1).getAvailableSpots());
+        assertEquals(List.of(1), courseRepo.get(1).getEnrolledStudents());
+
+        assertFalse(enrollments.unenroll(2, 1));
+        assertFalse(enrollments.unenroll(1, 9));
+        assertTrue(enrollments.unenroll(1, 1));
+        assertEquals(1, courseRepo.get(1).getAvailableSpots());
+        assertNull(enrolledRepo.get(1));
+        assertEquals(EnrollmentResult.ENROLLED, enrollments.enroll(2, 1));
+        assertEquals(1, enrollments.getRejectedFullCount());
+        assertEquals(1, enrollments.getRejectedDuplicateCount());
+    }
+
+    @Test
+    void testConcurrentEnrollmentsNeverOverbook() throws InterruptedException {
+        int students = 32;
+        int seats = 5;
+        InMemoryRepo<Course> courseRepo = new InMemoryRepo<>();
+        InMemoryRepo<Enrolled> enrolledRepo = new InMemoryRepo<Enrolled>().withIndex("courseId", Enrolled::getCourseId);
+        courseRepo.create(new Course(1, "MAP", "greu", seats, "2024-07-09", "2024-08-12", 4));
+        InMemoryEnrollmentRepository enrollments = new InMemoryEnrollmentRepository(courseRepo, enrolledRepo);
+
+        CountDownLatch start = new CountDownLatch(1);
+        Map<EnrollmentResult, AtomicInteger> results = new ConcurrentHashMap<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int id = 1; id <= students; id++) {
+            int studentId = id;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                results.computeIfAbsent(enrollments.enroll(studentId, 1), result -> new AtomicInteger()).incrementAndGet();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(seats, results.get(EnrollmentResult.ENROLLED).get());
+        assertEquals(students - seats, results.get(EnrollmentResult.COURSE_FULL).get());
+        assertEquals(0, courseRepo.get(1).getAvailableSpots());
+        assertEquals(seats, courseRepo.get(1).getEnrolledStudents().size());
+        assertEquals(seats, enrolledRepo.count(Criteria.where("courseId", 1)));
+    }
+
+    @Test
+    void testDecoratorsUnwrapToTheStorageRepository() {
+        InMemoryRepo<Course> storage = new InMemoryRepo<>();
+        IRepository<Course> decorated = new CachingRepository<>(new WriteBehindRepository<>(storage), CachePolicy.LRU, 10);
+        assertSame(storage, decorated.unwrap());
+        assertSame(storage, storage.unwrap());
+    }
+
+    @Test
+    void testBatchWrites() {
+        InMemoryRepo<Enrolled> enrolledRepo = new InMemoryRepo<Enrolled>().withIndex("courseId", Enrolled::getCourseId);
+        List<Enrolled> enrollments = new ArrayList<>();
+        for (int id = 1; id <= 50; id++)
+            enrollments.add(new Enrolled(id, id % 2 == 0 ? 10 : 11));
+        enrolledRepo.createAll(enrollments);
+        assertEquals(25, enrolledRepo.count(Criteria.where("courseId", 10)));
+
+        enrolledRepo.updateAll(List.of(new Enrolled(1, 10), new Enrolled(3, 10)));
+        assertEquals(27, enrolledRepo.count(Criteria.where("courseId", 10)));
+
+        enrolledRepo.deleteAll(List.of(1, 2, 99));
+        assertEquals(48, enrolledRepo.getAll().size());
+        assertEquals(25, enrolledRepo.count(Criteria.where("courseId", 10)));
+    }
+
+    @Test
+    void testFileRepositoryLog() throws IOException {
+        Path file = Files.createTempFile("course", ".log");
+        Files.delete(file);
+        FileRepository<Course> courseRepo = new FileRepository<>(file.toString());
+        for (int id = 1; id <= 20; id++)
+            courseRepo.create(new Course(id, "Course " + id, "", 10, "2024-01-09", "2024-05-09", id % 2));
+        courseRepo.create(new Course(1, "Duplicate", "", 10, "2024-01-09", "2024-05-09", 1));
+
+        Course course = courseRepo.get(2);
+        course.setAvailableSpots(3);
+        courseRepo.update(course);
+        courseRepo.delete(5);
+        assertEquals("Course 1", courseRepo.get(1).getCourseTitle());
+        assertEquals(9, courseRepo.count(Criteria.where("instructorId", 1)));
+
+        FileRepository<Course> sameFile = new FileRepository<>(file.toString());
+        assertEquals(19, sameFile.getAll().size());
+        assertEquals(3, sameFile.get(2).getAvailableSpots());
+        assertNull(sameFile.get(5));
+
+        long before = Files.size(file);
+        courseRepo.compact();
+        assertTrue(Files.size(file) < before);
+        assertEquals(19, courseRepo.getAll().size());
+        assertEquals(3, courseRepo.get(2).getAvailableSpots());
+    }
+
+    @Test
+    void testFileRepositoryReadsLegacyFile() throws IOException {
+        Path file = Files.createTempFile("student", ".csv");
+        Map<Integer, Student> students = new HashMap<>();
+        students.put(1, new Student(1, "maia", "maiapass", "maia@gmail.com", "student"));
+        students.put(2, new Student(2, "johnDoe", "jd123pass", "john.doe@yahoo.com", "student"));
+        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(file))) {
+            oos.writeObject(students);
+        }
+
+        byte[] legacy = Files.readAllBytes(file);
+
+        FileRepository<Student> studentRepo = new FileRepository<>(file.toString());
+        assertEquals(2, studentRepo.getAll().size());
+        assertEquals("johnDoe", studentRepo.get(2).getUsername());
+        // The legacy file is converted in place, keeping the original next to it
+        assertArrayEquals(legacy, Files.readAllBytes(file.resolveSibling(file.getFileName() + ".bak")));
+    }
+
+    @Test
+    void testMappedFileRepository() throws IOException {
+        Path file = Files.createTempFile("course", ".mmap");
+        Files.delete(file);
+        MappedFileRepository<Course> courseRepo = new MappedFileRepository<>(file.toString());
+        for (int id = 1; id <= 200; id++)
+            courseRepo.create(new Course(id, "Course " + id, "", 10, "2024-01-09", "2024-05-09", id % 2));
+        courseRepo.create(new Course(1, "Duplicate", "", 10, "2024-01-09", "2024-05-09", 1));
+
+        Course course = courseRepo.get(2);
+        course.setDescription("x".repeat(2000));
+        courseRepo.update(course);
+        courseRepo.delete(5);
+        assertEquals("Course 1", courseRepo.get(1).getCourseTitle());
+        assertEquals(99, courseRepo.count(Criteria.where("instructorId", 1)));
+
+        MappedFileRepository<Course> sameFile = new MappedFileRepository<>(file.toString());
+        assertEquals(199, sameFile.getAll().size());
+        assertEquals(2000, sameFile.get(2).getDescription().length());
+        assertNull(sameFile.get(5));
+    }
+
+    @Test
+    void testMappedFileRepositoryKeepsItsTableWhenRebuildFails() throws IOException {
+        Path file = Files.createTempFile("course", ".mmap");
+        Files.delete(file);
+        MappedFileRepository<Course> courseRepo = new MappedFileRepository<>(file.toString());
+        courseRepo.create(new Course(1, "MAP", "", 10, "2024-01-09", "2024-05-09", 1));
+
+        // Slots large enough for this description would make the table exceed 2 GB
+        Course huge = new Course(2, "Huge", "x".repeat(20_000_000), 10, "2024-01-09", "2024-05-09", 1);
+        assertThrows(IllegalStateException.class, () -> courseRepo.create(huge));
+        assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".rebuild")));
+
+        assertEquals("MAP", courseRepo.get(1).getCourseTitle());
+        assertNull(courseRepo.get(2));
+        for (int id = 3; id <= 100; id++)
+            courseRepo.create(new Course(id, "Course " + id, "", 10, "2024-01-09", "2024-05-09", 1));
+        assertEquals(99, courseRepo.getAll().size());
+        assertEquals("Course 100", courseRepo.get(100).getCourseTitle());
+    }
+
+    @Test
+    void testBinaryEntityCodec() throws IOException {
+        Course course = new Course(7, "MAP", null, 11, "2024-07-09", "2024-08-12", -4);
+        course.getEnrolledStudents().addAll(List.of(1, 300, 70000));
+        Forum forum = new Forum(3, "Ställ frågor här");
+        forum.setTopics(new String[]{"java", null});
+        List<Identifiable> entities = List.of(course, forum,
+                new Student(1, "maia", "maiapass", "maia@gmail.com", "student"),
+                new Message(2, "hello", 1, null),
+                new Enrolled(1, 7));
+
+        List<Identifiable> decoded = new ArrayList<>();
+        for (Identifiable entity : entities) {
+            byte[] binary = EntityCodec.BINARY.encode(entity);
+            byte[] java = EntityCodec.JAVA_SERIALIZATION.encode(entity);
+            assertTrue(binary.length < java.length / 4);
+            decoded.add(EntityCodec.BINARY.decode(ByteBuffer.wrap(binary)));
+            assertEquals(entity.getId(), EntityCodec.BINARY.decode(ByteBuffer.wrap(java)).getId());
+        }
+        assertEquals(course.toString(), decoded.get(0).toString());
+        assertEquals(List.of(1, 300, 70000), ((Course) decoded.get(0)).getEnrolledStudents());
+        assertEquals("Ställ frågor här", ((Forum) decoded.get(1)).getTopic());
+        assertArrayEquals(forum.getTopics(), ((Forum) decoded.get(1)).getTopics());
+        for (int i = 2; i < entities.size(); i++)
+            assertEquals(entities.get(i).toString(), decoded.get(i).toString());
+        assertThrows(IOException.class, () -> EntityCodec.BINARY.decode(ByteBuffer.wrap(new byte[]{1, 1, 20})));
+    }
+
+    @Test
+    void testWriteBehindRepository() {
+        InMemoryRepo<Course> backend = new InMemoryRepo<>();
+        backend.create(new Course(1, "MAP", "greu", 10, "2024-07-09", "2024-08-12", 4));
+        backend.create(new Course(2, "LP", "usor", 10, "2024-01-09", "2024-05-09", 4));
+        WriteBehindRepository<Course> courseRepo = new WriteBehindRepository<>(backend, 100, 3_600_000);
+
+        for (int spots = 9; spots >= 5; spots--)
+            courseRepo.update(new Course(1, "MAP", "greu", spots, "2024-07-09", "2024-08-12", 4));
+        courseRepo.delete(2);
+        courseRepo.create(new Course(3, "OOP", "mediu", 10, "2024-01-09", "2024-05-09", 5));
+
+        assertEquals(5, courseRepo.get(1).getAvailableSpots());
+        assertNull(courseRepo.get(2));
+        assertEquals(10, backend.get(1).getAvailableSpots());
+        assertNotNull(backend.get(2));
+        assertNotNull(backend.get(3));
+        assertEquals(2, courseRepo.getPendingCount());
+        assertEquals(4, courseRepo.getCoalescedCount());
+
+        assertEquals(2, courseRepo.count(Criteria.where("instructorId", 4)) + courseRepo.count(Criteria.where("instructorId", 5)));
+        assertEquals(0, courseRepo.getPendingCount());
+        assertEquals(5, backend.get(1).getAvailableSpots());
+        assertNull(backend.get(2));
+
+        courseRepo.update(new Course(1, "MAP", "greu", 0, "2024-07-09", "2024-08-12", 4));
+        courseRepo.close();
+        assertEquals(0, backend.get(1).getAvailableSpots());
+    }
+
+    @Test
+    void testWriteBehindDropsRejectedChangesAndRetriesTransientFailures() {
+        AtomicBoolean databaseDown = new AtomicBoolean();
+        InMemoryRepo<Course> backend = new InMemoryRepo<>() {
+            @Override
+            public void updateAll(Collection<? extends Course> objs) {
+                if (databaseDown.get())
+                    throw DataBaseException.handleSQLException(new SQLTransientConnectionException("Timed out", "08001"), "updating course");
+                for (Course course : objs)
+                    if (course.getCourseTitle().isEmpty())
+                        throw DataBaseException.handleSQLException(new SQLException("null value in column", "23502"), "updating course");
+                super.updateAll(objs);
+            }
+        };
+        backend.create(new Course(1, "MAP", "greu", 10, "2024-07-09", "2024-08-12", 4));
+        backend.create(new Course(2, "LP", "usor", 10, "2024-01-09", "2024-05-09", 4));
+        WriteBehindRepository<Course> courseRepo = new WriteBehindRepository<>(backend, 100, 3_600_000);
+
+        // A change that can never be written is dropped, the other one of the batch still is written
+        courseRepo.update(new Course(1, "", "greu", 5, "2024-07-09", "2024-08-12", 4));
+        courseRepo.update(new Course(2, "LP", "usor", 7, "2024-01-09", "2024-05-09", 4));
+        assertEquals(2, courseRepo.getAll().size());
+        assertEquals(10, backend.get(1).getAvailableSpots());
+        assertEquals(7, backend.get(2).getAvailableSpots());
+        assertEquals(0, courseRepo.getPendingCount());
+        assertEquals(1, courseRepo.getRejectedCount());
+        assertEquals(1, courseRepo.getRejectedChanges().get(0).id());
+        assertEquals(10, courseRepo.get(1).getAvailableSpots());
+
+        // A transient failure keeps the change pending until the database is back
+        databaseDown.set(true);
+        courseRepo.update(new Course(2, "LP", "usor", 6, "2024-01-09", "2024-05-09", 4));
+        assertThrows(DataBaseException.class, courseRepo::flush);
+        assertEquals(1, courseRepo.getPendingCount());
+        assertEquals(6, courseRepo.get(2).getAvailableSpots());
+        databaseDown.set(false);
+        courseRepo.close();
+        assertEquals(6, backend.get(2).getAvailableSpots());
+        assertEquals(1, courseRepo.getRejectedCount());
+    }
+
+    @Test
+    void testWriteBehindFlushesBeforeTheStoresCloseOnShutdown() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("course", ".log");
+        Files.delete(file);
+        assertEquals(0, runJava(QueuedWriteThenExit.class, file.toString()));
+
+        // The update was still queued when the JVM exited: the shutdown flushed it before closing the file
+        assertEquals(3, new FileRepository<Course>(file.toString()).get(1).getAvailableSpots());
+    }
+
+    @Test
+    void testFileRepositoryIsLockedAgainstOtherProcesses() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("course", ".log");
+        Files.delete(file);
+        FileRepository<Course> courseRepo = new FileRepository<>(file.toString());
+        courseRepo.create(new Course(1, "MAP", "greu", 10, "2024-07-09", "2024-08-12", 4));
+
+        assertEquals(2, runJava(OpenFileRepository.class, file.toString()));
+        assertEquals(10, courseRepo.get(1).getAvailableSpots());
+    }
+
+    /**
+     * Runs the main method of a class in a new JVM with the class path of the tests.
+     *
+     * @return The exit code of the JVM.
+     */
+    private static int runJava(Class<?> main, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), main.getName()));
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).inheritIO().start().waitFor();
+    }
+
+    /**
+     * Opens a file repository and writes to it, exiting with 2 if the file cannot be opened.
+     */
+    public static final class OpenFileRepository {
+        public static void main(String[] args) {
+            try {
+                new FileRepository<Course>(args[0]).create(new Course(2, "LP", "usor", 10, "2024-01-09", "2024-05-09", 4));
+            } catch (UncheckedIOException e) {
+                System.exit(2);
+            }
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Queues an update in a write-behind repository over a file and exits before the periodic flush.
+     */
+    public static final class QueuedWriteThenExit {
+        public static void main(String[] args) {
+            FileRepository<Course> backend = new FileRepository<>(args[0]);
+            backend.create(new Course(1, "MAP", "greu", 10, "2024-07-09", "2024-08-12", 4));
+            WriteBehindRepository<Course> courseRepo = new WriteBehindRepository<>(backend, 100, 3_600_000);
+            courseRepo.update(new Course(1, "MAP", "greu", 3, "2024-07-09", "2024-08-12", 4));
+            System.exit(courseRepo.getPendingCount() == 1 ? 0 : 1);
+        }
+    }
+
+    @Test
+    void testCachingRepository() {
+        InMemoryRepo<Course> backend = new InMemoryRepo<>();
+        for (int id = 1; id <= 10; id++)
+            backend.create(new Course(id, "Course " + id, "", 10, "2024-01-09", "2024-05-09", 1));
+        AtomicLong now = new AtomicLong();
+        CachingRepository<Course> courseRepo = new CachingRepository<>(backend, CachePolicy.LRU, 3)
+                .withTimeToLive(Duration.ofSeconds(30))
+                .withTicker(now::get);
+
+        courseRepo.get(1);
+        courseRepo.get(2);
+        courseRepo.get(1);
+        courseRepo.get(3);
+        courseRepo.get(4);
+        assertEquals(3, courseRepo.size());
+        assertEquals(1, courseRepo.getEvictionCount());
+        courseRepo.get(1);
+        assertEquals(2, courseRepo.getHitCount());
+        courseRepo.get(2);
+        assertEquals(5, courseRepo.getMissCount());
+
+        courseRepo.update(new Course(1, "Renamed", "", 10, "2024-01-09", "2024-05-09", 1));
+        assertEquals("Renamed", courseRepo.get(1).getCourseTitle());
+        courseRepo.delete(1);
+        assertNull(courseRepo.get(1));
+
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        courseRepo.get(2);
+        assertEquals(1, courseRepo.getExpirationCount());
+    }
+
+    @Test
+    void testTinyLfuKeepsPopularEntities() {
+        InMemoryRepo<Course> backend = new InMemoryRepo<>();
+        for (int id = 1; id <= 2000; id++)
+            backend.create(new Course(id, "Course " + id, "", 10, "2024-01-09", "2024-05-09", 1));
+        CachingRepository<Course> courseRepo = new CachingRepository<>(backend, CachePolicy.TINY_LFU, 100);
+
+        for (int round = 0; round < 5; round++)
+            for (int id = 1; id <= 50; id++)
+                courseRepo.get(id);
+        for (int id = 101; id <= 2000; id++)
+            courseRepo.get(id);
+        long misses = courseRepo.getMissCount();
+        for (int id = 1; id <= 50; id++)
+            courseRepo.get(id);
+        assertTrue(courseRepo.getMissCount() - misses < 5);
+        assertTrue(courseRepo.getWeightedSize() <= 100);
+    }
+
+    @Test
+    void testFindByIds() {
+        InMemoryRepo<Student> backend = new InMemoryRepo<>();
+        for (int id = 1; id <= 5; id++)
+            backend.create(new Student(id, "student" + id, "pass", "s" + id + "@gmail.com", "student"));
+        CachingRepository<Student> studentRepo = new CachingRepository<>(backend, CachePolicy.LRU, 100);
+        studentRepo.get(2);
+
+        List<Student> students = studentRepo.findByIds(List.of(4, 2, 9, 1));
+        assertEquals(List.of(4, 2, 1), students.stream().map(Student::getId).toList());
+        assertEquals(1, studentRepo.getHitCount());
+        assertEquals(4, studentRepo.getMissCount());
+
+        studentRepo.findByIds(List.of(1, 4));
+        assertEquals(3, studentRepo.getHitCount());
+        assertTrue(backend.findByIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void testInMemoryCourseOutline() {
+        InMemoryRepo<Course> courseRepo = new InMemoryRepo<>();
+        InMemoryRepo<Models.Module> moduleRepo = new InMemoryRepo<>();
+        InMemoryRepo<Assignment> assignmentRepo = new InMemoryRepo<>();
+        InMemoryRepo<Quiz> quizRepo = new InMemoryRepo<>();
+        InMemoryRepo<ModuleCourse> moduleCourseRepo = new InMemoryRepo<ModuleCourse>().withIndex("courseId", ModuleCourse::getCourseId);
+        InMemoryRepo<AssignmentModule> assignmentModuleRepo = new InMemoryRepo<>();
+        InMemoryRepo<QuizAssignment> assignmentQuizRepo = new InMemoryRepo<>();
+        InMemoryCourseOutlineRepository outlineRepo = new InMemoryCourseOutlineRepository(courseRepo, moduleRepo,
+                assignmentRepo, quizRepo, moduleCourseRepo, assignmentModuleRepo, assignmentQuizRepo);
+
+        courseRepo.create(new Course(1, "Java", "Basics", 10, "2024-01-01", "2024-06-01", 1));
+        courseRepo.create(new Course(2, "Empty", "Nothing yet", 10, "2024-01-01", "2024-06-01", 1));
+        moduleRepo.create(new Models.Module(11, "Streams", "Collectors"));
+        moduleRepo.create(new Models.Module(10, "Syntax", "Classes"));
+        moduleCourseRepo.create(new ModuleCourse(11, 1));
+        moduleCourseRepo.create(new ModuleCourse(10, 1));
+        assignmentRepo.create(new Assignment(100, "Write a class", "2024-02-01", 0));
+        assignmentModuleRepo.create(new AssignmentModule(10, 100));
+        quizRepo.create(new Quiz(1000, "Keywords", "What declares a class?", 2));
+        assignmentQuizRepo.create(new QuizAssignment(100, 1000));
+
+        CourseOutline outline = outlineRepo.getCourseOutline(1);
+        assertEquals(1, outline.getCourse().getId());
+        assertEquals(List.of(10, 11), outline.getModules().stream().map(m -> m.getModule().getId()).toList());
+        CourseOutline.ModuleOutline syntax = outline.getModules().get(0);
+        assertEquals(100, syntax.getAssignments().get(0).getAssignment().getId());
+        assertEquals(1000, syntax.getAssignments().get(0).getQuizzes().get(0).getId());
+        assertTrue(outline.getModules().get(1).getAssignments().isEmpty());
+
+        assertTrue(outlineRepo.getCourseOutline(2).getModules().isEmpty());
+        assertNull(outlineRepo.getCourseOutline(3));
+        assertEquals(1, outlineRepo.getQuizzesOfAssignment(100).size());
+    }
+
+    @Test
+    void testUsernameLookup() {
+        InMemoryRepo<Student> studentRepo = new InMemoryRepo<>();
+        InMemoryRepo<Admin> adminRepo = new InMemoryRepo<>();
+        InMemoryRepo<Instructor> instructorRepo = new InMemoryRepo<>();
+        InMemoryUserRepository userRepo = new InMemoryUserRepository(studentRepo, adminRepo, instructorRepo);
+        studentRepo.create(new Student(1, "maia", "maiapass", "maia@gmail.com", "student"));
+        adminRepo.create(new Admin(1, "adminUser", "adminPass", "admin@example.com", "admin"));
+        instructorRepo.create(new Instructor(1, "profMiller", "teach123", "miller@example.com", "instructor"));
+
+        assertInstanceOf(Student.class, userRepo.findByUsername("maia"));
+        assertInstanceOf(Admin.class, userRepo.findByUsername("adminUser"));
+        assertInstanceOf(Instructor.class, userRepo.findByUsername("profMiller"));
+        assertNull(userRepo.findByUsername("nobody"));
+        assertNull(userRepo.findByUsername(null));
+
+        // The index follows writes made after it was built.
+        instructorRepo.create(new Instructor(2, "drLee", "leeScience101", "lee@academy.edu", "instructor"));
+        studentRepo.delete(1);
+        assertEquals(2, userRepo.findByUsername("drLee").getId());
+        assertNull(userRepo.findByUsername("maia"));
+    }
+
+    @Test
+    void testCourseDateIndexMatchesAScan() {
+        Random random = new Random(7);
+        CourseDateIndex index = new CourseDateIndex();
+        Map<Integer, int[]> periods = new HashMap<>();
+        for (int step = 0; step < 5_000; step++) {
+            int id = random.nextInt(400);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                periods.remove(id);
+            } else {
+                int start = random.nextInt(1_000);
+                int end = start + random.nextInt(60);
+                index.put(id, start, end);
+                periods.put(id, new int[]{start, end});
+            }
+        }
+        assertEquals(periods.size(), index.size());
+
+        for (int query = 0; query < 200; query++) {
+            int from = random.nextInt(1_100);
+            int to = from + random.nextInt(30);
+            List<Integer> expected = periods.entrySet().stream()
+                    .filter(period -> period.getValue()[0] <= to && period.getValue()[1] >= from)
+                    .sorted(Map.Entry.<Integer, int[]>comparingByValue((a, b) -> Integer.compare(a[0], b[0]))
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            assertEquals(expected, index.overlapping(from, to));
+            assertEquals(periods.values().stream().filter(period -> period[1] < from).count(), index.endingBefore(from).size());
+        }
+    }
+
+    @Test
+    void testCourseDatesAreTypedAndIndexed() throws Exception {
+        Course course = new Course(1, "MAP", "greu", 11, "2024-07-09", "2024-8-12", 4);
+        assertEquals(Dates.toEpochDay("2024-07-09"), course.getStartEpochDay());
+        assertEquals("2024-08-12", Dates.format(course.getEndEpochDay()));
+        assertNull(new Course(2, "LP", "usor", 10, "2024-02-30", null, 4).getStartEpochDay());
+
+        // Valid dates are stored zero padded, so that they also order correctly as text
+        assertEquals("2024-08-12", course.getEndDate());
+        Course unpadded = new Course(4, "FP", "greu", 10, "2024-1-9", "2024-1-20", 4);
+        unpadded.setStartDate("2024-1-10");
+        assertEquals("2024-01-10", unpadded.getStartDate());
+        assertEquals("2024-02-30", new Course(2, "LP", "usor", 10, "2024-02-30", null, 4).getStartDate());
+        assertTrue(Criteria.between("endDate", "2024-01-09", "2024-01-31").matches(unpadded));
+
+        // The epoch days are restored when a course is read back from Java serialization.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(course);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(course.getEndEpochDay(), ((Course) in.readObject()).getEndEpochDay());
+        }
+
+        InMemoryRepo<Course> courseRepo = new InMemoryRepo<>();
+        courseRepo.create(course);
+        courseRepo.create(new Course(2, "LP", "usor", 10, "2024-01-09", "2024-05-09", 4));
+        courseRepo.create(new Course(3, "OOP", "mediu", 10, "2024-05-01", "2024-06-30", 5));
+        InMemoryCourseDateRepository dateRepo = new InMemoryCourseDateRepository(courseRepo);
+        assertEquals(List.of(2, 3), dateRepo.findEndingBefore(Dates.toEpochDay("2024-07-01")).stream().map(Course::getId).toList());
+        assertEquals(List.of(2, 3), dateRepo.findActiveOn(Dates.toEpochDay("2024-05-05")).stream().map(Course::getId).toList());
+        assertEquals(List.of(3, 1), dateRepo.findOverlapping(Dates.toEpochDay("2024-06-01"), Dates.toEpochDay("2024-07-09"))
+                .stream().map(Course::getId).toList());
+
+        Course moved = new Course(2, "LP", "usor", 10, "2024-09-01", "2024-12-01", 4);
+        courseRepo.update(moved);
+        dateRepo.courseSaved(moved);
+        assertEquals(List.of(3), dateRepo.findEndingBefore(Dates.toEpochDay("2024-07-01")).stream().map(Course::getId).toList());
+
+        // The same ranges as criteria, as the database backend runs them.
+        assertEquals(1, courseRepo.count(Criteria.between("startDate", null, "2024-06-01").andBetween("endDate", "2024-05-05", null)));
+        assertEquals(List.of(3), courseRepo.find(Criteria.where("instructorId", 5).andBetween("endDate", null, "2024-07-01"))
+                .stream().map(Course::getId).toList());
+    }
+
+    @Test
+    void testCourseQuery() {
+        InMemoryRepo<Course> courseRepo = new InMemoryRepo<Course>().withIndex("instructorId", Course::getInstructorId);
+        courseRepo.create(new Course(1, "MAP", "greu", 11, "2024-07-09", "2024-08-12", 4));
+        courseRepo.create(new Course(2, "LP", "usor", 10, "2024-01-09", "2024-05-09", 4));
+        courseRepo.create(new Course(3, "OOP", "mediu", 30, "2024-05-01", "2024-06-30", 5));
+        courseRepo.create(new Course(4, "DB", "mediu", 20, "2024-02-01", "2024-06-30", 4));
+        Map<Integer, Integer> enrollments = Map.of(1, 5, 2, 9, 3, 5);
+        InMemoryCourseQueryRepository queryRepo = new InMemoryCourseQueryRepository(courseRepo,
+                new InMemoryCourseDateRepository(courseRepo), id -> enrollments.getOrDefault(id, 0));
+
+        CourseQuery popular = CourseQuery.courses().taughtBy(4).orderByDescending(CourseQuery.SortKey.ENROLLMENT);
+        assertEquals(InMemoryCourseQueryRepository.Plan.INSTRUCTOR_INDEX, queryRepo.plan(popular));
+        assertEquals(List.of(2, 1, 4), queryRepo.find(popular).stream().map(Course::getId).toList());
+
+        CourseQuery endingInJune = CourseQuery.courses().endingBetween(Dates.toEpochDay("2024-06-01"), Dates.toEpochDay("2024-06-30"))
+                .enrollmentBetween(1, null)
+                .orderBy(CourseQuery.SortKey.END_DATE).orderByDescending(CourseQuery.SortKey.AVAILABLE_SPOTS);
+        assertEquals(InMemoryCourseQueryRepository.Plan.END_DATE_INDEX, queryRepo.plan(endingInJune));
+        assertEquals(List.of(3), queryRepo.find(endingInJune).stream().map(Course::getId).toList());
+
+        // Pages of a multi-key sort, and the count ignoring the page
+        CourseQuery byEnrollmentThenTitle = CourseQuery.courses().availableSpotsBetween(null, 25)
+                .orderByDescending(CourseQuery.SortKey.ENROLLMENT).orderBy(CourseQuery.SortKey.TITLE).page(1, 2);
+        assertEquals(InMemoryCourseQueryRepository.Plan.SCAN, queryRepo.plan(byEnrollmentThenTitle));
+        assertEquals(List.of(1, 4), queryRepo.find(byEnrollmentThenTitle).stream().map(Course::getId).toList());
+        assertEquals(3, queryRepo.count(byEnrollmentThenTitle));
+        assertTrue(queryRepo.find(CourseQuery.courses().page(10, 5)).isEmpty());
+
+        // A scan streams the courses instead of copying the whole repository
+        InMemoryRepo<Course> streamOnly = new InMemoryRepo<>() {
+            @Override
+            public List<Course> getAll() {
+                throw new AssertionError("The scan copied the repository");
+            }
+        };
+        courseRepo.stream().forEach(streamOnly::create);
+        InMemoryCourseQueryRepository streamingRepo = new InMemoryCourseQueryRepository(streamOnly,
+                new InMemoryCourseDateRepository(courseRepo), id -> enrollments.getOrDefault(id, 0));
+        assertEquals(List.of(1, 4), streamingRepo.find(byEnrollmentThenTitle).stream().map(Course::getId).toList());
+        assertEquals(3, streamingRepo.count(byEnrollmentThenTitle));
+
+        List<Object> parameters = new ArrayList<>();
+        String sql = DataBaseCourseQueryRepository.toSql(byEnrollmentThenTitle, parameters);
+        assertEquals("SELECT c.courseid, c.coursetitle, c.description, c.availablespots, c.startdate, c.enddate, c.instructorid "
+                + "FROM course c WHERE c.availablespots <= ? "
+                + "ORDER BY (SELECT COUNT(*) FROM studentcourse s WHERE s.courseid = c.courseid) DESC NULLS LAST, "
+                + "c.coursetitle ASC NULLS LAST, c.courseid LIMIT ? OFFSET ?", sql);
+        assertEquals(List.of(25, 2, 1), parameters);
+    }
+
+    @Test
+    void testKeysetPagesAndStreams() throws IOException {
+        Path logFile = Files.createTempFile("course", ".log");
+        Path mappedFile = Files.createTempFile("course", ".mmap");
+        Files.delete(logFile);
+        Files.delete(mappedFile);
+        List<IRepository<Course>> repositories = List.of(new InMemoryRepo<>(), new FileRepository<>(logFile.toString()),
+                new MappedFileRepository<>(mappedFile.toString()),
+                new CachingRepository<>(new InMemoryRepo<>(), CachePolicy.LRU, 10),
+                new WriteBehindRepository<>(new InMemoryRepo<>(), 100, 3_600_000));
+
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= 60; id++)
+            ids.add(id * 3);
+        Collections.shuffle(ids, new Random(7));
+        for (IRepository<Course> courseRepo : repositories) {
+            for (Integer id : ids)
+                courseRepo.create(new Course(id, "Course " + id, "", 10, "2024-01-09", "2024-05-09", 1));
+
+            // Walk the pages, deleting a course of the next page and adding one to a past page between two reads
+            List<Integer> seen = new ArrayList<>();
+            List<Course> page = courseRepo.getPage(null, 7);
+            assertEquals(List.of(3, 6, 9, 12, 15, 18, 21), page.stream().map(Course::getId).toList());
+            while (!page.isEmpty()) {
+                page.forEach(course -> seen.add(course.getId()));
+                if (seen.size() == 7) {
+                    courseRepo.delete(24);
+                    courseRepo.create(new Course(1, "Late", "", 10, "2024-01-09", "2024-05-09", 1));
+                }
+                page = courseRepo.getPage(page.get(page.size() - 1).getId(), 7);
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 3; id <= 180; id += 3)
+                if (id != 24)
+                    expected.add(id);
+            assertEquals(expected, seen, courseRepo.getClass().getSimpleName());
+
+            try (Stream<Course> courses = courseRepo.stream()) {
+                assertEquals(60, courses.count());
+            }
+            try (Stream<Course> courses = courseRepo.stream()) {
+                assertEquals(expected.size(), courses.filter(course -> course.getId() % 3 == 0).count());
+            }
+            assertTrue(courseRepo.getPage(180, 5).isEmpty());
+            assertTrue(courseRepo.getPage(null, 0).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> courseRepo.getPage(null, -1));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package Tests;
+
+import Models.*;
+import Models.Module;
+import Repository.EntityMapping;
+import Repository.RowMapper;
+import Repository.RowMappers;
+import Utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads stub rows through the specialized and the reflective row mappers, so no database is needed.
+ */
+public class RowMappersTests {
+    private final Utils utils = new Utils();
+
+    /**
+     * The mappings the repositories of the application are created with.
+     */
+    private List<EntityMapping<?>> mappings() {
+        return List.of(
+                new EntityMapping<>("course", Course.class, utils.getCourseParameters()),
+                new EntityMapping<>("student", Student.class, utils.getUsersParameters()),
+                new EntityMapping<>("instructor", Instructor.class, utils.getUsersParameters()),
+                new EntityMapping<>("admin", Admin.class, utils.getUsersParameters()),
+                new EntityMapping<>("module", Module.class, utils.getModuleParameters()),
+                new EntityMapping<>("assignment", Assignment.class, utils.getAssignmentParameteres()),
+                new EntityMapping<>("quiz", Quiz.class, utils.getQuizParameters()),
+                new EntityMapping<>("message", Message.class, utils.getMessageParamteres()),
+                new EntityMapping<>("studentcourse", Enrolled.class, utils.getEnrolledParameters()),
+                new EntityMapping<>("coursemodule", ModuleCourse.class, utils.getCourseModuleParameters()),
+                new EntityMapping<>("moduleassignment", AssignmentModule.class, utils.getModuleAssignmentParameteres()),
+                new EntityMapping<>("assignmentquiz", QuizAssignment.class, utils.getQuizAssignmentParameteres()));
+    }
+
+    @Test
+    void testEveryRegisteredModelGetsItsSpecializedMapper() {
+        Set<Class<?>> mapped = mappings().stream().map(EntityMapping::getType).collect(Collectors.toSet());
+        assertEquals(RowMappers.registeredTypes(), mapped);
+        for (EntityMapping<?> mapping : mappings())
+            assertTrue(RowMappers.isSpecialized(mapping), mapping.getTableName() + " falls back to the reflective mapper");
+    }
+
+    @Test
+    void testDriftedColumnsFallBackToTheReflectiveMapper() {
+        EntityMapping<Course> reordered = new EntityMapping<>("course", Course.class,
+                List.of("courseID", "description", "courseTitle", "availableSpots", "startDate", "endDate", "instructorId"));
+        assertFalse(RowMappers.isSpecialized(reordered));
+    }
+
+    @Test
+    void testSpecializedAndReflectiveMappersBuildEqualEntities() throws SQLException {
+        for (EntityMapping<?> mapping : mappings()) {
+            for (boolean nulls : new boolean[]{false, true}) {
+                Object[] row = row(mapping, nulls);
+                ResultSet rs = resultSet(row);
+                Object specialized = RowMappers.forMapping(mapping).mapRow(rs);
+                Object reflective = RowMappers.reflective(mapping).mapRow(rs);
+                assertEquals(mapping.getType(), specialized.getClass());
+                assertEquals(reflective.getClass(), specialized.getClass());
+                assertEquals(reflective.toString(), specialized.toString());
+                assertTrue(specialized.toString().contains("=" + row[0]), specialized.toString());
+            }
+        }
+    }
+
+    /**
+     * Builds a row with a distinct value per column. With nulls, every column but the id that maps to an
+     * {@link Integer} field is null.
+     */
+    private static Object[] row(EntityMapping<?> mapping, boolean nulls) {
+        Object[] row = new Object[mapping.getColumnCount()];
+        for (int i = 0; i < row.length; i++) {
+            Class<?> type = mapping.getColumnType(i);
+            if (type == int.class)
+                row[i] = 10 + i;
+            else if (type == Integer.class)
+                row[i] = nulls && i > 0 ? null : 10 + i;
+            else if (type == String.class)
+                row[i] = mapping.getColumn(i) + " " + i;
+            else
+                fail("Unexpected column type " + type + " in " + mapping.getTableName());
+        }
+        return row;
+    }
+
+    /**
+     * Returns a result set positioned on a single row, read by column index.
+     */
+    private static ResultSet resultSet(Object[] row) {
+        List<Boolean> lastWasNull = new ArrayList<>(List.of(false));
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getObject", "getInt", "getString" -> {
+                            Object value = row[(Integer) args[0] - 1];
+                            lastWasNull.set(0, value == null);
+                            if (method.getName().equals("getInt"))
+                                return value == null ? 0 : ((Number) value).intValue();
+                            if (method.getName().equals("getString"))
+                                return value == null ? null : value.toString();
+                            return value;
+                        }
+                        case "wasNull" -> {
+                            return lastWasNull.get(0);
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "toString" -> {
+                            return "StubResultSet";
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
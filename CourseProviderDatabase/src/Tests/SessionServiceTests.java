@@ -0,0 +1,194 @@
+package Tests;
+
+import Exceptions.BusinessException;
+import Models.Course;
+import Models.Student;
+import Models.User;
+import Repository.CachePolicy;
+import Repository.CachingRepository;
+import Repository.InMemoryRepo;
+import Repository.WriteBehindRepository;
+import Service.AuthenticationService;
+import Service.CoursesUserService;
+import Service.SessionService;
+import Utils.PasswordHasher;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionServiceTests {
+    private final AtomicLong now = new AtomicLong();
+    private final CoursesUserService coursesUserService = new CoursesUserService("inmemory");
+    private final AuthenticationService authService = new AuthenticationService("inmemory", new PasswordHasher(1_000));
+    private final SessionService sessionService = new SessionService(authService, coursesUserService, Duration.ofMinutes(30), 4).withTicker(now::get);
+
+    @Test
+    void testLoginAndSlidingExpiry() {
+        assertNull(sessionService.login("maia", "wrong"));
+        String token = sessionService.login("maia", "maiapass");
+        assertNotNull(token);
+        assertNotEquals(token, sessionService.login("maia", "maiapass"));
+        assertEquals("student", sessionService.getRole(token));
+
+        // Every use restarts the idle timeout
+        now.addAndGet(Duration.ofMinutes(20).toNanos());
+        assertEquals(1, sessionService.getUser(token).getId());
+        now.addAndGet(Duration.ofMinutes(20).toNanos());
+        assertNotNull(sessionService.getUser(token));
+        now.addAndGet(Duration.ofMinutes(30).toNanos());
+        assertNull(sessionService.getUser(token));
+        assertEquals(1, sessionService.getExpirationCount());
+
+        String admin = sessionService.login("adminUser", "adminPass");
+        sessionService.logout(admin);
+        assertNull(sessionService.getUser(admin));
+        assertNull(sessionService.getUser("not a token"));
+    }
+
+    @Test
+    void testMaximumSessions() {
+        String first = sessionService.login("maia", "maiapass");
+        for (int i = 0; i < 3; i++) {
+            now.incrementAndGet();
+            sessionService.login("johnDoe", "jd123pass");
+        }
+        now.incrementAndGet();
+        String last = sessionService.login("mikeSmith", "pass789");
+
+        assertTrue(sessionService.getSessionCount() <= 4);
+        assertEquals(1, sessionService.getEvictionCount());
+        assertNull(sessionService.getUser(first));
+        assertNotNull(sessionService.getUser(last));
+    }
+
+    @Test
+    void testEnrolledCoursesAreCachedUntilTheyChange() throws Exception {
+        coursesUserService.addStudent(new Student(1, "maia", "maiapass", "maia@gmail.com", "student"));
+        coursesUserService.addCourse(new Course(1, "Java", "Basics", 10, "2024-01-01", "2024-06-01", 1));
+        String token = sessionService.login("maia", "maiapass");
+
+        assertTrue(sessionService.getEnrolledCourses(token).isEmpty());
+        sessionService.getEnrolledCourses(token);
+        assertEquals(1, sessionService.getCourseCacheHitCount());
+        assertEquals(1, sessionService.getCourseCacheMissCount());
+
+        coursesUserService.enroll(1, 1);
+        assertEquals(List.of(1), sessionService.getEnrolledCourses(token).stream().map(Course::getId).toList());
+
+        coursesUserService.updateCourse(new Course(1, "Java 21", "Basics", 9, "2024-01-01", "2024-06-01", 1));
+        assertEquals("Java 21", sessionService.getEnrolledCourses(token).get(0).getCourseTitle());
+        sessionService.getEnrolledCourses(token);
+        assertEquals(3, sessionService.getCourseCacheMissCount());
+        assertEquals(2, sessionService.getCourseCacheHitCount());
+
+        String admin = sessionService.login("adminUser", "adminPass");
+        assertThrows(BusinessException.class, () -> sessionService.getEnrolledCourses(admin));
+    }
+
+    @Test
+    void testChangesReachOnlyTheSessionsTheyConcern() throws Exception {
+        coursesUserService.setPasswordHasher(new PasswordHasher(1_000));
+        coursesUserService.addStudent(new Student(1, "maia", "maiapass", "maia@gmail.com", "student"));
+        coursesUserService.addStudent(new Student(2, "johnDoe", "jd123pass", "john.doe@yahoo.com", "student"));
+        coursesUserService.addCourse(new Course(1, "Java", "Basics", 10, "2024-01-01", "2024-06-01", 1));
+        coursesUserService.addCourse(new Course(2, "SQL", "Joins", 10, "2024-01-01", "2024-06-01", 1));
+        coursesUserService.enroll(1, 1);
+        coursesUserService.enroll(2, 2);
+        String maia = sessionService.login("maia", "maiapass");
+        String john = sessionService.login("johnDoe", "jd123pass");
+        sessionService.getEnrolledCourses(maia);
+        sessionService.getEnrolledCourses(john);
+        assertEquals(2, sessionService.getCourseCacheMissCount());
+
+        // A change to course 2 drops only the courses cached for john
+        coursesUserService.updateCourse(new Course(2, "SQL 2", "Joins", 9, "2024-01-01", "2024-06-01", 1));
+        sessionService.getEnrolledCourses(maia);
+        assertEquals("SQL 2", sessionService.getEnrolledCourses(john).get(0).getCourseTitle());
+        assertEquals(3, sessionService.getCourseCacheMissCount());
+        assertEquals(1, sessionService.getCourseCacheHitCount());
+
+        // A change to the enrollments of maia drops only hers
+        coursesUserService.unenroll(1, 1);
+        assertTrue(sessionService.getEnrolledCourses(maia).isEmpty());
+        sessionService.getEnrolledCourses(john);
+        assertEquals(4, sessionService.getCourseCacheMissCount());
+
+        sessionService.logout(john);
+        coursesUserService.unenroll(2, 2);
+        sessionService.close();
+        assertEquals(0, sessionService.getSessionCount());
+        assertThrows(BusinessException.class, () -> sessionService.getEnrolledCourses(maia));
+    }
+
+    @Test
+    void testPasswordsAreHashedOnLogin() {
+        User user = authService.authenticate("maia", "maiapass");
+        String hash = user.getPassword();
+        assertTrue(hash.startsWith("pbkdf2-sha512$1000$"));
+        assertSame(user, authService.authenticate("maia", "maiapass"));
+        assertEquals(hash, user.getPassword());
+        assertNull(authService.authenticate("maia", "wrong"));
+        assertNull(authService.authenticate("nobody", "maiapass"));
+
+        // A higher cost upgrades the hash on the next login
+        PasswordHasher stronger = new PasswordHasher(2_000);
+        assertTrue(stronger.needsRehash(hash));
+        assertTrue(stronger.verify("maiapass", hash));
+        assertNotEquals(stronger.hash("maiapass"), stronger.hash("maiapass"));
+        assertFalse(stronger.needsRehash(stronger.hash("maiapass")));
+    }
+
+    @Test
+    void testPasswordUpgradesGoThroughTheSharedRepositories() throws Exception {
+        InMemoryRepo<Student> students = new InMemoryRepo<>();
+        WriteBehindRepository<Student> buffered = new WriteBehindRepository<>(students, 100, 3_600_000);
+        CoursesUserService service = new CoursesUserService(new InMemoryRepo<>(),
+                new CachingRepository<>(buffered, CachePolicy.LRU, 100), new InMemoryRepo<>(), new InMemoryRepo<>(),
+                new InMemoryRepo<>(), new InMemoryRepo<>());
+        service.setPasswordHasher(new PasswordHasher(1_000));
+        service.addStudent(new Student(7, "ana", "anapass", "ana@gmail.com", "student"));
+        Student cached = service.getStudentInfo(7);
+
+        AuthenticationService shared = new AuthenticationService(service, new PasswordHasher(2_000));
+        String hash = shared.authenticate("ana", "anapass").getPassword();
+        assertTrue(hash.startsWith("pbkdf2-sha512$2000$"));
+
+        // The student cached before the login carries the new hash, so writing it back keeps it
+        assertEquals(hash, cached.getPassword());
+        service.updateStudent(cached);
+        buffered.flush();
+        assertEquals(hash, students.get(7).getPassword());
+        assertNotNull(shared.authenticate("ana", "anapass"));
+    }
+
+    @Test
+    void testPasswordsAreHashedWhenStored() throws Exception {
+        PasswordHasher hasher = new PasswordHasher(1_000);
+        coursesUserService.setPasswordHasher(hasher);
+        coursesUserService.addStudent(new Student(42, "nora", "norapass", "nora@gmail.com", "student"));
+        Student stored = coursesUserService.getStudentInfo(42);
+        String hash = stored.getPassword();
+        assertTrue(hash.startsWith("pbkdf2-sha512$1000$"));
+        assertTrue(hasher.verify("norapass", hash));
+
+        // Writing the user back keeps its hash, a new password is hashed
+        coursesUserService.updateStudent(stored);
+        assertEquals(hash, coursesUserService.getStudentInfo(42).getPassword());
+        Student changed = new Student(42, "nora", "newpass", "nora@gmail.com", "student");
+        coursesUserService.updateStudent(changed);
+        assertTrue(hasher.verify("newpass", coursesUserService.getStudentInfo(42).getPassword()));
+
+        // A caller cannot pass its own hash off as already hashed
+        String chosen = "pbkdf2-sha512$2000000000$AAAA$AAAA";
+        coursesUserService.updateStudent(new Student(42, "nora", chosen, "nora@gmail.com", "student"));
+        assertTrue(hasher.verify(chosen, coursesUserService.getStudentInfo(42).getPassword()));
+
+        // Neither is a stored hash with an unbounded cost verified
+        assertFalse(hasher.verify("norapass", "pbkdf2-sha512$" + (PasswordHasher.MAX_ITERATIONS + 1) + "$AAAA$AAAA"));
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher(PasswordHasher.MAX_ITERATIONS + 1));
+    }
+}
@@ -8,6 +8,8 @@ import Exceptions.ValidationException;
 import Models.*;
 import Models.Module;
 import Service.AuthenticationService;
+import Service.CoursesUserService;
+import Service.SessionService;
 
 import java.util.List;
 import java.util.Scanner;
@@ -21,6 +23,8 @@ public class Ui {
     private  AuthenticationService authService;
     private  AssignmentController assignmentController;
     private  CourseUserController courseUserController;
+    private  SessionService sessionService;
+    private  String sessionToken;
 
 //    /**
 //     * Constructs a new Ui object, initializing the controllers for assignment and course-user management.
@@ -48,6 +52,7 @@ public class Ui {
         System.out.println("1. In-memory");
         System.out.println("2. File");
         System.out.println("3. Database");
+        System.out.println("4. Memory-mapped file");
         System.out.print("Choose an option: ");
 
         int storageOption;
@@ -72,6 +77,9 @@ public class Ui {
             case 3:
                 storageMethod = "db";
                 break;
+            case 4:
+                storageMethod = "mmap";
+                break;
             default:
                 System.out.println("Invalid option, defaulting to Database storage.");
                 storageMethod = "db";
@@ -79,8 +87,14 @@ public class Ui {
         }
 
         this.assignmentController = new AssignmentController(storageMethod);
-        this.courseUserController = new CourseUserController(storageMethod);
-        this.authService = new AuthenticationService(storageMethod);
+        CoursesUserService coursesUserService = new CoursesUserService(storageMethod);
+        this.courseUserController = new CourseUserController(coursesUserService);
+        // The demo users of the in-memory storage are the authentication service's own; the stored users are shared, so
+        // that both services write them through the same cache and write-behind buffer.
+        this.authService = "inmemory".equalsIgnoreCase(storageMethod)
+                ? new AuthenticationService(storageMethod)
+                : new AuthenticationService(coursesUserService);
+        this.sessionService = new SessionService(authService, coursesUserService);
 
         if ("inmemory".equalsIgnoreCase(storageMethod)) {
             populateInMemoryRepo();
@@ -107,6 +121,7 @@ public class Ui {
             }
             case null, default -> System.out.println("Login failed. Please try again.");
         }
+        sessionService.logout(sessionToken);
     }
 
     /**
@@ -127,7 +142,8 @@ public class Ui {
             System.out.print("Password: ");
             String password = scanner.nextLine();
 
-            user = authService.authenticate(username, password);
+            sessionToken = sessionService.login(username, password);
+            user = sessionService.getUser(sessionToken);
 
             if (user == null) {
                 System.out.println("Invalid credentials. Please try again.");
@@ -1394,6 +1410,16 @@ public class Ui {
         System.out.print("Enter you're ID: ");
         int userId = scanner.nextInt();
         scanner.nextLine();
+        User user = sessionService.getUser(sessionToken);
+        if (user instanceof Student && user.getId() == userId) {
+            // The logged in student's courses are cached by the session
+            try {
+                System.out.println(sessionService.getEnrolledCourses(sessionToken));
+            } catch (BusinessException e) {
+                System.out.println(e.getMessage());
+            }
+            return;
+        }
         System.out.println(courseUserController.getCoursesByStudent(userId));
     }
 
@@ -0,0 +1,50 @@
+package Utils;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+
+/**
+ * Conversions between the {@code yyyy-MM-dd} dates of the courses and epoch days, the number of days since
+ * 1970-01-01, which compare and index as plain integers.
+ */
+public final class Dates {
+    /** Accepts {@code 2024-01-09} as well as {@code 2024-1-9}, but not days that do not exist. */
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("uuuu-M-d").withResolverStyle(ResolverStyle.STRICT);
+
+    private Dates() {
+    }
+
+    /**
+     * @param date A date in the {@code yyyy-MM-dd} format, may be null.
+     * @return The epoch day of the date, or null if the date is null or not a valid date.
+     */
+    public static Integer toEpochDay(String date) {
+        if (date == null)
+            return null;
+        try {
+            return Math.toIntExact(LocalDate.parse(date.trim(), FORMAT).toEpochDay());
+        } catch (DateTimeParseException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param date A date in the {@code yyyy-MM-dd} format, may be null.
+     * @return The date zero padded, {@code 2024-01-09} for {@code 2024-1-9}, so that dates stored as text order like
+     * the dates; the date unchanged if it is null or not a valid date.
+     */
+    public static String normalize(String date) {
+        Integer epochDay = toEpochDay(date);
+        return epochDay == null ? date : format(epochDay);
+    }
+
+    /**
+     * @param epochDay The number of days since 1970-01-01.
+     * @return The date in the {@code yyyy-MM-dd} format.
+     */
+    public static String format(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+}
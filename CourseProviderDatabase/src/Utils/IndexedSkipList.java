@@ -0,0 +1,214 @@
+package Utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Integer ids ranked by a score, highest first and by increasing id among equal scores, in a skip list whose links
+ * know how many entries they skip. Changing a score, finding the rank of an id and reading the first k ids all
+ * take O(log n) expected time, plus k for the read.
+ * <p>
+ * The list is not synchronized.
+ */
+public class IndexedSkipList {
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head = new Node(-1, 0, MAX_LEVEL);
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private int level = 1;
+
+    private static final class Node {
+        private final int id;
+        private final long score;
+        private final Node[] next;
+        /** The number of entries each link moves forward by. */
+        private final int[] span;
+
+        private Node(int id, long score, int level) {
+            this.id = id;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+
+    /**
+     * @return The number of ranked ids.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @param id The id.
+     * @return true if the id is ranked.
+     */
+    public boolean contains(int id) {
+        return nodes.containsKey(id);
+    }
+
+    /**
+     * @param id           The id.
+     * @param defaultValue The value returned for an id that is not ranked.
+     * @return The score of the id.
+     */
+    public long getScore(int id, long defaultValue) {
+        Node node = nodes.get(id);
+        return node == null ? defaultValue : node.score;
+    }
+
+    /**
+     * Ranks an id with a score, replacing its previous score.
+     *
+     * @param id    The id.
+     * @param score The score.
+     */
+    public void put(int id, long score) {
+        Node node = nodes.get(id);
+        if (node != null) {
+            if (node.score == score)
+                return;
+            unlink(node);
+        }
+        nodes.put(id, insert(id, score));
+    }
+
+    /**
+     * Adds a delta to the score of an id, ranking it with the delta if it was not ranked.
+     *
+     * @param id    The id.
+     * @param delta The amount added to the score.
+     * @return The new score.
+     */
+    public long addTo(int id, long delta) {
+        long score = getScore(id, 0) + delta;
+        put(id, score);
+        return score;
+    }
+
+    /**
+     * Stops ranking an id.
+     *
+     * @param id The id.
+     * @return true if the id was ranked.
+     */
+    public boolean remove(int id) {
+        Node node = nodes.remove(id);
+        if (node == null)
+            return false;
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Stops ranking every id.
+     */
+    public void clear() {
+        nodes.clear();
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        level = 1;
+    }
+
+    /**
+     * @param id The id.
+     * @return The position of the id, 0 for the highest score, or -1 if it is not ranked.
+     */
+    public int rank(int id) {
+        Node node = nodes.get(id);
+        if (node == null)
+            return -1;
+        Node x = head;
+        int rank = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && (x.next[i] == node || before(x.next[i], node.score, node.id))) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x == node)
+                return rank - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @param k The number of ids to return.
+     * @return The ids of the k highest scores, highest first.
+     */
+    public int[] top(int k) {
+        int[] ids = new int[Math.min(Math.max(k, 0), nodes.size())];
+        Node x = head.next[0];
+        for (int i = 0; i < ids.length; i++, x = x.next[0])
+            ids[i] = x.id;
+        return ids;
+    }
+
+    /**
+     * Checks whether a node ranks before the given score and id.
+     */
+    private static boolean before(Node node, long score, int id) {
+        return node.score != score ? node.score > score : node.id < id;
+    }
+
+    private Node insert(int id, long score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], score, id)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = nodes.size();
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(id, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++)
+            update[i].span[i]++;
+        return node;
+    }
+
+    private void unlink(Node node) {
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], node.score, node.id))
+                x = x.next[i];
+            if (x.next[i] == node) {
+                x.span[i] += node.span[i] - 1;
+                x.next[i] = node.next[i];
+            } else {
+                x.span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null)
+            level--;
+    }
+
+    private static int randomLevel() {
+        int level = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (level < MAX_LEVEL && random.nextInt(4) == 0)
+            level++;
+        return level;
+    }
+}
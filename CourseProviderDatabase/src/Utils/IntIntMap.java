@@ -0,0 +1,155 @@
+package Utils;
+
+/**
+ * A map from {@code int} keys to {@code int} values backed by an open-addressing table, without boxing.
+ */
+public class IntIntMap {
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public IntIntMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize The number of entries the map should hold without resizing.
+     */
+    public IntIntMap(int expectedSize) {
+        allocate(IntMultiMap.tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @return true if the key was not present before.
+     */
+    public boolean put(int key, int value) {
+        int slot = find(key);
+        if (slot >= 0) {
+            values[slot] = value;
+            return false;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            allocate(keys.length * 2);
+            slot = find(key);
+        }
+        slot = -slot - 1;
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds a delta to the value of a key, starting from 0 if the key is absent.
+     *
+     * @return The new value.
+     */
+    public int addTo(int key, int delta) {
+        int slot = find(key);
+        if (slot >= 0)
+            return values[slot] += delta;
+        put(key, delta);
+        return delta;
+    }
+
+    /**
+     * @return The value of the key, or the default value if the key is absent.
+     */
+    public int get(int key, int defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @return true if the key was present.
+     */
+    public boolean remove(int key) {
+        int slot = find(key);
+        if (slot < 0)
+            return false;
+        size--;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (used[next]) {
+            int home = IntMultiMap.hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[gap] = false;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        allocate(16);
+    }
+
+    /**
+     * Calls the action for every entry of the map.
+     */
+    public void forEach(IntIntConsumer action) {
+        for (int i = 0; i < used.length; i++)
+            if (used[i])
+                action.accept(keys[i], values[i]);
+    }
+
+    /**
+     * Receives the entries of an {@link IntIntMap}.
+     */
+    @FunctionalInterface
+    public interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+
+    private int find(int key) {
+        int slot = IntMultiMap.hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        size = 0;
+
+        if (oldUsed == null)
+            return;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = -find(oldKeys[i]) - 1;
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                size++;
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package Utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A multi-map from {@code int} keys to {@code int} values that stores neither keys nor values boxed.
+ * <p>
+ * Keys live in an open-addressing table with linear probing; the values of a key are kept in a growable
+ * {@code int[]}. A value is stored at most once per key.
+ */
+public class IntMultiMap {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] keys;
+    private int[][] values;
+    private int[] sizes;
+    private boolean[] used;
+    private int keyCount;
+    private int mask;
+
+    public IntMultiMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedKeys The number of distinct keys the map should hold without resizing.
+     */
+    public IntMultiMap(int expectedKeys) {
+        allocate(tableSizeFor(expectedKeys));
+    }
+
+    /**
+     * Adds a value to a key.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return false if the key already had the value.
+     */
+    public boolean put(int key, int value) {
+        int slot = find(key);
+        if (slot < 0) {
+            if ((keyCount + 1) * 4 > keys.length * 3) {
+                allocate(keys.length * 2);
+                slot = find(key);
+            }
+            slot = -slot - 1;
+            used[slot] = true;
+            keys[slot] = key;
+            values[slot] = new int[2];
+            keyCount++;
+        }
+
+        int[] bucket = values[slot];
+        int size = sizes[slot];
+        for (int i = 0; i < size; i++)
+            if (bucket[i] == value)
+                return false;
+        if (size == bucket.length)
+            values[slot] = bucket = Arrays.copyOf(bucket, size * 2);
+        bucket[size] = value;
+        sizes[slot] = size + 1;
+        return true;
+    }
+
+    /**
+     * Removes a value from a key. The key is dropped once it has no values left.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return true if the key had the value.
+     */
+    public boolean remove(int key, int value) {
+        int slot = find(key);
+        if (slot < 0)
+            return false;
+
+        int[] bucket = values[slot];
+        int size = sizes[slot];
+        for (int i = 0; i < size; i++) {
+            if (bucket[i] == value) {
+                bucket[i] = bucket[size - 1];
+                sizes[slot] = size - 1;
+                if (size == 1)
+                    removeSlot(slot);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param key The key.
+     * @return A copy of the values of the key, empty if the key is absent.
+     */
+    public int[] get(int key) {
+        int slot = find(key);
+        return slot < 0 ? EMPTY : Arrays.copyOf(values[slot], sizes[slot]);
+    }
+
+    /**
+     * Calls the action for every value of a key, without copying them.
+     *
+     * @param key    The key.
+     * @param action The action to run for each value.
+     */
+    public void forEach(int key, IntConsumer action) {
+        int slot = find(key);
+        if (slot < 0)
+            return;
+        int[] bucket = values[slot];
+        for (int i = 0, size = sizes[slot]; i < size; i++)
+            action.accept(bucket[i]);
+    }
+
+    /**
+     * @param key The key.
+     * @return The number of values of the key.
+     */
+    public int size(int key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : sizes[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return The number of distinct keys.
+     */
+    public int keyCount() {
+        return keyCount;
+    }
+
+    public void clear() {
+        allocate(16);
+    }
+
+    /**
+     * @return The slot of the key, or {@code -(insertion slot) - 1} if it is absent.
+     */
+    private int find(int key) {
+        int slot = hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    /**
+     * Empties a slot and shifts back the entries of the probe chain that follows it.
+     */
+    private void removeSlot(int slot) {
+        keyCount--;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (used[next]) {
+            int home = hash(keys[next]) & mask;
+            // move the entry into the gap if its home slot is not between the gap and its position
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                sizes[gap] = sizes[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[gap] = false;
+        values[gap] = null;
+        sizes[gap] = 0;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldKeys = keys;
+        int[][] oldValues = values;
+        int[] oldSizes = sizes;
+        boolean[] oldUsed = used;
+
+        keys = new int[capacity];
+        values = new int[capacity][];
+        sizes = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        keyCount = 0;
+
+        if (oldUsed == null)
+            return;
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = -find(oldKeys[i]) - 1;
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                sizes[slot] = oldSizes[i];
+                keyCount++;
+            }
+        }
+    }
+
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int tableSizeFor(int expected) {
+        int capacity = 16;
+        while (capacity * 3 < expected * 4)
+            capacity <<= 1;
+        return capacity;
+    }
+}
@@ -0,0 +1,164 @@
+package Utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2 password hashes, stored as {@code pbkdf2-sha512$<iterations>$<salt>$<hash>} with the salt and hash
+ * in base64. The number of iterations is the cost: every doubling halves the logins a core verifies per second.
+ * <p>
+ * New and changed passwords are hashed before they are stored, see {@link #forStorage}. Rows stored before hashing
+ * was introduced may still hold plain text; {@link #verify} accepts them only so that {@link #needsRehash} can
+ * report them and they are hashed the next time the user logs in.
+ */
+public class PasswordHasher {
+    /** The iterations recommended for PBKDF2-HMAC-SHA512. */
+    public static final int DEFAULT_ITERATIONS = 210_000;
+    /**
+     * The largest number of iterations of a hash, configured or stored. A stored hash claiming more is rejected
+     * rather than verified, so a crafted hash cannot occupy a verifier for minutes.
+     */
+    public static final int MAX_ITERATIONS = 2_000_000;
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA512";
+    private static final String PREFIX = "pbkdf2-sha512$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param iterations The number of PBKDF2 iterations of new hashes.
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations < 1 || iterations > MAX_ITERATIONS)
+            throw new IllegalArgumentException("iterations must be between 1 and " + MAX_ITERATIONS + ": " + iterations);
+        this.iterations = iterations;
+    }
+
+    /**
+     * Reads the number of iterations from the {@code PASSWORD_HASH_ITERATIONS} environment variable.
+     *
+     * @return A hasher with the configured cost, {@link #DEFAULT_ITERATIONS} if the variable is not set.
+     */
+    public static PasswordHasher fromEnvironment() {
+        String value = System.getenv("PASSWORD_HASH_ITERATIONS");
+        if (value == null || value.isBlank())
+            return new PasswordHasher(DEFAULT_ITERATIONS);
+        try {
+            return new PasswordHasher(Integer.parseInt(value.trim()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring invalid value for PASSWORD_HASH_ITERATIONS: " + value);
+            return new PasswordHasher(DEFAULT_ITERATIONS);
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password The password.
+     * @return The encoded hash.
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(pbkdf2(password, salt, iterations, HASH_BITS));
+    }
+
+    /**
+     * Prepares the password of a user for storage. A user written back as it was read keeps its stored hash; any
+     * other value is a new password and is hashed, even if it looks like a hash, so callers can never store a hash
+     * of their choosing or a plain text password.
+     *
+     * @param password The password of the user being written.
+     * @param stored   The password currently stored for the user, or null for a new user.
+     * @return The value to store.
+     */
+    public String forStorage(String password, String stored) {
+        if (password == null)
+            return null;
+        if (isHashed(password) && password.equals(stored))
+            return password;
+        return hash(password);
+    }
+
+    /**
+     * Checks a password against a stored hash, or against a stored plain text password. The comparison takes the
+     * same time wherever the first difference is.
+     *
+     * @param password The password to check.
+     * @param stored   The stored hash or plain text password.
+     * @return true if the password matches.
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null)
+            return false;
+        if (!isHashed(stored))
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4)
+            return false;
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            if (storedIterations < 1 || storedIterations > MAX_ITERATIONS) {
+                System.err.println("Ignoring password hash with " + parts[1] + " iterations, the limit is " + MAX_ITERATIONS);
+                return false;
+            }
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations, expected.length * 8));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring malformed password hash: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param stored The stored hash or plain text password.
+     * @return true if it is a hash produced by this class.
+     */
+    public boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /**
+     * Checks whether a stored password should be hashed again after a successful login: it is plain text, or it
+     * was hashed with fewer iterations than this hasher uses.
+     *
+     * @param stored The stored hash or plain text password.
+     * @return true if it should be replaced by {@link #hash}.
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored))
+            return true;
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations, int bits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}